@@ -19,116 +19,114 @@
 package org.apache.sling.auth.core.impl;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.servlet.http.HttpServletRequest;
 
+/**
+ * The <code>PathBasedHolderCache</code> keeps the holders by protocol and
+ * host and finds the holders applicable to a request.
+ * <p>
+ * The holders of each protocol and host are kept in a character trie of
+ * their paths. A lookup walks the request path once and returns the holders
+ * whose path is a prefix of it, longest path first. Changes are rare
+ * compared to lookups: each change builds a new immutable set of tries which
+ * is then published, so lookups do not lock.
+ */
 public class PathBasedHolderCache<Type extends PathBasedHolder> {
 
+    /** The holders by protocol and host, only accessed while locked. */
     private final Map<String, Map<String, SortedSet<Type>>> cache = new HashMap<String, Map<String, SortedSet<Type>>>();
 
-    /** Read/write lock to synchronize the cache access. */
-    private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
+    /** The immutable lookup tries by protocol and host built from the cache. */
+    private volatile Map<String, Map<String, PathTree<Type>>> trees = Collections.emptyMap();
 
     public void clear() {
-        this.rwLock.writeLock().lock();
-        try {
+        synchronized (this.cache) {
             cache.clear();
-        } finally {
-            this.rwLock.writeLock().unlock();
+            this.update();
         }
     }
 
     public void addHolder(final Type holder) {
-        this.rwLock.writeLock().lock();
-        try {
-
+        synchronized (this.cache) {
             Map<String, SortedSet<Type>> byHostMap = cache.get(holder.protocol);
             if (byHostMap == null) {
                 byHostMap = new HashMap<String, SortedSet<Type>>();
                 cache.put(holder.protocol, byHostMap);
             }
 
-            final SortedSet<Type> byPathSet = new TreeSet<Type>();
-
-            // preset with current list
-            final SortedSet<Type> currentPathSet = byHostMap.get(holder.host);
-            if (currentPathSet != null) {
-                byPathSet.addAll(currentPathSet);
+            SortedSet<Type> byPathSet = byHostMap.get(holder.host);
+            if (byPathSet == null) {
+                byPathSet = new TreeSet<Type>();
+                byHostMap.put(holder.host, byPathSet);
             }
 
             // add the new holder
             byPathSet.add(holder);
 
-            // replace old set with new set
-            byHostMap.put(holder.host, byPathSet);
-        } finally {
-            this.rwLock.writeLock().unlock();
+            this.update();
         }
     }
 
     public void removeHolder(final Type holder) {
-        this.rwLock.writeLock().lock();
-        try {
+        synchronized (this.cache) {
             final Map<String, SortedSet<Type>> byHostMap = cache.get(holder.protocol);
             if (byHostMap != null) {
                 final SortedSet<Type> byPathSet = byHostMap.get(holder.host);
                 if (byPathSet != null) {
+                    byPathSet.remove(holder);
 
-                    // create a new set without the removed holder
-                    final SortedSet<Type> set = new TreeSet<Type>();
-                    set.addAll(byPathSet);
-                    set.remove(holder);
-
-                    // replace the old set with the new one (or remove if empty)
-                    if (set.isEmpty()) {
+                    // remove the set if empty
+                    if (byPathSet.isEmpty()) {
                         byHostMap.remove(holder.host);
-                    } else {
-                        byHostMap.put(holder.host, set);
                     }
                 }
             }
-        } finally {
-            this.rwLock.writeLock().unlock();
+
+            this.update();
         }
     }
 
-    public Collection<Type>[] findApplicableHolder(final HttpServletRequest request) {
-        this.rwLock.readLock().lock();
-        try {
-            final String hostname = request.getServerName()
-                  + (request.getServerPort() != 80 && request.getServerPort() != 443
-                    ? ":" + request.getServerPort()
-                    : "");
-
-            @SuppressWarnings("unchecked")
-            final SortedSet<Type>[] result = new SortedSet[4];
-
-            final Map<String, SortedSet<Type>> byHostMap = cache.get(request.getScheme());
-            if ( byHostMap != null ) {
-                result[0] = byHostMap.get(hostname);
-                result[1] = byHostMap.get("");
-            }
-            final Map<String, SortedSet<Type>> defaultByHostMap = cache.get("");
-            if ( defaultByHostMap != null ) {
-                result[2] = defaultByHostMap.get(hostname);
-                result[3] = defaultByHostMap.get("");
-            }
-            return result;
-        } finally {
-            this.rwLock.readLock().unlock();
+    /**
+     * Returns the holders applicable to the request whose path is a prefix of
+     * the given <code>path</code>. The holders registered for the scheme and
+     * host of the request come first, followed by the holders for the scheme
+     * and any host, the holders for any scheme and the host and finally the
+     * holders for any scheme and any host. Within each of these groups the
+     * holders are ordered by path, longest first.
+     */
+    public List<Type> findApplicableHolders(final HttpServletRequest request, final String path) {
+        final String hostname = request.getServerName()
+              + (request.getServerPort() != 80 && request.getServerPort() != 443
+                ? ":" + request.getServerPort()
+                : "");
+
+        final Map<String, Map<String, PathTree<Type>>> trees = this.trees;
+        final List<Type> result = new ArrayList<Type>();
+
+        final Map<String, PathTree<Type>> byHostMap = trees.get(request.getScheme());
+        if (byHostMap != null) {
+            collect(byHostMap.get(hostname), path, result);
+            collect(byHostMap.get(""), path, result);
+        }
+        final Map<String, PathTree<Type>> defaultByHostMap = trees.get("");
+        if (defaultByHostMap != null) {
+            collect(defaultByHostMap.get(hostname), path, result);
+            collect(defaultByHostMap.get(""), path, result);
         }
+        return result;
     }
 
     public List<Type> getHolders() {
-        this.rwLock.readLock().lock();
-        try {
+        synchronized (this.cache) {
             final List<Type> result = new ArrayList<Type>();
             for (Map<String, SortedSet<Type>> byHostEntry : cache.values()) {
                 for (SortedSet<Type> holderSet : byHostEntry.values()) {
@@ -136,8 +134,132 @@ public class PathBasedHolderCache<Type extends PathBasedHolder> {
                 }
             }
             return result;
-        } finally {
-            this.rwLock.readLock().unlock();
+        }
+    }
+
+    private static <Type extends PathBasedHolder> void collect(final PathTree<Type> tree, final String path,
+            final List<Type> result) {
+        if (tree != null) {
+            tree.findHolders(path, result);
+        }
+    }
+
+    /**
+     * Builds and publishes new lookup tries from the cache. Must be called
+     * while locked.
+     */
+    private void update() {
+        final Map<String, Map<String, PathTree<Type>>> newTrees = new HashMap<String, Map<String, PathTree<Type>>>();
+        for (final Map.Entry<String, Map<String, SortedSet<Type>>> byProtocol : cache.entrySet()) {
+            final Map<String, PathTree<Type>> byHost = new HashMap<String, PathTree<Type>>();
+            for (final Map.Entry<String, SortedSet<Type>> entry : byProtocol.getValue().entrySet()) {
+                byHost.put(entry.getKey(), new PathTree<Type>(entry.getValue()));
+            }
+            if (!byHost.isEmpty()) {
+                newTrees.put(byProtocol.getKey(), byHost);
+            }
+        }
+        this.trees = newTrees;
+    }
+
+    /**
+     * Immutable character trie of the holder paths of one protocol and host.
+     * Paths are matched by character and not by segment to match
+     * <code>String.startsWith</code>.
+     */
+    private static final class PathTree<Type extends PathBasedHolder> {
+
+        private final Node root;
+
+        PathTree(final SortedSet<Type> holders) {
+            final Builder builder = new Builder();
+            for (final Type holder : holders) {
+                Builder node = builder;
+                for (int i = 0; i < holder.path.length(); i++) {
+                    node = node.getChild(holder.path.charAt(i));
+                }
+                node.holders.add(holder);
+            }
+            this.root = builder.build();
+        }
+
+        /**
+         * Adds the holders whose path is a prefix of the path, in the order
+         * of the set this tree has been built from.
+         */
+        void findHolders(final String path, final List<Type> result) {
+            findHolders(this.root, path, 0, result);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void findHolders(final Node node, final String path, final int index, final List<Type> result) {
+            // longer paths are ordered first
+            if (index < path.length()) {
+                final Node child = node.getChild(path.charAt(index));
+                if (child != null) {
+                    findHolders(child, path, index + 1, result);
+                }
+            }
+            for (final Object holder : node.holders) {
+                result.add((Type) holder);
+            }
+        }
+    }
+
+    private static final class Node {
+
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        /** The characters of the children, sorted */
+        final char[] keys;
+
+        final Node[] children;
+
+        final Object[] holders;
+
+        Node(final char[] keys, final Node[] children, final Object[] holders) {
+            this.keys = keys;
+            this.children = children;
+            this.holders = holders;
+        }
+
+        Node getChild(final char c) {
+            final int idx = Arrays.binarySearch(this.keys, c);
+            return idx >= 0 ? this.children[idx] : null;
+        }
+    }
+
+    /**
+     * Mutable node used to build the immutable {@link Node} tree.
+     */
+    private static final class Builder {
+
+        final TreeMap<Character, Builder> children = new TreeMap<Character, Builder>();
+
+        final List<Object> holders = new ArrayList<Object>();
+
+        Builder getChild(final char c) {
+            Builder child = this.children.get(c);
+            if (child == null) {
+                child = new Builder();
+                this.children.put(c, child);
+            }
+            return child;
+        }
+
+        Node build() {
+            if (this.children.isEmpty()) {
+                return new Node(new char[0], Node.NO_CHILDREN, this.holders.toArray());
+            }
+            final char[] keys = new char[this.children.size()];
+            final Node[] nodes = new Node[this.children.size()];
+            int i = 0;
+            for (final Map.Entry<Character, Builder> entry : this.children.entrySet()) {
+                keys[i] = entry.getKey();
+                nodes[i] = entry.getValue().build();
+                i++;
+            }
+            return new Node(keys, nodes, this.holders.toArray());
         }
     }
 }
@@ -20,7 +20,6 @@ package org.apache.sling.auth.core.impl;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.Hashtable;
@@ -520,31 +519,24 @@ public class SlingAuthenticator implements Authenticator,
         }
 
         // select path used for authentication handler selection
-        final Collection<AbstractAuthenticationHandlerHolder>[] holdersArray = this.authHandlerCache
-                .findApplicableHolder(request);
         final String path = getHandlerSelectionPath(request);
+        final List<AbstractAuthenticationHandlerHolder> holders = this.authHandlerCache
+                .findApplicableHolders(request, path);
         boolean done = false;
-        for (int m = 0; !done && m < holdersArray.length; m++) {
-            final Collection<AbstractAuthenticationHandlerHolder> holderList = holdersArray[m];
-            if ( holderList != null ) {
-                for (AbstractAuthenticationHandlerHolder holder : holderList) {
-                    if (path.startsWith(holder.path)) {
-                        log.debug("login: requesting authentication using handler: {}",
-                            holder);
-
-                        try {
-                            done = holder.requestCredentials(request, response);
-                        } catch (IOException ioe) {
-                            log.error(
-                                "login: Failed sending authentication request through handler "
-                                    + holder + ", access forbidden", ioe);
-                            done = true;
-                        }
-                        if (done) {
-                            break;
-                        }
-                    }
-                }
+        for (AbstractAuthenticationHandlerHolder holder : holders) {
+            log.debug("login: requesting authentication using handler: {}",
+                holder);
+
+            try {
+                done = holder.requestCredentials(request, response);
+            } catch (IOException ioe) {
+                log.error(
+                    "login: Failed sending authentication request through handler "
+                        + holder + ", access forbidden", ioe);
+                done = true;
+            }
+            if (done) {
+                break;
             }
         }
 
@@ -555,13 +547,7 @@ public class SlingAuthenticator implements Authenticator,
 
         // no handler could send an authentication request, throw
         if (!done) {
-            int size = 0;
-            for (int m = 0; m < holdersArray.length; m++) {
-                if (holdersArray[m] != null) {
-                    size += holdersArray[m].size();
-                }
-            }
-            log.info("login: No handler for request ({} handlers available)", size);
+            log.info("login: No handler for request ({} handlers available)", holders.size());
             throw new NoAuthenticationHandlerException();
         }
     }
@@ -582,25 +568,16 @@ public class SlingAuthenticator implements Authenticator,
         setSudoCookie(request, response, new AuthenticationInfo("dummy", request.getRemoteUser()));
 
         final String path = getHandlerSelectionPath(request);
-        final Collection<AbstractAuthenticationHandlerHolder>[] holdersArray = this.authHandlerCache
-                .findApplicableHolder(request);
-        for (int m = 0; m < holdersArray.length; m++) {
-            final Collection<AbstractAuthenticationHandlerHolder> holderSet = holdersArray[m];
-            if (holderSet != null) {
-                for (AbstractAuthenticationHandlerHolder holder : holderSet) {
-                    if (path.startsWith(holder.path)) {
-                        log.debug("logout: dropping authentication using handler: {}",
-                            holder);
-
-                        try {
-                            holder.dropCredentials(request, response);
-                        } catch (IOException ioe) {
-                            log.error(
-                                "logout: Failed dropping authentication through handler "
-                                    + holder, ioe);
-                        }
-                    }
-                }
+        for (AbstractAuthenticationHandlerHolder holder : this.authHandlerCache.findApplicableHolders(request, path)) {
+            log.debug("logout: dropping authentication using handler: {}",
+                holder);
+
+            try {
+                holder.dropCredentials(request, response);
+            } catch (IOException ioe) {
+                log.error(
+                    "logout: Failed dropping authentication through handler "
+                        + holder, ioe);
             }
         }
 
@@ -699,25 +676,16 @@ public class SlingAuthenticator implements Authenticator,
             path = "/";
         }
 
-        final Collection<AbstractAuthenticationHandlerHolder>[] localArray = this.authHandlerCache
-                .findApplicableHolder(request);
-        for (int m = 0; m < localArray.length; m++) {
-            final Collection<AbstractAuthenticationHandlerHolder> local = localArray[m];
-            if (local != null) {
-                for (AbstractAuthenticationHandlerHolder holder : local) {
-                    if (path.startsWith(holder.path)) {
-                        final AuthenticationInfo authInfo = holder.extractCredentials(
-                            request, response);
+        for (AbstractAuthenticationHandlerHolder holder : this.authHandlerCache.findApplicableHolders(request, path)) {
+            final AuthenticationInfo authInfo = holder.extractCredentials(
+                request, response);
 
-                        if (authInfo != null) {
-                            // add the feedback handler to the info (may be null)
-                            authInfo.put(AUTH_INFO_PROP_FEEDBACK_HANDLER,
-                                holder.getFeedbackHandler());
+            if (authInfo != null) {
+                // add the feedback handler to the info (may be null)
+                authInfo.put(AUTH_INFO_PROP_FEEDBACK_HANDLER,
+                    holder.getFeedbackHandler());
 
-                            return authInfo;
-                        }
-                    }
-                }
+                return authInfo;
             }
         }
 
@@ -893,17 +861,10 @@ public class SlingAuthenticator implements Authenticator,
             return false;
         }
 
-        final Collection<AuthenticationRequirementHolder>[] holderSetArray = authRequiredCache
-                .findApplicableHolder(request);
-        for (int m = 0; m < holderSetArray.length; m++) {
-            final Collection<AuthenticationRequirementHolder> holders = holderSetArray[m];
-            if (holders != null) {
-                for (AuthenticationRequirementHolder holder : holders) {
-                    if (path.startsWith(holder.path)) {
-                        return !holder.requiresAuthentication();
-                    }
-                }
-            }
+        final List<AuthenticationRequirementHolder> holders = authRequiredCache
+                .findApplicableHolders(request, path);
+        if (!holders.isEmpty()) {
+            return !holders.get(0).requiresAuthentication();
         }
 
         // fallback to anonymous not allowed (aka authentication required)
@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.auth.core.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares looking up the holders applicable to a request with the
+ * {@link PathBasedHolderCache} with the previous lookup, which scanned the
+ * sorted sets of holders under a read lock.
+ * <p>
+ * This is not run as part of the build, run the <code>main</code> method from
+ * the test class path instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class PathBasedHolderCacheBenchmark {
+
+    @Param({ "10", "100" })
+    public int holderCount;
+
+    private PathBasedHolderCache<AuthenticationRequirementHolder> cache;
+
+    private LockedHolderCache<AuthenticationRequirementHolder> lockedCache;
+
+    private HttpServletRequest request;
+
+    private String[] paths;
+
+    /**
+     * The index of the next path to look up, kept per thread as the
+     * benchmark state is shared by the benchmark threads.
+     */
+    @State(Scope.Thread)
+    public static class PathIndex {
+
+        private int counter;
+
+        int next() {
+            return (this.counter++) & 3;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        this.cache = new PathBasedHolderCache<AuthenticationRequirementHolder>();
+        this.lockedCache = new LockedHolderCache<AuthenticationRequirementHolder>();
+        for (int i = 0; i < this.holderCount; i++) {
+            final String path = "/content/site" + (i % 10) + "/section" + i;
+            final AuthenticationRequirementHolder holder = new AuthenticationRequirementHolder(path, i % 2 == 0, null);
+            this.cache.addHolder(holder);
+            this.lockedCache.addHolder(holder);
+        }
+        for (final String path : new String[] { "/", "/content", "/libs", "//localhost/apps" }) {
+            final AuthenticationRequirementHolder holder = new AuthenticationRequirementHolder(path, true, null);
+            this.cache.addHolder(holder);
+            this.lockedCache.addHolder(holder);
+        }
+
+        this.request = createRequest("http", "localhost", 8080);
+        this.paths = new String[] { "/content/site3/section13/page.html", "/content/site7/other.html",
+            "/libs/sling/servlet/default.json", "/apps/project/components/page.html" };
+    }
+
+    @Benchmark
+    public Object trieLookup(final PathIndex index) {
+        final String path = this.paths[index.next()];
+        final List<AuthenticationRequirementHolder> holders = this.cache.findApplicableHolders(this.request, path);
+        return holders.isEmpty() ? null : holders.get(0);
+    }
+
+    @Benchmark
+    public Object lockedScan(final PathIndex index) {
+        final String path = this.paths[index.next()];
+        final Collection<AuthenticationRequirementHolder>[] holderSets = this.lockedCache.findApplicableHolder(this.request);
+        for (int m = 0; m < holderSets.length; m++) {
+            final Collection<AuthenticationRequirementHolder> holders = holderSets[m];
+            if (holders != null) {
+                for (final AuthenticationRequirementHolder holder : holders) {
+                    if (path.startsWith(holder.path)) {
+                        return holder;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static HttpServletRequest createRequest(final String scheme, final String host, final int port) {
+        return (HttpServletRequest) Proxy.newProxyInstance(PathBasedHolderCacheBenchmark.class.getClassLoader(),
+            new Class<?>[] { HttpServletRequest.class }, new InvocationHandler() {
+
+                public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                    if ("getScheme".equals(method.getName())) {
+                        return scheme;
+                    } else if ("getServerName".equals(method.getName())) {
+                        return host;
+                    } else if ("getServerPort".equals(method.getName())) {
+                        return port;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PathBasedHolderCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * The lookup of the <code>PathBasedHolderCache</code> before it used
+     * path tries.
+     */
+    private static final class LockedHolderCache<Type extends PathBasedHolder> {
+
+        private final Map<String, Map<String, SortedSet<Type>>> cache = new HashMap<String, Map<String, SortedSet<Type>>>();
+
+        private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
+
+        void addHolder(final Type holder) {
+            this.rwLock.writeLock().lock();
+            try {
+                Map<String, SortedSet<Type>> byHostMap = this.cache.get(holder.protocol);
+                if (byHostMap == null) {
+                    byHostMap = new HashMap<String, SortedSet<Type>>();
+                    this.cache.put(holder.protocol, byHostMap);
+                }
+                SortedSet<Type> byPathSet = byHostMap.get(holder.host);
+                if (byPathSet == null) {
+                    byPathSet = new TreeSet<Type>();
+                    byHostMap.put(holder.host, byPathSet);
+                }
+                byPathSet.add(holder);
+            } finally {
+                this.rwLock.writeLock().unlock();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        Collection<Type>[] findApplicableHolder(final HttpServletRequest request) {
+            this.rwLock.readLock().lock();
+            try {
+                final String hostname = request.getServerName()
+                      + (request.getServerPort() != 80 && request.getServerPort() != 443
+                        ? ":" + request.getServerPort()
+                        : "");
+
+                final SortedSet<Type>[] result = new SortedSet[4];
+                final Map<String, SortedSet<Type>> byHostMap = this.cache.get(request.getScheme());
+                if (byHostMap != null) {
+                    result[0] = byHostMap.get(hostname);
+                    result[1] = byHostMap.get("");
+                }
+                final Map<String, SortedSet<Type>> defaultByHostMap = this.cache.get("");
+                if (defaultByHostMap != null) {
+                    result[2] = defaultByHostMap.get(hostname);
+                    result[3] = defaultByHostMap.get("");
+                }
+                return result;
+            } finally {
+                this.rwLock.readLock().unlock();
+            }
+        }
+    }
+}
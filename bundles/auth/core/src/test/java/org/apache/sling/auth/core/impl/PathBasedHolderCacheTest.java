@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.auth.core.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import junit.framework.TestCase;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.osgi.framework.ServiceReference;
+
+public class PathBasedHolderCacheTest extends TestCase {
+
+    private final Mockery context = new Mockery();
+
+    private PathBasedHolderCache<AuthenticationRequirementHolder> cache;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        cache = new PathBasedHolderCache<AuthenticationRequirementHolder>();
+        cache.addHolder(new AuthenticationRequirementHolder("/", true, null));
+        cache.addHolder(new AuthenticationRequirementHolder("/content", false, null));
+        cache.addHolder(new AuthenticationRequirementHolder("/content/site", true, null));
+        cache.addHolder(new AuthenticationRequirementHolder("/content/sitemap", true, null));
+        cache.addHolder(new AuthenticationRequirementHolder("/libs", true, null));
+        cache.addHolder(new AuthenticationRequirementHolder("//www.example.com/content", true, null));
+        cache.addHolder(new AuthenticationRequirementHolder("https://www.example.com/content", true, null));
+        cache.addHolder(new AuthenticationRequirementHolder("http:///content/site", false, null));
+    }
+
+    public void test_longest_path_first() {
+        final HttpServletRequest request = createRequest("http", "localhost", 80);
+        assertEquals(paths("/content/site", "/content/site", "/content", "/"),
+            paths(cache.findApplicableHolders(request, "/content/site/page.html")));
+        assertEquals(paths("/content", "/"),
+            paths(cache.findApplicableHolders(request, "/content/other")));
+
+        // matched by string prefix, not by segment; http holders come first
+        assertEquals(paths("/content/site", "/content/sitemap", "/content/site", "/content", "/"),
+            paths(cache.findApplicableHolders(request, "/content/sitemap.xml")));
+        assertEquals(paths("/"), paths(cache.findApplicableHolders(request, "/apps")));
+        assertTrue(cache.findApplicableHolders(request, "").isEmpty());
+    }
+
+    public void test_protocol_and_host_order() {
+        final HttpServletRequest request = createRequest("https", "www.example.com", 443);
+        final List<AuthenticationRequirementHolder> holders = cache.findApplicableHolders(request,
+            "/content/site/page.html");
+        assertEquals(paths("/content", "/content", "/content/site", "/content", "/"), paths(holders));
+        assertEquals("https", holders.get(0).protocol);
+        assertEquals("", holders.get(1).protocol);
+        assertEquals("www.example.com", holders.get(1).host);
+        assertEquals("", holders.get(2).host);
+
+        final HttpServletRequest other = createRequest("http", "www.example.com", 8080);
+        assertEquals(paths("/content/site", "/content/site", "/content", "/"),
+            paths(cache.findApplicableHolders(other, "/content/site/page.html")));
+    }
+
+    public void test_add_and_remove() {
+        final HttpServletRequest request = createRequest("http", "localhost", 80);
+        final ServiceReference reference = context.mock(ServiceReference.class);
+        context.checking(new Expectations() {
+            {
+                allowing(reference).compareTo(reference);
+                will(returnValue(0));
+            }
+        });
+        final AuthenticationRequirementHolder holder = new AuthenticationRequirementHolder("/content/site/page",
+            false, reference);
+        cache.addHolder(holder);
+        assertEquals(9, cache.getHolders().size());
+        assertSame(holder, cache.findApplicableHolders(request, "/content/site/page.html").get(1));
+
+        cache.removeHolder(holder);
+        assertEquals(8, cache.getHolders().size());
+        assertEquals("/content/site", cache.findApplicableHolders(request, "/content/site/page.html").get(1).path);
+
+        cache.clear();
+        assertTrue(cache.getHolders().isEmpty());
+        assertTrue(cache.findApplicableHolders(request, "/content").isEmpty());
+    }
+
+    public void test_get_holders_order() {
+        final PathBasedHolderCache<AuthenticationRequirementHolder> single = new PathBasedHolderCache<AuthenticationRequirementHolder>();
+        single.addHolder(new AuthenticationRequirementHolder("/", false, null));
+        single.addHolder(new AuthenticationRequirementHolder("/content/site", false, null));
+        single.addHolder(new AuthenticationRequirementHolder("/content", false, null));
+        assertEquals(paths("/content/site", "/content", "/"), paths(single.getHolders()));
+    }
+
+    private HttpServletRequest createRequest(final String scheme, final String host, final int port) {
+        final HttpServletRequest request = context.mock(HttpServletRequest.class, scheme + host + port);
+        context.checking(new Expectations() {
+            {
+                allowing(request).getScheme();
+                will(returnValue(scheme));
+                allowing(request).getServerName();
+                will(returnValue(host));
+                allowing(request).getServerPort();
+                will(returnValue(port));
+            }
+        });
+        return request;
+    }
+
+    private List<String> paths(final String... paths) {
+        final List<String> result = new ArrayList<String>();
+        for (final String path : paths) {
+            result.add(path);
+        }
+        return result;
+    }
+
+    private List<String> paths(final List<AuthenticationRequirementHolder> holders) {
+        final List<String> result = new ArrayList<String>();
+        for (final PathBasedHolder holder : holders) {
+            result.add(holder.path);
+        }
+        return result;
+    }
+}
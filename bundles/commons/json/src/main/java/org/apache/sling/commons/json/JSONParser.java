@@ -0,0 +1,337 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.json;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pull parser which reads a single JSON value from a {@link JSONTokener}
+ * as a sequence of events, without building the whole tree in memory.
+ * <p>
+ * The parser accepts the same lenient syntax as the {@link JSONObject} and
+ * {@link JSONArray} constructors, which are implemented on top of it. Parts
+ * of the text can be read as a tree with {@link #readObject()} and
+ * {@link #readArray()}, e.g. to process the elements of a large array one
+ * at a time:
+ * <pre>
+ *     JSONParser parser = new JSONParser(reader);
+ *     parser.next(); // START_ARRAY
+ *     while (parser.next() == JSONParser.Event.START_OBJECT) {
+ *         JSONObject element = parser.readObject();
+ *         ...
+ *     }
+ * </pre>
+ * The parser stops after the end of the first value, characters following
+ * it are not read.
+ *
+ * @since 2.1.0
+ */
+public class JSONParser {
+
+    /**
+     * The events reported by the parser.
+     */
+    public enum Event {
+        /** The start of an object, <code>{</code>. */
+        START_OBJECT,
+        /** The end of an object, <code>}</code>. */
+        END_OBJECT,
+        /** The start of an array, <code>[</code>. */
+        START_ARRAY,
+        /** The end of an array, <code>]</code>. */
+        END_ARRAY,
+        /** The key of an object member, see {@link JSONParser#getKey()}. */
+        KEY,
+        /** A value which is neither an object nor an array, see {@link JSONParser#getValue()}. */
+        VALUE
+    }
+
+    private final JSONTokener tokener;
+
+    /** The open objects and arrays, <code>{</code> or <code>[</code>. */
+    private final List<Character> containers = new ArrayList<Character>();
+
+    /** Whether a key has been read in the current object. */
+    private boolean afterKey;
+
+    /** Whether a value has been read in the current object or array. */
+    private boolean afterValue;
+
+    /** Whether the root value has been read. */
+    private boolean done;
+
+    private Event event;
+
+    private String key;
+
+    private Object value;
+
+    /**
+     * Create a parser reading from a reader.
+     * @param reader The JSON text.
+     */
+    public JSONParser(Reader reader) {
+        this(new JSONTokener(reader));
+    }
+
+    /**
+     * Create a parser reading the next value of a tokener.
+     * @param x The tokener.
+     */
+    public JSONParser(JSONTokener x) {
+        this.tokener = x;
+    }
+
+    /**
+     * @return <code>true</code> if the end of the value has not been reached yet.
+     */
+    public boolean hasNext() {
+        return !this.done;
+    }
+
+    /**
+     * Read the next event.
+     * @return The event.
+     * @throws JSONException If there is a syntax error or the end of the
+     *      value has already been reached.
+     */
+    public Event next() throws JSONException {
+        if (this.done) {
+            throw new JSONException("No more JSON events");
+        }
+        this.key = null;
+        this.value = null;
+        if (this.containers.isEmpty()) {
+            return nextValue();
+        }
+        if (this.containers.get(this.containers.size() - 1) == '{') {
+            return nextInObject();
+        }
+        return nextInArray();
+    }
+
+    /**
+     * @return The event returned by the last call to {@link #next()}
+     *      or <code>null</code>.
+     */
+    public Event getEvent() {
+        return this.event;
+    }
+
+    /**
+     * @return The key if the current event is {@link Event#KEY},
+     *      <code>null</code> otherwise.
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * Get the value if the current event is {@link Event#VALUE}. The value can
+     * be a Boolean, Double, Integer, Long, String, the JSONObject.NULL object
+     * or <code>null</code> for an empty array element.
+     * @return The value or <code>null</code>.
+     */
+    public Object getValue() {
+        return this.value;
+    }
+
+    /**
+     * Read the object started by the current {@link Event#START_OBJECT}
+     * event, including its end.
+     * @return The object.
+     * @throws JSONException If there is a syntax error or the current event
+     *      is not the start of an object.
+     */
+    public JSONObject readObject() throws JSONException {
+        final JSONObject result = new JSONObject();
+        readObject(result);
+        return result;
+    }
+
+    /**
+     * Read the array started by the current {@link Event#START_ARRAY}
+     * event, including its end.
+     * @return The array.
+     * @throws JSONException If there is a syntax error or the current event
+     *      is not the start of an array.
+     */
+    public JSONArray readArray() throws JSONException {
+        final JSONArray result = new JSONArray();
+        readArray(result);
+        return result;
+    }
+
+    void readObject(JSONObject result) throws JSONException {
+        if (this.event != Event.START_OBJECT) {
+            throw this.tokener.syntaxError("A JSONObject text must begin with '{'");
+        }
+        while (next() == Event.KEY) {
+            final String k = this.key;
+            result.put(k, readTree(next()));
+        }
+    }
+
+    void readArray(JSONArray result) throws JSONException {
+        if (this.event != Event.START_ARRAY) {
+            throw this.tokener.syntaxError("A JSONArray text must start with '['");
+        }
+        Event e;
+        while ((e = next()) != Event.END_ARRAY) {
+            result.put(readTree(e));
+        }
+    }
+
+    private Object readTree(Event e) throws JSONException {
+        if (e == Event.START_OBJECT) {
+            return readObject();
+        } else if (e == Event.START_ARRAY) {
+            return readArray();
+        }
+        return this.value;
+    }
+
+    private Event nextInObject() throws JSONException {
+        char c;
+        if (this.afterKey) {
+            /*
+             * The key is followed by ':'. We will also tolerate '=' or '=>'.
+             */
+            c = this.tokener.nextClean();
+            if (c == '=') {
+                if (this.tokener.next() != '>') {
+                    this.tokener.back();
+                }
+            } else if (c != ':') {
+                throw this.tokener.syntaxError("Expected a ':' after a key");
+            }
+            this.afterKey = false;
+            return nextValue();
+        }
+        if (this.afterValue) {
+            /*
+             * Pairs are separated by ','. We will also tolerate ';'.
+             */
+            switch (this.tokener.nextClean()) {
+            case ';':
+            case ',':
+                if (this.tokener.nextClean() == '}') {
+                    return end(Event.END_OBJECT);
+                }
+                this.tokener.back();
+                break;
+            case '}':
+                return end(Event.END_OBJECT);
+            default:
+                throw this.tokener.syntaxError("Expected a ',' or '}'");
+            }
+        } else {
+            c = this.tokener.nextClean();
+            switch (c) {
+            case 0:
+                throw this.tokener.syntaxError("A JSONObject text must end with '}'");
+            case '}':
+                return end(Event.END_OBJECT);
+            default:
+                this.tokener.back();
+            }
+        }
+        this.key = this.tokener.nextValue().toString();
+        this.afterKey = true;
+        this.afterValue = false;
+        this.event = Event.KEY;
+        return this.event;
+    }
+
+    private Event nextInArray() throws JSONException {
+        if (this.afterValue) {
+            switch (this.tokener.nextClean()) {
+            case ';':
+            case ',':
+                if (this.tokener.nextClean() == ']') {
+                    return end(Event.END_ARRAY);
+                }
+                this.tokener.back();
+                break;
+            case ']':
+                return end(Event.END_ARRAY);
+            default:
+                throw this.tokener.syntaxError("Expected a ',' or ']'");
+            }
+        } else {
+            if (this.tokener.nextClean() == ']') {
+                return end(Event.END_ARRAY);
+            }
+            this.tokener.back();
+        }
+        if (this.tokener.nextClean() == ',') {
+            // an empty element
+            this.tokener.back();
+            return valueRead();
+        }
+        this.tokener.back();
+        return nextValue();
+    }
+
+    private Event nextValue() throws JSONException {
+        final char c = this.tokener.nextClean();
+        switch (c) {
+        case '{':
+            return start('{', Event.START_OBJECT);
+        case '[':
+            return start('[', Event.START_ARRAY);
+        case '"':
+        case '\'':
+            this.value = this.tokener.nextString(c);
+            break;
+        default:
+            this.value = this.tokener.nextUnquotedValue(c);
+        }
+        return valueRead();
+    }
+
+    private Event start(char container, Event e) {
+        this.containers.add(container);
+        this.afterKey = false;
+        this.afterValue = false;
+        this.event = e;
+        return e;
+    }
+
+    private Event end(Event e) {
+        this.containers.remove(this.containers.size() - 1);
+        valueDone();
+        this.event = e;
+        return e;
+    }
+
+    private Event valueRead() {
+        valueDone();
+        this.event = Event.VALUE;
+        return this.event;
+    }
+
+    private void valueDone() {
+        if (this.containers.isEmpty()) {
+            this.done = true;
+        } else {
+            this.afterValue = true;
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package org.apache.sling.commons.json;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
 /*
 Copyright (c) 2002 JSON.org
 
@@ -25,9 +29,11 @@ SOFTWARE.
 */
 
 /**
- * A JSONTokener takes a source string and extracts characters and tokens from
- * it. It is used by the JSONObject and JSONArray constructors to parse
- * JSON source strings.
+ * A JSONTokener takes a source string or reader and extracts characters and
+ * tokens from it. It is used by the JSONObject and JSONArray constructors to
+ * parse JSON source strings. A reader is consumed incrementally, so together
+ * with the {@link JSONParser} large documents can be processed without
+ * reading them into memory first.
  * @author JSON.org
  * @version 2
  */
@@ -40,11 +46,41 @@ public class JSONTokener {
 
 
     /**
-     * The source string being tokenized.
+     * The source string being tokenized or <code>null</code> if a reader is used.
      */
     private String mySource;
 
 
+    /**
+     * The source reader or <code>null</code> if a string is used.
+     */
+    private Reader myReader;
+
+
+    /**
+     * The last character read from the reader.
+     */
+    private char myPrevious;
+
+
+    /**
+     * Whether the last character read from the reader has been backed up.
+     */
+    private boolean myUsePrevious;
+
+
+    /**
+     * Whether the end of the reader has been reached.
+     */
+    private boolean myEof;
+
+
+    /**
+     * The exception which ended reading from the reader or <code>null</code>.
+     */
+    private IOException myReadException;
+
+
     /**
      * Construct a JSONTokener from a string.
      *
@@ -56,6 +92,18 @@ public class JSONTokener {
     }
 
 
+    /**
+     * Construct a JSONTokener from a reader. The characters are read as they
+     * are needed, only a single character can be backed up.
+     *
+     * @param reader A source reader.
+     */
+    public JSONTokener(Reader reader) {
+        this.myIndex = 0;
+        this.myReader = reader.markSupported() ? reader : new BufferedReader(reader);
+    }
+
+
     /**
      * Back up one character. This provides a sort of lookahead capability,
      * so that you can test for a digit or letter before attempting to parse
@@ -63,6 +111,13 @@ public class JSONTokener {
      */
     public void back() {
         if (this.myIndex > 0) {
+            if (this.myReader != null) {
+                if (this.myUsePrevious || this.myEof) {
+                    // only the last character can be backed up
+                    return;
+                }
+                this.myUsePrevious = true;
+            }
             this.myIndex -= 1;
         }
     }
@@ -95,6 +150,17 @@ public class JSONTokener {
      * @return true if not yet at the end of the source.
      */
     public boolean more() {
+        if (this.myReader != null) {
+            if (this.myUsePrevious) {
+                return true;
+            }
+            next();
+            if (this.myEof) {
+                return false;
+            }
+            back();
+            return true;
+        }
         return this.myIndex < this.mySource.length();
     }
 
@@ -105,6 +171,9 @@ public class JSONTokener {
      * @return The next character, or 0 if past the end of the source string.
      */
     public char next() {
+        if (this.myReader != null) {
+            return nextFromReader();
+        }
         if (more()) {
             char c = this.mySource.charAt(this.myIndex);
             this.myIndex += 1;
@@ -114,6 +183,33 @@ public class JSONTokener {
     }
 
 
+    private char nextFromReader() {
+        if (this.myUsePrevious) {
+            this.myUsePrevious = false;
+            this.myIndex += 1;
+            return this.myPrevious;
+        }
+        if (this.myEof) {
+            return 0;
+        }
+        int c;
+        try {
+            c = this.myReader.read();
+        } catch (IOException ioe) {
+            // reported by syntaxError
+            this.myReadException = ioe;
+            c = -1;
+        }
+        if (c <= 0) {
+            this.myEof = true;
+            return 0;
+        }
+        this.myIndex += 1;
+        this.myPrevious = (char) c;
+        return this.myPrevious;
+    }
+
+
     /**
      * Consume the next character, and check that it matches a specified
      * character.
@@ -141,6 +237,17 @@ public class JSONTokener {
      *   n characters remaining in the source string.
      */
      public String next(int n) throws JSONException {
+         if (this.myReader != null) {
+             StringBuffer sb = new StringBuffer(n);
+             for (int k = 0; k < n; k++) {
+                 char c = next();
+                 if (c == 0) {
+                     throw syntaxError("Substring bounds error");
+                 }
+                 sb.append(c);
+             }
+             return sb.toString();
+         }
          int i = this.myIndex;
          int j = i + n;
          if (j >= this.mySource.length()) {
@@ -308,7 +415,6 @@ public class JSONTokener {
      */
     public Object nextValue() throws JSONException {
         char c = nextClean();
-        String s;
 
         switch (c) {
             case '"':
@@ -322,6 +428,22 @@ public class JSONTokener {
                 return new JSONArray(this);
         }
 
+        return nextUnquotedValue(c);
+    }
+
+
+    /**
+     * Get the value of unquoted text, starting with the given character
+     * which has already been consumed. The value can be a Boolean, Double,
+     * Integer, Long, or String, or the JSONObject.NULL object.
+     * @param c The first character of the text.
+     * @throws JSONException If the text is empty.
+     *
+     * @return An object.
+     */
+    Object nextUnquotedValue(char c) throws JSONException {
+        String s;
+
         /*
          * Handle unquoted text. This could be the values true, false, or
          * null, or it can be a number. An implementation (such as this one)
@@ -409,6 +531,9 @@ public class JSONTokener {
      * is not found.
      */
     public char skipTo(char to) {
+        if (this.myReader != null) {
+            return skipToInReader(to);
+        }
         char c;
         int index = this.myIndex;
         do {
@@ -423,12 +548,56 @@ public class JSONTokener {
     }
 
 
+    private char skipToInReader(char to) {
+        int index = this.myIndex;
+        char previous = this.myPrevious;
+        boolean usePrevious = this.myUsePrevious;
+        try {
+            this.myReader.mark(1000000);
+            char c;
+            do {
+                c = next();
+                if (c == 0) {
+                    this.myReader.reset();
+                    this.myIndex = index;
+                    this.myPrevious = previous;
+                    this.myUsePrevious = usePrevious;
+                    this.myEof = false;
+                    return c;
+                }
+            } while (c != to);
+        } catch (IOException ioe) {
+            this.myReadException = ioe;
+            this.myEof = true;
+            return 0;
+        }
+        back();
+        return to;
+    }
+
+
     /**
      * Skip characters until past the requested string.
      * If it is not found, we are left at the end of the source.
      * @param to A string to skip past.
      */
     public void skipPast(String to) {
+        if (this.myReader != null) {
+            StringBuffer window = new StringBuffer(to.length());
+            for (;;) {
+                char c = next();
+                if (c == 0) {
+                    return;
+                }
+                window.append(c);
+                if (window.length() > to.length()) {
+                    window.deleteCharAt(0);
+                }
+                if (window.length() == to.length() && window.toString().equals(to)) {
+                    return;
+                }
+            }
+        }
         this.myIndex = this.mySource.indexOf(to, this.myIndex);
         if (this.myIndex < 0) {
             this.myIndex = this.mySource.length();
@@ -445,6 +614,9 @@ public class JSONTokener {
      * @return  A JSONException object, suitable for throwing
      */
     public JSONException syntaxError(String message) {
+        if (this.myReadException != null) {
+            return new JSONException(message + toString(), this.myReadException);
+        }
         return new JSONException(message + toString());
     }
 
@@ -455,6 +627,9 @@ public class JSONTokener {
      * @return " at character [this.myIndex] of [this.mySource]"
      */
     public String toString() {
+        if (this.myReader != null) {
+            return " at character " + this.myIndex;
+        }
         return " at character " + this.myIndex + " of " + this.mySource;
     }
 }
\ No newline at end of file
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class JSONParserTest {
+
+    private List<String> events(final JSONParser parser) throws JSONException {
+        final List<String> result = new ArrayList<String>();
+        while (parser.hasNext()) {
+            final JSONParser.Event e = parser.next();
+            if (e == JSONParser.Event.KEY) {
+                result.add(e + ":" + parser.getKey());
+            } else if (e == JSONParser.Event.VALUE) {
+                result.add(e + ":" + parser.getValue());
+            } else {
+                result.add(e.toString());
+            }
+        }
+        return result;
+    }
+
+    @Test public void testEvents() throws JSONException {
+        final JSONParser parser = new JSONParser(new StringReader("{\"a\" : 1, \"b\": [true, 'x', {}], c=>null}"));
+        assertEquals("[START_OBJECT, KEY:a, VALUE:1, KEY:b, START_ARRAY, VALUE:true, VALUE:x, "
+                + "START_OBJECT, END_OBJECT, END_ARRAY, KEY:c, VALUE:null, END_OBJECT]", events(parser).toString());
+        assertFalse(parser.hasNext());
+    }
+
+    @Test public void testScalarRoot() throws JSONException {
+        assertEquals("[VALUE:12.5]", events(new JSONParser(new StringReader(" 12.5 "))).toString());
+    }
+
+    @Test public void testEmptyArrayElement() throws JSONException {
+        final JSONParser parser = new JSONParser(new StringReader("[1,,2,]"));
+        assertEquals("[START_ARRAY, VALUE:1, VALUE:null, VALUE:2, END_ARRAY]", events(parser).toString());
+    }
+
+    @Test public void testStopsAfterRootValue() throws JSONException {
+        final JSONTokener x = new JSONTokener(new StringReader("{\"a\":1} rest"));
+        final JSONParser parser = new JSONParser(x);
+        parser.next();
+        assertEquals(1, parser.readObject().getInt("a"));
+        assertFalse(parser.hasNext());
+        assertEquals("rest", x.nextValue());
+        try {
+            parser.next();
+            fail("Expected JSONException");
+        } catch (final JSONException expected) {
+        }
+    }
+
+    @Test public void testReadElements() throws JSONException {
+        final JSONParser parser = new JSONParser(new StringReader("[{\"id\":1}, {\"id\":2, \"sub\":[3]}]"));
+        assertEquals(JSONParser.Event.START_ARRAY, parser.next());
+        final List<Integer> ids = new ArrayList<Integer>();
+        while (parser.next() == JSONParser.Event.START_OBJECT) {
+            ids.add(parser.readObject().getInt("id"));
+        }
+        assertEquals(JSONParser.Event.END_ARRAY, parser.getEvent());
+        assertEquals("[1, 2]", ids.toString());
+        assertFalse(parser.hasNext());
+    }
+
+    @Test public void testReaderTree() throws JSONException {
+        final String text = "{\"a\":\"\\u0041\\n\", \"b\":{\"c\":[1, 2, {\"d\":-3}]}, \"e\":0x1F}";
+        final JSONObject fromReader = new JSONObject(new JSONTokener(new StringReader(text)));
+        final JSONObject fromString = new JSONObject(text);
+        assertEquals(fromString.toString(), fromReader.toString());
+        assertEquals("A\n", fromReader.getString("a"));
+        assertEquals(-3, fromReader.getJSONObject("b").getJSONArray("c").getJSONObject(2).getInt("d"));
+        assertEquals(31, fromReader.getInt("e"));
+    }
+
+    @Test public void testReaderErrors() {
+        assertError("{\"a\" 1}", "Expected a ':' after a key at character 6");
+        assertError("{\"a\":1", "Expected a ',' or '}' at character 6");
+        assertError("[1 {}]", "Expected a ',' or ']' at character 4");
+        assertError("{", "A JSONObject text must end with '}' at character 1");
+        assertError("\"abc", "Unterminated string at character 4");
+    }
+
+    private void assertError(final String text, final String message) {
+        try {
+            events(new JSONParser(new StringReader(text)));
+            fail("Expected JSONException for " + text);
+        } catch (final JSONException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    @Test public void testTokenerReader() throws JSONException {
+        final JSONTokener x = new JSONTokener(new StringReader("ab/*c*/d"));
+        assertTrue(x.more());
+        assertEquals('a', x.next());
+        x.back();
+        assertEquals("ab", x.next(2));
+        assertEquals('d', x.nextClean());
+        assertFalse(x.more());
+        assertEquals(0, x.next());
+
+        final JSONTokener y = new JSONTokener(new StringReader("abcabd"));
+        assertEquals(0, y.skipTo('x'));
+        assertEquals('a', y.next());
+        assertEquals('d', y.skipTo('d'));
+        assertEquals('d', y.next());
+
+        final JSONTokener z = new JSONTokener(new StringReader("abcabd"));
+        z.skipPast("cab");
+        assertEquals('d', z.next());
+    }
+}
@@ -253,4 +253,20 @@ public class EngineConstants {
      */
     @Deprecated
     public static final String FILTER_ORDER = "filter.order";
+
+    /**
+     * The name of the request attribute providing an
+     * <code>Iterator&lt;RequestParameter&gt;</code> over the parts of a
+     * streamed <code>multipart/form-data</code> POST request (value is
+     * "request-parts-iterator"). If a request is streamed, only the query
+     * parameters are available as request parameters and the parts have to
+     * be consumed through this iterator in the order they are sent.
+     * <p>
+     * A request is streamed if the client sends the
+     * <code>Sling-UploadMode: stream</code> header or the
+     * <code>uploadmode=stream</code> query parameter.
+     *
+     * @since 2.3, Sling Engine 2.4.1
+     */
+    public static final String REQUEST_PARTS_ITERATOR = "request-parts-iterator";
 }
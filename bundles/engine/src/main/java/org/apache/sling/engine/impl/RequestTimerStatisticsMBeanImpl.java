@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.engine.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.NotCompliantMBeanException;
+import javax.management.StandardMBean;
+import javax.management.openmbean.ArrayType;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+import org.apache.sling.api.request.RequestProgressTracker;
+import org.apache.sling.engine.impl.request.RequestData;
+import org.apache.sling.engine.impl.request.SlingRequestProgressTracker;
+import org.apache.sling.engine.jmx.RequestTimerStatisticsMBean;
+
+/**
+ * This is the implementation of the management interface for the
+ * timer statistics of sampled requests.
+ */
+class RequestTimerStatisticsMBeanImpl extends StandardMBean implements RequestTimerStatisticsMBean {
+
+    /** Upper bounds of the histogram buckets in milliseconds. */
+    private static final long[] BUCKETS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000 };
+
+    /** Maximum number of distinct timers, further timers are not recorded. */
+    static final int MAX_TIMERS = 1000;
+
+    private static final String[] ITEM_NAMES = { "name", "count", "minMsec", "maxMsec", "meanMsec",
+        "p50Msec", "p90Msec", "p99Msec", "histogram" };
+
+    private final int samplingRate;
+
+    private final AtomicLong requestCounter = new AtomicLong();
+
+    private final AtomicLong sampledRequests = new AtomicLong();
+
+    private final ConcurrentMap<String, Histogram> timers = new ConcurrentHashMap<String, Histogram>();
+
+    private final SlingRequestProgressTracker.TimerVisitor visitor = new SlingRequestProgressTracker.TimerVisitor() {
+
+        public void visit(final String timerName, final long elapsed) {
+            addTiming(timerName, elapsed);
+        }
+    };
+
+    RequestTimerStatisticsMBeanImpl(final int samplingRate) throws NotCompliantMBeanException {
+        super(RequestTimerStatisticsMBean.class);
+        this.samplingRate = samplingRate;
+    }
+
+    /**
+     * Adds the timers of the request if the request is sampled.
+     */
+    void addRequestData(final RequestData data) {
+        if (this.samplingRate <= 0 || this.requestCounter.incrementAndGet() % this.samplingRate != 0) {
+            return;
+        }
+        final RequestProgressTracker tracker = data.getRequestProgressTracker();
+        if (tracker instanceof SlingRequestProgressTracker) {
+            this.sampledRequests.incrementAndGet();
+            ((SlingRequestProgressTracker) tracker).visitTimers(this.visitor);
+        }
+    }
+
+    void addTiming(final String timerName, final long elapsed) {
+        final String name = getTimerName(timerName);
+        Histogram histogram = this.timers.get(name);
+        if (histogram == null) {
+            if (this.timers.size() >= MAX_TIMERS) {
+                return;
+            }
+            histogram = new Histogram();
+            final Histogram existing = this.timers.putIfAbsent(name, histogram);
+            if (existing != null) {
+                histogram = existing;
+            }
+        }
+        histogram.add(elapsed);
+    }
+
+    /**
+     * The timers of servlet calls are named by the servlet name and the
+     * number of the call within the request, which is removed.
+     */
+    private static String getTimerName(final String timerName) {
+        final int pos = timerName.lastIndexOf('#');
+        if (pos == -1 || pos == timerName.length() - 1) {
+            return timerName;
+        }
+        for (int i = pos + 1; i < timerName.length(); i++) {
+            if (!Character.isDigit(timerName.charAt(i))) {
+                return timerName;
+            }
+        }
+        return timerName.substring(0, pos);
+    }
+
+    public int getSamplingRate() {
+        return this.samplingRate;
+    }
+
+    public long getSampledRequestsCount() {
+        return this.sampledRequests.get();
+    }
+
+    public long[] getHistogramBucketsMsec() {
+        return BUCKETS.clone();
+    }
+
+    public TabularData getTimers() throws OpenDataException {
+        final CompositeType rowType = new CompositeType("TimerStatistics", "Statistics of a timer",
+            ITEM_NAMES, ITEM_NAMES,
+            new OpenType<?>[] { SimpleType.STRING, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.DOUBLE,
+                SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, new ArrayType<long[]>(SimpleType.LONG, true) });
+        final TabularDataSupport data = new TabularDataSupport(new TabularType("Timers", "Statistics of the timers",
+            rowType, new String[] { "name" }));
+        for (final Map.Entry<String, Histogram> entry : this.timers.entrySet()) {
+            final Histogram h = entry.getValue().copy();
+            data.put(new CompositeDataSupport(rowType, ITEM_NAMES, new Object[] { entry.getKey(), h.count, h.min, h.max,
+                h.getMean(), h.getPercentile(50), h.getPercentile(90), h.getPercentile(99), h.buckets }));
+        }
+        return data;
+    }
+
+    public void resetStatistics() {
+        this.timers.clear();
+        this.sampledRequests.set(0);
+    }
+
+    /**
+     * Histogram of the timings of a single timer.
+     */
+    static final class Histogram {
+
+        final long[] buckets = new long[BUCKETS.length + 1];
+
+        long count;
+
+        long sum;
+
+        long min;
+
+        long max;
+
+        synchronized void add(final long elapsed) {
+            int index = 0;
+            while (index < BUCKETS.length && elapsed > BUCKETS[index]) {
+                index++;
+            }
+            this.buckets[index]++;
+            if (this.count == 0 || elapsed < this.min) {
+                this.min = elapsed;
+            }
+            if (elapsed > this.max) {
+                this.max = elapsed;
+            }
+            this.count++;
+            this.sum += elapsed;
+        }
+
+        synchronized Histogram copy() {
+            final Histogram h = new Histogram();
+            System.arraycopy(this.buckets, 0, h.buckets, 0, this.buckets.length);
+            h.count = this.count;
+            h.sum = this.sum;
+            h.min = this.min;
+            h.max = this.max;
+            return h;
+        }
+
+        double getMean() {
+            return this.count == 0 ? 0 : (double) this.sum / this.count;
+        }
+
+        /**
+         * Estimates the percentile by the upper bound of the bucket
+         * containing it, the maximum time is used for the last bucket.
+         */
+        long getPercentile(final int percent) {
+            if (this.count == 0) {
+                return 0;
+            }
+            final long rank = (this.count * percent + 99) / 100;
+            long seen = 0;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                seen += this.buckets[i];
+                if (seen >= rank) {
+                    return Math.min(BUCKETS[i], this.max);
+                }
+            }
+            return this.max;
+        }
+    }
+}
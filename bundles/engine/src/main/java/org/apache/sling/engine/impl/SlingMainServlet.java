@@ -59,6 +59,7 @@ import org.apache.sling.engine.impl.helper.SlingServletContext3;
 import org.apache.sling.engine.impl.request.RequestData;
 import org.apache.sling.engine.impl.request.RequestHistoryConsolePlugin;
 import org.apache.sling.engine.jmx.RequestProcessorMBean;
+import org.apache.sling.engine.jmx.RequestTimerStatisticsMBean;
 import org.apache.sling.engine.servlets.ErrorHandler;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
@@ -106,6 +107,11 @@ public class SlingMainServlet extends GenericServlet {
     @Property(unbounded=PropertyUnbounded.ARRAY)
     private static final String PROP_TRACK_PATTERNS_REQUESTS = "sling.store.pattern.requests";
 
+    private static final int DEFAULT_TIMER_SAMPLING_RATE = 0;
+
+    @Property(intValue = DEFAULT_TIMER_SAMPLING_RATE)
+    private static final String PROP_TIMER_SAMPLING_RATE = "sling.timer.sampling.rate";
+
     private static final String PROP_DEFAULT_PARAMETER_ENCODING = "sling.default.parameter.encoding";
 
     @Property
@@ -180,6 +186,8 @@ public class SlingMainServlet extends GenericServlet {
 
     private ServiceRegistration requestProcessorMBeanRegistration;
 
+    private ServiceRegistration timerStatisticsMBeanRegistration;
+
     private String configuredServerInfo;
     
     // ---------- Servlet API -------------------------------------------------
@@ -460,6 +468,18 @@ public class SlingMainServlet extends GenericServlet {
             log.debug("Unable to register mbean");
         }
 
+        try {
+            Dictionary<String, String> mbeanProps = new Hashtable<String, String>();
+            mbeanProps.put("jmx.objectname", "org.apache.sling:type=engine,service=RequestTimerStatistics");
+
+            RequestTimerStatisticsMBeanImpl mbean = new RequestTimerStatisticsMBeanImpl(PropertiesUtil.toInteger(
+                componentConfig.get(PROP_TIMER_SAMPLING_RATE), DEFAULT_TIMER_SAMPLING_RATE));
+            timerStatisticsMBeanRegistration = bundleContext.registerService(RequestTimerStatisticsMBean.class.getName(), mbean, mbeanProps);
+            requestProcessor.setTimerStatistics(mbean);
+        } catch (Throwable t) {
+            log.debug("Unable to register timer statistics mbean");
+        }
+
         // provide the SlingRequestProcessor service
         Hashtable<String, String> srpProps = new Hashtable<String, String>();
         srpProps.put(Constants.SERVICE_VENDOR, "The Apache Software Foundation");
@@ -486,6 +506,11 @@ public class SlingMainServlet extends GenericServlet {
             requestProcessorMBeanRegistration = null;
         }
 
+        if (timerStatisticsMBeanRegistration != null) {
+            timerStatisticsMBeanRegistration.unregister();
+            timerStatisticsMBeanRegistration = null;
+        }
+
         // unregister request recorder plugin
         try {
             RequestHistoryConsolePlugin.destroyPlugin();
@@ -76,6 +76,8 @@ public class SlingRequestProcessorImpl implements SlingRequestProcessor {
 
     private RequestProcessorMBeanImpl mbean;
 
+    private RequestTimerStatisticsMBeanImpl timerStatistics;
+
     // ---------- helper setters
 
     void setServerInfo(final String serverInfo) {
@@ -110,6 +112,10 @@ public class SlingRequestProcessorImpl implements SlingRequestProcessor {
         this.mbean = mbean;
     }
 
+    void setTimerStatistics(final RequestTimerStatisticsMBeanImpl timerStatistics) {
+        this.timerStatistics = timerStatistics;
+    }
+
     /**
      * This method is directly called by the Sling main servlet.
      */
@@ -123,9 +129,6 @@ public class SlingRequestProcessorImpl implements SlingRequestProcessor {
         final SlingHttpServletRequest request = requestData.getSlingRequest();
         final SlingHttpServletResponse response = requestData.getSlingResponse();
 
-        // record the request for the web console display
-        RequestHistoryConsolePlugin.recordRequest(request);
-
         try {
             final ServletResolver sr = this.servletResolver;
 
@@ -226,9 +229,15 @@ public class SlingRequestProcessorImpl implements SlingRequestProcessor {
             handleError(t, request, response);
 
         } finally {
+            // record the processed request for the web console display
+            RequestHistoryConsolePlugin.recordRequest(request);
+
             if (mbean != null) {
                 mbean.addRequestData(requestData);
             }
+            if (timerStatistics != null) {
+                timerStatistics.addRequestData(requestData);
+            }
         }
     }
 
@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.engine.impl.log;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The <code>AsyncLogFileWriter</code> writes log messages to a file from a
+ * dedicated thread. Request threads only add their messages to a
+ * {@link LogEntryBuffer}, which the writer thread drains in batches. The file
+ * is flushed at most once per flush interval.
+ * <p>
+ * If the buffer is full, messages are dropped and counted instead of blocking
+ * the request thread.
+ * <p>
+ * The file may be rotated once it has reached a size or a time interval has
+ * passed. The current file is then renamed by appending a time stamp and a
+ * new file is started.
+ */
+class AsyncLogFileWriter implements Runnable {
+
+    /** Minimum time in milliseconds the writer waits for new messages */
+    private static final long MIN_WAIT = 10;
+
+    /** Maximum time in milliseconds to wait for the writer to terminate */
+    private static final long CLOSE_TIMEOUT = 5000;
+
+    private static final String ROTATION_DATE_FORMAT = "yyyy-MM-dd-HHmmss";
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final File file;
+
+    private final LogEntryBuffer buffer;
+
+    private final long flushInterval;
+
+    private final long rotationSize;
+
+    private final long rotationInterval;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    // the following fields are only accessed by the writer thread
+
+    private Writer output;
+
+    private long fileSize;
+
+    private long nextRotation;
+
+    private boolean dirty;
+
+    private long reportedDrops;
+
+    /**
+     * @param bufferSize The number of messages which may be pending.
+     * @param flushInterval The time in milliseconds after which written
+     *            messages are flushed to the file.
+     * @param rotationSize The approximate size in bytes at which the file is
+     *            rotated or zero to not rotate by size.
+     * @param rotationInterval The time in milliseconds after which the file
+     *            is rotated or zero to not rotate by time.
+     */
+    AsyncLogFileWriter(final File file,
+            final int bufferSize,
+            final long flushInterval,
+            final long rotationSize,
+            final long rotationInterval) throws IOException {
+        this.file = file;
+        this.buffer = new LogEntryBuffer(bufferSize);
+        this.flushInterval = flushInterval;
+        this.rotationSize = rotationSize;
+        this.rotationInterval = rotationInterval;
+
+        this.open(System.currentTimeMillis());
+
+        this.thread = new Thread(this, "Sling Request Log Writer (" + file.getName() + ")");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues the message to be written. This method never blocks.
+     */
+    void write(final String message) {
+        if (!this.buffer.offer(message)) {
+            this.dropped.incrementAndGet();
+        } else if (this.buffer.size() >= this.buffer.capacity() / 2) {
+            // wake the writer early to keep room for more messages
+            LockSupport.unpark(this.thread);
+        }
+    }
+
+    /**
+     * Returns the number of messages dropped because the buffer was full.
+     */
+    long getDroppedCount() {
+        return this.dropped.get();
+    }
+
+    /**
+     * Writes the pending messages and closes the file.
+     */
+    void close() {
+        this.running = false;
+        LockSupport.unpark(this.thread);
+        try {
+            this.thread.join(CLOSE_TIMEOUT);
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void run() {
+        long lastFlush = System.currentTimeMillis();
+        try {
+            while (this.running) {
+                try {
+                    final int count = this.drain();
+                    final long now = System.currentTimeMillis();
+                    if (this.dirty && now - lastFlush >= this.flushInterval) {
+                        this.output.flush();
+                        this.dirty = false;
+                        lastFlush = now;
+                    }
+                    this.reportDrops();
+                    if (count == 0) {
+                        final long wait = this.dirty
+                                ? lastFlush + this.flushInterval - now
+                                : this.flushInterval;
+                        LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(Math.max(wait, MIN_WAIT)));
+                    }
+                } catch (final IOException ioe) {
+                    log.error("Failed writing request log " + this.file, ioe);
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(Math.max(this.flushInterval, MIN_WAIT)));
+                }
+            }
+
+            // write what has been queued until now
+            try {
+                while (this.drain() > 0) {
+                    // continue until the buffer is empty
+                }
+            } catch (final IOException ioe) {
+                log.error("Failed writing request log " + this.file, ioe);
+            }
+            this.reportDrops();
+        } finally {
+            this.closeOutput();
+        }
+    }
+
+    /**
+     * Writes the messages currently in the buffer. At most one buffer full of
+     * messages is written at once to flush regularly under constant load.
+     *
+     * @return The number of messages written.
+     */
+    private int drain() throws IOException {
+        int count = 0;
+        String message;
+        while (count < this.buffer.capacity() && (message = this.buffer.poll()) != null) {
+            if (this.output == null || this.isRotationDue()) {
+                this.rotate();
+            }
+            this.output.write(message);
+            this.output.write(LINE_SEPARATOR);
+            this.fileSize += message.length() + LINE_SEPARATOR.length();
+            this.dirty = true;
+            count++;
+        }
+        return count;
+    }
+
+    private boolean isRotationDue() {
+        return (this.rotationSize > 0 && this.fileSize >= this.rotationSize)
+            || (this.rotationInterval > 0 && System.currentTimeMillis() >= this.nextRotation);
+    }
+
+    private void rotate() throws IOException {
+        final long now = System.currentTimeMillis();
+        boolean renamed = true;
+        if (this.output != null) {
+            this.closeOutput();
+
+            final String base = this.file.getPath() + "."
+                + new SimpleDateFormat(ROTATION_DATE_FORMAT).format(new Date(now));
+            File target = new File(base);
+            for (int i = 1; target.exists(); i++) {
+                target = new File(base + "." + i);
+            }
+            if (!this.file.renameTo(target)) {
+                log.warn("Cannot rotate request log {} to {}, continuing with current file", this.file, target);
+                renamed = false;
+            }
+        }
+        this.open(now);
+        if (!renamed) {
+            // do not try again before the next rotation size is reached
+            this.fileSize = 0;
+        }
+    }
+
+    private void open(final long now) throws IOException {
+        this.file.getParentFile().mkdirs();
+        this.fileSize = this.file.length();
+        this.nextRotation = now + this.rotationInterval;
+        this.output = new BufferedWriter(new FileWriter(this.file, true));
+    }
+
+    private void closeOutput() {
+        if (this.output != null) {
+            try {
+                this.output.close();
+            } catch (final IOException ioe) {
+                // don't care
+            }
+            this.output = null;
+            this.dirty = false;
+        }
+    }
+
+    private void reportDrops() {
+        final long drops = this.dropped.get();
+        if (drops > this.reportedDrops) {
+            log.warn("Dropped {} messages for request log {} because the buffer was full",
+                drops - this.reportedDrops, this.file);
+            this.reportedDrops = drops;
+        }
+    }
+}
@@ -50,36 +50,71 @@ import org.apache.sling.engine.RequestLog;
  * flushed after each log message written. Future development should probably
  * implement better buffering in conjunction with the temporary open/close
  * cycles of the files.
+ * <p>
+ * Alternatively log files may be written asynchronously by an
+ * {@link AsyncLogFileWriter}, in which case the request threads only queue
+ * the messages and neither lock nor write to the file. The first log created
+ * for a file decides whether the file is written asynchronously and with
+ * which settings.
  */
 class FileRequestLog implements RequestLog {
 
     // The map of shared open files (actually PrintWriter instances)
     private static Map<String, PrintWriter> logFiles = new HashMap<String, PrintWriter>();
 
+    // The map of shared asynchronously written files
+    private static Map<String, AsyncLogFileWriter> asyncLogFiles = new HashMap<String, AsyncLogFileWriter>();
+
     // Dispose class by closing all open PrintWeiter instances
     static void dispose() {
-        for (final Writer w : logFiles.values()) {
-            try {
+        synchronized (logFiles) {
+            for (final Writer w : logFiles.values()) {
+                try {
+                    w.close();
+                } catch (IOException ioe) {
+                    // don't care
+                }
+            }
+            logFiles.clear();
+
+            for (final AsyncLogFileWriter w : asyncLogFiles.values()) {
                 w.close();
-            } catch (IOException ioe) {
-                // don't care
             }
+            asyncLogFiles.clear();
         }
-        logFiles.clear();
     }
 
     // The PrintWriter used by this instance to write the messages
     private PrintWriter output;
 
+    // The writer used by this instance if messages are written asynchronously
+    private AsyncLogFileWriter asyncOutput;
+
     FileRequestLog(File logFile) throws IOException {
+        this(logFile, false, 0, 0, 0, 0);
+    }
+
+    /**
+     * Creates a log for the file. If <code>async</code> is <code>true</code>
+     * the remaining arguments are passed to the {@link AsyncLogFileWriter}.
+     */
+    FileRequestLog(File logFile, boolean async, int bufferSize, long flushInterval, long rotationSize,
+            long rotationInterval) throws IOException {
         synchronized (logFiles) {
             final String fileName = logFile.getAbsolutePath();
             this.output = logFiles.get(fileName);
-            if (this.output == null) {
-                logFile.getParentFile().mkdirs();
-                FileWriter fw = new FileWriter(logFile, true);
-                this.output = new PrintWriter(fw);
-                logFiles.put(fileName, this.output);
+            this.asyncOutput = asyncLogFiles.get(fileName);
+            if (this.output == null && this.asyncOutput == null) {
+                if (async) {
+                    this.asyncOutput = new AsyncLogFileWriter(logFile, bufferSize, flushInterval, rotationSize,
+                        rotationInterval);
+                    asyncLogFiles.put(fileName, this.asyncOutput);
+                } else {
+                    logFile.getParentFile().mkdirs();
+                    FileWriter fw = new FileWriter(logFile, true);
+                    this.output = new PrintWriter(fw);
+                    logFiles.put(fileName, this.output);
+                }
             }
         }
     }
@@ -91,6 +126,12 @@ class FileRequestLog implements RequestLog {
         // use a local copy of the reference to not encounter NPE when this
         // log happens to be closed asynchronously while at the same time not
         // requiring synchronization
+        AsyncLogFileWriter asyncWriter = this.asyncOutput;
+        if (asyncWriter != null) {
+            asyncWriter.write(message);
+            return;
+        }
+
         PrintWriter writer = this.output;
         if (writer != null) {
             synchronized (writer) {
@@ -103,5 +144,6 @@ class FileRequestLog implements RequestLog {
     public void close() {
         // just drop the reference to the output
         this.output = null;
+        this.asyncOutput = null;
     }
 }
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.engine.impl.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The <code>LogEntryBuffer</code> is a bounded ring buffer of log messages
+ * which may be filled by any number of threads and is drained by a single
+ * thread.
+ * <p>
+ * Adding a message does not lock: each slot carries a sequence number telling
+ * whether it is free to be written or ready to be read. Writers claim a slot
+ * by advancing the tail with a compare-and-set. If the buffer is full the
+ * message is rejected instead of waiting for the reader.
+ */
+class LogEntryBuffer {
+
+    private final AtomicReferenceArray<String> entries;
+
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    // only written by the reading thread
+    private volatile long head;
+
+    /**
+     * Creates a buffer for at least <code>capacity</code> messages. The
+     * capacity is rounded up to the next power of two.
+     */
+    LogEntryBuffer(final int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.entries = new AtomicReferenceArray<String>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            this.sequences.set(i, i);
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds the message to the buffer.
+     *
+     * @return <code>false</code> if the buffer is full.
+     */
+    boolean offer(final String message) {
+        long pos = this.tail.get();
+        while (true) {
+            final int index = (int) (pos & this.mask);
+            final long sequence = this.sequences.get(index);
+            if (sequence == pos) {
+                if (this.tail.compareAndSet(pos, pos + 1)) {
+                    this.entries.set(index, message);
+                    // publish the message to the reader
+                    this.sequences.set(index, pos + 1);
+                    return true;
+                }
+                pos = this.tail.get();
+            } else if (sequence < pos) {
+                // the slot has not been read yet, so the buffer is full
+                return false;
+            } else {
+                // another writer claimed the slot
+                pos = this.tail.get();
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest message from the buffer. This method must only be
+     * called by a single thread.
+     *
+     * @return The message or <code>null</code> if the buffer is empty.
+     */
+    String poll() {
+        final long pos = this.head;
+        final int index = (int) (pos & this.mask);
+        if (this.sequences.get(index) != pos + 1) {
+            return null;
+        }
+        final String message = this.entries.get(index);
+        this.entries.set(index, null);
+        // free the slot for the writer of the next round
+        this.sequences.set(index, pos + this.mask + 1);
+        this.head = pos + 1;
+        return message;
+    }
+
+    /**
+     * Returns the approximate number of messages in the buffer.
+     */
+    int size() {
+        return (int) Math.max(0, this.tail.get() - this.head);
+    }
+
+    int capacity() {
+        return this.mask + 1;
+    }
+}
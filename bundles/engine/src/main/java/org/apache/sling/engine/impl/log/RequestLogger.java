@@ -67,6 +67,26 @@ public class RequestLogger {
     @Property(boolValue = true)
     public static final String PROP_ACCESS_LOG_ENABLED = "access.log.enabled";
 
+    @Property(boolValue = false)
+    public static final String PROP_ASYNC = RequestLoggerService.PARAM_ASYNC;
+
+    @Property(intValue = RequestLoggerService.DEFAULT_BUFFER_SIZE)
+    public static final String PROP_BUFFER_SIZE = RequestLoggerService.PARAM_BUFFER_SIZE;
+
+    @Property(longValue = RequestLoggerService.DEFAULT_FLUSH_INTERVAL)
+    public static final String PROP_FLUSH_INTERVAL = RequestLoggerService.PARAM_FLUSH_INTERVAL;
+
+    @Property(longValue = 0)
+    public static final String PROP_ROTATION_SIZE = RequestLoggerService.PARAM_ROTATION_SIZE;
+
+    @Property(longValue = 0)
+    public static final String PROP_ROTATION_INTERVAL = RequestLoggerService.PARAM_ROTATION_INTERVAL;
+
+    /** The settings of asynchronous log files passed to the loggers */
+    private static final String[] FILE_SETTINGS = {
+        PROP_ASYNC, PROP_BUFFER_SIZE, PROP_FLUSH_INTERVAL, PROP_ROTATION_SIZE, PROP_ROTATION_INTERVAL
+    };
+
     /**
      * The log format string for the request log entry message (value is "%t
      * [%R] -> %m %U%q %H").
@@ -105,9 +125,9 @@ public class RequestLogger {
             && ((Boolean) requestLogEnabled).booleanValue()) {
             Object requestLogType = props.get(PROP_REQUEST_LOG_OUTPUT_TYPE);
             createRequestLoggerService(services, bundleContext, true, REQUEST_LOG_ENTRY_FORMAT, requestLogName,
-                requestLogType);
+                requestLogType, props);
             createRequestLoggerService(services, bundleContext, false, REQUEST_LOG_EXIT_FORMAT, requestLogName,
-                requestLogType);
+                requestLogType, props);
         }
 
         // prepare the access logger if a name is configured and the
@@ -116,7 +136,8 @@ public class RequestLogger {
         Object accessLogEnabled = props.get(PROP_ACCESS_LOG_ENABLED);
         if (accessLogName != null && accessLogEnabled instanceof Boolean && ((Boolean) accessLogEnabled).booleanValue()) {
             Object accessLogType = props.get(PROP_ACCESS_LOG_OUTPUT_TYPE);
-            createRequestLoggerService(services, bundleContext, false, ACCESS_LOG_FORMAT, accessLogName, accessLogType);
+            createRequestLoggerService(services, bundleContext, false, ACCESS_LOG_FORMAT, accessLogName, accessLogType,
+                props);
         }
     }
 
@@ -130,8 +151,15 @@ public class RequestLogger {
     }
 
     private static void createRequestLoggerService(Map<ServiceRegistration, RequestLoggerService> services,
-            BundleContext bundleContext, boolean onEntry, Object format, Object output, Object outputType) {
+            BundleContext bundleContext, boolean onEntry, Object format, Object output, Object outputType,
+            Map<String, Object> props) {
         final Hashtable<String, Object> config = new Hashtable<String, Object>();
+        for (final String name : FILE_SETTINGS) {
+            final Object value = props.get(name);
+            if (value != null) {
+                config.put(name, value);
+            }
+        }
         config.put(RequestLoggerService.PARAM_ON_ENTRY, onEntry ? Boolean.TRUE : Boolean.FALSE);
         config.put(RequestLoggerService.PARAM_FORMAT, format);
         config.put(RequestLoggerService.PARAM_OUTPUT, output);
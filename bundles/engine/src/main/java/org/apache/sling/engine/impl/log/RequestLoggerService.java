@@ -30,6 +30,7 @@ import org.apache.felix.scr.annotations.Properties;
 import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.PropertyOption;
 import org.apache.felix.scr.annotations.Service;
+import org.apache.sling.commons.osgi.PropertiesUtil;
 import org.apache.sling.engine.RequestLog;
 import org.osgi.framework.BundleContext;
 
@@ -65,6 +66,25 @@ public class RequestLoggerService {
     @Property(boolValue = false)
     public static final String PARAM_ON_ENTRY = "request.log.service.onentry";
 
+    @Property(boolValue = false)
+    public static final String PARAM_ASYNC = "request.log.service.async";
+
+    @Property(intValue = RequestLoggerService.DEFAULT_BUFFER_SIZE)
+    public static final String PARAM_BUFFER_SIZE = "request.log.service.buffersize";
+
+    @Property(longValue = RequestLoggerService.DEFAULT_FLUSH_INTERVAL)
+    public static final String PARAM_FLUSH_INTERVAL = "request.log.service.flushinterval";
+
+    @Property(longValue = 0)
+    public static final String PARAM_ROTATION_SIZE = "request.log.service.rotationsize";
+
+    @Property(longValue = 0)
+    public static final String PARAM_ROTATION_INTERVAL = "request.log.service.rotationinterval";
+
+    static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    static final long DEFAULT_FLUSH_INTERVAL = 1000;
+
     private static final int OUTPUT_TYPE_LOGGER = 0;
 
     private static final int OUTPUT_TYPE_FILE = 1;
@@ -106,7 +126,7 @@ public class RequestLoggerService {
             int outputType = (outputTypeObject instanceof Number)
                     ? ((Number) outputTypeObject).intValue()
                     : OUTPUT_TYPE_LOGGER;
-            this.log = this.getLog(bundleContext, output.toString(), outputType);
+            this.log = this.getLog(bundleContext, configuration, output.toString(), outputType);
         }
     }
 
@@ -130,7 +150,8 @@ public class RequestLoggerService {
         return this.onEntry;
     }
 
-    private RequestLog getLog(BundleContext bundleContext, String output, int outputType) {
+    private RequestLog getLog(BundleContext bundleContext, Map<String, Object> configuration, String output,
+            int outputType) {
         switch (outputType) {
             case OUTPUT_TYPE_FILE:
                 // file logging
@@ -145,7 +166,12 @@ public class RequestLoggerService {
                         file = file.getAbsoluteFile();
                     }
 
-                    return new FileRequestLog(file);
+                    return new FileRequestLog(file,
+                        PropertiesUtil.toBoolean(configuration.get(PARAM_ASYNC), false),
+                        PropertiesUtil.toInteger(configuration.get(PARAM_BUFFER_SIZE), DEFAULT_BUFFER_SIZE),
+                        PropertiesUtil.toLong(configuration.get(PARAM_FLUSH_INTERVAL), DEFAULT_FLUSH_INTERVAL),
+                        PropertiesUtil.toLong(configuration.get(PARAM_ROTATION_SIZE), 0),
+                        PropertiesUtil.toLong(configuration.get(PARAM_ROTATION_INTERVAL), 0) * 1000);
                 } catch (IOException ioe) {
                     // TODO: log
                 }
@@ -34,6 +34,7 @@ import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemIterator;
 import org.apache.commons.fileupload.FileUploadException;
 import org.apache.commons.fileupload.RequestContext;
 import org.apache.commons.fileupload.disk.DiskFileItemFactory;
@@ -42,6 +43,7 @@ import org.apache.commons.fileupload.servlet.ServletRequestContext;
 import org.apache.sling.api.request.RequestParameter;
 import org.apache.sling.api.request.RequestParameterMap;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.engine.EngineConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,6 +65,21 @@ public class ParameterSupport {
      */
     public final static String MARKER_IS_SERVICE_PROCESSING = ParameterSupport.class.getName() + "/ServiceProcessingMarker";
 
+    /**
+     * The name of the request header requesting a multipart/form-data POST
+     * request to be streamed if set to {@link #UPLOAD_MODE_STREAM}.
+     */
+    public final static String HEADER_UPLOAD_MODE = "Sling-UploadMode";
+
+    /**
+     * The name of the query parameter requesting a multipart/form-data POST
+     * request to be streamed if set to {@link #UPLOAD_MODE_STREAM}.
+     */
+    public final static String PARAMETER_UPLOAD_MODE = "uploadmode";
+
+    /** The upload mode value requesting a streamed request. */
+    public final static String UPLOAD_MODE_STREAM = "stream";
+
     // name of the request attribute caching the ParameterSupport instance
     // used during the request
     private static final String ATTR_NAME = ParameterSupport.class.getName();
@@ -276,7 +293,11 @@ public class ParameterSupport {
 
                 // Multipart POST
                 if (ServletFileUpload.isMultipartContent(new ServletRequestContext(this.getServletRequest()))) {
-                    this.parseMultiPartPost(parameters);
+                    if (isStreamed(parameters)) {
+                        this.parseMultiPartPostStreamed(parameters);
+                    } else {
+                        this.parseMultiPartPost(parameters);
+                    }
                     this.requestDataUsed = true;
                     useFallback = false;
                 }
@@ -326,22 +347,63 @@ public class ParameterSupport {
     }
 
 
-    private void parseMultiPartPost(ParameterMap parameters) {
+    private boolean isStreamed(final ParameterMap parameters) {
+        if (UPLOAD_MODE_STREAM.equalsIgnoreCase(this.getServletRequest().getHeader(HEADER_UPLOAD_MODE))) {
+            return true;
+        }
+        final RequestParameter mode = parameters.getValue(PARAMETER_UPLOAD_MODE);
+        return mode != null && UPLOAD_MODE_STREAM.equalsIgnoreCase(mode.getString());
+    }
 
-        // Create a new file upload handler
-        ServletFileUpload upload = new ServletFileUpload();
+    private ServletFileUpload createUpload() {
+        final ServletFileUpload upload = new ServletFileUpload();
         upload.setSizeMax(ParameterSupport.maxRequestSize);
         upload.setFileSizeMax(ParameterSupport.maxFileSize);
-        upload.setFileItemFactory(new DiskFileItemFactory(ParameterSupport.fileSizeThreshold,
-            ParameterSupport.location));
+        return upload;
+    }
 
-        RequestContext rc = new ServletRequestContext(this.getServletRequest()) {
+    private RequestContext createRequestContext() {
+        return new ServletRequestContext(this.getServletRequest()) {
             @Override
             public String getCharacterEncoding() {
                 String enc = super.getCharacterEncoding();
                 return (enc != null) ? enc : Util.ENCODING_DIRECT;
             }
         };
+    }
+
+    /**
+     * Does not parse the request body but provides the parts of the request
+     * through the {@link EngineConstants#REQUEST_PARTS_ITERATOR} request attribute. The
+     * uploaded files can thus be consumed while the request is received
+     * instead of being spooled to a temporary file first.
+     */
+    private void parseMultiPartPostStreamed(ParameterMap parameters) {
+        // the form encoding of the query applies until a _charset_ part is sent
+        String encoding = Util.getDefaultFixEncoding();
+        final RequestParameter formEncoding = parameters.getValue(PARAMETER_FORMENCODING);
+        if (formEncoding != null) {
+            encoding = Util.validateEncoding(Util.toIdentityEncodedString(formEncoding.get()));
+        }
+
+        try {
+            final FileItemIterator items = this.createUpload().getItemIterator(this.createRequestContext());
+            this.getServletRequest().setAttribute(EngineConstants.REQUEST_PARTS_ITERATOR, new RequestPartsIterator(items, encoding));
+        } catch (FileUploadException fue) {
+            this.log.error("parseMultiPartPostStreamed: Error parsing request", fue);
+        } catch (IOException ioe) {
+            this.log.error("parseMultiPartPostStreamed: Error parsing request", ioe);
+        }
+    }
+
+    private void parseMultiPartPost(ParameterMap parameters) {
+
+        // Create a new file upload handler
+        ServletFileUpload upload = this.createUpload();
+        upload.setFileItemFactory(new DiskFileItemFactory(ParameterSupport.fileSizeThreshold,
+            ParameterSupport.location));
+
+        RequestContext rc = this.createRequestContext();
 
         // Parse the request
         List<?> /* FileItem */items = null;
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.engine.impl.parameters;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.sling.api.SlingIOException;
+import org.apache.sling.api.request.RequestParameter;
+
+/**
+ * The <code>RequestPartsIterator</code> provides the parts of a streamed
+ * multipart/form-data POST request in the order in which they are sent by
+ * the client. The request body is parsed while iterating, so the parts are
+ * never spooled to memory or disk by the engine.
+ * <p>
+ * Requesting the next part skips any unread content of the previous part.
+ * Form fields are decoded with the form encoding, which is taken from a
+ * <code>_charset_</code> field preceding them in the request.
+ */
+class RequestPartsIterator implements Iterator<RequestParameter> {
+
+    private final FileItemIterator itemIterator;
+
+    private String encoding;
+
+    RequestPartsIterator(final FileItemIterator itemIterator, final String encoding) {
+        this.itemIterator = itemIterator;
+        this.encoding = encoding;
+    }
+
+    public boolean hasNext() {
+        try {
+            return this.itemIterator.hasNext();
+        } catch (FileUploadException fue) {
+            throw new SlingIOException(new IOException("Error parsing request: " + fue.getMessage(), fue));
+        } catch (IOException ioe) {
+            throw new SlingIOException(ioe);
+        }
+    }
+
+    public RequestParameter next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            final StreamedRequestParameter param = new StreamedRequestParameter(this.itemIterator.next(), this.encoding);
+            if (param.isFormField() && ParameterSupport.PARAMETER_FORMENCODING.equals(param.getName())) {
+                this.encoding = Util.validateEncoding(Util.toIdentityEncodedString(param.get()));
+            }
+            return param;
+        } catch (FileUploadException fue) {
+            throw new SlingIOException(new IOException("Error parsing request: " + fue.getMessage(), fue));
+        } catch (IOException ioe) {
+            throw new SlingIOException(ioe);
+        }
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+}
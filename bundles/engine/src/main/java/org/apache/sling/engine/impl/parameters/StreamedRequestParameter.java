@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.engine.impl.parameters;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.UnsupportedEncodingException;
+
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.util.Streams;
+import org.apache.sling.api.SlingIOException;
+
+/**
+ * The <code>StreamedRequestParameter</code> represents a part of a streamed
+ * multipart/form-data POST request as provided by the
+ * {@link RequestPartsIterator}.
+ * <p>
+ * The content of form fields is read into memory when the part is created.
+ * The content of file uploads is not buffered: the input stream of the part
+ * can only be consumed once and only until the next part is requested from
+ * the iterator. Accordingly the size of a file upload is not known and
+ * {@link #getSize()} returns <code>-1</code>, unless the upload is empty.
+ */
+public class StreamedRequestParameter extends AbstractRequestParameter {
+
+    private final FileItemStream item;
+
+    private byte[] content;
+
+    private PushbackInputStream stream;
+
+    /** Whether the file upload is known to be empty. */
+    private boolean empty;
+
+    private String encodedFileName;
+
+    StreamedRequestParameter(final FileItemStream item, final String encoding) throws IOException {
+        super(Util.reencode(item.getFieldName(), encoding), encoding);
+        this.item = item;
+        if (item.isFormField()) {
+            this.content = read(item.openStream());
+        }
+    }
+
+    /**
+     * Returns the content of the part. For file uploads this reads the
+     * remaining content into memory, so this should be avoided in favour
+     * of {@link #getInputStream()}.
+     */
+    public byte[] get() {
+        if (this.content == null) {
+            try {
+                this.content = read(this.getInputStream());
+            } catch (IOException ioe) {
+                throw new SlingIOException(ioe);
+            }
+        }
+        return this.content;
+    }
+
+    public String getContentType() {
+        return this.item.getContentType();
+    }
+
+    public InputStream getInputStream() throws IOException {
+        if (this.item.isFormField()) {
+            return new ByteArrayInputStream(this.content);
+        }
+        if (this.stream == null) {
+            this.stream = new PushbackInputStream(this.item.openStream());
+            // peek at the content to find out whether the upload is empty
+            final int c = this.stream.read();
+            if (c == -1) {
+                this.empty = true;
+            } else {
+                this.stream.unread(c);
+            }
+        }
+        return this.stream;
+    }
+
+    public String getFileName() {
+        if (this.encodedFileName == null && this.item.getName() != null) {
+            this.encodedFileName = Util.reencode(this.item.getName(), this.getEncoding());
+        }
+        return this.encodedFileName;
+    }
+
+    public long getSize() {
+        if (this.content != null) {
+            return this.content.length;
+        }
+        try {
+            this.getInputStream();
+        } catch (IOException ioe) {
+            return -1;
+        }
+        return this.empty ? 0 : -1;
+    }
+
+    public String getString() {
+        final byte[] data = this.get();
+        if (this.getEncoding() != null) {
+            try {
+                return new String(data, this.getEncoding());
+            } catch (UnsupportedEncodingException uee) {
+                // don't care, fall back to platform default
+            }
+        }
+        return new String(data);
+    }
+
+    public String getString(String enc) throws UnsupportedEncodingException {
+        return new String(this.get(), enc);
+    }
+
+    public boolean isFormField() {
+        return this.item.isFormField();
+    }
+
+    public String toString() {
+        if (this.isFormField()) {
+            return this.getString();
+        }
+
+        return "File: " + this.getFileName() + " (streamed)";
+    }
+
+    private static byte[] read(final InputStream input) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Streams.copy(input, out, true);
+        return out.toByteArray();
+    }
+}
@@ -157,7 +157,7 @@ public class Util {
         }
     }
 
-    private static String reencode(String parName, String encoding) {
+    static String reencode(String parName, String encoding) {
         // re-encode the parameter to the encoding
         if (!ENCODING_DIRECT.equalsIgnoreCase(encoding)) {
             try {
@@ -180,7 +180,7 @@ public class Util {
      * @param encoding The encoding to validate
      * @return The encoding if supported or {@link #defaultFixEncoding}
      */
-    private static String validateEncoding(final String encoding) {
+    static String validateEncoding(final String encoding) {
         if (encoding != null && encoding.length() > 0) {
             // check for the existence of the encoding
             try {
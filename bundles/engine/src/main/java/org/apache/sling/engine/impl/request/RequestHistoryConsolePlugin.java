@@ -35,7 +35,6 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.sling.api.SlingHttpServletRequest;
-import org.apache.sling.api.request.RequestProgressTracker;
 import org.apache.sling.api.request.ResponseUtil;
 import org.apache.sling.api.resource.ResourceUtil;
 import org.osgi.framework.BundleContext;
@@ -139,8 +138,9 @@ public class RequestHistoryConsolePlugin {
                 }
 
                 if (accept) {
+                    // format the messages outside of the lock
+                    RequestInfo info = new RequestInfo(r);
                     synchronized (requests) {
-                        RequestInfo info = new RequestInfo(r);
                         requests.put(info.getKey(), info);
                     }
                 }
@@ -257,10 +257,9 @@ public class RequestHistoryConsolePlugin {
 
                 // Request Progress Tracker Info
                 pw.println("<tr><td>");
-                final Iterator<String> it = info.getTracker().getMessages();
                 pw.print("<pre>");
-                while (it.hasNext()) {
-                    pw.print(ResponseUtil.escapeXml(it.next()));
+                for (final String message : info.getMessages()) {
+                    pw.print(ResponseUtil.escapeXml(message));
                 }
                 pw.println("</pre></td></tr>");
                 pw.println("</tbody></table>");
@@ -289,14 +288,22 @@ public class RequestHistoryConsolePlugin {
 
         private final String user;
 
-        private final RequestProgressTracker tracker;
+        /**
+         * The formatted messages of the request progress tracker. The tracker
+         * itself is not kept as it references the arguments of the messages.
+         */
+        private final List<String> messages;
 
         RequestInfo(SlingHttpServletRequest request) {
             this.key = String.valueOf(requestCounter.incrementAndGet());
             this.method = request.getMethod();
             this.pathInfo = request.getPathInfo();
             this.user = request.getRemoteUser();
-            this.tracker = request.getRequestProgressTracker();
+            this.messages = new ArrayList<String>();
+            final Iterator<String> it = request.getRequestProgressTracker().getMessages();
+            while (it.hasNext()) {
+                this.messages.add(it.next());
+            }
         }
 
         public String getKey() {
@@ -331,8 +338,8 @@ public class RequestHistoryConsolePlugin {
             return sb.toString();
         }
 
-        public RequestProgressTracker getTracker() {
-            return tracker;
+        public List<String> getMessages() {
+            return messages;
         }
     }
 
@@ -88,6 +88,13 @@ import org.apache.sling.api.request.RequestProgressTracker;
  * <li>The absolute time of the timer in parenthesis.
  * <li>The entry message
  * </ol>
+ * <p>
+ * <b>Lazy Formatting</b>
+ * <p>
+ * As the tracking entries are only read on demand, for example by the request
+ * log filter or the web console, entries keep the message format and arguments
+ * and the messages are only formatted when they are retrieved through
+ * {@link #getMessages()} or {@link #dump(PrintWriter)}.
  */
 public class SlingRequestProgressTracker implements RequestProgressTracker {
 
@@ -106,6 +113,9 @@ public class SlingRequestProgressTracker implements RequestProgressTracker {
     /** TIMER_END format explanation */
     private static final String TIMER_END_FORMAT = "{<elapsed msec>,<timer name>} <optional message>";
 
+    /** Initial comment explaining the TIMER_END format */
+    private static final String TIMER_END_COMMENT = "timer_end format is " + TIMER_END_FORMAT;
+
     /** The leading millisecond number is left-padded with white-space to this width. */
     private static final int PADDING_WIDTH = 7;
 
@@ -120,7 +130,7 @@ public class SlingRequestProgressTracker implements RequestProgressTracker {
     private long processingEnd;
 
     /**
-     * The list of tracking entries.
+     * The list of tracking entries. The list is kept and reused on {@link #reset()}.
      */
     private final List<TrackingEntry> entries = new ArrayList<TrackingEntry>();
     /**
@@ -149,7 +159,7 @@ public class SlingRequestProgressTracker implements RequestProgressTracker {
         processingStart = startTimerInternal(REQUEST_PROCESSING_TIMER);
         processingEnd = -1;
 
-        entries.add(new TrackingEntry(COMMENT_PREFIX + "timer_end format is " + TIMER_END_FORMAT));
+        entries.add(new TrackingEntry(COMMENT_PREFIX, TIMER_END_COMMENT, null));
     }
 
     /**
@@ -205,13 +215,15 @@ public class SlingRequestProgressTracker implements RequestProgressTracker {
 
     /** Creates an entry with the given message. */
     public void log(String message) {
-        entries.add(new TrackingEntry(LOG_PREFIX + message));
+        entries.add(new TrackingEntry(LOG_PREFIX, message, null));
     }
 
-    /** Creates an entry with the given entry tag and message */
+    /**
+     * Creates an entry with the given entry tag and message. The message
+     * is formatted when it is retrieved.
+     */
     public void log(String format, Object... args) {
-        String message = MessageFormat.format(format, args);
-        entries.add(new TrackingEntry(LOG_PREFIX + message));
+        entries.add(new TrackingEntry(LOG_PREFIX, format, args));
     }
 
     /**
@@ -232,7 +244,7 @@ public class SlingRequestProgressTracker implements RequestProgressTracker {
     private long startTimerInternal(String name) {
         long timer = System.currentTimeMillis();
         namedTimerEntries.put(name, timer);
-        entries.add(new TrackingEntry(timer, "TIMER_START{" + name + "}"));
+        entries.add(new TrackingEntry(timer, name));
         return timer;
     }
 
@@ -240,8 +252,9 @@ public class SlingRequestProgressTracker implements RequestProgressTracker {
      * Log a timer entry, including start, end and elapsed time.
      */
     public void logTimer(String name) {
-        if (namedTimerEntries.containsKey(name)) {
-            logTimerInternal(name, null, namedTimerEntries.get(name));
+        final Long startTime = namedTimerEntries.get(name);
+        if (startTime != null) {
+            logTimerInternal(name, null, null, startTime);
         }
     }
 
@@ -249,26 +262,30 @@ public class SlingRequestProgressTracker implements RequestProgressTracker {
      * Log a timer entry, including start, end and elapsed time.
      */
     public void logTimer(String name, String format, Object... args) {
-        if (namedTimerEntries.containsKey(name)) {
-            logTimerInternal(name, MessageFormat.format(format, args), namedTimerEntries.get(name));
+        final Long startTime = namedTimerEntries.get(name);
+        if (startTime != null) {
+            logTimerInternal(name, format, args, startTime);
         }
     }
 
     /**
      * Log a timer entry, including start, end and elapsed time using TIMER_END_FORMAT
      */
-    private void logTimerInternal(String name, String msg, long startTime) {
-        final StringBuilder sb = new StringBuilder();
-        sb.append("TIMER_END{");
-        sb.append(System.currentTimeMillis() - startTime);
-        sb.append(',');
-        sb.append(name);
-        sb.append('}');
-        if(msg != null) {
-            sb.append(' ');
-            sb.append(msg);
+    private void logTimerInternal(String name, String format, Object[] args, long startTime) {
+        final long now = System.currentTimeMillis();
+        entries.add(new TrackingEntry(now, name, now - startTime, format, args));
+    }
+
+    /**
+     * Calls the visitor for each ended timer in the order the timers have
+     * been logged.
+     */
+    public void visitTimers(final TimerVisitor visitor) {
+        for (final TrackingEntry entry : entries) {
+            if (entry.elapsed >= 0) {
+                visitor.visit(entry.timerName, entry.elapsed);
+            }
         }
-        entries.add(new TrackingEntry(sb.toString()));
     }
 
     public void done() {
@@ -288,23 +305,68 @@ public class SlingRequestProgressTracker implements RequestProgressTracker {
         return System.currentTimeMillis() - processingStart;
     }
 
-    /** Process tracker entry keeping timestamp, tag and message */
+    /** Visitor for the ended timers of a tracker. */
+    public interface TimerVisitor {
+
+        /**
+         * Called for a logged timer.
+         * @param timerName The name of the timer
+         * @param elapsed The elapsed time in milliseconds
+         */
+        void visit(String timerName, long elapsed);
+    }
+
+    /**
+     * Process tracker entry keeping timestamp, tag and the message or the
+     * message format and arguments.
+     */
     private static class TrackingEntry {
 
         // creation time stamp
         private final long timeStamp;
 
-        // tracking message
+        // message prefix, null for timer entries
+        private final String prefix;
+
+        // tracking message or message format
         private final String message;
 
-        TrackingEntry(String message) {
+        // arguments of the message format, null if message is not a format
+        private final Object[] args;
+
+        // name of the timer, null for log entries
+        private final String timerName;
+
+        // elapsed time of an ended timer, -1 for other entries
+        private final long elapsed;
+
+        TrackingEntry(String prefix, String message, Object[] args) {
             this.timeStamp = System.currentTimeMillis();
+            this.prefix = prefix;
             this.message = message;
+            this.args = args;
+            this.timerName = null;
+            this.elapsed = -1;
+        }
+
+        /** Timer start entry */
+        TrackingEntry(long timeStamp, String timerName) {
+            this.timeStamp = timeStamp;
+            this.prefix = null;
+            this.message = null;
+            this.args = null;
+            this.timerName = timerName;
+            this.elapsed = -1;
         }
 
-        TrackingEntry(long timeStamp, String message) {
+        /** Timer end entry */
+        TrackingEntry(long timeStamp, String timerName, long elapsed, String message, Object[] args) {
             this.timeStamp = timeStamp;
+            this.prefix = null;
             this.message = message;
+            this.args = args;
+            this.timerName = timerName;
+            this.elapsed = elapsed;
         }
 
         long getTimeStamp() {
@@ -312,7 +374,33 @@ public class SlingRequestProgressTracker implements RequestProgressTracker {
         }
 
         String getMessage() {
-            return message;
+            if (timerName == null) {
+                return prefix.concat(formatArgs());
+            }
+            final StringBuilder sb = new StringBuilder();
+            if (elapsed < 0) {
+                sb.append("TIMER_START{");
+                sb.append(timerName);
+                sb.append('}');
+            } else {
+                sb.append("TIMER_END{");
+                sb.append(elapsed);
+                sb.append(',');
+                sb.append(timerName);
+                sb.append('}');
+                if (message != null) {
+                    sb.append(' ');
+                    sb.append(formatArgs());
+                }
+            }
+            return sb.toString();
+        }
+
+        private String formatArgs() {
+            if (args == null) {
+                return message;
+            }
+            return MessageFormat.format(message, args);
         }
     }
 }
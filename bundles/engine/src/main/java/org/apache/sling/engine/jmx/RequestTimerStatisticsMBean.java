@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.engine.jmx;
+
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.TabularData;
+
+import aQute.bnd.annotation.ProviderType;
+
+/**
+ * This is the management interface for the timer statistics of the
+ * request progress trackers.
+ * <p>
+ * Every n-th request is sampled and the timers logged by its request
+ * progress tracker, for example the processing times of the called
+ * servlets and scripts, are aggregated per timer name into histograms.
+ *
+ * @since 1.1
+ */
+@ProviderType
+public interface RequestTimerStatisticsMBean {
+
+    /**
+     * Returns the sampling rate: every n-th request is sampled. If
+     * the rate is zero, no requests are sampled.
+     */
+    int getSamplingRate();
+
+    /**
+     * Returns the number of sampled requests since last resetting the
+     * statistics.
+     *
+     * @see #resetStatistics()
+     */
+    long getSampledRequestsCount();
+
+    /**
+     * Returns the upper bounds in milliseconds of the histogram buckets.
+     * The last bucket of the histograms counts the times exceeding the
+     * last bound.
+     */
+    long[] getHistogramBucketsMsec();
+
+    /**
+     * Returns the statistics per timer since last resetting the statistics.
+     * Each row contains the timer name, the number of timings, the
+     * minimum, maximum and mean time, the estimated 50th, 90th and 99th
+     * percentiles and the histogram of the timings.
+     *
+     * @throws OpenDataException If the data cannot be converted.
+     * @see #resetStatistics()
+     */
+    TabularData getTimers() throws OpenDataException;
+
+    /**
+     * Resets all statistics values and restarts from zero.
+     */
+    void resetStatistics();
+}
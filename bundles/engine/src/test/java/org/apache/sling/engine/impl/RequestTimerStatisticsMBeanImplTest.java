@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.engine.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Test;
+
+public class RequestTimerStatisticsMBeanImplTest {
+
+    @Test
+    public void test_histogram() throws Exception {
+        final RequestTimerStatisticsMBeanImpl bean = new RequestTimerStatisticsMBeanImpl(1);
+        for (int i = 1; i <= 100; i++) {
+            bean.addTiming("/apps/page/page.jsp#" + i, i);
+        }
+        bean.addTiming("servlet", 3);
+
+        final TabularData timers = bean.getTimers();
+        assertEquals(2, timers.size());
+
+        final CompositeData page = timers.get(new Object[] { "/apps/page/page.jsp" });
+        assertEquals(100L, page.get("count"));
+        assertEquals(1L, page.get("minMsec"));
+        assertEquals(100L, page.get("maxMsec"));
+        assertEquals(50.5, (Double) page.get("meanMsec"), 0.001);
+        assertEquals(50L, page.get("p50Msec"));
+        assertEquals(100L, page.get("p90Msec"));
+        assertArrayEquals(new long[] { 1, 1, 3, 5, 10, 30, 50, 0, 0, 0, 0, 0, 0, 0 }, (long[]) page.get("histogram"));
+
+        final CompositeData servlet = timers.get(new Object[] { "servlet" });
+        assertEquals(1L, servlet.get("count"));
+        assertEquals(3L, servlet.get("p99Msec"));
+
+        bean.resetStatistics();
+        assertEquals(0, bean.getTimers().size());
+    }
+
+    @Test
+    public void test_timerLimit() throws Exception {
+        final RequestTimerStatisticsMBeanImpl bean = new RequestTimerStatisticsMBeanImpl(1);
+        for (int i = 0; i < RequestTimerStatisticsMBeanImpl.MAX_TIMERS + 10; i++) {
+            bean.addTiming("timer" + i, 1);
+        }
+        assertEquals(RequestTimerStatisticsMBeanImpl.MAX_TIMERS, bean.getTimers().size());
+    }
+}
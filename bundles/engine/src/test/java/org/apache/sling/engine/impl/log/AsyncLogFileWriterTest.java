@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.engine.impl.log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * The <code>AsyncLogFileWriterTest</code> class tests the
+ * <code>AsyncLogFileWriter</code> and <code>LogEntryBuffer</code> classes.
+ */
+public class AsyncLogFileWriterTest extends TestCase {
+
+    private File dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        dir = File.createTempFile("requestlog", "");
+        dir.delete();
+        dir.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        final File[] files = dir.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+        super.tearDown();
+    }
+
+    public void testBuffer() {
+        final LogEntryBuffer buffer = new LogEntryBuffer(3);
+        assertEquals(4, buffer.capacity());
+        assertNull(buffer.poll());
+
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(buffer.offer("m" + i));
+            }
+            assertFalse(buffer.offer("full"));
+            assertEquals(4, buffer.size());
+            for (int i = 0; i < 4; i++) {
+                assertEquals("m" + i, buffer.poll());
+            }
+            assertNull(buffer.poll());
+            assertEquals(0, buffer.size());
+        }
+    }
+
+    public void testConcurrentWriters() throws Exception {
+        final File file = new File(dir, "concurrent.log");
+        final AsyncLogFileWriter writer = new AsyncLogFileWriter(file, 64, 1000, 0, 0);
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int id = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        writer.write(id + ":" + i);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        writer.close();
+
+        // each message is either written completely or counted as dropped
+        final List<String> lines = readLines(file);
+        assertEquals(4000, lines.size() + writer.getDroppedCount());
+        for (final String line : lines) {
+            assertTrue(line, line.matches("\\d:\\d+"));
+        }
+    }
+
+    public void testWritesOnClose() throws Exception {
+        final File file = new File(dir, "request.log");
+        final AsyncLogFileWriter writer = new AsyncLogFileWriter(file, 16, 60000, 0, 0);
+        writer.write("first");
+        writer.write("second");
+        writer.close();
+
+        final List<String> lines = readLines(file);
+        assertEquals(2, lines.size());
+        assertEquals("first", lines.get(0));
+        assertEquals("second", lines.get(1));
+        assertEquals(0, writer.getDroppedCount());
+    }
+
+    public void testRotationBySize() throws Exception {
+        final File file = new File(dir, "rotated.log");
+        final AsyncLogFileWriter writer = new AsyncLogFileWriter(file, 16, 1000, 10, 0);
+        writer.write("0123456789");
+        writer.write("abc");
+        writer.close();
+
+        final File[] files = dir.listFiles();
+        assertEquals(2, files.length);
+        final List<String> lines = readLines(file);
+        assertEquals(1, lines.size());
+        assertEquals("abc", lines.get(0));
+    }
+
+    public void testFileRequestLogSharesWriter() throws Exception {
+        final File file = new File(dir, "shared.log");
+        final FileRequestLog log1 = new FileRequestLog(file, true, 16, 1000, 0, 0);
+        final FileRequestLog log2 = new FileRequestLog(file, false, 0, 0, 0, 0);
+        log1.write("one");
+        log2.write("two");
+        FileRequestLog.dispose();
+
+        final List<String> lines = readLines(file);
+        assertEquals(2, lines.size());
+    }
+
+    private List<String> readLines(final File file) throws IOException {
+        final List<String> lines = new ArrayList<String>();
+        final BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+}
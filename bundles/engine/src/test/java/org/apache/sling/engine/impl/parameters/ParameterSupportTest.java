@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.engine.impl.parameters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.fileupload.util.Streams;
+import org.apache.sling.api.request.RequestParameter;
+import org.apache.sling.engine.EngineConstants;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.api.Invocation;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.action.CustomAction;
+import org.junit.Test;
+
+public class ParameterSupportTest {
+
+    private static final String BOUNDARY = "----boundary";
+
+    private final Mockery context = new JUnit4Mockery();
+
+    private final Map<String, Object> attributes = new HashMap<String, Object>();
+
+    private HttpServletRequest createRequest(final String query) throws IOException {
+        final String body = "--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"_charset_\"\r\n\r\n"
+            + "UTF-8\r\n"
+            + "--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"title\"\r\n\r\n"
+            + "gr\u00fcn\r\n"
+            + "--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"*\"; filename=\"test.txt\"\r\n"
+            + "Content-Type: text/plain\r\n\r\n"
+            + "hello world\r\n"
+            + "--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"empty\"; filename=\"\"\r\n"
+            + "Content-Type: application/octet-stream\r\n\r\n"
+            + "\r\n"
+            + "--" + BOUNDARY + "--\r\n";
+        final byte[] data = body.getBytes("UTF-8");
+        final InputStream input = new ByteArrayInputStream(data);
+
+        final HttpServletRequest request = context.mock(HttpServletRequest.class);
+        context.checking(new Expectations() {{
+            allowing(request).getMethod();
+            will(returnValue("POST"));
+
+            allowing(request).getQueryString();
+            will(returnValue(query));
+
+            allowing(request).getContentType();
+            will(returnValue("multipart/form-data; boundary=" + BOUNDARY));
+
+            allowing(request).getContentLength();
+            will(returnValue(data.length));
+
+            allowing(request).getCharacterEncoding();
+            will(returnValue("ISO-8859-1"));
+
+            allowing(request).getHeader(with(any(String.class)));
+            will(returnValue(null));
+
+            allowing(request).getInputStream();
+            will(returnValue(new ServletInputStream() {
+                @Override
+                public int read() throws IOException {
+                    return input.read();
+                }
+            }));
+
+            allowing(request).getAttribute(with(any(String.class)));
+            will(new CustomAction("getAttribute") {
+                public Object invoke(final Invocation invocation) {
+                    return attributes.get(invocation.getParameter(0));
+                }
+            });
+
+            allowing(request).setAttribute(with(any(String.class)), with(any(Object.class)));
+            will(new CustomAction("setAttribute") {
+                public Object invoke(final Invocation invocation) {
+                    return attributes.put((String) invocation.getParameter(0), invocation.getParameter(1));
+                }
+            });
+        }});
+        return request;
+    }
+
+    @Test
+    public void testBufferedMultipart() throws Exception {
+        final ParameterSupport support = ParameterSupport.getInstance(createRequest(null));
+
+        assertEquals("gr\u00fcn", support.getParameter("title"));
+        final RequestParameter file = support.getRequestParameter("*");
+        assertEquals("test.txt", file.getFileName());
+        assertEquals(11, file.getSize());
+        assertNull(attributes.get(EngineConstants.REQUEST_PARTS_ITERATOR));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStreamedMultipart() throws Exception {
+        final ParameterSupport support = ParameterSupport.getInstance(createRequest("uploadmode=stream"));
+
+        // only the query is parsed
+        assertEquals("stream", support.getParameter(ParameterSupport.PARAMETER_UPLOAD_MODE));
+        assertNull(support.getParameter("title"));
+        assertTrue(support.requestDataUsed());
+
+        final Iterator<RequestParameter> parts =
+            (Iterator<RequestParameter>) attributes.get(EngineConstants.REQUEST_PARTS_ITERATOR);
+        assertEquals(ParameterSupport.PARAMETER_FORMENCODING, parts.next().getName());
+
+        final RequestParameter title = parts.next();
+        assertTrue(title.isFormField());
+        assertEquals("title", title.getName());
+        assertEquals("gr\u00fcn", title.getString());
+
+        final RequestParameter file = parts.next();
+        assertFalse(file.isFormField());
+        assertEquals("*", file.getName());
+        assertEquals("test.txt", file.getFileName());
+        assertEquals("text/plain", file.getContentType());
+        assertEquals(-1, file.getSize());
+        assertEquals("hello world", Streams.asString(file.getInputStream(), "UTF-8"));
+
+        // the size of an empty upload is known
+        final RequestParameter empty = parts.next();
+        assertEquals("empty", empty.getName());
+        assertEquals(0, empty.getSize());
+        assertEquals(-1, empty.getInputStream().read());
+
+        assertFalse(parts.hasNext());
+    }
+}
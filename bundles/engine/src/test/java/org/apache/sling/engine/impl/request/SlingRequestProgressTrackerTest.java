@@ -3,9 +3,13 @@ package org.apache.sling.engine.impl.request;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class SlingRequestProgressTrackerTest {
 
@@ -47,6 +51,41 @@ public class SlingRequestProgressTrackerTest {
         assertEquals(expected.length, messageCounter);
     }
 
+    @Test
+    public void messagesAreFormattedOnDemand() {
+        final SlingRequestProgressTracker tracker = new SlingRequestProgressTracker();
+        final StringBuilder arg = new StringBuilder("first");
+        tracker.log("value {0}", arg);
+        tracker.log("it''s {0}", new Object[0]);
+        tracker.log("plain {0}");
+        arg.append(" changed");
+
+        final Iterator<String> messages = tracker.getMessages();
+        messages.next();
+        messages.next();
+        assertEquals("LOG value first changed\n", messages.next().substring(8));
+        assertEquals("LOG it's {0}\n", messages.next().substring(8));
+        assertEquals("LOG plain {0}\n", messages.next().substring(8));
+    }
+
+    @Test
+    public void visitTimers() {
+        final SlingRequestProgressTracker tracker = new SlingRequestProgressTracker();
+        tracker.startTimer("foo");
+        tracker.logTimer("foo", "done {0}", "foo");
+        tracker.logTimer("unknown");
+        tracker.done();
+
+        final List<String> names = new ArrayList<String>();
+        tracker.visitTimers(new SlingRequestProgressTracker.TimerVisitor() {
+            public void visit(final String timerName, final long elapsed) {
+                names.add(timerName);
+                assertTrue(elapsed >= 0);
+            }
+        });
+        assertEquals(Arrays.asList("foo", "Request Processing"), names);
+    }
+
     private String substringAfter(String string, char ch) {
         final int pos = string.indexOf(ch);
         return string.substring(pos);
@@ -18,6 +18,9 @@
  */
 package org.apache.sling.discovery.impl.topology.announcement;
 
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -26,6 +29,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import org.apache.commons.codec.binary.Base64;
 import org.apache.sling.api.resource.ModifiableValueMap;
 import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.Resource;
@@ -386,6 +390,24 @@ public class Announcement {
         return asJSONObject().toString();
     }
 
+    /**
+     * Returns a digest of this announcement which is used by the topology
+     * connector to detect unchanged announcements. Like
+     * {@link #correspondsTo(Announcement)} this ignores the 'created'
+     * property, but it does include the backoffInterval.
+     */
+    public String getDigest() throws JSONException {
+        final String json = asJSONObject(true).toString() + ":" + backoffInterval;
+        try {
+            final MessageDigest m = MessageDigest.getInstance("SHA-256");
+            return new String(Base64.encodeBase64(m.digest(json.getBytes("UTF-8"))), "UTF-8");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
     /** the key which is unique to this announcement **/
     public String getPrimaryKey() {
         return ownerId;
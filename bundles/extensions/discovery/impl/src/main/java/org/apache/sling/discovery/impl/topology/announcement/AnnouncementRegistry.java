@@ -63,4 +63,13 @@ public interface AnnouncementRegistry {
     /** Whether or not the given owner has an active (ie not expired) announcement registered **/
     boolean hasActiveAnnouncement(String ownerId);
 
+    /** Returns the active (ie not expired) announcement registered for the given owner - or null **/
+    Announcement getActiveAnnouncement(String ownerId);
+
+    /** Sets the digest of the announcement registered for the given owner - it is removed together with the announcement **/
+    void setAnnouncementDigest(String ownerId, String digest);
+
+    /** Returns the digest of the active (ie not expired) announcement registered for the given owner - or null **/
+    String getActiveAnnouncementDigest(String ownerId);
+
 }
@@ -256,6 +256,38 @@ public class AnnouncementRegistryImpl implements AnnouncementRegistry {
         return !cachedAnnouncement.hasExpired();
     }
 
+    public synchronized Announcement getActiveAnnouncement(final String ownerId) {
+        if (ownerId==null || ownerId.length()==0) {
+            throw new IllegalArgumentException("ownerId must not be null or empty: "+ownerId);
+        }
+        final CachedAnnouncement cachedAnnouncement = ownAnnouncementsCache.get(ownerId);
+        if (cachedAnnouncement==null || cachedAnnouncement.hasExpired()) {
+            return null;
+        }
+        return cachedAnnouncement.getAnnouncement();
+    }
+
+    public synchronized void setAnnouncementDigest(final String ownerId, final String digest) {
+        if (ownerId==null || ownerId.length()==0) {
+            throw new IllegalArgumentException("ownerId must not be null or empty: "+ownerId);
+        }
+        final CachedAnnouncement cachedAnnouncement = ownAnnouncementsCache.get(ownerId);
+        if (cachedAnnouncement!=null) {
+            cachedAnnouncement.setDigest(digest);
+        }
+    }
+
+    public synchronized String getActiveAnnouncementDigest(final String ownerId) {
+        if (ownerId==null || ownerId.length()==0) {
+            throw new IllegalArgumentException("ownerId must not be null or empty: "+ownerId);
+        }
+        final CachedAnnouncement cachedAnnouncement = ownAnnouncementsCache.get(ownerId);
+        if (cachedAnnouncement==null || cachedAnnouncement.hasExpired()) {
+            return null;
+        }
+        return cachedAnnouncement.getDigest();
+    }
+
     public synchronized long registerAnnouncement(final Announcement topologyAnnouncement) {
         if (topologyAnnouncement==null) {
             throw new IllegalArgumentException("topologyAnnouncement must not be null");
@@ -41,6 +41,9 @@ public class CachedAnnouncement {
 
     private long backoffIntervalSeconds = -1;
 
+    /** the digest the owner sent with the announcement - or null **/
+    private String digest;
+
     private final Config config;
     
     CachedAnnouncement(final Announcement announcement, final Config config) {
@@ -119,4 +122,12 @@ public class CachedAnnouncement {
         return announcement;
     }
 
+    final String getDigest() {
+        return digest;
+    }
+
+    final void setDigest(final String digest) {
+        this.digest = digest;
+    }
+
 }
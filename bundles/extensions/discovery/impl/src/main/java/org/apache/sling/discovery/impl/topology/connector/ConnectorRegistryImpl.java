@@ -18,6 +18,7 @@
  */
 package org.apache.sling.discovery.impl.topology.connector;
 
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.URL;
 import java.util.ArrayList;
@@ -33,6 +34,7 @@ import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.Service;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.sling.discovery.impl.Config;
 import org.apache.sling.discovery.impl.cluster.ClusterViewService;
 import org.apache.sling.discovery.impl.topology.announcement.AnnouncementRegistry;
@@ -58,6 +60,9 @@ public class ConnectorRegistryImpl implements ConnectorRegistry {
     /** the local port is added to the announcement as the serverInfo object **/
     private String port = "";
 
+    /** the http client with pooled connections shared by all outgoing clients **/
+    private CloseableHttpClient httpClient;
+
     @Activate
     protected void activate(final ComponentContext cc) {
         port = cc.getBundleContext().getProperty("org.osgi.service.http.port");
@@ -71,6 +76,14 @@ public class ConnectorRegistryImpl implements ConnectorRegistry {
                 client.disconnect();
                 it.remove();
             }
+            if (httpClient != null) {
+                try {
+                    httpClient.close();
+                } catch (IOException e) {
+                    logger.error("deactivate: could not close httpClient: "+e, e);
+                }
+                httpClient = null;
+            }
         }
     }
     
@@ -97,9 +110,12 @@ public class ConnectorRegistryImpl implements ConnectorRegistry {
             } catch (Exception e) {
                 serverInfo = "localhost:" + port;
             }
+            if (httpClient == null) {
+                httpClient = TopologyConnectorClient.createHttpClient(config);
+            }
             client = new TopologyConnectorClient(clusterViewService,
                     announcementRegistry, config, connectorUrl,
-                    serverInfo);
+                    serverInfo, httpClient);
             outgoingClientsMap.put(client.getId(), client);
         }
         client.ping(false);
@@ -44,6 +44,8 @@ import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
 import org.apache.sling.commons.json.JSONException;
 import org.apache.sling.discovery.ClusterView;
 import org.apache.sling.discovery.InstanceDescription;
@@ -110,10 +112,20 @@ public class TopologyConnectorClient implements
 
     /** SLING-3382: unix-time at which point the backoff-period ends and pings can be sent again **/
     private long backoffPeriodEnd = -1;
-    
+
+    /** the shared http client, owned by the connector registry **/
+    private final CloseableHttpClient httpClient;
+
+    /** digest of the announcement last registered by the servlet - null if none or unknown **/
+    private String acknowledgedAnnouncementDigest;
+
+    /** digest of the last inherited announcement as sent by the servlet (ETag) **/
+    private String inheritedAnnouncementDigest;
+
     TopologyConnectorClient(final ClusterViewService clusterViewService,
             final AnnouncementRegistry announcementRegistry, final Config config,
-            final URL connectorUrl, final String serverInfo) {
+            final URL connectorUrl, final String serverInfo,
+            final CloseableHttpClient httpClient) {
         if (clusterViewService == null) {
             throw new IllegalArgumentException(
                     "clusterViewService must not be null");
@@ -128,12 +140,16 @@ public class TopologyConnectorClient implements
         if (connectorUrl == null) {
             throw new IllegalArgumentException("connectorUrl must not be null");
         }
+        if (httpClient == null) {
+            throw new IllegalArgumentException("httpClient must not be null");
+        }
         this.requestValidator = new TopologyRequestValidator(config);
         this.clusterViewService = clusterViewService;
         this.announcementRegistry = announcementRegistry;
         this.config = config;
         this.connectorUrl = connectorUrl;
         this.serverInfo = serverInfo;
+        this.httpClient = httpClient;
         this.id = UUID.randomUUID();
     }
 
@@ -154,12 +170,25 @@ public class TopologyConnectorClient implements
                 logger.debug("ping: backoff period ended, issuing another ping now.");
     	    }
     	}
+        if (!doPing(force, true)) {
+            // the servlet did not know the announcement digest anymore
+            // (eg after a restart) - hence send the full announcement
+            logger.debug("ping: servlet requested the full announcement, issuing another ping now.");
+            doPing(force, false);
+        }
+    }
+
+    /**
+     * Sends one heartbeat. If allowed and the announcement is unchanged since
+     * it was last registered by the servlet, only its digest is sent.
+     * @return false if the servlet requested the full announcement
+     */
+    private boolean doPing(final boolean force, final boolean allowDelta) {
         final String uri = connectorUrl.toString()+"."+clusterViewService.getSlingId()+".json";
     	if (logger.isDebugEnabled()) {
     		logger.debug("ping: connectorUrl=" + connectorUrl + ", complete uri=" + uri);
     	}
     	final HttpClientContext clientContext = HttpClientContext.create();
-    	final CloseableHttpClient httpClient = createHttpClient();
     	final HttpPut putRequest = new HttpPut(uri);
 
     	// setting the connection timeout (idle connection, configured in seconds)
@@ -169,6 +198,7 @@ public class TopologyConnectorClient implements
     			build());
 
         Announcement resultingAnnouncement = null;
+        CloseableHttpResponse response = null;
         try {
             String userInfo = connectorUrl.getUserInfo();
             if (userInfo != null) {
@@ -208,7 +238,16 @@ public class TopologyConnectorClient implements
                     return false;
                 }
             });
-            final String p = requestValidator.encodeMessage(topologyAnnouncement.asJSON());
+            final String announcementDigest = topologyAnnouncement.getDigest();
+            putRequest.addHeader(TopologyConnectorServlet.ANNOUNCEMENT_DIGEST_HEADER, announcementDigest);
+            final String p;
+            if (allowDelta && announcementDigest.equals(acknowledgedAnnouncementDigest)) {
+                // the servlet has registered this very announcement already
+                logger.debug("ping: announcement unchanged, sending its digest only");
+                p = requestValidator.encodeMessage("");
+            } else {
+                p = requestValidator.encodeMessage(topologyAnnouncement.asJSON());
+            }
             
             if (logger.isDebugEnabled()) {
                 logger.debug("ping: topologyAnnouncement json is: " + p);
@@ -235,14 +274,32 @@ public class TopologyConnectorClient implements
             // independent of request-gzipping, we do accept the response to be gzipped,
             // so indicate this to the server:
             putRequest.addHeader("Accept-Encoding", "gzip");
-            final CloseableHttpResponse response = httpClient.execute(putRequest, clientContext);
+            // and the servlet only needs to reply if its announcement has changed
+            if (lastInheritedAnnouncement != null && inheritedAnnouncementDigest != null) {
+                putRequest.addHeader("If-None-Match", inheritedAnnouncementDigest);
+            }
+            response = httpClient.execute(putRequest, clientContext);
         	if (logger.isDebugEnabled()) {
 	            logger.debug("ping: done. code=" + response.getStatusLine().getStatusCode() + " - "
 	                    + response.getStatusLine().getReasonPhrase());
         	}
             lastStatusCode = response.getStatusLine().getStatusCode();
             lastResponseEncoding = null;
-            if (response.getStatusLine().getStatusCode()==HttpServletResponse.SC_OK) {
+            final Header acknowledgedDigest = response.getFirstHeader(TopologyConnectorServlet.ANNOUNCEMENT_DIGEST_HEADER);
+            acknowledgedAnnouncementDigest = (acknowledgedDigest == null ? null : acknowledgedDigest.getValue());
+            if (lastStatusCode==HttpServletResponse.SC_PRECONDITION_FAILED && allowDelta) {
+                // the servlet does not know the digest, keep the state for the full ping
+                resultingAnnouncement = lastInheritedAnnouncement;
+                return false;
+            }
+            Announcement inheritedAnnouncement = null;
+            if (lastStatusCode==HttpServletResponse.SC_NOT_MODIFIED && lastInheritedAnnouncement != null) {
+                if (config.isHmacEnabled() && !requestValidator.isTrusted(response)) {
+                    throw new IOException("Not modified response is not trusted");
+                }
+                logger.debug("ping: servlet announcement not modified");
+                inheritedAnnouncement = lastInheritedAnnouncement;
+            } else if (lastStatusCode==HttpServletResponse.SC_OK) {
                 final Header contentEncoding = response.getFirstHeader("Content-Encoding");
                 if (contentEncoding!=null && contentEncoding.getValue()!=null &&
                         contentEncoding.getValue().contains("gzip")) {
@@ -255,51 +312,55 @@ public class TopologyConnectorClient implements
             		logger.debug("ping: response body=" + responseBody);
             	}
                 if (responseBody!=null && responseBody.length()>0) {
-                    Announcement inheritedAnnouncement = Announcement
+                    inheritedAnnouncement = Announcement
                             .fromJSON(responseBody);
-                    final long backoffInterval = inheritedAnnouncement.getBackoffInterval();
-                    if (backoffInterval>0) {
-                        // then reset the backoffPeriodEnd:
-                        
-                        /* minus 1 sec to avoid slipping the interval by a few millis */
-                        this.backoffPeriodEnd = System.currentTimeMillis() + (1000 * backoffInterval) - 1000;
-                        logger.debug("ping: servlet instructed to backoff: backoffInterval="+backoffInterval+", resulting in period end of "+new Date(backoffPeriodEnd));
-                    } else {
-                        logger.debug("ping: servlet did not instruct any backoff-ing at this stage");
-                        this.backoffPeriodEnd = -1;
-                    }
-                    if (inheritedAnnouncement.isLoop()) {
-                    	if (logger.isDebugEnabled()) {
+                    final Header etag = response.getFirstHeader("ETag");
+                    inheritedAnnouncementDigest = (etag == null ? null : etag.getValue());
+                } else {
+                    statusDetails = "no response body received";
+                }
+            } else {
+                statusDetails = "got HTTP Status-Code: "+lastStatusCode;
+            }
+            if (inheritedAnnouncement != null) {
+                final long backoffInterval = inheritedAnnouncement.getBackoffInterval();
+                if (backoffInterval>0) {
+                    // then reset the backoffPeriodEnd:
+                    
+                    /* minus 1 sec to avoid slipping the interval by a few millis */
+                    this.backoffPeriodEnd = System.currentTimeMillis() + (1000 * backoffInterval) - 1000;
+                    logger.debug("ping: servlet instructed to backoff: backoffInterval="+backoffInterval+", resulting in period end of "+new Date(backoffPeriodEnd));
+                } else {
+                    logger.debug("ping: servlet did not instruct any backoff-ing at this stage");
+                    this.backoffPeriodEnd = -1;
+                }
+                if (inheritedAnnouncement.isLoop()) {
+                	if (logger.isDebugEnabled()) {
 	                        logger.debug("ping: connector response indicated a loop detected. not registering this announcement from "+
 	                                    inheritedAnnouncement.getOwnerId());
-                    	}
-                    	if (inheritedAnnouncement.getOwnerId().equals(clusterViewService.getSlingId())) {
-                    		// SLING-3316 : local-loop detected. Check config to see if we should stop this connector
-                    		
-                    	    if (config.isAutoStopLocalLoopEnabled()) {
-                    			inheritedAnnouncement = null; // results in connected -> false and representsloop -> true
-                    			autoStopped = true; // results in isAutoStopped -> true
-                    		}
-                    	}
-                    } else {
-                        inheritedAnnouncement.setInherited(true);
-                        if (announcementRegistry
-                                .registerAnnouncement(inheritedAnnouncement)==-1) {
-                        	if (logger.isDebugEnabled()) {
+                	}
+                	if (inheritedAnnouncement.getOwnerId().equals(clusterViewService.getSlingId())) {
+                		// SLING-3316 : local-loop detected. Check config to see if we should stop this connector
+                		
+                	    if (config.isAutoStopLocalLoopEnabled()) {
+                			inheritedAnnouncement = null; // results in connected -> false and representsloop -> true
+                			autoStopped = true; // results in isAutoStopped -> true
+                		}
+                	}
+                } else {
+                    inheritedAnnouncement.setInherited(true);
+                    if (announcementRegistry
+                            .registerAnnouncement(inheritedAnnouncement)==-1) {
+                    	if (logger.isDebugEnabled()) {
 	                            logger.debug("ping: connector response is from an instance which I already see in my topology"
 	                                    + inheritedAnnouncement);
-                        	}
-                            statusDetails = "receiving side is seeing me via another path (connector or cluster) already (loop)";
-                            return;
-                        }
+                    	}
+                        statusDetails = "receiving side is seeing me via another path (connector or cluster) already (loop)";
+                        return true;
                     }
-                    resultingAnnouncement = inheritedAnnouncement;
-                    statusDetails = null;
-                } else {
-                    statusDetails = "no response body received";
                 }
-            } else {
-                statusDetails = "got HTTP Status-Code: "+lastStatusCode;
+                resultingAnnouncement = inheritedAnnouncement;
+                statusDetails = null;
             }
         	// SLING-2882 : reset suppressPingWarnings_ flag in success case
     		suppressPingWarnings_ = false;
@@ -321,18 +382,34 @@ public class TopologyConnectorClient implements
             logger.warn("ping: got RuntimeException: " + re, re);
             statusDetails = re.toString();
         } finally {
-            putRequest.releaseConnection();
+            // consume the response so that the connection can be reused
+            closeResponse(response);
             lastInheritedAnnouncement = resultingAnnouncement;
+            if (resultingAnnouncement == null) {
+                inheritedAnnouncementDigest = null;
+            }
             lastPingedAt = System.currentTimeMillis();
-            try {
-				httpClient.close();
-			} catch (IOException e) {
-				logger.error("disconnect: could not close httpClient: "+e, e);
-			}
+        }
+        return true;
+    }
+
+    private void closeResponse(final CloseableHttpResponse response) {
+        if (response == null) {
+            return;
+        }
+        try {
+            EntityUtils.consume(response.getEntity());
+            response.close();
+        } catch (IOException e) {
+            logger.debug("closeResponse: could not release connection: "+e, e);
         }
     }
 
-	private CloseableHttpClient createHttpClient() {
+    /**
+     * Creates the http client shared by all topology connector clients. It
+     * pools the connections and keeps them alive between heartbeats.
+     */
+	static CloseableHttpClient createHttpClient(final Config config) {
 		final HttpClientBuilder builder = HttpClientBuilder.create();
     	// setting the SoTimeout (which is configured in seconds)
     	builder.setDefaultSocketConfig(SocketConfig.
@@ -340,6 +417,7 @@ public class TopologyConnectorClient implements
     			setSoTimeout(1000*config.getSoTimeout()).
     			build());
 		builder.setRetryHandler(new DefaultHttpRequestRetryHandler(0, false));
+		builder.setConnectionManager(new PoolingHttpClientConnectionManager());
 
     	return builder.build();
 	}
@@ -447,7 +525,6 @@ public class TopologyConnectorClient implements
         }
 
         final HttpClientContext clientContext = HttpClientContext.create();
-        final CloseableHttpClient httpClient = createHttpClient();
         final HttpDelete deleteRequest = new HttpDelete(uri);
         // setting the connection timeout (idle connection, configured in seconds)
         deleteRequest.setConfig(RequestConfig.
@@ -455,6 +532,7 @@ public class TopologyConnectorClient implements
         		setConnectTimeout(1000*config.getConnectionTimeout()).
         		build());
 
+        CloseableHttpResponse response = null;
         try {
             String userInfo = connectorUrl.getUserInfo();
             if (userInfo != null) {
@@ -465,7 +543,7 @@ public class TopologyConnectorClient implements
             }
 
             requestValidator.trustMessage(deleteRequest, null);
-            final CloseableHttpResponse response = httpClient.execute(deleteRequest, clientContext);
+            response = httpClient.execute(deleteRequest, clientContext);
         	if (logger.isDebugEnabled()) {
 	            logger.debug("disconnect: done. code=" + response.getStatusLine().getStatusCode()
 	                    + " - " + response.getStatusLine().getReasonPhrase());
@@ -477,12 +555,7 @@ public class TopologyConnectorClient implements
         } catch (RuntimeException re) {
             logger.error("disconnect: got RuntimeException: " + re, re);
         } finally {
-            deleteRequest.releaseConnection();
-            try {
-				httpClient.close();
-			} catch (IOException e) {
-				logger.error("disconnect: could not close httpClient: "+e, e);
-			}
+            closeResponse(response);
         }
     }
 }
@@ -72,6 +72,14 @@ public class TopologyConnectorServlet extends HttpServlet {
      */
     private static final String TOPOLOGY_CONNECTOR_PREFIX = "/libs/sling/topology";
 
+    /**
+     * Header carrying the digest of the announcement of the client. It is
+     * echoed by the servlet once the announcement is registered, after which
+     * the client sends this header with an empty announcement as long as
+     * its announcement is unchanged.
+     */
+    static final String ANNOUNCEMENT_DIGEST_HEADER = "X-SlingTopologyAnnouncementDigest";
+
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     @Reference
@@ -221,10 +229,24 @@ public class TopologyConnectorServlet extends HttpServlet {
 	        logger.debug("doPost: incoming topology announcement is: "
 	                + topologyAnnouncementJSON);
     	}
+        final String announcementDigest = request.getHeader(ANNOUNCEMENT_DIGEST_HEADER);
         final Announcement incomingTopologyAnnouncement;
         try {
-            incomingTopologyAnnouncement = Announcement
-                    .fromJSON(topologyAnnouncementJSON);
+            if (topologyAnnouncementJSON.length()==0 && announcementDigest!=null) {
+                // the client's announcement is unchanged: renew the registered one
+                final Announcement registered = announcementRegistry.getActiveAnnouncement(selector);
+                if (registered==null || !announcementDigest.equals(announcementRegistry.getActiveAnnouncementDigest(selector))) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("doPost: unknown announcement digest, requesting full announcement from " + selector);
+                    }
+                    response.sendError(HttpServletResponse.SC_PRECONDITION_FAILED);
+                    return;
+                }
+                incomingTopologyAnnouncement = registered;
+            } else {
+                incomingTopologyAnnouncement = Announcement
+                        .fromJSON(topologyAnnouncementJSON);
+            }
 
             if (!incomingTopologyAnnouncement.getOwnerId().equals(selector)) {
                 response.sendError(HttpServletResponse.SC_BAD_REQUEST);
@@ -281,6 +303,10 @@ public class TopologyConnectorServlet extends HttpServlet {
                     replyAnnouncement.setLoop(true);
                     backoffInterval = config.getBackoffStandbyInterval();
                 } else {
+                    if (announcementDigest!=null) {
+                        announcementRegistry.setAnnouncementDigest(selector, announcementDigest);
+                        response.setHeader(ANNOUNCEMENT_DIGEST_HEADER, announcementDigest);
+                    }
                     // normal, successful case: replying with the part of the topology which this instance sees
                     final ClusterView clusterView = clusterViewService
                             .getClusterView();
@@ -305,6 +331,14 @@ public class TopologyConnectorServlet extends HttpServlet {
                     logger.debug("doPost: backoffInterval for client set to "+replyAnnouncement.getBackoffInterval());
                 }
             }
+            // a client which already has the reply gets a 'not modified' only
+            final String replyDigest = replyAnnouncement.getDigest();
+            response.setHeader("ETag", replyDigest);
+            if (replyDigest.equals(request.getHeader("If-None-Match"))) {
+                requestValidator.trustMessage(response, request, "");
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
             final String p = requestValidator.encodeMessage(replyAnnouncement.asJSON());
             requestValidator.trustMessage(response, request, p);
             // gzip the response if the client accepts this
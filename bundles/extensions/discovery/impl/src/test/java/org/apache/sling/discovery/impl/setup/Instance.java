@@ -510,6 +510,10 @@ public class Instance {
         return connectorRegistry.registerOutgoingConnector(clusterViewService, new URL(url));
     }
 
+    public void pingOutgoingConnectors() {
+        connectorRegistry.pingOutgoingConnectors(false);
+    }
+
     public InstanceDescription getLocalInstanceDescription() {
     	final Iterator<InstanceDescription> it = getClusterViewService().getClusterView().getInstances().iterator();
     	while(it.hasNext()) {
@@ -19,16 +19,21 @@
 package org.apache.sling.discovery.impl.topology;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
+import javax.servlet.http.HttpServletResponse;
+
 import org.apache.sling.discovery.InstanceDescription;
 import org.apache.sling.discovery.impl.setup.Instance;
 import org.apache.sling.discovery.impl.topology.announcement.Announcement;
+import org.apache.sling.discovery.impl.topology.connector.TopologyConnectorClientInformation;
 import org.junit.After;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -121,4 +126,33 @@ public class TopologyTest {
         TopologyTestHelper.assertTopologyConsistsOf(instance1.getDiscoveryService().getTopology(), instance1.getSlingId());
         TopologyTestHelper.assertTopologyConsistsOf(instance2.getDiscoveryService().getTopology(), instance2.getSlingId());
     }
+
+    @Test
+    public void testUnchangedAnnouncements() throws Throwable {
+        Instance instance1 = TopologyTestHelper.createInstance(instances, "instance1");
+        Instance instance2 = TopologyTestHelper.createInstance(instances, "instance2");
+        instance1.getConfig().setHeartbeatTimeout(3);
+        instance1.getConfig().setHeartbeatInterval(1);
+        instance2.getConfig().setHeartbeatTimeout(3);
+        instance2.getConfig().setHeartbeatInterval(1);
+
+        instance2.startJetty();
+        final TopologyConnectorClientInformation connectorInfo = instance1.connectTo(
+                "http://localhost:"+instance2.getJettyPort()+"/system/console/topology/connector");
+        assertEquals(HttpServletResponse.SC_OK, connectorInfo.getStatusCode());
+
+        // the announcements stay the same, so the pings only renew them
+        final Set<Integer> statusCodes = new HashSet<Integer>();
+        for(int i=0; i<5; i++) {
+            Thread.sleep(1000);
+            instance1.pingOutgoingConnectors();
+            statusCodes.add(connectorInfo.getStatusCode());
+        }
+        assertTrue(statusCodes.toString(), statusCodes.contains(HttpServletResponse.SC_NOT_MODIFIED));
+        assertTrue(connectorInfo.isConnected());
+
+        // check topology, which outlived the heartbeat timeout
+        TopologyTestHelper.assertTopologyConsistsOf(instance1.getDiscoveryService().getTopology(), instance1.getSlingId(), instance2.getSlingId());
+        TopologyTestHelper.assertTopologyConsistsOf(instance2.getDiscoveryService().getTopology(), instance1.getSlingId(), instance2.getSlingId());
+    }
 }
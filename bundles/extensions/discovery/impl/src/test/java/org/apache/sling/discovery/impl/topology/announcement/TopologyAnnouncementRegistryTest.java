@@ -21,6 +21,7 @@ package org.apache.sling.discovery.impl.topology.announcement;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -311,6 +312,37 @@ public class TopologyAnnouncementRegistryTest {
         
     }
     
+    @Test
+    public void testAnnouncementDigest() throws Exception {
+        ClusterView cluster = createCluster(2);
+        Announcement ann = createAnnouncement(cluster, 0, false);
+        String ownerId = ann.getOwnerId();
+
+        registry.setAnnouncementDigest(ownerId, "digest");
+        assertNull(registry.getActiveAnnouncementDigest(ownerId));
+
+        assertTrue(registry.registerAnnouncement(ann)!=-1);
+        assertNull(registry.getActiveAnnouncementDigest(ownerId));
+        registry.setAnnouncementDigest(ownerId, "digest");
+        assertEquals("digest", registry.getActiveAnnouncementDigest(ownerId));
+        // a heartbeat keeps the digest
+        assertTrue(registry.registerAnnouncement(ann)!=-1);
+        assertEquals("digest", registry.getActiveAnnouncementDigest(ownerId));
+
+        // the digest is removed together with the announcement
+        registry.unregisterAnnouncement(ownerId);
+        assertNull(registry.getActiveAnnouncementDigest(ownerId));
+        assertTrue(registry.registerAnnouncement(ann)!=-1);
+        assertNull(registry.getActiveAnnouncementDigest(ownerId));
+
+        registry.setAnnouncementDigest(ownerId, "digest");
+        Thread.sleep(1500);
+        assertNull(registry.getActiveAnnouncementDigest(ownerId));
+        registry.checkExpiredAnnouncements();
+        assertTrue(registry.registerAnnouncement(ann)!=-1);
+        assertNull(registry.getActiveAnnouncementDigest(ownerId));
+    }
+
     @Test
     public void testCluster() throws Exception {
         ClusterView cluster1 = createCluster(2);
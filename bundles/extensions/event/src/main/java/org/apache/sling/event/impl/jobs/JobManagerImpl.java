@@ -21,10 +21,12 @@ package org.apache.sling.event.impl.jobs;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
@@ -33,6 +35,7 @@ import org.apache.felix.scr.annotations.Properties;
 import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.Service;
+import org.apache.jackrabbit.util.ISO8601;
 import org.apache.jackrabbit.util.ISO9075;
 import org.apache.sling.api.SlingConstants;
 import org.apache.sling.api.resource.LoginException;
@@ -56,6 +59,7 @@ import org.apache.sling.event.impl.support.ResourceHelper;
 import org.apache.sling.event.impl.support.ScheduleInfoImpl;
 import org.apache.sling.event.jobs.Job;
 import org.apache.sling.event.jobs.Job.JobState;
+import org.apache.sling.event.jobs.JobBatchBuilder;
 import org.apache.sling.event.jobs.JobBuilder;
 import org.apache.sling.event.jobs.JobManager;
 import org.apache.sling.event.jobs.JobUtil;
@@ -92,6 +96,9 @@ import org.slf4j.LoggerFactory;
 public class JobManagerImpl
     implements JobManager, EventHandler, Runnable {
 
+    /** The number of jobs fetched at once by the deprecated query methods. */
+    private static final long QUERY_PAGE_SIZE = 100;
+
     /** Default logger. */
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
@@ -125,6 +132,9 @@ public class JobManagerImpl
     /** Job Scheduler. */
     private JobSchedulerImpl jobScheduler;
 
+    /** Writer for new jobs. */
+    private JobWriter jobWriter;
+
     /**
      * Activate this component.
      * @param props Configuration properties
@@ -133,6 +143,7 @@ public class JobManagerImpl
     protected void activate(final Map<String, Object> props) throws LoginException {
         this.jobScheduler = new JobSchedulerImpl(this.configuration, this.scheduler, this);
         this.maintenanceTask = new CleanUpTask(this.configuration);
+        this.jobWriter = new JobWriter(this.configuration, this.statisticsManager.getWriteStatistics());
 
         logger.info("Apache Sling Job Manager started on instance {}", Environment.APPLICATION_ID);
     }
@@ -234,10 +245,17 @@ public class JobManagerImpl
             final long limit,
             final Map<String, Object>... templates) {
         Utility.logDeprecated(logger, "Deprecated JobManager.queryJobs(...) is called.");
-        final Collection<Job> list = this.findJobs(type, topic, limit, templates);
-        final Iterator<Job> iter = list.iterator();
         return new JobsIterator() {
 
+            /** The current page. */
+            private Iterator<Job> iter = Collections.<Job>emptyList().iterator();
+
+            /** The last job returned. */
+            private Job last;
+
+            /** Is there another page? */
+            private boolean hasMorePages = true;
+
             private int index;
 
             @Override
@@ -252,13 +270,26 @@ public class JobManagerImpl
 
             @Override
             public Event next() {
+                if ( !this.hasNext() ) {
+                    throw new NoSuchElementException();
+                }
                 index++;
-                final Job job = iter.next();
-                return Utility.toEvent(job);
+                this.last = iter.next();
+                return Utility.toEvent(this.last);
             }
 
             @Override
             public boolean hasNext() {
+                if ( limit > 0 && index >= limit ) {
+                    return false;
+                }
+                if ( !iter.hasNext() && hasMorePages ) {
+                    // fetch the next page, continuing after the last job
+                    final long pageSize = (limit > 0 ? Math.min(QUERY_PAGE_SIZE, limit - index) : QUERY_PAGE_SIZE);
+                    final Collection<Job> page = findJobs(type, topic, this.last, pageSize, templates);
+                    this.hasMorePages = page.size() == pageSize;
+                    this.iter = page.iterator();
+                }
                 return iter.hasNext();
             }
 
@@ -273,7 +304,8 @@ public class JobManagerImpl
 
             @Override
             public long getSize() {
-                return list.size();
+                // the jobs are fetched page by page, the total is not known
+                return -1;
             }
 
             @Override
@@ -508,6 +540,59 @@ public class JobManagerImpl
             final String topic,
             final long limit,
             final Map<String, Object>... templates) {
+        return this.findJobs(type, topic, null, limit, templates);
+    }
+
+    /**
+     * @see org.apache.sling.event.jobs.JobManager#findJobs(org.apache.sling.event.jobs.JobManager.QueryType, java.lang.String, org.apache.sling.event.jobs.Job, long, java.util.Map[])
+     */
+    @Override
+    public Collection<Job> findJobs(final QueryType type,
+            final String topic,
+            final Job after,
+            final long limit,
+            final Map<String, Object>... templates) {
+        final List<Job> result = new ArrayList<Job>();
+        final ResourceResolver resolver = this.configuration.createResourceResolver();
+        final String query = buildQuery(type, topic, after, templates);
+        try {
+            final Iterator<Resource> iter = resolver.findResources(query, "xpath");
+            long count = 0;
+
+            while ( iter.hasNext() && (limit < 1 || count < limit) ) {
+                final Resource jobResource = iter.next();
+                // sanity check for the path
+                if ( this.configuration.isJob(jobResource.getPath()) ) {
+                    final JobImpl job = Utility.readJob(logger, jobResource);
+                    if ( job != null ) {
+                        count++;
+                        result.add(job);
+                    }
+                }
+             }
+        } catch (final QuerySyntaxException qse) {
+            logger.warn("Query syntax wrong " + query, qse);
+        } finally {
+            resolver.close();
+        }
+        return result;
+    }
+
+    /**
+     * Build the query for finding jobs.
+     * The jobs are ordered by the date and the job id, which allows to continue
+     * the query after a given job by restricting the query to the jobs following it
+     * (keyset pagination) instead of skipping the jobs of the previous pages.
+     * @param type The query type
+     * @param topic The job topic
+     * @param after The optional job after which the result should start
+     * @param templates The optional templates
+     * @return The xpath query
+     */
+    static String buildQuery(final QueryType type,
+            final String topic,
+            final Job after,
+            final Map<String, Object>... templates) {
         final boolean isHistoryQuery = type == QueryType.HISTORY
                                        || type == QueryType.SUCCEEDED
                                        || type == QueryType.CANCELLED
@@ -515,164 +600,175 @@ public class JobManagerImpl
                                        || type == QueryType.ERROR
                                        || type == QueryType.GIVEN_UP
                                        || type == QueryType.STOPPED;
-        final List<Job> result = new ArrayList<Job>();
-        final ResourceResolver resolver = this.configuration.createResourceResolver();
         final StringBuilder buf = new StringBuilder(64);
-        try {
-
-            buf.append("//element(*,");
-            buf.append(ResourceHelper.RESOURCE_TYPE_JOB);
-            buf.append(")[@");
-            buf.append(ISO9075.encode(ResourceHelper.PROPERTY_JOB_TOPIC));
-            buf.append(" = '");
-            buf.append(topic);
-            buf.append("'");
 
-            // restricting on the type - history or unfinished
-            if ( isHistoryQuery ) {
-                buf.append(" and @");
+        buf.append("//element(*,");
+        buf.append(ResourceHelper.RESOURCE_TYPE_JOB);
+        buf.append(")[@");
+        buf.append(ISO9075.encode(ResourceHelper.PROPERTY_JOB_TOPIC));
+        buf.append(" = '");
+        buf.append(escapeLiteral(topic));
+        buf.append("'");
+
+        // restricting on the type - history or unfinished
+        if ( isHistoryQuery ) {
+            buf.append(" and @");
+            buf.append(ISO9075.encode(JobImpl.PROPERTY_FINISHED_STATE));
+            if ( type == QueryType.SUCCEEDED || type == QueryType.DROPPED || type == QueryType.ERROR || type == QueryType.GIVEN_UP || type == QueryType.STOPPED ) {
+                buf.append(" = '");
+                buf.append(type.name());
+                buf.append("'");
+            } else if ( type == QueryType.CANCELLED ) {
+                buf.append(" and (@");
                 buf.append(ISO9075.encode(JobImpl.PROPERTY_FINISHED_STATE));
-                if ( type == QueryType.SUCCEEDED || type == QueryType.DROPPED || type == QueryType.ERROR || type == QueryType.GIVEN_UP || type == QueryType.STOPPED ) {
-                    buf.append(" = '");
-                    buf.append(type.name());
-                    buf.append("'");
-                } else if ( type == QueryType.CANCELLED ) {
-                    buf.append(" and (@");
-                    buf.append(ISO9075.encode(JobImpl.PROPERTY_FINISHED_STATE));
-                    buf.append(" = '");
-                    buf.append(QueryType.DROPPED.name());
-                    buf.append("' or @");
-                    buf.append(ISO9075.encode(JobImpl.PROPERTY_FINISHED_STATE));
-                    buf.append(" = '");
-                    buf.append(QueryType.ERROR.name());
-                    buf.append("' or @");
-                    buf.append(ISO9075.encode(JobImpl.PROPERTY_FINISHED_STATE));
-                    buf.append(" = '");
-                    buf.append(QueryType.GIVEN_UP.name());
-                    buf.append("' or @");
-                    buf.append(ISO9075.encode(JobImpl.PROPERTY_FINISHED_STATE));
-                    buf.append(" = '");
-                    buf.append(QueryType.STOPPED.name());
-                    buf.append("')");
-                }
-            } else {
-                buf.append(" and not(@");
+                buf.append(" = '");
+                buf.append(QueryType.DROPPED.name());
+                buf.append("' or @");
+                buf.append(ISO9075.encode(JobImpl.PROPERTY_FINISHED_STATE));
+                buf.append(" = '");
+                buf.append(QueryType.ERROR.name());
+                buf.append("' or @");
                 buf.append(ISO9075.encode(JobImpl.PROPERTY_FINISHED_STATE));
+                buf.append(" = '");
+                buf.append(QueryType.GIVEN_UP.name());
+                buf.append("' or @");
+                buf.append(ISO9075.encode(JobImpl.PROPERTY_FINISHED_STATE));
+                buf.append(" = '");
+                buf.append(QueryType.STOPPED.name());
+                buf.append("')");
+            }
+        } else {
+            buf.append(" and not(@");
+            buf.append(ISO9075.encode(JobImpl.PROPERTY_FINISHED_STATE));
+            buf.append(")");
+            if ( type == QueryType.ACTIVE ) {
+                buf.append(" and @");
+                buf.append(ISO9075.encode(Job.PROPERTY_JOB_STARTED_TIME));
+            } else if ( type == QueryType.QUEUED ) {
+                buf.append(" and not(@");
+                buf.append(ISO9075.encode(Job.PROPERTY_JOB_STARTED_TIME));
                 buf.append(")");
-                if ( type == QueryType.ACTIVE ) {
-                    buf.append(" and @");
-                    buf.append(ISO9075.encode(Job.PROPERTY_JOB_STARTED_TIME));
-                } else if ( type == QueryType.QUEUED ) {
-                    buf.append(" and not(@");
-                    buf.append(ISO9075.encode(Job.PROPERTY_JOB_STARTED_TIME));
-                    buf.append(")");
-                }
             }
+        }
 
-            if ( templates != null && templates.length > 0 ) {
-                int index = 0;
-                for (final Map<String,Object> template : templates) {
-                    // skip empty templates
-                    if ( template.size() == 0 ) {
-                        continue;
-                    }
-                    if ( index == 0 ) {
-                        buf.append(" and (");
-                    } else {
-                        buf.append(" or ");
-                    }
-                    buf.append('(');
-                    final Iterator<Map.Entry<String, Object>> i = template.entrySet().iterator();
-                    boolean first = true;
-                    while ( i.hasNext() ) {
-                        final Map.Entry<String, Object> current = i.next();
-                        final String key = ISO9075.encode(current.getKey());
-                        final char firstChar = key.length() > 0 ? key.charAt(0) : 0;
-                        final String propName;
-                        final Operation op;
-                        if ( firstChar == '=' ) {
-                            propName = key.substring(1);
-                            op  = Operation.EQUALS;
-                        } else if ( firstChar == '<' ) {
-                            final char secondChar = key.length() > 1 ? key.charAt(1) : 0;
-                            if ( secondChar == '=' ) {
-                                op = Operation.LESS_OR_EQUALS;
-                                propName = key.substring(2);
-                            } else {
-                                op = Operation.LESS;
-                                propName = key.substring(1);
-                            }
-                        } else if ( firstChar == '>' ) {
-                            final char secondChar = key.length() > 1 ? key.charAt(1) : 0;
-                            if ( secondChar == '=' ) {
-                                op = Operation.GREATER_OR_EQUALS;
-                                propName = key.substring(2);
-                            } else {
-                                op = Operation.GREATER;
-                                propName = key.substring(1);
-                            }
+        if ( templates != null && templates.length > 0 ) {
+            int index = 0;
+            for (final Map<String,Object> template : templates) {
+                // skip empty templates
+                if ( template.size() == 0 ) {
+                    continue;
+                }
+                if ( index == 0 ) {
+                    buf.append(" and (");
+                } else {
+                    buf.append(" or ");
+                }
+                buf.append('(');
+                final Iterator<Map.Entry<String, Object>> i = template.entrySet().iterator();
+                boolean first = true;
+                while ( i.hasNext() ) {
+                    final Map.Entry<String, Object> current = i.next();
+                    final String key = ISO9075.encode(current.getKey());
+                    final char firstChar = key.length() > 0 ? key.charAt(0) : 0;
+                    final String propName;
+                    final Operation op;
+                    if ( firstChar == '=' ) {
+                        propName = key.substring(1);
+                        op  = Operation.EQUALS;
+                    } else if ( firstChar == '<' ) {
+                        final char secondChar = key.length() > 1 ? key.charAt(1) : 0;
+                        if ( secondChar == '=' ) {
+                            op = Operation.LESS_OR_EQUALS;
+                            propName = key.substring(2);
                         } else {
-                            propName = key;
-                            op  = Operation.EQUALS;
+                            op = Operation.LESS;
+                            propName = key.substring(1);
                         }
-
-                        if ( first ) {
-                            first = false;
-                            buf.append('@');
+                    } else if ( firstChar == '>' ) {
+                        final char secondChar = key.length() > 1 ? key.charAt(1) : 0;
+                        if ( secondChar == '=' ) {
+                            op = Operation.GREATER_OR_EQUALS;
+                            propName = key.substring(2);
                         } else {
-                            buf.append(" and @");
-                        }
-                        buf.append(propName);
-                        buf.append(' ');
-                        switch ( op ) {
-                            case EQUALS : buf.append('=');break;
-                            case LESS : buf.append('<'); break;
-                            case LESS_OR_EQUALS : buf.append("<="); break;
-                            case GREATER : buf.append('>'); break;
-                            case GREATER_OR_EQUALS : buf.append(">="); break;
+                            op = Operation.GREATER;
+                            propName = key.substring(1);
                         }
-                        buf.append(" '");
-                        buf.append(current.getValue());
-                        buf.append("'");
+                    } else {
+                        propName = key;
+                        op  = Operation.EQUALS;
                     }
-                    buf.append(')');
-                    index++;
-                }
-                if ( index > 0 ) {
-                    buf.append(')');
-                }
-            }
-            buf.append("] order by @");
-            if ( isHistoryQuery ) {
-                buf.append(JobImpl.PROPERTY_FINISHED_DATE);
-                buf.append(" descending");
-            } else {
-                buf.append(Job.PROPERTY_JOB_CREATED);
-                buf.append(" ascending");
-            }
-            final Iterator<Resource> iter = resolver.findResources(buf.toString(), "xpath");
-            long count = 0;
 
-            while ( iter.hasNext() && (limit < 1 || count < limit) ) {
-                final Resource jobResource = iter.next();
-                // sanity check for the path
-                if ( this.configuration.isJob(jobResource.getPath()) ) {
-                    final JobImpl job = Utility.readJob(logger, jobResource);
-                    if ( job != null ) {
-                        count++;
-                        result.add(job);
+                    if ( first ) {
+                        first = false;
+                        buf.append('@');
+                    } else {
+                        buf.append(" and @");
                     }
+                    buf.append(propName);
+                    buf.append(' ');
+                    switch ( op ) {
+                        case EQUALS : buf.append('=');break;
+                        case LESS : buf.append('<'); break;
+                        case LESS_OR_EQUALS : buf.append("<="); break;
+                        case GREATER : buf.append('>'); break;
+                        case GREATER_OR_EQUALS : buf.append(">="); break;
+                    }
+                    buf.append(" '");
+                    buf.append(escapeLiteral(String.valueOf(current.getValue())));
+                    buf.append("'");
                 }
-             }
-        } catch (final QuerySyntaxException qse) {
-            logger.warn("Query syntax wrong " + buf.toString(), qse);
-        } finally {
-            resolver.close();
+                buf.append(')');
+                index++;
+            }
+            if ( index > 0 ) {
+                buf.append(')');
+            }
+        }
+        final String dateProperty = (isHistoryQuery ? JobImpl.PROPERTY_FINISHED_DATE : Job.PROPERTY_JOB_CREATED);
+        final String direction = (isHistoryQuery ? "descending" : "ascending");
+
+        // continue after the given job
+        if ( after != null ) {
+            final Calendar date = (isHistoryQuery ? after.getFinishedDate() : after.getCreated());
+            if ( date != null ) {
+                final String compare = (isHistoryQuery ? " < " : " > ");
+                final String encodedDate = "xs:dateTime('" + ISO8601.format(date) + "')";
+                buf.append(" and (@");
+                buf.append(dateProperty);
+                buf.append(compare);
+                buf.append(encodedDate);
+                buf.append(" or (@");
+                buf.append(dateProperty);
+                buf.append(" = ");
+                buf.append(encodedDate);
+                buf.append(" and @");
+                buf.append(ResourceHelper.PROPERTY_JOB_ID);
+                buf.append(compare);
+                buf.append("'");
+                buf.append(escapeLiteral(after.getId()));
+                buf.append("'))");
+            }
         }
-        return result;
-    }
 
+        buf.append("] order by @");
+        buf.append(dateProperty);
+        buf.append(' ');
+        buf.append(direction);
+        buf.append(", @");
+        buf.append(ResourceHelper.PROPERTY_JOB_ID);
+        buf.append(' ');
+        buf.append(direction);
 
+        return buf.toString();
+    }
+
+    /**
+     * Escape a value for a string literal in single quotes
+     * by doubling the quotes.
+     */
+    private static String escapeLiteral(final String value) {
+        return value.replace("'", "''");
+    }
 
     /**
      * Try to get a "lock" for a resource
@@ -761,19 +857,13 @@ public class JobManagerImpl
                     logger.debug("Persisting job {} into queue {}", Utility.toString(jobTopic, jobName, jobProperties), info.queueName);
                 }
             }
-            final ResourceResolver resolver = this.configuration.createResourceResolver();
-            try {
-                final JobImpl job = this.writeJob(resolver,
-                        jobTopic,
-                        jobName,
-                        jobProperties,
-                        info);
-                return job;
-            } catch (final PersistenceException re ) {
-                // something went wrong, so let's log it
-                this.logger.error("Exception during persisting new job '" + Utility.toString(jobTopic, jobName, jobProperties) + "'", re);
-            } finally {
-                resolver.close();
+            final JobWriter.Request request = this.createWriteRequest(jobTopic,
+                    jobName,
+                    jobProperties,
+                    info);
+            this.jobWriter.write(Collections.singletonList(request));
+            if ( request.isPersisted() ) {
+                return request.job;
             }
             if ( errors != null ) {
                 errors.add("Unable to persist new job.");
@@ -783,18 +873,16 @@ public class JobManagerImpl
     }
 
     /**
-     * Write a job to the resource tree.
-     * @param resolver The resolver resolver
-     * @param event The event
+     * Create the request to write a job to the resource tree.
+     * @param jobTopic The required job topic
+     * @param jobName The optional job name
+     * @param jobProperties The optional job properties
      * @param info The queue information (queue name etc.)
-     * @throws PersistenceException
      */
-    private JobImpl writeJob(final ResourceResolver resolver,
-            final String jobTopic,
+    private JobWriter.Request createWriteRequest(final String jobTopic,
             final String jobName,
             final Map<String, Object> jobProperties,
-            final QueueInfo info)
-    throws PersistenceException {
+            final QueueInfo info) {
         final String jobId = this.configuration.getUniqueId(jobTopic);
         final String path = this.configuration.getUniquePath(info.targetId, jobTopic, jobId, jobProperties);
 
@@ -832,13 +920,12 @@ public class JobManagerImpl
         if ( logger.isDebugEnabled() ) {
             logger.debug("Storing new job {} at {}", Utility.toString(jobTopic, jobName, properties), path);
         }
-        ResourceHelper.getOrCreateResource(resolver,
-                path,
-                properties);
 
         // update property types - priority, add path and create job
-        properties.put(JobImpl.PROPERTY_RESOURCE_PATH, path);
-        return new JobImpl(jobTopic, jobName, jobId, properties);
+        final Map<String, Object> jobImplProperties = new HashMap<String, Object>(properties);
+        jobImplProperties.put(JobImpl.PROPERTY_RESOURCE_PATH, path);
+        final JobImpl job = new JobImpl(jobTopic, jobName, jobId, jobImplProperties);
+        return new JobWriter.Request(job, path, properties);
     }
 
     /**
@@ -876,6 +963,14 @@ public class JobManagerImpl
         return new JobBuilderImpl(this, topic);
     }
 
+    /**
+     * @see org.apache.sling.event.jobs.JobManager#createJobs(java.lang.String)
+     */
+    @Override
+    public JobBatchBuilder createJobs(final String topic) {
+        return new JobBatchBuilderImpl(this, topic);
+    }
+
     /**
      * @see org.apache.sling.event.jobs.JobManager#getScheduledJobs()
      */
@@ -961,6 +1056,44 @@ public class JobManagerImpl
         return result;
     }
 
+    /**
+     * Internal method to add many jobs with the same topic.
+     * The jobs are handed to the job writer at once, which persists them
+     * with as few saves as possible.
+     */
+    public List<Job> addJobs(final String topic,
+            final List<Map<String, Object>> jobProperties,
+            final List<String> errors) {
+        final List<JobWriter.Request> requests = new ArrayList<JobWriter.Request>();
+        for(final Map<String, Object> properties : jobProperties) {
+            final String errorMessage = Utility.checkJob(topic, properties);
+            if ( errorMessage != null ) {
+                logger.warn("{}", errorMessage);
+                if ( errors != null ) {
+                    errors.add(errorMessage);
+                }
+                continue;
+            }
+            final QueueInfo info = this.configuration.getQueueConfigurationManager().getQueueInfo(topic);
+            final TopologyCapabilities caps = this.configuration.getTopologyCapabilities();
+            info.targetId = (caps == null ? null : caps.detectTarget(topic, properties, info));
+
+            requests.add(this.createWriteRequest(topic, null, properties, info));
+        }
+        logger.debug("Persisting {} jobs for topic {}", requests.size(), topic);
+        this.jobWriter.write(requests);
+
+        final List<Job> result = new ArrayList<Job>();
+        for(final JobWriter.Request request : requests) {
+            if ( request.isPersisted() ) {
+                result.add(request.job);
+            } else if ( errors != null ) {
+                errors.add("Unable to persist new job.");
+            }
+        }
+        return result;
+    }
+
     /**
      * @see org.apache.sling.event.jobs.JobManager#retryJobById(java.lang.String)
      */
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.event.impl.jobs.config.JobManagerConfiguration;
+import org.apache.sling.event.impl.jobs.stats.WriteStatistics;
+import org.apache.sling.event.impl.support.ResourceHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The job writer persists new jobs in the resource tree.
+ * <p>
+ * Jobs submitted concurrently are written together with a single save:
+ * the first thread finding no write in progress writes the pending jobs
+ * (up to the configured batch size) while the other threads wait for their
+ * jobs to be written or for their turn to write. If a save fails, the jobs
+ * of that batch are written one by one to isolate the failing job.
+ */
+public class JobWriter {
+
+    /** Logger. */
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final JobManagerConfiguration configuration;
+
+    private final WriteStatistics statistics;
+
+    /** The jobs waiting to be written, guarded by itself. */
+    private final LinkedList<Request> pending = new LinkedList<Request>();
+
+    /** Whether a thread is writing, guarded by {@link #pending}. */
+    private boolean writing;
+
+    public JobWriter(final JobManagerConfiguration configuration, final WriteStatistics statistics) {
+        this.configuration = configuration;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Write the jobs and wait until they are written.
+     * @param requests The jobs to write
+     */
+    public void write(final List<Request> requests) {
+        if ( requests.isEmpty() ) {
+            return;
+        }
+        final Request last = requests.get(requests.size() - 1);
+        boolean interrupted = false;
+        synchronized ( this.pending ) {
+            this.pending.addAll(requests);
+            this.pending.notifyAll();
+        }
+        try {
+            while ( true ) {
+                final List<Request> batch = new ArrayList<Request>();
+                synchronized ( this.pending ) {
+                    // pending jobs are written in order, so all requests are done once the last one is
+                    while ( this.writing && !last.done ) {
+                        try {
+                            this.pending.wait();
+                        } catch ( final InterruptedException ie ) {
+                            interrupted = true;
+                        }
+                    }
+                    if ( last.done ) {
+                        return;
+                    }
+                    this.writing = true;
+                }
+                try {
+                    synchronized ( this.pending ) {
+                        final int batchSize = this.configuration.getWriteBatchSize();
+                        final long delay = this.configuration.getWriteBatchDelay();
+                        if ( delay > 0 ) {
+                            final long end = System.currentTimeMillis() + delay;
+                            long remaining = delay;
+                            while ( this.pending.size() < batchSize && remaining > 0 ) {
+                                try {
+                                    this.pending.wait(remaining);
+                                } catch ( final InterruptedException ie ) {
+                                    interrupted = true;
+                                }
+                                remaining = end - System.currentTimeMillis();
+                            }
+                        }
+                        while ( batch.size() < batchSize && !this.pending.isEmpty() ) {
+                            batch.add(this.pending.removeFirst());
+                        }
+                    }
+                    this.persist(batch);
+                } finally {
+                    synchronized ( this.pending ) {
+                        for(final Request r : batch) {
+                            r.done = true;
+                        }
+                        this.writing = false;
+                        this.pending.notifyAll();
+                    }
+                }
+            }
+        } finally {
+            if ( interrupted ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Persist a batch of jobs, with a single save if possible.
+     */
+    private void persist(final List<Request> batch) {
+        if ( batch.isEmpty() ) {
+            return;
+        }
+        final long startTime = System.currentTimeMillis();
+        final ResourceResolver resolver = this.configuration.createResourceResolver();
+        try {
+            if ( batch.size() > 1 ) {
+                try {
+                    for(final Request r : batch) {
+                        ResourceHelper.getOrCreateResourceWithoutCommit(resolver, r.path, r.properties);
+                    }
+                    resolver.commit();
+                    for(final Request r : batch) {
+                        r.persisted = true;
+                    }
+                    this.statistics.addCommit(batch.size(), System.currentTimeMillis() - startTime);
+                    logger.debug("Persisted {} jobs with one save", batch.size());
+                    return;
+                } catch ( final PersistenceException pe ) {
+                    logger.debug("Unable to persist " + batch.size() + " jobs with one save, saving them one by one.", pe);
+                    this.statistics.addFailedCommit();
+                    resolver.revert();
+                    resolver.refresh();
+                }
+            }
+            for(final Request r : batch) {
+                final long jobStartTime = System.currentTimeMillis();
+                try {
+                    ResourceHelper.getOrCreateResource(resolver, r.path, r.properties);
+                    r.persisted = true;
+                    this.statistics.addCommit(1, System.currentTimeMillis() - jobStartTime);
+                } catch ( final PersistenceException pe ) {
+                    this.statistics.addFailedCommit();
+                    this.logger.error("Exception during persisting new job '" + Utility.toString(r.job) + "'", pe);
+                    resolver.revert();
+                    resolver.refresh();
+                }
+            }
+        } finally {
+            resolver.close();
+        }
+    }
+
+    /**
+     * A job to be written.
+     */
+    public static final class Request {
+
+        /** The job. */
+        public final JobImpl job;
+
+        /** The path of the job resource. */
+        public final String path;
+
+        /** The properties of the job resource. */
+        public final Map<String, Object> properties;
+
+        /** Whether the job has been written, guarded by the pending list of the writer. */
+        boolean done;
+
+        /** Whether the job has been persisted. */
+        volatile boolean persisted;
+
+        public Request(final JobImpl job, final String path, final Map<String, Object> properties) {
+            this.job = job;
+            this.path = path;
+            this.properties = properties;
+        }
+
+        public boolean isPersisted() {
+            return this.persisted;
+        }
+    }
+}
@@ -73,6 +73,16 @@ import org.slf4j.LoggerFactory;
               boolValue=JobManagerConfiguration.DEFAULT_LOG_DEPRECATION_WARNINGS,
               label="Deprecation Warnings",
               description="If this switch is enabled, deprecation warnings will be logged with the INFO level."),
+    @Property(name=JobManagerConfiguration.PROPERTY_WRITE_BATCH_SIZE,
+              intValue=JobManagerConfiguration.DEFAULT_WRITE_BATCH_SIZE,
+              label="Write Batch Size",
+              description="The maximum number of new jobs which are persisted with a single save. "
+                        + "Jobs added concurrently or through a batch are written together."),
+    @Property(name=JobManagerConfiguration.PROPERTY_WRITE_BATCH_DELAY,
+              longValue=JobManagerConfiguration.DEFAULT_WRITE_BATCH_DELAY,
+              label="Write Batch Delay",
+              description="The time in milliseconds to wait for more new jobs before they are saved. "
+                        + "By default, new jobs are saved immediately."),
     @Property(name=JobManagerConfiguration.PROPERTY_REPOSITORY_PATH,
               value=JobManagerConfiguration.DEFAULT_REPOSITORY_PATH, propertyPrivate=true),
     @Property(name=JobManagerConfiguration.PROPERTY_SCHEDULED_JOBS_PATH,
@@ -112,6 +122,18 @@ public class JobManagerConfiguration implements TopologyEventListener, Configura
     /** Default value for background loading. */
     public static final boolean DEFAULT_BACKGROUND_LOAD_SEARCH = true;
 
+    /** Configuration property for the maximum number of jobs written with one save. */
+    public static final String PROPERTY_WRITE_BATCH_SIZE = "job.write.batch.size";
+
+    /** Default value for the maximum number of jobs written with one save. */
+    public static final int DEFAULT_WRITE_BATCH_SIZE = 50;
+
+    /** Configuration property for the time to wait for more jobs to write. */
+    public static final String PROPERTY_WRITE_BATCH_DELAY = "job.write.batch.delay";
+
+    /** Default value for the time to wait for more jobs to write. */
+    public static final long DEFAULT_WRITE_BATCH_DELAY = 0;
+
     /** Configuration property for deprecation warnings. */
     public static final String PROPERTY_LOG_DEPRECATION_WARNINGS = "job.log.deprecation";
 
@@ -147,6 +169,10 @@ public class JobManagerConfiguration implements TopologyEventListener, Configura
 
     private boolean disabledDistribution;
 
+    private volatile int writeBatchSize;
+
+    private volatile long writeBatchDelay;
+
     private String storedCancelledJobsPath;
 
     private String storedSuccessfulJobsPath;
@@ -229,6 +255,8 @@ public class JobManagerConfiguration implements TopologyEventListener, Configura
         this.disabledDistribution = PropertiesUtil.toBoolean(props.get(PROPERTY_DISABLE_DISTRIBUTION), DEFAULT_DISABLE_DISTRIBUTION);
         this.backgroundLoadDelay = PropertiesUtil.toLong(props.get(PROPERTY_BACKGROUND_LOAD_DELAY), DEFAULT_BACKGROUND_LOAD_DELAY);
         Utility.LOG_DEPRECATION_WARNINGS = PropertiesUtil.toBoolean(props.get(PROPERTY_LOG_DEPRECATION_WARNINGS), DEFAULT_LOG_DEPRECATION_WARNINGS);
+        this.writeBatchSize = Math.max(1, PropertiesUtil.toInteger(props.get(PROPERTY_WRITE_BATCH_SIZE), DEFAULT_WRITE_BATCH_SIZE));
+        this.writeBatchDelay = Math.max(0, PropertiesUtil.toLong(props.get(PROPERTY_WRITE_BATCH_DELAY), DEFAULT_WRITE_BATCH_DELAY));
     }
 
     /**
@@ -387,6 +415,20 @@ public class JobManagerConfiguration implements TopologyEventListener, Configura
         return this.disabledDistribution;
     }
 
+    /**
+     * The maximum number of new jobs written with a single save.
+     */
+    public int getWriteBatchSize() {
+        return this.writeBatchSize;
+    }
+
+    /**
+     * The time in milliseconds to wait for more new jobs before saving.
+     */
+    public long getWriteBatchDelay() {
+        return this.writeBatchDelay;
+    }
+
     public String getStoredCancelledJobsPath() {
         return this.storedCancelledJobsPath;
     }
@@ -41,6 +41,8 @@ import org.apache.sling.event.impl.jobs.JobConsumerManager;
 import org.apache.sling.event.impl.jobs.config.InternalQueueConfiguration;
 import org.apache.sling.event.impl.jobs.config.JobManagerConfiguration;
 import org.apache.sling.event.impl.jobs.config.TopologyCapabilities;
+import org.apache.sling.event.impl.jobs.stats.StatisticsManager;
+import org.apache.sling.event.impl.jobs.stats.WriteStatistics;
 import org.apache.sling.event.jobs.JobManager;
 import org.apache.sling.event.jobs.Queue;
 import org.apache.sling.event.jobs.QueueConfiguration;
@@ -73,6 +75,9 @@ public class InventoryPlugin implements InventoryPrinter {
     @Reference
     private JobConsumerManager jobConsumerManager;
 
+    @Reference
+    private StatisticsManager statisticsManager;
+
     /**
      * Format an array.
      */
@@ -163,6 +168,17 @@ public class InventoryPlugin implements InventoryPrinter {
         pw.printf("Average Waiting Time : %s%n", formatTime(s.getAverageWaitingTime()));
         pw.println();
 
+        final WriteStatistics ws = this.statisticsManager.getWriteStatistics();
+        pw.println("Write Statistics");
+        pw.printf("Written Jobs : %s%n", ws.getNumberOfWrittenJobs());
+        pw.printf("Saves : %s%n", ws.getNumberOfCommits());
+        pw.printf("Failed Saves : %s%n", ws.getNumberOfFailedCommits());
+        pw.printf("Last Save : %s%n", formatDate(ws.getLastCommitTime()));
+        pw.printf("Average Jobs per Save : %s%n", ws.getAverageBatchSize());
+        pw.printf("Average Save Time : %s%n", formatTime(ws.getAverageCommitTime()));
+        pw.printf("Written Jobs per Second : %s%n", ws.getThroughput());
+        pw.println();
+
         pw.println("Topology Capabilities");
         final TopologyCapabilities cap = this.configuration.getTopologyCapabilities();
         if ( cap == null ) {
@@ -317,6 +333,19 @@ public class InventoryPlugin implements InventoryPrinter {
         pw.printf("    \"averageProcessingTimeText\" : \"%s\",%n", formatTime(s.getAverageProcessingTime()));
         pw.printf("    \"averageWaitingTime\" : %s,%n", s.getAverageWaitingTime());
         pw.printf("    \"averageWaitingTimeText\" : \"%s\"%n", formatTime(s.getAverageWaitingTime()));
+        pw.println("  },");
+
+        final WriteStatistics ws = this.statisticsManager.getWriteStatistics();
+        pw.println("  \"writeStatistics\" : {");
+        pw.printf("    \"numberOfWrittenJobs\" : %s,%n", ws.getNumberOfWrittenJobs());
+        pw.printf("    \"numberOfCommits\" : %s,%n", ws.getNumberOfCommits());
+        pw.printf("    \"numberOfFailedCommits\" : %s,%n", ws.getNumberOfFailedCommits());
+        pw.printf("    \"lastCommitTime\" : %s,%n", ws.getLastCommitTime());
+        pw.printf("    \"lastCommitTimeText\" : \"%s\",%n", formatDate(ws.getLastCommitTime()));
+        pw.printf("    \"averageBatchSize\" : %s,%n", ws.getAverageBatchSize());
+        pw.printf("    \"averageCommitTime\" : %s,%n", ws.getAverageCommitTime());
+        pw.printf("    \"averageCommitTimeText\" : \"%s\",%n", formatTime(ws.getAverageCommitTime()));
+        pw.printf("    \"throughput\" : %s%n", ws.getThroughput());
         pw.print("  }");
 
         final TopologyCapabilities cap = this.configuration.getTopologyCapabilities();
@@ -388,6 +388,16 @@ public abstract class AbstractJobQueue
         this.stopWaitingForNextJob();
     }
 
+    /**
+     * Inform the queue about a new job.
+     * @param topic the topic of the job
+     * @param jobId the id of the job
+     */
+    public void wakeUpQueue(final String topic, final String jobId) {
+        this.cache.handleNewJob(topic, jobId);
+        this.stopWaitingForNextJob();
+    }
+
     /**
      * Put a job back in the queue
      * @param handler The job handler
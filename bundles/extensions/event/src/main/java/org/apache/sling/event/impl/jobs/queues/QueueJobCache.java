@@ -19,49 +19,71 @@
 package org.apache.sling.event.impl.jobs.queues;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Calendar;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentSkipListSet;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.event.impl.jobs.JobHandler;
 import org.apache.sling.event.impl.jobs.JobImpl;
 import org.apache.sling.event.impl.jobs.JobTopicTraverser;
+import org.apache.sling.event.impl.jobs.Utility;
 import org.apache.sling.event.impl.jobs.config.JobManagerConfiguration;
+import org.apache.sling.event.impl.support.ResourceHelper;
+import org.apache.sling.event.jobs.Job;
 import org.apache.sling.event.jobs.QueueConfiguration;
 import org.apache.sling.event.jobs.QueueConfiguration.Type;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * The queue job cache caches jobs per queue based on the topics the queue is actively
- * processing.
+ * The queue job cache keeps an index of the pending jobs of a queue based on
+ * the topics the queue is actively processing.
+ *
+ * The index contains a small key per pending job (path, creation time and
+ * counter), ordered like the jobs themselves. A topic is indexed by
+ * traversing its jobs in the resource tree once, afterwards new jobs are
+ * added to the index from the job added notifications. Taking the next job
+ * removes the first key from the index and only loads this job. Keys of jobs
+ * which have been removed or started in the meantime are skipped when taken.
  */
 public class QueueJobCache {
 
     /** Logger. */
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    /** The maximum of pre loaded jobs for a topic. */
-    private final int maxPreloadLimit = 10;
-
     /** The job manager configuration. */
     private final JobManagerConfiguration configuration;
 
     /** The set of topics handled by this queue. */
     private final Set<String> topics;
 
-    /** The set of new topics to scan. */
+    /** The set of topics to scan, guarded by itself. */
     private final Set<String> topicsWithNewJobs = new HashSet<String>();
 
-    /** The cache of current objects. */
-    private final List<JobImpl> cache = new ArrayList<JobImpl>();
+    /** The new jobs to add to the index, guarded by {@link #topicsWithNewJobs}. */
+    private final List<String[]> newJobs = new ArrayList<String[]>();
+
+    /** The index of jobs by topic, guarded by itself. */
+    private final Map<String, TreeSet<JobKey>> index = new HashMap<String, TreeSet<JobKey>>();
+
+    /** The index of all jobs for ordered and unordered queues, guarded by {@link #index}. */
+    private final TreeSet<JobKey> allJobs = new TreeSet<JobKey>();
+
+    /** The topics with jobs in round robin order for topic round robin queues, guarded by {@link #index}. */
+    private final LinkedList<String> topicOrder = new LinkedList<String>();
+
+    /** Rescheduled jobs, these are taken before indexed jobs, guarded by {@link #index}. */
+    private final LinkedList<JobImpl> rescheduledJobs = new LinkedList<JobImpl>();
 
     /** The queue type. */
     private final QueueConfiguration.Type queueType;
@@ -95,57 +117,140 @@ public class QueueJobCache {
      */
     public boolean isEmpty() {
         boolean result = true;
-        synchronized ( this.cache ) {
-            result = this.cache.isEmpty();
+        synchronized ( this.index ) {
+            result = this.rescheduledJobs.isEmpty() && this.index.isEmpty();
         }
         if ( result ) {
             synchronized ( this.topicsWithNewJobs ) {
-                result = this.topicsWithNewJobs.isEmpty();
+                result = this.topicsWithNewJobs.isEmpty() && this.newJobs.isEmpty();
             }
         }
         return result;
     }
 
+    /**
+     * Get the number of indexed jobs.
+     */
+    public int size() {
+        synchronized ( this.index ) {
+            int size = this.rescheduledJobs.size();
+            for(final Set<JobKey> keys : this.index.values()) {
+                size += keys.size();
+            }
+            return size;
+        }
+    }
+
     /**
      * Get the next job.
      * This method is not called concurrently, however
-     * {@link #reschedule(JobHandler)} and {@link #handleNewTopics(Set)}
-     * can be called concurrently.
+     * {@link #reschedule(JobHandler)}, {@link #handleNewTopics(Set)}
+     * and {@link #handleNewJob(String, String)} can be called concurrently.
      */
     public JobImpl getNextJob(final boolean doFull) {
-        JobImpl result = null;
-
-        synchronized ( this.cache ) {
-            if ( this.cache.isEmpty() ) {
-                final Set<String> checkingTopics = new HashSet<String>();
-                synchronized ( this.topicsWithNewJobs ) {
+        synchronized ( this.index ) {
+            final Set<String> checkingTopics = new HashSet<String>();
+            final List<String[]> checkingJobs = new ArrayList<String[]>();
+            synchronized ( this.topicsWithNewJobs ) {
+                // rescheduled jobs are not marked as started anymore and
+                // would be found again, so only scan once they are taken
+                if ( this.rescheduledJobs.isEmpty() ) {
                     checkingTopics.addAll(this.topicsWithNewJobs);
                     this.topicsWithNewJobs.clear();
                 }
-                if ( doFull ) {
-                    checkingTopics.addAll(this.topics);
-                }
-                if ( !checkingTopics.isEmpty() ) {
-                    this.loadJobs(checkingTopics);
-                }
+                checkingJobs.addAll(this.newJobs);
+                this.newJobs.clear();
+            }
+            if ( doFull && this.index.isEmpty() && this.rescheduledJobs.isEmpty() ) {
+                checkingTopics.addAll(this.topics);
+            }
+            if ( !checkingTopics.isEmpty() || !checkingJobs.isEmpty() ) {
+                this.updateIndex(checkingTopics, checkingJobs);
             }
 
-            if ( !this.cache.isEmpty() ) {
-                result = this.cache.remove(0);
+            if ( !this.rescheduledJobs.isEmpty() ) {
+                return this.rescheduledJobs.removeFirst();
+            }
+            if ( this.index.isEmpty() ) {
+                return null;
+            }
+
+            final ResourceResolver resolver = this.configuration.createResourceResolver();
+            try {
+                JobKey key;
+                while ( (key = this.takeKey()) != null ) {
+                    final JobImpl job = this.loadJob(resolver, key);
+                    if ( job != null ) {
+                        return job;
+                    }
+                }
+            } finally {
+                resolver.close();
             }
         }
+        return null;
+    }
 
-        return result;
+    /**
+     * Take the key of the next job from the index.
+     * @return The key or {@code null} if the index is empty.
+     */
+    private JobKey takeKey() {
+        if ( this.queueType == Type.ORDERED
+             || this.queueType == Type.UNORDERED ) {
+            final JobKey key = this.allJobs.pollFirst();
+            if ( key != null ) {
+                this.removeFromTopic(key);
+            }
+            return key;
+        }
+        // topic round robin
+        while ( !this.topicOrder.isEmpty() ) {
+            final String topic = this.topicOrder.removeFirst();
+            final TreeSet<JobKey> keys = this.index.get(topic);
+            if ( keys != null ) {
+                final JobKey key = keys.pollFirst();
+                if ( keys.isEmpty() ) {
+                    this.index.remove(topic);
+                } else {
+                    this.topicOrder.addLast(topic);
+                }
+                if ( key != null ) {
+                    return key;
+                }
+            }
+        }
+        return null;
     }
 
     /**
-     * Load the next N x numberOf(topics) jobs
-     * @param checkingTopics The set of topics to check.
+     * Load the job for the key.
+     * @return The job or {@code null} if the job is not available for processing anymore.
      */
-    private void loadJobs( final Set<String> checkingTopics) {
-        logger.debug("Starting jobs loading from {}...", checkingTopics);
+    private JobImpl loadJob(final ResourceResolver resolver, final JobKey key) {
+        final Resource jobResource = resolver.getResource(key.path);
+        if ( jobResource == null ) {
+            logger.debug("Ignoring removed job {}", key.path);
+            return null;
+        }
+        final JobImpl job = Utility.readJob(logger, jobResource);
+        if ( job == null ) {
+            return null;
+        }
+        if ( job.getProcessingStarted() != null || job.hasReadErrors() ) {
+            logger.debug("Ignoring job because {} or {}", job.getProcessingStarted(), job.hasReadErrors());
+            return null;
+        }
+        return job;
+    }
 
-        final Map<String, List<JobImpl>> topicCache = new HashMap<String, List<JobImpl>>();
+    /**
+     * Update the index
+     * @param checkingTopics The set of topics to scan completely.
+     * @param checkingJobs The new jobs (topic and job id) to add.
+     */
+    private void updateIndex(final Set<String> checkingTopics, final List<String[]> checkingJobs) {
+        logger.debug("Starting jobs indexing from {} and {} new jobs...", checkingTopics, checkingJobs.size());
 
         final ResourceResolver resolver = this.configuration.createResourceResolver();
         try {
@@ -153,91 +258,95 @@ public class QueueJobCache {
             // sanity check - should never be null
             if ( baseResource != null ) {
                 for(final String topic : checkingTopics) {
-
+                    this.clearTopic(topic);
                     final Resource topicResource = baseResource.getChild(topic.replace('/', '.'));
                     if ( topicResource != null ) {
-                        topicCache.put(topic, loadJobs(topic, topicResource));
+                        this.indexJobs(topic, topicResource);
+                    }
+                }
+                for(final String[] newJob : checkingJobs) {
+                    final String topic = newJob[0];
+                    if ( !checkingTopics.contains(topic) ) {
+                        final Resource jobResource = baseResource.getChild(topic.replace('/', '.') + '/' + newJob[1]);
+                        if ( jobResource != null ) {
+                            this.addToIndex(topic, jobResource);
+                        }
                     }
                 }
             }
         } finally {
             resolver.close();
         }
-        orderTopics(topicCache);
 
-        logger.debug("Finished jobs loading {}", this.cache.size());
-    }
-
-    /**
-     * Order the topics based on the queue type and put them in the cache.
-     * @param topicCache The topic based cache
-     */
-    private void orderTopics(final Map<String, List<JobImpl>> topicCache) {
-        if ( this.queueType == Type.ORDERED
-             || this.queueType == Type.UNORDERED) {
-            for(final List<JobImpl> list : topicCache.values()) {
-                this.cache.addAll(list);
-            }
-            Collections.sort(this.cache);
-        } else {
-            // topic round robin
-            boolean done = true;
-            do {
-                done = true;
-                for(final Map.Entry<String, List<JobImpl>> entry : topicCache.entrySet()) {
-                    if ( !entry.getValue().isEmpty() ) {
-                        this.cache.add(entry.getValue().remove(0));
-                        if ( !entry.getValue().isEmpty() ) {
-                            done = false;
-                        }
-                    }
-                }
-            } while ( !done ) ;
-        }
+        logger.debug("Finished jobs indexing {}", this.index.size());
     }
 
     /**
-     * Load the next N x numberOf(topics) jobs.
+     * Index all jobs of a topic.
      * @param topic The topic
      * @param topicResource The parent resource of the jobs
-     * @return The cache which will be filled with the jobs.
      */
-    private List<JobImpl> loadJobs(final String topic, final Resource topicResource) {
-        logger.debug("Loading jobs from topic {}", topic);
-        final List<JobImpl> list = new ArrayList<JobImpl>();
+    private void indexJobs(final String topic, final Resource topicResource) {
+        logger.debug("Indexing jobs from topic {}", topic);
 
-        final AtomicBoolean scanTopic = new AtomicBoolean(false);
-
-        JobTopicTraverser.traverse(logger, topicResource, new JobTopicTraverser.JobCallback() {
+        JobTopicTraverser.traverse(logger, topicResource, new JobTopicTraverser.ResourceCallback() {
 
             @Override
-            public boolean handle(final JobImpl job) {
-                if ( job.getProcessingStarted() == null && !job.hasReadErrors() ) {
-                    list.add(job);
-                    if ( list.size() == maxPreloadLimit ) {
-                        scanTopic.set(true);
-                    }
-                } else {
-                    if ( job.hasReadErrors() ) {
-                        scanTopic.set(true);
-                    }
-                    logger.debug("Ignoring job because {} or {}", job.getProcessingStarted(), job.hasReadErrors());
-                }
-                return list.size() < maxPreloadLimit;
+            public boolean handle(final Resource rsrc) {
+                addToIndex(topic, rsrc);
+                return true;
             }
         });
-        if ( scanTopic.get() ) {
-            synchronized ( this.topicsWithNewJobs ) {
-                this.topicsWithNewJobs.add(topic);
+    }
+
+    /**
+     * Add a job to the index, unless it is started.
+     * @param topic The job topic
+     * @param jobResource The job resource
+     */
+    private void addToIndex(final String topic, final Resource jobResource) {
+        final ValueMap vm = ResourceUtil.getValueMap(jobResource);
+        final String jobId = vm.get(ResourceHelper.PROPERTY_JOB_ID, String.class);
+        if ( jobId == null || vm.get(Job.PROPERTY_JOB_STARTED_TIME) != null ) {
+            return;
+        }
+        final Calendar created = vm.get(Job.PROPERTY_JOB_CREATED, Calendar.class);
+        final JobKey key = new JobKey(topic, jobResource.getPath(), jobId,
+                created == null ? 0 : created.getTimeInMillis());
+
+        TreeSet<JobKey> keys = this.index.get(topic);
+        if ( keys == null ) {
+            keys = new TreeSet<JobKey>();
+            this.index.put(topic, keys);
+            this.topicOrder.addLast(topic);
+        }
+        if ( keys.add(key) && (this.queueType == Type.ORDERED || this.queueType == Type.UNORDERED) ) {
+            this.allJobs.add(key);
+        }
+    }
+
+    private void removeFromTopic(final JobKey key) {
+        final TreeSet<JobKey> keys = this.index.get(key.topic);
+        if ( keys != null ) {
+            keys.remove(key);
+            if ( keys.isEmpty() ) {
+                this.index.remove(key.topic);
+                this.topicOrder.remove(key.topic);
             }
         }
-        logger.debug("Caching {} jobs for topic {}", list.size(), topic);
+    }
 
-        return list;
+    private void clearTopic(final String topic) {
+        final TreeSet<JobKey> keys = this.index.remove(topic);
+        if ( keys != null ) {
+            this.allJobs.removeAll(keys);
+            this.topicOrder.remove(topic);
+        }
     }
 
     /**
-     * Inform the queue cache about topics containing new jobs
+     * Inform the queue cache about topics containing new jobs.
+     * The jobs of these topics are indexed again.
      * @param topics The set of topics to scan
      */
     public void handleNewTopics(final Set<String> topics) {
@@ -248,20 +357,88 @@ public class QueueJobCache {
         this.topics.addAll(topics);
     }
 
+    /**
+     * Inform the queue cache about a new job.
+     * @param topic The topic of the job
+     * @param jobId The id of the job
+     */
+    public void handleNewJob(final String topic, final String jobId) {
+        logger.debug("Update cache to handle new job {} for topic {}", jobId, topic);
+        final boolean isNewTopic = this.topics.add(topic);
+        synchronized ( this.topicsWithNewJobs ) {
+            if ( isNewTopic ) {
+                this.topicsWithNewJobs.add(topic);
+            } else {
+                this.newJobs.add(new String[] {topic, jobId});
+            }
+        }
+    }
+
     /**
      * Reschedule a job
      * Reschedule the job and add it back into the cache.
      * @param handler The job handler
      */
     public void reschedule(final JobHandler handler) {
-        synchronized ( this.cache ) {
+        synchronized ( this.index ) {
             if ( handler.reschedule() ) {
                 if ( this.queueType == Type.ORDERED ) {
-                    this.cache.add(0, handler.getJob());
+                    this.rescheduledJobs.addFirst(handler.getJob());
                 } else {
-                    this.cache.add(handler.getJob());
+                    this.rescheduledJobs.addLast(handler.getJob());
                 }
             }
         }
     }
+
+    /**
+     * The index entry of a job, ordered like {@link JobImpl}.
+     */
+    private static final class JobKey implements Comparable<JobKey> {
+
+        final String topic;
+
+        final String path;
+
+        final String jobId;
+
+        final long created;
+
+        final long counter;
+
+        JobKey(final String topic, final String path, final String jobId, final long created) {
+            this.topic = topic;
+            this.path = path;
+            this.jobId = jobId;
+            this.created = created;
+            long counter = 0;
+            try {
+                counter = Long.parseLong(jobId.substring(jobId.lastIndexOf('_') + 1));
+            } catch ( final NumberFormatException ignore ) {
+                // not a generated job id, order by id only
+            }
+            this.counter = counter;
+        }
+
+        @Override
+        public int compareTo(final JobKey o) {
+            if ( this.created != o.created ) {
+                return this.created < o.created ? -1 : 1;
+            }
+            if ( this.counter != o.counter ) {
+                return this.counter < o.counter ? -1 : 1;
+            }
+            return this.jobId.compareTo(o.jobId);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.jobId.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof JobKey && ((JobKey)obj).jobId.equals(this.jobId);
+        }
+    }
 }
@@ -208,6 +208,19 @@ public class QueueManager
      */
     private void start(final QueueInfo queueInfo,
             final Set<String> topics) {
+        this.start(queueInfo, topics, null);
+    }
+
+    /**
+     * Start a new queue or inform the queue about a new job.
+     *
+     * @param queueInfo The queue info
+     * @param topics The topics
+     * @param jobId The id of the new job or {@code null}
+     */
+    private void start(final QueueInfo queueInfo,
+            final Set<String> topics,
+            final String jobId) {
         final InternalQueueConfiguration config = queueInfo.queueConfiguration;
         // get or create queue
         AbstractJobQueue queue = null;
@@ -236,6 +249,8 @@ public class QueueManager
                     // we log anyway
                     logger.error("Unable to create new queue: unknown queue type {}", config);
                 }
+            } else if ( jobId != null && topics.size() == 1 ) {
+                queue.wakeUpQueue(topics.iterator().next(), jobId);
             } else {
                 queue.wakeUpQueue(topics);
             }
@@ -393,7 +408,8 @@ public class QueueManager
         final String topic = (String)event.getProperty(NotificationConstants.NOTIFICATION_PROPERTY_JOB_TOPIC);
         if ( this.isActive.get() && topic != null ) {
             final QueueInfo info = this.configuration.getQueueConfigurationManager().getQueueInfo(topic);
-            this.start(info, Collections.singleton(topic));
+            final String jobId = (String)event.getProperty(NotificationConstants.NOTIFICATION_PROPERTY_JOB_ID);
+            this.start(info, Collections.singleton(topic), jobId);
         }
     }
 
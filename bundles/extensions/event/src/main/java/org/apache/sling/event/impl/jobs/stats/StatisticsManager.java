@@ -69,6 +69,7 @@ public class StatisticsManager implements EventHandler {
             for(final Statistics s : queueStatistics.values()) {
                 s.reset();
             }
+            writeStatistics.reset();
         }
 
     };
@@ -79,6 +80,9 @@ public class StatisticsManager implements EventHandler {
     /** Statistics per queue. */
     private final ConcurrentMap<String, Statistics> queueStatistics = new ConcurrentHashMap<String, Statistics>();
 
+    /** Statistics about persisting new jobs. */
+    private final WriteStatistics writeStatistics = new WriteStatistics();
+
     /**
      * Get the global statistics.
      * @return The global statistics.
@@ -95,6 +99,14 @@ public class StatisticsManager implements EventHandler {
         return topicStatistics;
     }
 
+    /**
+     * Get the statistics about persisting new jobs.
+     * @return The write statistics.
+     */
+    public WriteStatistics getWriteStatistics() {
+        return this.writeStatistics;
+    }
+
     /**
      * Get a single queue statistics.
      * @param queueName The queue name.
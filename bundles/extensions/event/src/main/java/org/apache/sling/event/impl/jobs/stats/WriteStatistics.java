@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs.stats;
+
+/**
+ * Statistics about persisting new jobs.
+ */
+public class WriteStatistics {
+
+    private long startTime = System.currentTimeMillis();
+
+    private long writtenJobs;
+
+    private long commits;
+
+    private long failedCommits;
+
+    private long commitTime;
+
+    private long lastCommit = -1;
+
+    /**
+     * Add a successful save.
+     * @param jobs The number of jobs written with the save.
+     * @param time The time in milliseconds it took to write the jobs.
+     */
+    public synchronized void addCommit(final int jobs, final long time) {
+        this.writtenJobs += jobs;
+        this.commits++;
+        this.commitTime += time;
+        this.lastCommit = System.currentTimeMillis();
+    }
+
+    /**
+     * Add a failed save.
+     */
+    public synchronized void addFailedCommit() {
+        this.failedCommits++;
+    }
+
+    public synchronized long getStartTime() {
+        return this.startTime;
+    }
+
+    public synchronized long getNumberOfWrittenJobs() {
+        return this.writtenJobs;
+    }
+
+    public synchronized long getNumberOfCommits() {
+        return this.commits;
+    }
+
+    public synchronized long getNumberOfFailedCommits() {
+        return this.failedCommits;
+    }
+
+    public synchronized long getLastCommitTime() {
+        return this.lastCommit;
+    }
+
+    /**
+     * The average number of jobs written with one save.
+     */
+    public synchronized long getAverageBatchSize() {
+        return this.commits == 0 ? 0 : this.writtenJobs / this.commits;
+    }
+
+    /**
+     * The average time in milliseconds of a save.
+     */
+    public synchronized long getAverageCommitTime() {
+        return this.commits == 0 ? 0 : this.commitTime / this.commits;
+    }
+
+    /**
+     * The number of jobs written per second while saving.
+     */
+    public synchronized long getThroughput() {
+        if ( this.commitTime == 0 ) {
+            return this.writtenJobs == 0 ? 0 : this.writtenJobs * 1000;
+        }
+        return this.writtenJobs * 1000 / this.commitTime;
+    }
+
+    public synchronized void reset() {
+        this.startTime = System.currentTimeMillis();
+        this.writtenJobs = 0;
+        this.commits = 0;
+        this.failedCommits = 0;
+        this.commitTime = 0;
+        this.lastCommit = -1;
+    }
+}
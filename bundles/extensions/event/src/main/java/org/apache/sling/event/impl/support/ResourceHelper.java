@@ -282,6 +282,23 @@ public abstract class ResourceHelper {
                         true);
     }
 
+    /**
+     * Creates or gets the resource at the given path without committing the
+     * changes. The caller is responsible for committing or reverting.
+     * @param resolver The resource resolver to use for creation
+     * @param path     The full path to be created
+     * @param props    The optional resource properties of the final resource to create
+     */
+    public static Resource getOrCreateResourceWithoutCommit(final ResourceResolver resolver,
+            final String path, final Map<String, Object> props)
+    throws PersistenceException {
+       return getOrCreateResource(resolver,
+                        path,
+                        props,
+                        ResourceHelper.RESOURCE_TYPE_FOLDER,
+                        false);
+    }
+
     /**
      * Creates or gets the resource at the given path.
      * This is a copy of Sling's API ResourceUtil method to avoid a dependency on the latest
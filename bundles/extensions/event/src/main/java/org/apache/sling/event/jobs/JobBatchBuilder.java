@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.jobs;
+
+import java.util.List;
+import java.util.Map;
+
+import aQute.bnd.annotation.ProviderType;
+
+/**
+ * This is a builder interface to add many jobs with the same topic at once.
+ * The jobs are persisted together which is considerably faster than adding
+ * them one by one.
+ * Instances of this class can be retrieved using {@link JobManager#createJobs(String)}
+ *
+ * @since 1.7
+ */
+@ProviderType
+public interface JobBatchBuilder {
+
+    /**
+     * Add a job with the optional configuration properties to the batch.
+     * This method can be called several times, each call adds a job.
+     */
+    JobBatchBuilder job(final Map<String, Object> props);
+
+    /**
+     * Add all jobs of the batch.
+     * @return The list of added jobs, jobs which could not be added
+     *         are not contained.
+     * @see JobManager#addJob(String, Map)
+     */
+    List<Job> add();
+
+    /**
+     * Add all jobs of the batch.
+     * @param errors Optional list which will be filled with error messages.
+     * @return The list of added jobs, jobs which could not be added
+     *         are not contained.
+     * @see JobManager#addJob(String, Map)
+     */
+    List<Job> add(final List<String> errors);
+}
@@ -163,6 +163,28 @@ public interface JobManager {
      */
     Collection<Job> findJobs(QueryType type, String topic, long limit, Map<String, Object>... templates);
 
+    /**
+     * Return a page of jobs based on the query type and filter templates.
+     *
+     * This method works like {@link #findJobs(QueryType, String, long, Map...)} but
+     * returns the jobs following the given job in the order of the result. Passing the last
+     * job of a page returns the next page. Unlike skipping jobs, this does not read the
+     * jobs of the previous pages again.
+     *
+     * Unfinished jobs are ordered by creation date, oldest first; finished jobs by
+     * finish date, latest first.
+     *
+     * @param type Required parameter for the type. See {@link #findJobs(QueryType, String, long, Map...)}.
+     * @param topic Topic can be used as a filter, if it is non-null, only jobs with this topic will be returned.
+     * @param after The last job of the previous page or <code>null</code> for the first page.
+     * @param limit A positive number indicating the maximum number of jobs returned. A value
+     *              of zero or less indicates that all jobs should be returned.
+     * @param templates A list of filter property maps. See {@link #findJobs(QueryType, String, long, Map...)}.
+     * @return A collection of jobs - the collection might be empty.
+     * @since 1.7
+     */
+    Collection<Job> findJobs(QueryType type, String topic, Job after, long limit, Map<String, Object>... templates);
+
     /**
      * Stop a job.
      * When a job is stopped and the job consumer supports stopping the job processing, it is up
@@ -190,6 +212,14 @@ public interface JobManager {
      */
     JobBuilder createJob(final String topic);
 
+    /**
+     * Fluent API to add many jobs with the same topic at once.
+     * @param topic Required topic
+     * @return A job batch builder
+     * @since 1.7
+     */
+    JobBatchBuilder createJobs(final String topic);
+
     /**
      * Return all available job schedules.
      * @since 1.3
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.jackrabbit.util.ISO8601;
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.JobManager.QueryType;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class JobManagerImplTest {
+
+    @Test
+    public void testQueryWithoutStart() {
+        final String query = JobManagerImpl.buildQuery(QueryType.QUEUED, "a/topic", null, (Map<String, Object>[])null);
+        assertTrue(query.startsWith("//element(*,slingevent:Job)[@event.job.topic = 'a/topic'"));
+        assertFalse(query.contains("xs:dateTime"));
+        assertTrue(query.endsWith("] order by @slingevent:created ascending, @slingevent:eventId ascending"));
+    }
+
+    @Test
+    public void testQueuedQueryAfterJob() {
+        final Calendar created = Calendar.getInstance();
+        final Job after = Mockito.mock(Job.class);
+        Mockito.when(after.getId()).thenReturn("2014/1/1/10/20/a.topic_app_1");
+        Mockito.when(after.getCreated()).thenReturn(created);
+
+        final String date = "xs:dateTime('" + ISO8601.format(created) + "')";
+        final String query = JobManagerImpl.buildQuery(QueryType.QUEUED, "a/topic", after, (Map<String, Object>[])null);
+        assertTrue(query.contains(" and (@slingevent:created > " + date
+                + " or (@slingevent:created = " + date
+                + " and @slingevent:eventId > '2014/1/1/10/20/a.topic_app_1'))]"));
+        assertTrue(query.endsWith("ascending"));
+    }
+
+    @Test
+    public void testHistoryQueryAfterJob() {
+        final Calendar finished = Calendar.getInstance();
+        final Job after = Mockito.mock(Job.class);
+        Mockito.when(after.getId()).thenReturn("2014/1/1/10/20/a.topic_app_1");
+        Mockito.when(after.getFinishedDate()).thenReturn(finished);
+
+        final String date = "xs:dateTime('" + ISO8601.format(finished) + "')";
+        final String query = JobManagerImpl.buildQuery(QueryType.HISTORY, "a/topic", after, (Map<String, Object>[])null);
+        assertTrue(query.contains("@" + JobImpl.PROPERTY_FINISHED_DATE + " < " + date));
+        assertEquals(query.indexOf("order by"), query.lastIndexOf("order by"));
+        assertTrue(query.endsWith("] order by @" + JobImpl.PROPERTY_FINISHED_DATE
+                + " descending, @slingevent:eventId descending"));
+    }
+
+    @Test
+    public void testQueryEscapesLiterals() {
+        final Calendar created = Calendar.getInstance();
+        final Job after = Mockito.mock(Job.class);
+        Mockito.when(after.getId()).thenReturn("2014/1/1/10/20/a.topic_app's_1");
+        Mockito.when(after.getCreated()).thenReturn(created);
+
+        final String query = JobManagerImpl.buildQuery(QueryType.QUEUED, "a/top'ic", after,
+                Collections.singletonMap("name", (Object)"it's"));
+        assertTrue(query.startsWith("//element(*,slingevent:Job)[@event.job.topic = 'a/top''ic'"));
+        assertTrue(query.contains("@name = 'it''s'"));
+        assertTrue(query.contains(" and @slingevent:eventId > '2014/1/1/10/20/a.topic_app''s_1'))]"));
+    }
+}
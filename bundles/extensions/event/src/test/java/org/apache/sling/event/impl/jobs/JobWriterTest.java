@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.event.impl.jobs.config.JobManagerConfiguration;
+import org.apache.sling.event.impl.jobs.stats.WriteStatistics;
+import org.apache.sling.testing.resourceresolver.MockResourceResolverFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class JobWriterTest {
+
+    private ResourceResolverFactory factory;
+
+    private JobManagerConfiguration configuration;
+
+    private WriteStatistics statistics;
+
+    private JobWriter writer;
+
+    @Before
+    public void setup() {
+        this.factory = new MockResourceResolverFactory();
+        this.configuration = Mockito.mock(JobManagerConfiguration.class);
+        Mockito.when(this.configuration.createResourceResolver()).thenAnswer(new Answer<ResourceResolver>() {
+
+            @Override
+            public ResourceResolver answer(final InvocationOnMock invocation) throws Throwable {
+                return factory.getAdministrativeResourceResolver(null);
+            }
+        });
+        Mockito.when(this.configuration.getWriteBatchSize()).thenReturn(10);
+        this.statistics = new WriteStatistics();
+        this.writer = new JobWriter(this.configuration, this.statistics);
+    }
+
+    private JobWriter.Request createRequest(final String id) {
+        final Map<String, Object> props = new HashMap<String, Object>();
+        props.put("id", id);
+        final JobImpl job = new JobImpl("a/topic", null, id, new HashMap<String, Object>(props));
+        return new JobWriter.Request(job, "/var/jobs/a.topic/" + id, props);
+    }
+
+    @Test
+    public void testBatchIsWrittenWithFewSaves() throws Exception {
+        final List<JobWriter.Request> requests = new ArrayList<JobWriter.Request>();
+        for(int i=0; i<25; i++) {
+            requests.add(createRequest("job_" + i));
+        }
+        this.writer.write(requests);
+
+        for(final JobWriter.Request r : requests) {
+            assertTrue(r.isPersisted());
+        }
+        final ResourceResolver resolver = this.factory.getAdministrativeResourceResolver(null);
+        assertNotNull(resolver.getResource("/var/jobs/a.topic/job_0"));
+        assertNotNull(resolver.getResource("/var/jobs/a.topic/job_24"));
+
+        assertEquals(25, this.statistics.getNumberOfWrittenJobs());
+        assertEquals(3, this.statistics.getNumberOfCommits());
+        assertEquals(0, this.statistics.getNumberOfFailedCommits());
+    }
+
+    @Test
+    public void testConcurrentWrites() throws Exception {
+        Mockito.when(this.configuration.getWriteBatchDelay()).thenReturn(50L);
+        final int count = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<JobWriter.Request> requests = Collections.synchronizedList(new ArrayList<JobWriter.Request>());
+        final Thread[] threads = new Thread[count];
+        for(int i=0; i<count; i++) {
+            final JobWriter.Request r = createRequest("job_" + i);
+            requests.add(r);
+            threads[i] = new Thread() {
+
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (final InterruptedException ignore) {
+                        // ignore
+                    }
+                    writer.write(Collections.singletonList(r));
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for(final Thread t : threads) {
+            t.join();
+        }
+
+        for(final JobWriter.Request r : requests) {
+            assertTrue(r.isPersisted());
+        }
+        assertEquals(count, this.statistics.getNumberOfWrittenJobs());
+        assertTrue(this.statistics.getNumberOfCommits() < count);
+    }
+}
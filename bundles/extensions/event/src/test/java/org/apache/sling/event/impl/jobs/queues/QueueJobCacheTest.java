@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs.queues;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.event.impl.jobs.JobImpl;
+import org.apache.sling.event.impl.jobs.config.JobManagerConfiguration;
+import org.apache.sling.event.impl.support.ResourceHelper;
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.QueueConfiguration;
+import org.apache.sling.testing.resourceresolver.MockResourceResolverFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class QueueJobCacheTest {
+
+    private static final String JOBS_PATH = "/var/eventing/jobs/assigned/app";
+
+    private ResourceResolverFactory factory;
+
+    private JobManagerConfiguration configuration;
+
+    private long counter;
+
+    @Before
+    public void setup() {
+        this.factory = new MockResourceResolverFactory();
+        this.configuration = Mockito.mock(JobManagerConfiguration.class);
+        Mockito.when(this.configuration.createResourceResolver()).thenAnswer(new Answer<ResourceResolver>() {
+
+            @Override
+            public ResourceResolver answer(final InvocationOnMock invocation) throws Throwable {
+                return factory.getAdministrativeResourceResolver(null);
+            }
+        });
+        Mockito.when(this.configuration.getLocalJobsPath()).thenReturn(JOBS_PATH);
+    }
+
+    private String createJob(final String topic, final int minute) throws Exception {
+        counter++;
+        final String jobId = "2014/1/1/10/" + minute + "/" + topic.replace('/', '.') + "_app_" + counter;
+        final Calendar created = Calendar.getInstance();
+        created.set(2014, 0, 1, 10, minute, 0);
+
+        final Map<String, Object> props = new HashMap<String, Object>();
+        props.put(ResourceHelper.PROPERTY_JOB_ID, jobId);
+        props.put(ResourceHelper.PROPERTY_JOB_TOPIC, topic);
+        props.put(Job.PROPERTY_JOB_CREATED, created);
+        final ResourceResolver resolver = this.factory.getAdministrativeResourceResolver(null);
+        try {
+            ResourceHelper.getOrCreateResource(resolver, JOBS_PATH + "/" + topic.replace('/', '.') + "/" + jobId, props);
+        } finally {
+            resolver.close();
+        }
+        return jobId;
+    }
+
+    private QueueJobCache createCache(final QueueConfiguration.Type type, final String... topics) {
+        final Set<String> set = new HashSet<String>();
+        Collections.addAll(set, topics);
+        return new QueueJobCache(this.configuration, type, set);
+    }
+
+    @Test
+    public void testOrderedIndex() throws Exception {
+        final String job2 = createJob("a/topic", 20);
+        final String job1 = createJob("a/topic", 10);
+        final String job3 = createJob("b/topic", 30);
+
+        final QueueJobCache cache = createCache(QueueConfiguration.Type.ORDERED, "a/topic", "b/topic");
+        assertFalse(cache.isEmpty());
+
+        assertEquals(job1, cache.getNextJob(false).getId());
+        assertEquals(2, cache.size());
+        assertEquals(job2, cache.getNextJob(false).getId());
+        assertEquals(job3, cache.getNextJob(false).getId());
+        assertNull(cache.getNextJob(false));
+        assertTrue(cache.isEmpty());
+
+        // new jobs are added from the notification
+        final String job4 = createJob("a/topic", 40);
+        cache.handleNewJob("a/topic", job4);
+        assertFalse(cache.isEmpty());
+        final JobImpl job = cache.getNextJob(false);
+        assertEquals(job4, job.getId());
+        assertEquals("a/topic", job.getTopic());
+        assertNull(cache.getNextJob(false));
+    }
+
+    @Test
+    public void testRemovedJobIsSkipped() throws Exception {
+        final String job1 = createJob("a/topic", 10);
+        final String job2 = createJob("a/topic", 20);
+
+        final QueueJobCache cache = createCache(QueueConfiguration.Type.UNORDERED, "a/topic");
+        assertEquals(job1, cache.getNextJob(false).getId());
+
+        final ResourceResolver resolver = this.factory.getAdministrativeResourceResolver(null);
+        try {
+            resolver.delete(resolver.getResource(JOBS_PATH + "/a.topic/" + job2));
+            resolver.commit();
+        } finally {
+            resolver.close();
+        }
+        assertNull(cache.getNextJob(false));
+    }
+
+    @Test
+    public void testTopicRoundRobin() throws Exception {
+        final String a1 = createJob("a/topic", 10);
+        final String a2 = createJob("a/topic", 11);
+        final String b1 = createJob("b/topic", 20);
+        final String b2 = createJob("b/topic", 21);
+
+        final QueueJobCache cache = createCache(QueueConfiguration.Type.TOPIC_ROUND_ROBIN, "a/topic", "b/topic");
+        final String first = cache.getNextJob(false).getId();
+        if ( first.equals(a1) ) {
+            assertEquals(b1, cache.getNextJob(false).getId());
+            assertEquals(a2, cache.getNextJob(false).getId());
+            assertEquals(b2, cache.getNextJob(false).getId());
+        } else {
+            assertEquals(b1, first);
+            assertEquals(a1, cache.getNextJob(false).getId());
+            assertEquals(b2, cache.getNextJob(false).getId());
+            assertEquals(a2, cache.getNextJob(false).getId());
+        }
+        assertNull(cache.getNextJob(false));
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.sling.fsprovider.internal;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
@@ -39,6 +40,8 @@ import org.apache.sling.api.resource.ResourceProvider;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.osgi.framework.BundleContext;
 import org.osgi.service.event.EventAdmin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * The <code>FsResourceProvider</code> is a resource provider which maps
@@ -67,6 +70,9 @@ import org.osgi.service.event.EventAdmin;
 })
 public class FsResourceProvider implements ResourceProvider {
 
+    /** The logger. */
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
     /**
      * The name of the configuration property providing file system path of
      * files and folders mapped into the resource tree (value is
@@ -96,6 +102,9 @@ public class FsResourceProvider implements ResourceProvider {
     /** The monitor to detect file changes. */
     private FileMonitor monitor;
 
+    /** The monitor notified about file changes by the file system. */
+    private WatchServiceMonitor watcher;
+
     @Reference(cardinality=ReferenceCardinality.OPTIONAL_UNARY, policy=ReferencePolicy.DYNAMIC)
     private volatile EventAdmin eventAdmin;
 
@@ -231,11 +240,26 @@ public class FsResourceProvider implements ResourceProvider {
             checkInterval = (Long)interval;
         }
         if ( checkInterval > 100 ) {
-            this.monitor = new FileMonitor(this, checkInterval);
+            // prefer the watch service, polling is only used for a single
+            // file or if the file system does not support watching the tree
+            if ( this.providerFile.isDirectory() ) {
+                try {
+                    this.watcher = new WatchServiceMonitor(this);
+                } catch (final IOException ioe) {
+                    log.info("Unable to watch " + this.providerFile + ", falling back to checking for changes periodically", ioe);
+                }
+            }
+            if ( this.watcher == null ) {
+                this.monitor = new FileMonitor(this, checkInterval);
+            }
         }
     }
 
     protected void deactivate() {
+        if ( this.watcher != null ) {
+            this.watcher.stop();
+            this.watcher = null;
+        }
         if ( this.monitor != null ) {
             this.monitor.stop();
             this.monitor = null;
@@ -0,0 +1,380 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.fsprovider.internal;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.sling.api.SlingConstants;
+import org.osgi.service.event.EventAdmin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class is a monitor for the file system
+ * that is notified about changes by the {@link WatchService}.
+ * <p>
+ * Every directory of the mounted tree is registered with the watch service,
+ * so unchanged files are never checked. The events sent are the same as the
+ * ones of the {@link FileMonitor}: a created or deleted file or directory
+ * results in a change event for its parent directory and an add or remove
+ * event for itself, a modified file in a change event. If the watch service
+ * lost events, the tree is compared once with the last known entries and
+ * modification times of the directories, like the file monitor does, to send
+ * the missing events.
+ */
+public class WatchServiceMonitor implements Runnable {
+
+    /** The modification time stored for directories in a snapshot. */
+    private static final Long DIRECTORY = Long.valueOf(-1);
+
+    /** The logger. */
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final FsResourceProvider provider;
+
+    private final Path rootDir;
+
+    private final String rootPath;
+
+    private final WatchService watchService;
+
+    /** The registered directories. Only accessed by the watcher thread after construction. */
+    private final Map<WatchKey, Path> keys = new HashMap<WatchKey, Path>();
+
+    /**
+     * The entries of the registered directories with the modification time of
+     * files or {@link #DIRECTORY}. Only accessed by the watcher thread after construction.
+     */
+    private final Map<Path, Map<Path, Long>> snapshots = new HashMap<Path, Map<Path, Long>>();
+
+    private final Thread thread;
+
+    /**
+     * Creates a new instance of this class and starts watching.
+     * @param provider The resource provider.
+     * @throws IOException If the watch service is not available or
+     *      the directories can't be registered, e.g. because the limit
+     *      of watches of the operating system is reached.
+     */
+    public WatchServiceMonitor(final FsResourceProvider provider) throws IOException {
+        this.provider = provider;
+        this.rootDir = provider.getRootFile().toPath();
+        this.rootPath = provider.getProviderRoot();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        try {
+            registerAll(this.rootDir);
+        } catch (final IOException ioe) {
+            this.watchService.close();
+            throw ioe;
+        }
+        logger.debug("Starting file watcher for {} with {} directories", this.rootDir, this.snapshots.size());
+        this.thread = new Thread(this, "Apache Sling Filesystem Watcher " + this.rootPath);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Stop watching and wait for the watcher thread to finish.
+     */
+    void stop() {
+        try {
+            this.watchService.close();
+        } catch (final IOException ioe) {
+            logger.debug("Unable to close watch service", ioe);
+        }
+        boolean interrupted = false;
+        while (this.thread.isAlive()) {
+            try {
+                this.thread.join();
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        logger.debug("Stopped file watcher for {}", this.rootDir);
+    }
+
+    /**
+     * @see java.lang.Runnable#run()
+     */
+    public void run() {
+        while (true) {
+            final WatchKey key;
+            try {
+                key = this.watchService.take();
+            } catch (final ClosedWatchServiceException e) {
+                return;
+            } catch (final InterruptedException e) {
+                return;
+            }
+            try {
+                // if we don't have an event admin, we just skip the events
+                final EventAdmin localEA = this.provider.getEventAdmin();
+                if (!processEvents(key, localEA)) {
+                    logger.debug("Lost file system events, rescanning {}", this.rootDir);
+                    rescan(this.rootDir, localEA);
+                }
+            } catch (final ClosedWatchServiceException e) {
+                return;
+            } catch (final Exception e) {
+                logger.warn("Unable to process file system events for " + this.rootDir, e);
+            }
+        }
+    }
+
+    /**
+     * Process the pending events of a directory.
+     * @return <code>false</code> if events have been lost.
+     */
+    private boolean processEvents(final WatchKey key, final EventAdmin localEA) throws IOException {
+        final Path dir = this.keys.get(key);
+        final Map<Path, Long> snapshot = dir == null ? null : this.snapshots.get(dir);
+        boolean complete = true;
+        boolean dirChanged = false;
+        // like the file monitor, a created file is only added
+        final Set<Path> created = new HashSet<Path>();
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                complete = false;
+                continue;
+            }
+            if (snapshot == null) {
+                continue;
+            }
+            final Path child = dir.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE) {
+                if (!dirChanged) {
+                    sendEvent(dir, true, SlingConstants.TOPIC_RESOURCE_CHANGED, localEA);
+                    dirChanged = true;
+                }
+                final boolean isDir = Files.isDirectory(child);
+                if (isDir) {
+                    registerAll(child);
+                }
+                snapshot.put(child, isDir ? DIRECTORY : getLastModified(child));
+                created.add(child);
+                sendEvent(child, isDir, SlingConstants.TOPIC_RESOURCE_ADDED, localEA);
+            } else if (event.kind() == ENTRY_DELETE) {
+                if (!dirChanged) {
+                    sendEvent(dir, true, SlingConstants.TOPIC_RESOURCE_CHANGED, localEA);
+                    dirChanged = true;
+                }
+                snapshot.remove(child);
+                final boolean isDir = unregisterAll(child);
+                created.remove(child);
+                sendEvent(child, isDir, SlingConstants.TOPIC_RESOURCE_REMOVED, localEA);
+            } else if (event.kind() == ENTRY_MODIFY) {
+                // changes of the entries of a directory are reported by
+                // the directory itself, so only file changes are sent
+                if (!this.snapshots.containsKey(child) && Files.exists(child)) {
+                    snapshot.put(child, getLastModified(child));
+                    if (!created.contains(child)) {
+                        sendEvent(child, false, SlingConstants.TOPIC_RESOURCE_CHANGED, localEA);
+                    }
+                }
+            }
+        }
+        // an invalid key of a deleted directory is kept until the delete
+        // event of the parent unregisters it, so it is still removed as a folder
+        key.reset();
+        return complete;
+    }
+
+    /**
+     * Compare a registered directory and its sub directories with their
+     * snapshots after events have been lost and send the missing events:
+     * entries which are not in the snapshot are added, entries which do not
+     * exist anymore are removed and files with a different modification
+     * time are changed. Like a created directory, a new directory is added
+     * without events for its entries.
+     */
+    private void rescan(final Path dir, final EventAdmin localEA) throws IOException {
+        final Map<Path, Long> snapshot = this.snapshots.get(dir);
+        final Map<Path, Long> current = readEntries(dir);
+        if (snapshot == null || current == null) {
+            return;
+        }
+        final Set<Path> removed = new HashSet<Path>(snapshot.keySet());
+        removed.removeAll(current.keySet());
+        boolean dirChanged = false;
+        for (final Path child : removed) {
+            if (!dirChanged) {
+                sendEvent(dir, true, SlingConstants.TOPIC_RESOURCE_CHANGED, localEA);
+                dirChanged = true;
+            }
+            snapshot.remove(child);
+            sendEvent(child, unregisterAll(child), SlingConstants.TOPIC_RESOURCE_REMOVED, localEA);
+        }
+        for (final Map.Entry<Path, Long> entry : current.entrySet()) {
+            final Path child = entry.getKey();
+            final Long previous = snapshot.get(child);
+            final boolean isDir = DIRECTORY.equals(entry.getValue());
+            if (previous != null && DIRECTORY.equals(previous) != isDir) {
+                // replaced by a file or directory
+                if (!dirChanged) {
+                    sendEvent(dir, true, SlingConstants.TOPIC_RESOURCE_CHANGED, localEA);
+                    dirChanged = true;
+                }
+                snapshot.remove(child);
+                sendEvent(child, unregisterAll(child), SlingConstants.TOPIC_RESOURCE_REMOVED, localEA);
+            }
+            if (!snapshot.containsKey(child)) {
+                if (!dirChanged) {
+                    sendEvent(dir, true, SlingConstants.TOPIC_RESOURCE_CHANGED, localEA);
+                    dirChanged = true;
+                }
+                if (isDir) {
+                    registerAll(child);
+                }
+                snapshot.put(child, entry.getValue());
+                sendEvent(child, isDir, SlingConstants.TOPIC_RESOURCE_ADDED, localEA);
+            } else if (isDir) {
+                rescan(child, localEA);
+            } else if (!previous.equals(entry.getValue())) {
+                snapshot.put(child, entry.getValue());
+                sendEvent(child, false, SlingConstants.TOPIC_RESOURCE_CHANGED, localEA);
+            }
+        }
+    }
+
+    /**
+     * Register a directory and all its sub directories.
+     */
+    private void registerAll(final Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+                register(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(final Path file, final IOException exc) {
+                // removed while registering
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Register a directory and take the snapshot of its entries afterwards,
+     * so no entry is missed.
+     */
+    private void register(final Path dir) throws IOException {
+        final WatchKey key = dir.register(this.watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        this.keys.put(key, dir);
+        final Map<Path, Long> entries = readEntries(dir);
+        this.snapshots.put(dir, entries == null ? new HashMap<Path, Long>() : entries);
+    }
+
+    /**
+     * Read the entries of a directory with the modification time of files
+     * or {@link #DIRECTORY}.
+     * @return The entries or <code>null</code> if the directory does not exist anymore.
+     */
+    private static Map<Path, Long> readEntries(final Path dir) {
+        final File[] files = dir.toFile().listFiles();
+        if (files == null) {
+            return null;
+        }
+        final Map<Path, Long> entries = new HashMap<Path, Long>();
+        for (final File file : files) {
+            entries.put(file.toPath(), file.isDirectory() ? DIRECTORY : file.lastModified());
+        }
+        return entries;
+    }
+
+    private static Long getLastModified(final Path file) {
+        return file.toFile().lastModified();
+    }
+
+    /**
+     * Unregister a directory and all its sub directories.
+     * @return <code>true</code> if the path was a registered directory
+     */
+    private boolean unregisterAll(final Path path) {
+        if (!this.snapshots.containsKey(path)) {
+            return false;
+        }
+        final Iterator<Map.Entry<WatchKey, Path>> i = this.keys.entrySet().iterator();
+        while (i.hasNext()) {
+            final Map.Entry<WatchKey, Path> entry = i.next();
+            if (entry.getValue().startsWith(path)) {
+                entry.getKey().cancel();
+                this.snapshots.remove(entry.getValue());
+                i.remove();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Send the event async via the event admin.
+     */
+    private void sendEvent(final Path file, final boolean isDir, final String topic, final EventAdmin localEA) {
+        if (localEA == null) {
+            return;
+        }
+        final String path = getResourcePath(file);
+        if ( logger.isDebugEnabled() ) {
+            logger.debug("Detected change for resource {} : {}", path, topic);
+        }
+
+        final Dictionary<String, String> properties = new Hashtable<String, String>();
+        properties.put(SlingConstants.PROPERTY_PATH, path);
+        final String type = isDir ?
+                FsResource.RESOURCE_TYPE_FOLDER : FsResource.RESOURCE_TYPE_FILE;
+        properties.put(SlingConstants.PROPERTY_RESOURCE_TYPE, type);
+        localEA.postEvent(new org.osgi.service.event.Event(topic, properties));
+    }
+
+    private String getResourcePath(final Path file) {
+        final String relPath = this.rootDir.relativize(file).toString();
+        if (relPath.length() == 0) {
+            return this.rootPath;
+        }
+        return this.rootPath + '/' + relPath.replace(File.separatorChar, '/');
+    }
+}
@@ -0,0 +1,411 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.fsprovider.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sling.api.SlingConstants;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+
+public class WatchServiceMonitorTest {
+
+    private static final String ROOT = "/fs";
+
+    /** Maximum time to wait for expected events. */
+    private static final long TIMEOUT = 10000;
+
+    /** Time to wait for unexpected events, longer than the interval of the file monitor. */
+    private static final long SETTLE_TIME = 500;
+
+    private File rootDir;
+
+    private WatchServiceMonitor watcher;
+
+    private FileMonitor monitor;
+
+    @Before
+    public void setup() throws IOException {
+        this.rootDir = Files.createTempDirectory("fsresource").toFile();
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        if (this.watcher != null) {
+            this.watcher.stop();
+        }
+        if (this.monitor != null) {
+            this.monitor.stop();
+        }
+        Files.walkFileTree(this.rootDir.toPath(), new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void testFileEvents() throws Exception {
+        final EventCollector events = new EventCollector();
+        this.watcher = new WatchServiceMonitor(new TestProvider(this.rootDir, events));
+
+        final File file = new File(this.rootDir, "file.txt");
+        assertTrue(file.createNewFile());
+        events.assertTyped("CHANGED /fs nt:folder", "ADDED /fs/file.txt nt:file");
+
+        write(file, "changed");
+        events.assertTyped("CHANGED /fs/file.txt nt:file");
+
+        assertTrue(file.delete());
+        events.assertTyped("CHANGED /fs nt:folder", "REMOVED /fs/file.txt nt:file");
+    }
+
+    @Test
+    public void testFolderEvents() throws Exception {
+        final EventCollector events = new EventCollector();
+        this.watcher = new WatchServiceMonitor(new TestProvider(this.rootDir, events));
+
+        final File folder = new File(this.rootDir, "folder");
+        assertTrue(folder.mkdir());
+        events.assertTyped("CHANGED /fs nt:folder", "ADDED /fs/folder nt:folder");
+
+        final File file = new File(folder, "file.txt");
+        assertTrue(file.createNewFile());
+        events.assertTyped("CHANGED /fs/folder nt:folder", "ADDED /fs/folder/file.txt nt:file");
+
+        assertTrue(file.delete());
+        events.assertTyped("CHANGED /fs/folder nt:folder", "REMOVED /fs/folder/file.txt nt:file");
+
+        assertTrue(folder.delete());
+        events.assertTyped("CHANGED /fs nt:folder", "REMOVED /fs/folder nt:folder");
+    }
+
+    @Test
+    public void testNewFoldersAreRegisteredRecursively() throws Exception {
+        final EventCollector events = new EventCollector();
+        this.watcher = new WatchServiceMonitor(new TestProvider(this.rootDir, events));
+
+        // the sub folders might be created before the new folder is registered
+        final File deepFolder = new File(this.rootDir, "a/b/c");
+        assertTrue(deepFolder.mkdirs());
+        events.waitFor("ADDED /fs/a nt:folder");
+        Thread.sleep(SETTLE_TIME);
+        events.clear();
+
+        assertTrue(new File(deepFolder, "file.txt").createNewFile());
+        events.assertTyped("CHANGED /fs/a/b/c nt:folder", "ADDED /fs/a/b/c/file.txt nt:file");
+    }
+
+    @Test
+    public void testFolderRename() throws Exception {
+        final File folder = new File(this.rootDir, "folder");
+        assertTrue(folder.mkdir());
+        assertTrue(new File(folder, "file.txt").createNewFile());
+
+        final EventCollector events = new EventCollector();
+        this.watcher = new WatchServiceMonitor(new TestProvider(this.rootDir, events));
+
+        final File renamed = new File(this.rootDir, "renamed");
+        assertTrue(folder.renameTo(renamed));
+        events.assertTyped("CHANGED /fs nt:folder", "REMOVED /fs/folder nt:folder", "ADDED /fs/renamed nt:folder");
+
+        // the moved folder is watched under its new name
+        write(new File(renamed, "file.txt"), "changed");
+        events.assertTyped("CHANGED /fs/renamed/file.txt nt:file");
+        assertTrue(new File(renamed, "new.txt").createNewFile());
+        events.assertTyped("CHANGED /fs/renamed nt:folder", "ADDED /fs/renamed/new.txt nt:file");
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        final EventCollector events = new EventCollector();
+        this.watcher = new WatchServiceMonitor(new TestProvider(this.rootDir, events));
+        this.watcher.stop();
+        this.watcher = null;
+
+        assertTrue(new File(this.rootDir, "file.txt").createNewFile());
+        Thread.sleep(SETTLE_TIME);
+        assertEquals(new HashSet<String>(), events.getTyped());
+    }
+
+    @Test
+    public void testEventParity() throws Exception {
+        final File folder = new File(this.rootDir, "folder");
+        assertTrue(folder.mkdir());
+        assertTrue(new File(folder, "file.txt").createNewFile());
+
+        final EventCollector watcherEvents = new EventCollector();
+        final EventCollector monitorEvents = new EventCollector();
+        this.watcher = new WatchServiceMonitor(new TestProvider(this.rootDir, watcherEvents));
+        this.monitor = new FileMonitor(new TestProvider(this.rootDir, monitorEvents), 100);
+        // wait for a file system timestamp newer than the initial status of the file monitor
+        Thread.sleep(SETTLE_TIME);
+
+        final File file = new File(this.rootDir, "file.txt");
+        assertTrue(file.createNewFile());
+        assertParity(watcherEvents, monitorEvents, "CHANGED /fs", "ADDED /fs/file.txt");
+
+        write(file, "changed");
+        assertParity(watcherEvents, monitorEvents, "CHANGED /fs/file.txt");
+
+        final File renamed = new File(this.rootDir, "renamed");
+        assertTrue(folder.renameTo(renamed));
+        assertParity(watcherEvents, monitorEvents, "CHANGED /fs", "REMOVED /fs/folder", "ADDED /fs/renamed");
+
+        final File subFolder = new File(renamed, "sub");
+        assertTrue(subFolder.mkdir());
+        assertParity(watcherEvents, monitorEvents, "CHANGED /fs/renamed", "ADDED /fs/renamed/sub");
+
+        assertTrue(subFolder.delete());
+        assertParity(watcherEvents, monitorEvents, "CHANGED /fs/renamed", "REMOVED /fs/renamed/sub");
+
+        assertTrue(file.delete());
+        assertParity(watcherEvents, monitorEvents, "CHANGED /fs", "REMOVED /fs/file.txt");
+    }
+
+    @Test
+    public void testRescanAfterOverflow() throws Exception {
+        final BlockingEventCollector events = new BlockingEventCollector();
+        this.watcher = new WatchServiceMonitor(new TestProvider(this.rootDir, events));
+
+        // block the watcher while it processes the first event
+        assertTrue(new File(this.rootDir, "trigger.txt").createNewFile());
+        assertTrue(events.blocked.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+        // more events than a watch key can hold, the last ones are lost
+        final List<String> expected = new ArrayList<String>();
+        expected.add("CHANGED /fs nt:folder");
+        expected.add("ADDED /fs/trigger.txt nt:file");
+        for (int i = 0; i < 600; i++) {
+            assertTrue(new File(this.rootDir, "file" + i + ".txt").createNewFile());
+            expected.add("ADDED /fs/file" + i + ".txt nt:file");
+        }
+        final File late = new File(this.rootDir, "late");
+        assertTrue(late.mkdir());
+        expected.add("ADDED /fs/late nt:folder");
+        events.release.countDown();
+
+        // the rescan adds the missing files and adds and registers the new folder
+        events.assertTyped(expected.toArray(new String[expected.size()]));
+        assertTrue(new File(late, "file.txt").createNewFile());
+        events.assertTyped("CHANGED /fs/late nt:folder", "ADDED /fs/late/file.txt nt:file");
+    }
+
+    @Test
+    public void testRescanRemovedAndChangedFilesAfterOverflow() throws Exception {
+        for (int i = 0; i < 600; i++) {
+            assertTrue(new File(this.rootDir, "file" + i + ".txt").createNewFile());
+        }
+        final File kept = new File(this.rootDir, "kept.txt");
+        assertTrue(kept.createNewFile());
+        final BlockingEventCollector events = new BlockingEventCollector();
+        this.watcher = new WatchServiceMonitor(new TestProvider(this.rootDir, events));
+
+        assertTrue(new File(this.rootDir, "trigger.txt").createNewFile());
+        assertTrue(events.blocked.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+        final List<String> expected = new ArrayList<String>();
+        expected.add("CHANGED /fs nt:folder");
+        expected.add("ADDED /fs/trigger.txt nt:file");
+        for (int i = 0; i < 600; i++) {
+            assertTrue(new File(this.rootDir, "file" + i + ".txt").delete());
+            expected.add("REMOVED /fs/file" + i + ".txt nt:file");
+        }
+        // files copied with their modification time preserved
+        final File copied = new File(this.rootDir, "copied.txt");
+        assertTrue(copied.createNewFile());
+        assertTrue(copied.setLastModified(1000));
+        expected.add("ADDED /fs/copied.txt nt:file");
+        assertTrue(kept.setLastModified(1000));
+        expected.add("CHANGED /fs/kept.txt nt:file");
+        events.release.countDown();
+
+        events.assertTyped(expected.toArray(new String[expected.size()]));
+    }
+
+    private static void assertParity(final EventCollector watcherEvents,
+            final EventCollector monitorEvents,
+            final String... expected) throws InterruptedException {
+        watcherEvents.waitForUntyped(expected);
+        monitorEvents.waitForUntyped(expected);
+        Thread.sleep(SETTLE_TIME);
+        final Set<String> expectedSet = new HashSet<String>(Arrays.asList(expected));
+        assertEquals("Watch service events", expectedSet, watcherEvents.getUntyped());
+        assertEquals("File monitor events", expectedSet, monitorEvents.getUntyped());
+        watcherEvents.clear();
+        monitorEvents.clear();
+    }
+
+    private static void write(final File file, final String content) throws IOException {
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    /** Provider for a root directory, mounted at {@link #ROOT}. */
+    private static final class TestProvider extends FsResourceProvider {
+
+        private final File rootFile;
+
+        private final EventAdmin eventAdmin;
+
+        TestProvider(final File rootFile, final EventAdmin eventAdmin) {
+            this.rootFile = rootFile;
+            this.eventAdmin = eventAdmin;
+        }
+
+        @Override
+        EventAdmin getEventAdmin() {
+            return this.eventAdmin;
+        }
+
+        @Override
+        File getRootFile() {
+            return this.rootFile;
+        }
+
+        @Override
+        String getProviderRoot() {
+            return ROOT;
+        }
+    }
+
+    /**
+     * Event admin collecting the posted events as the last segment of the
+     * topic, the path and the resource type.
+     */
+    private static class EventCollector implements EventAdmin {
+
+        private final Set<String> typed = new HashSet<String>();
+
+        public synchronized void postEvent(final Event event) {
+            final String topic = event.getTopic();
+            this.typed.add(topic.substring(topic.lastIndexOf('/') + 1)
+                + ' ' + event.getProperty(SlingConstants.PROPERTY_PATH)
+                + ' ' + event.getProperty(SlingConstants.PROPERTY_RESOURCE_TYPE));
+            this.notifyAll();
+        }
+
+        public void sendEvent(final Event event) {
+            this.postEvent(event);
+        }
+
+        synchronized Set<String> getTyped() {
+            return new HashSet<String>(this.typed);
+        }
+
+        /** The events without the resource type. */
+        synchronized Set<String> getUntyped() {
+            final Set<String> result = new HashSet<String>();
+            for (final String event : this.typed) {
+                result.add(event.substring(0, event.lastIndexOf(' ')));
+            }
+            return result;
+        }
+
+        synchronized void clear() {
+            this.typed.clear();
+        }
+
+        synchronized void waitFor(final String... expected) throws InterruptedException {
+            final long end = System.currentTimeMillis() + TIMEOUT;
+            while (!this.typed.containsAll(Arrays.asList(expected))) {
+                final long wait = end - System.currentTimeMillis();
+                if (wait <= 0) {
+                    fail("Expected events " + Arrays.toString(expected) + " but got " + this.typed);
+                }
+                this.wait(wait);
+            }
+        }
+
+        synchronized void waitForUntyped(final String... expected) throws InterruptedException {
+            final long end = System.currentTimeMillis() + TIMEOUT;
+            while (!this.getUntyped().containsAll(Arrays.asList(expected))) {
+                final long wait = end - System.currentTimeMillis();
+                if (wait <= 0) {
+                    fail("Expected events " + Arrays.toString(expected) + " but got " + this.typed);
+                }
+                this.wait(wait);
+            }
+        }
+
+        /**
+         * Wait for the expected events, check that no other events are
+         * sent and clear the events.
+         */
+        void assertTyped(final String... expected) throws InterruptedException {
+            this.waitFor(expected);
+            Thread.sleep(SETTLE_TIME);
+            assertEquals(new HashSet<String>(Arrays.asList(expected)), this.getTyped());
+            this.clear();
+        }
+    }
+
+    /** Event collector blocking the first event until it is released. */
+    private static final class BlockingEventCollector extends EventCollector {
+
+        final CountDownLatch blocked = new CountDownLatch(1);
+
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void postEvent(final Event event) {
+            this.blocked.countDown();
+            try {
+                this.release.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.postEvent(event);
+        }
+    }
+}
@@ -60,4 +60,14 @@ public @interface Model {
      */
     public ValidationStrategy validation() default ValidationStrategy.DISABLED;
 
+    /**
+     * @return true if the model instance should be cached and reused for further adaptations of the same adaptable
+     *  to the same model class. For requests the instance is cached for the lifetime of the request, separately
+     *  for each request object, resource and request path info of includes and forwards. For resources and resource
+     *  resolvers the instance is cached until the resource resolver is closed, in a cache of limited size.
+     *  Models of other adaptables are not cached.
+     *  The model must not depend on state changing after its creation, e.g. request attributes set later on.
+     */
+    public boolean cache() default false;
+
 }
@@ -35,14 +35,16 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
-import javax.annotation.PostConstruct;
+import javax.servlet.ServletRequest;
 
 import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.felix.scr.annotations.Activate;
@@ -57,7 +59,9 @@ import org.apache.felix.scr.annotations.Service;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.adapter.Adaptable;
 import org.apache.sling.api.adapter.AdapterFactory;
+import org.apache.sling.api.request.RequestPathInfo;
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.commons.osgi.PropertiesUtil;
 import org.apache.sling.commons.osgi.ServiceUtil;
 import org.apache.sling.models.annotations.Model;
@@ -131,21 +135,133 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
             registry.onDisposed();
             ref = queue.poll();
         }
+        // release the cached models of closed resource resolvers, their disposal callbacks
+        // are called once the models are no longer referenced
+        synchronized (adapterCache) {
+            for (Iterator<CachedModel> it = adapterCache.values().iterator(); it.hasNext();) {
+                if (!it.next().resolver.isLive()) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Key of a cached model, the adaptable is compared by identity.
+     */
+    private static final class AdaptableCacheKey {
+
+        private final Object adaptable;
+
+        private final Class<?> type;
+
+        private final int hashCode;
+
+        private AdaptableCacheKey(Object adaptable, Class<?> type) {
+            this.adaptable = adaptable;
+            this.type = type;
+            this.hashCode = 31 * System.identityHashCode(adaptable) + type.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof AdaptableCacheKey)) {
+                return false;
+            }
+            AdaptableCacheKey other = (AdaptableCacheKey) obj;
+            return type == other.type && adaptable == other.adaptable;
+        }
+    }
+
+    /**
+     * A cached model and the resource resolver limiting its lifetime.
+     */
+    private static final class CachedModel {
+
+        private final ResourceResolver resolver;
+
+        private final Object model;
+
+        private CachedModel(ResourceResolver resolver, Object model) {
+            this.resolver = resolver;
+            this.model = model;
+        }
+    }
+
+    /**
+     * Key of the models cached in a request: the request object, compared by identity, and the resource and
+     * request path info, which change for includes and forwards.
+     */
+    private static final class RequestCacheKey {
+
+        private final ServletRequest request;
+
+        private final String pathInfo;
+
+        private RequestCacheKey(ServletRequest request) {
+            this.request = request;
+            if (request instanceof SlingHttpServletRequest) {
+                SlingHttpServletRequest slingRequest = (SlingHttpServletRequest) request;
+                StringBuilder sb = new StringBuilder();
+                Resource resource = slingRequest.getResource();
+                if (resource != null) {
+                    sb.append(resource.getPath());
+                }
+                RequestPathInfo requestPathInfo = slingRequest.getRequestPathInfo();
+                if (requestPathInfo != null) {
+                    sb.append('|').append(requestPathInfo.getSelectorString());
+                    sb.append('|').append(requestPathInfo.getExtension());
+                    sb.append('|').append(requestPathInfo.getSuffix());
+                }
+                this.pathInfo = sb.toString();
+            } else {
+                this.pathInfo = "";
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(request) + pathInfo.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof RequestCacheKey)) {
+                return false;
+            }
+            RequestCacheKey other = (RequestCacheKey) obj;
+            return request == other.request && pathInfo.equals(other.pathInfo);
+        }
     }
 
     private static final Logger log = LoggerFactory.getLogger(ModelAdapterFactory.class);
 
     private static final int DEFAULT_MAX_RECURSION_DEPTH = 20;
 
+    private static final String REQUEST_CACHE_ATTRIBUTE = ModelAdapterFactory.class.getName() + ".AdapterCache";
+
     @Property(label = "Maximum Recursion Depth", description = "Maximum depth adaptation will be attempted.", intValue = DEFAULT_MAX_RECURSION_DEPTH)
     private static final String PROP_MAX_RECURSION_DEPTH = "max.recursion.depth";
 
+    private static final int DEFAULT_MAX_CACHE_ENTRIES = 1000;
+
+    @Property(label = "Maximum Cached Models", description = "Maximum number of cached models with cache=true adapted from resources and resource resolvers.", intValue = DEFAULT_MAX_CACHE_ENTRIES)
+    private static final String PROP_MAX_CACHE_ENTRIES = "max.cache.entries";
+
     @Reference(name = "injector", referenceInterface = Injector.class,
             cardinality = ReferenceCardinality.OPTIONAL_MULTIPLE, policy = ReferencePolicy.DYNAMIC)
     private final Map<Object, Injector> injectors = new TreeMap<Object, Injector>();
 
     private volatile Injector[] sortedInjectors = new Injector[0];
 
+    // sorted injectors by injector name for elements with a @Source annotation, filled on demand
+    private volatile ConcurrentMap<String, Injector[]> sortedInjectorsBySource = new ConcurrentHashMap<String, Injector[]>();
+
     @Reference(name = "injectAnnotationProcessorFactory", referenceInterface = InjectAnnotationProcessorFactory.class,
             cardinality = ReferenceCardinality.OPTIONAL_MULTIPLE, policy = ReferencePolicy.DYNAMIC)
     private final Map<Object, InjectAnnotationProcessorFactory> injectAnnotationProcessorFactories = new TreeMap<Object, InjectAnnotationProcessorFactory>();
@@ -177,6 +293,15 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
 
     private ServiceRegistration configPrinterRegistration;
 
+    // cached model instances of models with cache=true for resources and resource resolvers, least recently used first.
+    // the models are kept until their resource resolver is closed, entries of closed resource resolvers are purged
+    // by the disposal job.
+    private Map<AdaptableCacheKey, CachedModel> adapterCache;
+
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    private final AtomicLong cacheMisses = new AtomicLong();
+
     // Use threadlocal to count recursive invocations and break recursing if a max. limit is reached (to avoid cyclic dependencies)
     private ThreadLocal<ThreadInvocationCounter> invocationCountThreadLocal;
 
@@ -270,6 +395,7 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
             boolean isAdaptable = false;
 
             Model modelAnnotation = modelClass.getModelAnnotation();
+
             Class<?>[] declaredAdaptable = modelAnnotation.adaptables();
             for (Class<?> clazz : declaredAdaptable) {
                 if (clazz.isInstance(adaptable)) {
@@ -282,6 +408,15 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
                 if (!validateModel(modelAnnotation, adaptable, result)) {
                     return result;
                 }
+                if (modelAnnotation.cache()) {
+                    ModelType model = (ModelType) getCachedModel(adaptable, requestedType);
+                    if (model != null) {
+                        cacheHits.incrementAndGet();
+                        result.setModel(model);
+                        return result;
+                    }
+                    cacheMisses.incrementAndGet();
+                }
                 if (modelClass.getType().isInterface()) {
                     InvocationHandler handler = createInvocationHandler(adaptable, modelClass, result);
                     if (handler != null) {
@@ -292,11 +427,13 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
                     try {
                         ModelType model = createObject(adaptable, modelClass, result);
                         result.setModel(model);
-                        return result;
                     } catch (Exception e) {
                         result.addFailure(FailureType.OTHER, "Unable to create object", e);
                     }
                 }
+                if (modelAnnotation.cache() && result.getModel() != null) {
+                    putCachedModel(adaptable, requestedType, result.getModel());
+                }
             }
             return result;
         } finally {
@@ -304,6 +441,71 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
         }
     }
     
+    /**
+     * Returns the model instances cached in a request by model type. Includes and forwards reuse or wrap the
+     * request with a different resource or request path info, so the models are cached per request object,
+     * resource and request path info.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Class<?>, Object> getRequestCache(ServletRequest request) {
+        Map<RequestCacheKey, Map<Class<?>, Object>> requestCache = (Map<RequestCacheKey, Map<Class<?>, Object>>) request.getAttribute(REQUEST_CACHE_ATTRIBUTE);
+        if (requestCache == null) {
+            requestCache = new ConcurrentHashMap<RequestCacheKey, Map<Class<?>, Object>>();
+            request.setAttribute(REQUEST_CACHE_ATTRIBUTE, requestCache);
+        }
+        RequestCacheKey key = new RequestCacheKey(request);
+        Map<Class<?>, Object> cache = requestCache.get(key);
+        if (cache == null) {
+            cache = new ConcurrentHashMap<Class<?>, Object>();
+            requestCache.put(key, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the resource resolver limiting the lifetime of cached models of the adaptable, or null if models
+     * of the adaptable are not cached.
+     */
+    private static ResourceResolver getCacheResolver(Object adaptable) {
+        if (adaptable instanceof ResourceResolver) {
+            return (ResourceResolver) adaptable;
+        } else if (adaptable instanceof Resource) {
+            return ((Resource) adaptable).getResourceResolver();
+        }
+        return null;
+    }
+
+    private Object getCachedModel(Object adaptable, Class<?> requestedType) {
+        if (adaptable instanceof ServletRequest) {
+            return getRequestCache((ServletRequest) adaptable).get(requestedType);
+        }
+        AdaptableCacheKey key = new AdaptableCacheKey(adaptable, requestedType);
+        synchronized (adapterCache) {
+            CachedModel cached = adapterCache.get(key);
+            if (cached == null) {
+                return null;
+            }
+            if (!cached.resolver.isLive()) {
+                adapterCache.remove(key);
+                return null;
+            }
+            return cached.model;
+        }
+    }
+
+    private void putCachedModel(Object adaptable, Class<?> requestedType, Object model) {
+        if (adaptable instanceof ServletRequest) {
+            getRequestCache((ServletRequest) adaptable).put(requestedType, model);
+        } else {
+            ResourceResolver resolver = getCacheResolver(adaptable);
+            if (resolver != null && resolver.isLive()) {
+                synchronized (adapterCache) {
+                    adapterCache.put(new AdaptableCacheKey(adaptable, requestedType), new CachedModel(resolver, model));
+                }
+            }
+        }
+    }
+
     private <ModelType> boolean validateModel(Model modelAnnotation, Object adaptable, Result<ModelType> result) {
         if (modelAnnotation.validation() != ValidationStrategy.DISABLED) {
             if (modelValidation == null) {
@@ -410,14 +612,12 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
 
         if (injectionAdaptable != null) {
             // find the right injector
-            for (Injector injector : sortedInjectors) {
-                if (source == null || source.equals(injector.getName())) {
-                    if (name != null || injector instanceof AcceptsNullName) {
-                        Object value = injector.getValue(injectionAdaptable, name, element.getType(), element.getAnnotatedElement(), registry);
-                        if (callback.inject(element, value, result)) {
-                            wasInjectionSuccessful = true;
-                            break;
-                        }
+            for (Injector injector : getInjectors(source)) {
+                if (name != null || injector instanceof AcceptsNullName) {
+                    Object value = injector.getValue(injectionAdaptable, name, element.getType(), element.getAnnotatedElement(), registry);
+                    if (callback.inject(element, value, result)) {
+                        wasInjectionSuccessful = true;
+                        break;
                     }
                 }
             }
@@ -480,7 +680,7 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
         }
 
         final ModelType object;
-        if (constructorToUse.getConstructor().getParameterTypes().length == 0) {
+        if (constructorToUse.getParameterCount() == 0) {
             // no parameters for constructor injection? instantiate it right away
             object = constructorToUse.getConstructor().newInstance();
         } else {
@@ -523,7 +723,7 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
             return null;
         }
         try {
-            invokePostConstruct(object);
+            invokePostConstruct(object, modelClass);
             return object;
         } catch (InvocationTargetException e) {
             result.addFailure(FailureType.FAILED_CALLING_POST_CONSTRUCT, e.getCause());
@@ -552,15 +752,14 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
             }
             // compatibility mode for sling models implementation <= 1.0.6:
             // support constructor without @Inject if it has exactly one parameter matching the adaptable class
-            final Class<?>[] paramTypes = constructor.getConstructor().getParameterTypes();
-            if (paramTypes.length == 1) {
-                Class<?> paramType = constructor.getConstructor().getParameterTypes()[0];
+            if (constructor.getParameterCount() == 1) {
+                Class<?> paramType = constructor.getParameterType(0);
                 if (paramType.isInstance(adaptable)) {
                     return constructor;
                 }
             }
             // if no constructor for injection found use public constructor without any params
-            if (constructor.getConstructor().getParameterTypes().length == 0) {
+            if (constructor.getParameterCount() == 0) {
                 return constructor;
             }
         }
@@ -671,68 +870,25 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
         return element.getName();
     }
 
-    private boolean addMethodIfNotOverriden(List<Method> methods, Method newMethod) {
-        for (Method method : methods) {
-            if (method.getName().equals(newMethod.getName())) {
-                if (Arrays.equals(method.getParameterTypes(),newMethod.getParameterTypes())) {
-                    return false;
-                }
-            }
-        }
-        methods.add(newMethod);
-        return true;
-    }
-
-    private void invokePostConstruct(Object object) throws InvocationTargetException, IllegalAccessException {
-        Class<?> clazz = object.getClass();
-        List<Method> postConstructMethods = new ArrayList<Method>();
-        while (clazz != null) {
-            Method[] methods = clazz.getDeclaredMethods();
-            for (Method method : methods) {
-                if (method.isAnnotationPresent(PostConstruct.class)) {
-                    addMethodIfNotOverriden(postConstructMethods, method);
-                }
-            }
-            clazz = clazz.getSuperclass();
-        }
-        Collections.reverse(postConstructMethods);
-        for (Method method : postConstructMethods) {
-            boolean accessible = method.isAccessible();
-            try {
-                if (!accessible) {
-                    method.setAccessible(true);
-                }
-                method.invoke(object);
-            } finally {
-                if (!accessible) {
-                    method.setAccessible(false);
-                }
-            }
+    private void invokePostConstruct(Object object, ModelClass<?> modelClass) throws InvocationTargetException, IllegalAccessException {
+        for (Method method : modelClass.getPostConstructMethods()) {
+            method.invoke(object);
         }
     }
 
     private boolean setField(InjectableField injectableField, Object createdObject, Object value, Result<?> result) {
         if (value != null) {
-            Field field = injectableField.getField();
-            value = adaptIfNecessary(value, field.getType(), field.getGenericType(), result);
+            value = adaptIfNecessary(value, injectableField.getFieldType(), injectableField.getGenericType(), result);
             // value may now be null due to the adaptation done above
             if (value == null) {
                 return false;
             }
-            boolean accessible = field.isAccessible();
             try {
-                if (!accessible) {
-                    field.setAccessible(true);
-                }
-                field.set(createdObject, value);
+                injectableField.set(createdObject, value);
                 return true;
             } catch (Exception e) {
                 log.error("unable to inject field", e);
                 return false;
-            } finally {
-                if (!accessible) {
-                    field.setAccessible(false);
-                }
             }
         } else {
             return false;
@@ -742,7 +898,7 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
     private boolean setMethod(InjectableMethod injectableMethod, Map<Method, Object> methods, Object value, Result<?> result) {
         if (value != null) {
             Method method = injectableMethod.getMethod();
-            value = adaptIfNecessary(value, method.getReturnType(), method.getGenericReturnType(), result);
+            value = adaptIfNecessary(value, injectableMethod.getReturnType(), injectableMethod.getGenericReturnType(), result);
             // value may now be null due to the adaptation done above
             if (value == null) {
                 return false;
@@ -863,6 +1019,15 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
 
         BundleContext bundleContext = ctx.getBundleContext();
         this.queue = new ReferenceQueue<Object>();
+        final int maxCacheEntries = PropertiesUtil.toInteger(props.get(PROP_MAX_CACHE_ENTRIES), DEFAULT_MAX_CACHE_ENTRIES);
+        this.adapterCache = new LinkedHashMap<AdaptableCacheKey, CachedModel>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<AdaptableCacheKey, CachedModel> eldest) {
+                return size() > maxCacheEntries;
+            }
+        };
         this.disposalCallbacks = new ConcurrentHashMap<java.lang.ref.Reference<Object>, DisposalCallbackRegistryImpl>();
         Hashtable<Object, Object> properties = new Hashtable<Object, Object>();
         properties.put(Constants.SERVICE_VENDOR, "Apache Software Foundation");
@@ -889,6 +1054,9 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
     protected void deactivate() {
         this.listener.unregisterAll();
         this.adapterImplementations.removeAll();
+        synchronized (this.adapterCache) {
+            this.adapterCache.clear();
+        }
         if (jobRegistration != null) {
             jobRegistration.unregister();
             jobRegistration = null;
@@ -902,17 +1070,49 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
     protected void bindInjector(final Injector injector, final Map<String, Object> props) {
         synchronized (injectors) {
             injectors.put(ServiceUtil.getComparableForServiceRanking(props), injector);
-            sortedInjectors = injectors.values().toArray(new Injector[injectors.size()]);
+            updateSortedInjectors();
         }
     }
 
     protected void unbindInjector(final Injector injector, final Map<String, Object> props) {
         synchronized (injectors) {
             injectors.remove(ServiceUtil.getComparableForServiceRanking(props));
-            sortedInjectors = injectors.values().toArray(new Injector[injectors.size()]);
+            updateSortedInjectors();
         }
     }
 
+    /**
+     * Updates the sorted injector arrays, must be called while holding the lock on injectors.
+     */
+    private void updateSortedInjectors() {
+        sortedInjectors = injectors.values().toArray(new Injector[injectors.size()]);
+        sortedInjectorsBySource = new ConcurrentHashMap<String, Injector[]>();
+    }
+
+    /**
+     * @param source Injector name from the @Source annotation or null
+     * @return the injectors to try in order of their service ranking
+     */
+    private Injector[] getInjectors(String source) {
+        if (source == null) {
+            return sortedInjectors;
+        }
+        // read the map first, it is replaced after the injectors on each change
+        ConcurrentMap<String, Injector[]> bySource = sortedInjectorsBySource;
+        Injector[] injectorsForSource = bySource.get(source);
+        if (injectorsForSource == null) {
+            List<Injector> list = new ArrayList<Injector>();
+            for (Injector injector : sortedInjectors) {
+                if (source.equals(injector.getName())) {
+                    list.add(injector);
+                }
+            }
+            injectorsForSource = list.toArray(new Injector[list.size()]);
+            bySource.put(source, injectorsForSource);
+        }
+        return injectorsForSource;
+    }
+
     protected void bindInjectAnnotationProcessorFactory(final InjectAnnotationProcessorFactory factory, final Map<String, Object> props) {
         synchronized (injectAnnotationProcessorFactories) {
             injectAnnotationProcessorFactories.put(ServiceUtil.getComparableForServiceRanking(props), factory);
@@ -984,6 +1184,14 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
         return staticInjectAnnotationProcessorFactories.values();
     }
 
+    long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
     ImplementationPicker[] getImplementationPickers() {
         return adapterImplementations.getImplementationPickers();
     }
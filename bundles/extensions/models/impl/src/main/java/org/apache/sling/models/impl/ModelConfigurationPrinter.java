@@ -85,6 +85,12 @@ public class ModelConfigurationPrinter {
                 printWriter.println();
             }
         }
+        printWriter.println();
+
+        // cache of models with cache=true
+        printWriter.println("Sling Models Cache:");
+        printWriter.printf("hits: %d, misses: %d", modelAdapterFactory.getCacheHits(), modelAdapterFactory.getCacheMisses());
+        printWriter.println();
     }
 
 }
\ No newline at end of file
@@ -19,6 +19,7 @@
 package org.apache.sling.models.impl;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -97,6 +98,25 @@ public final class ReflectionUtil {
         return null;
     }
 
+    /**
+     * Makes the given field, method or constructor accessible so it may be
+     * used without access checks later on.
+     * 
+     * If a security manager prevents this, the object is left as is and
+     * access is checked on each use.
+     * 
+     * @param object the field, method or constructor
+     */
+    public static void makeAccessible(AccessibleObject object) {
+        if (!object.isAccessible()) {
+            try {
+                object.setAccessible(true);
+            } catch (SecurityException e) {
+                // access is checked on each use
+            }
+        }
+    }
+
     public static Type mapPrimitiveClasses(Type type) {
         if (type instanceof Class<?>) {
             return ClassUtils.primitiveToWrapper((Class<?>) type);
@@ -19,6 +19,7 @@
 package org.apache.sling.models.impl.model;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Type;
 
 import org.apache.sling.models.annotations.DefaultInjectionStrategy;
 import org.apache.sling.models.impl.ReflectionUtil;
@@ -27,16 +28,46 @@ import org.apache.sling.models.spi.injectorspecific.StaticInjectAnnotationProces
 public class InjectableField extends AbstractInjectableElement {
     
     private final Field field;
+    private final Class<?> fieldType;
+    private final Type genericType;
     
     public InjectableField(Field field, StaticInjectAnnotationProcessorFactory[] processorFactories, DefaultInjectionStrategy defaultInjectionStrategy) {
         super(field, ReflectionUtil.mapPrimitiveClasses(field.getGenericType()), field.getName(), processorFactories, defaultInjectionStrategy);
         this.field = field;
+        this.fieldType = field.getType();
+        this.genericType = field.getGenericType();
+        // make the field accessible once instead of on each injection
+        ReflectionUtil.makeAccessible(field);
     }
     
     public Field getField() {
         return field;
     }
 
+    /**
+     * @return Declared type of the field (may be primitive)
+     */
+    public Class<?> getFieldType() {
+        return fieldType;
+    }
+
+    /**
+     * @return Generic type of the field (may be primitive)
+     */
+    public Type getGenericType() {
+        return genericType;
+    }
+
+    /**
+     * Sets the field of the given model instance.
+     * @param object Model instance
+     * @param value Value to set
+     * @throws IllegalAccessException if the field is not accessible
+     */
+    public void set(Object object, Object value) throws IllegalAccessException {
+        field.set(object, value);
+    }
+
     public boolean isPrimitive() {
         return false;
     }
@@ -28,11 +28,13 @@ import org.apache.sling.models.spi.injectorspecific.StaticInjectAnnotationProces
 public class InjectableMethod extends AbstractInjectableElement {
     
     private final Method method;
+    private final Class<?> returnType;
     private final Type genericReturnType;
 
     public InjectableMethod(Method method, StaticInjectAnnotationProcessorFactory[] processorFactories, DefaultInjectionStrategy defaultInjectionStrategy) {
         super(method, ReflectionUtil.mapPrimitiveClasses(method.getGenericReturnType()), getDefaultName(method), processorFactories, defaultInjectionStrategy);
         this.method = method;
+        this.returnType = method.getReturnType();
         this.genericReturnType = method.getGenericReturnType();
     }
 
@@ -40,6 +42,13 @@ public class InjectableMethod extends AbstractInjectableElement {
         return method;
     }
 
+    /**
+     * @return Return type of method (may be primitive)
+     */
+    public Class<?> getReturnType() {
+        return this.returnType;
+    }
+
     /**
      * @return Generic return type of method (may be primitive)
      */
@@ -21,9 +21,13 @@ package org.apache.sling.models.impl.model;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import javax.annotation.PostConstruct;
+
 import org.apache.sling.models.annotations.DefaultInjectionStrategy;
 import org.apache.sling.models.annotations.Model;
 import org.apache.sling.models.impl.ReflectionUtil;
@@ -36,6 +40,7 @@ public class ModelClass<ModelType> {
     private final ModelClassConstructor[] constructors;
     private final InjectableField[] injectableFields;
     private final InjectableMethod[] injectableMethods;
+    private final Method[] postConstructMethods;
 
     public ModelClass(Class<ModelType> type, StaticInjectAnnotationProcessorFactory[] processorFactories) {
         this.type = type;
@@ -49,6 +54,7 @@ public class ModelClass<ModelType> {
         this.constructors = getConstructors(type, processorFactories, defaultInjectionStrategy);
         this.injectableFields = getInjectableFields(type, processorFactories, defaultInjectionStrategy);
         this.injectableMethods = getInjectableMethods(type, processorFactories, defaultInjectionStrategy);
+        this.postConstructMethods = getPostConstructMethods(type);
     }
     
     @SuppressWarnings("unchecked")
@@ -92,6 +98,40 @@ public class ModelClass<ModelType> {
         return array;
     }
 
+    private static Method[] getPostConstructMethods(Class<?> type) {
+        if (type.isInterface()) {
+            return new Method[0];
+        }
+        List<Method> postConstructMethods = new ArrayList<Method>();
+        Class<?> clazz = type;
+        while (clazz != null) {
+            Method[] methods = clazz.getDeclaredMethods();
+            for (Method method : methods) {
+                if (method.isAnnotationPresent(PostConstruct.class)) {
+                    addMethodIfNotOverriden(postConstructMethods, method);
+                }
+            }
+            clazz = clazz.getSuperclass();
+        }
+        Collections.reverse(postConstructMethods);
+        for (Method method : postConstructMethods) {
+            ReflectionUtil.makeAccessible(method);
+        }
+        return postConstructMethods.toArray(new Method[postConstructMethods.size()]);
+    }
+
+    private static boolean addMethodIfNotOverriden(List<Method> methods, Method newMethod) {
+        for (Method method : methods) {
+            if (method.getName().equals(newMethod.getName())) {
+                if (Arrays.equals(method.getParameterTypes(),newMethod.getParameterTypes())) {
+                    return false;
+                }
+            }
+        }
+        methods.add(newMethod);
+        return true;
+    }
+
     public Class<ModelType> getType() {
         return this.type;
     }
@@ -116,4 +156,11 @@ public class ModelClass<ModelType> {
         return this.injectableMethods;
     }
 
+    /**
+     * @return Methods annotated with @PostConstruct in the order they have to be called, superclass methods first
+     */
+    public Method[] getPostConstructMethods() {
+        return this.postConstructMethods;
+    }
+
 }
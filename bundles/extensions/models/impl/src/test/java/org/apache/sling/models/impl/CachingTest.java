@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.models.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.request.RequestPathInfo;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.models.impl.injectors.SelfInjector;
+import org.apache.sling.models.testmodels.classes.CachedModel;
+import org.apache.sling.models.testmodels.classes.UncachedModel;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.osgi.framework.BundleContext;
+import org.osgi.service.component.ComponentContext;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachingTest {
+
+    @Mock
+    private ComponentContext componentCtx;
+
+    @Mock
+    private BundleContext bundleContext;
+
+    @Mock
+    private SlingHttpServletRequest request;
+
+    @Mock
+    private SlingHttpServletRequest otherRequest;
+
+    @Mock
+    private Resource resource;
+
+    @Mock
+    private Resource includedResource;
+
+    @Mock
+    private ResourceResolver resolver;
+
+    @Mock
+    private RequestPathInfo requestPathInfo;
+
+    private ModelAdapterFactory factory;
+
+    @Before
+    public void setup() {
+        when(componentCtx.getBundleContext()).thenReturn(bundleContext);
+        when(componentCtx.getProperties()).thenReturn(new Hashtable<String, Object>());
+
+        mockAttributes(request);
+        mockAttributes(otherRequest);
+        when(resource.getResourceResolver()).thenReturn(resolver);
+        when(resolver.isLive()).thenReturn(true);
+
+        factory = new ModelAdapterFactory();
+        factory.activate(componentCtx);
+        factory.bindInjector(new SelfInjector(), new ServicePropertiesMap(1, 1));
+    }
+
+    private void mockAttributes(SlingHttpServletRequest request) {
+        final Map<String, Object> attributes = new HashMap<String, Object>();
+        when(request.getAttribute(anyString())).then(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                return attributes.get(invocation.getArguments()[0]);
+            }
+        });
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                attributes.put((String) invocation.getArguments()[0], invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(request).setAttribute(anyString(), any());
+    }
+
+    @Test
+    public void testCachedRequestModel() {
+        CachedModel cached1 = factory.getAdapter(request, CachedModel.class);
+        CachedModel cached2 = factory.getAdapter(request, CachedModel.class);
+        assertNotNull(cached1);
+        assertSame(cached1, cached2);
+        assertSame(request, cached1.getAdaptable());
+
+        CachedModel other = factory.getAdapter(otherRequest, CachedModel.class);
+        assertNotSame(cached1, other);
+        assertSame(otherRequest, other.getAdaptable());
+
+        assertEquals(1, factory.getCacheHits());
+        assertEquals(2, factory.getCacheMisses());
+    }
+
+    @Test
+    public void testCachedRequestModelPerResource() {
+        when(resource.getPath()).thenReturn("/content/page");
+        when(includedResource.getPath()).thenReturn("/content/page/included");
+
+        // an include reuses the request with a different resource
+        when(request.getResource()).thenReturn(resource);
+        CachedModel outer = factory.getAdapter(request, CachedModel.class);
+        when(request.getResource()).thenReturn(includedResource);
+        CachedModel included = factory.getAdapter(request, CachedModel.class);
+        assertNotSame(outer, included);
+        assertSame(included, factory.getAdapter(request, CachedModel.class));
+
+        when(request.getResource()).thenReturn(resource);
+        assertSame(outer, factory.getAdapter(request, CachedModel.class));
+
+        assertEquals(2, factory.getCacheHits());
+        assertEquals(2, factory.getCacheMisses());
+    }
+
+    @Test
+    public void testCachedRequestModelPerRequestPathInfo() {
+        when(resource.getPath()).thenReturn("/content/page");
+        when(request.getResource()).thenReturn(resource);
+        when(request.getRequestPathInfo()).thenReturn(requestPathInfo);
+
+        // an include with replaced selectors of the same resource
+        when(requestPathInfo.getSelectorString()).thenReturn("outer");
+        CachedModel outer = factory.getAdapter(request, CachedModel.class);
+        when(requestPathInfo.getSelectorString()).thenReturn("inner");
+        CachedModel inner = factory.getAdapter(request, CachedModel.class);
+        assertNotSame(outer, inner);
+        assertSame(inner, factory.getAdapter(request, CachedModel.class));
+
+        when(requestPathInfo.getSelectorString()).thenReturn("outer");
+        assertSame(outer, factory.getAdapter(request, CachedModel.class));
+    }
+
+    @Test
+    public void testCachedResourceModelUntilResolverIsClosed() {
+        CachedModel cached = factory.getAdapter(resource, CachedModel.class);
+        assertSame(cached, factory.getAdapter(resource, CachedModel.class));
+
+        when(resolver.isLive()).thenReturn(false);
+        assertNotSame(cached, factory.getAdapter(resource, CachedModel.class));
+        assertEquals(1, factory.getCacheHits());
+        assertEquals(2, factory.getCacheMisses());
+    }
+
+    @Test
+    public void testCachedModelsOfClosedResolversArePurged() {
+        CachedModel cached = factory.getAdapter(resource, CachedModel.class);
+        factory.run();
+        assertSame(cached, factory.getAdapter(resource, CachedModel.class));
+
+        when(resolver.isLive()).thenReturn(false);
+        factory.run();
+        when(resolver.isLive()).thenReturn(true);
+        assertNotSame(cached, factory.getAdapter(resource, CachedModel.class));
+    }
+
+    @Test
+    public void testResourceModelWithoutResolverIsNotCached() {
+        when(resource.getResourceResolver()).thenReturn(null);
+        assertNotSame(factory.getAdapter(resource, CachedModel.class), factory.getAdapter(resource, CachedModel.class));
+    }
+
+    @Test
+    public void testCachedResourceModel() {
+        CachedModel cached1 = factory.getAdapter(resource, CachedModel.class);
+        CachedModel cached2 = factory.getAdapter(resource, CachedModel.class);
+        assertNotNull(cached1);
+        assertSame(cached1, cached2);
+        assertSame(resource, cached1.getAdaptable());
+    }
+
+    @Test
+    public void testUncachedModel() {
+        UncachedModel uncached1 = factory.getAdapter(request, UncachedModel.class);
+        UncachedModel uncached2 = factory.getAdapter(request, UncachedModel.class);
+        assertNotNull(uncached1);
+        assertNotSame(uncached1, uncached2);
+        assertEquals(0, factory.getCacheHits());
+        assertEquals(0, factory.getCacheMisses());
+    }
+
+    @Test
+    public void testConfigurationPrinter() {
+        factory.getAdapter(resource, CachedModel.class);
+        factory.getAdapter(resource, CachedModel.class);
+
+        StringWriter writer = new StringWriter();
+        new ModelConfigurationPrinter(factory).printConfiguration(new PrintWriter(writer));
+        assertTrue(writer.toString().contains("hits: 1, misses: 1"));
+    }
+
+}
@@ -55,6 +55,19 @@ public abstract class ImportOptions {
 		return true;
 	}
 
+	/**
+	 * Specifies the number of imported nodes after which the changes are
+	 * saved while the import is still running. This keeps the transient
+	 * space small when importing large content, but the changes saved so
+	 * far are not reverted if the import fails later on.
+	 * @return the number of nodes, 0 to save the changes only once at
+	 *         the end of the import operation
+	 * @since 2.1.12
+	 */
+	public int getSaveThreshold() {
+		return 0;
+	}
+
 	/**
 	 * Check if the import provider for the given file extension should
 	 * be ignored.
@@ -48,6 +48,16 @@ public interface ContentCreator {
                     String[] mixinNodeTypes)
     throws RepositoryException;
 
+    /**
+     * Check whether the content is imported as a stream. A reader may then
+     * create a node as soon as its first child node is read instead of
+     * keeping its child nodes in memory until all properties of the node
+     * are known. The node types must then precede the child nodes.
+     * @return <code>true</code> if the content is imported as a stream.
+     * @since 2.1.12
+     */
+    boolean isStreaming();
+
     /**
      * Indicates that a node is finished.
      * The parent node of the current node becomes the current node.
@@ -46,6 +46,7 @@ import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.Value;
 import javax.jcr.ValueFactory;
+import javax.jcr.nodetype.ConstraintViolationException;
 
 import org.apache.jackrabbit.api.security.principal.PrincipalManager;
 import org.apache.jackrabbit.api.security.user.Authorizable;
@@ -54,6 +55,7 @@ import org.apache.jackrabbit.api.security.user.User;
 import org.apache.jackrabbit.api.security.user.UserManager;
 import org.apache.sling.jcr.base.util.AccessControlUtil;
 import org.apache.sling.jcr.contentloader.ContentImportListener;
+import org.apache.sling.jcr.contentloader.ContentImportProgressListener;
 import org.apache.sling.jcr.contentloader.ImportOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -118,6 +120,21 @@ public class DefaultContentCreator implements ContentCreator {
      */
     private ContentImportListener importListener;
 
+    /**
+     * The time the import started, for the statistics.
+     */
+    private long startTime = System.currentTimeMillis();
+
+    /**
+     * The number of nodes created by the import.
+     */
+    private long nodeCount;
+
+    /**
+     * The number of nodes created since the changes have been saved.
+     */
+    private long unsavedNodeCount;
+
     /**
      * A one time use seed to randomize the user location.
      */
@@ -185,6 +202,9 @@ public class DefaultContentCreator implements ContentCreator {
      */
     public void clear() {
         this.versionables.clear();
+        this.startTime = System.currentTimeMillis();
+        this.nodeCount = 0;
+        this.unsavedNodeCount = 0;
     }
 
     /**
@@ -465,6 +485,14 @@ public class DefaultContentCreator implements ContentCreator {
         createProperty(name, values, false);
     }
 
+    /**
+     * Content is imported as a stream if it is saved in batches.
+     * @see org.apache.sling.jcr.contentloader.internal.ContentCreator#isStreaming()
+     */
+    public boolean isStreaming() {
+        return this.configuration.getSaveThreshold() > 0;
+    }
+
     /**
      * @see org.apache.sling.jcr.contentloader.internal.ContentCreator#finishNode()
      */
@@ -472,9 +500,43 @@ public class DefaultContentCreator implements ContentCreator {
         final Node node = this.parentNodeStack.pop();
         // resolve REFERENCE property values pointing to this node
         resolveReferences(node);
+
+        final int saveThreshold = this.configuration.getSaveThreshold();
+        if (saveThreshold > 0 && this.unsavedNodeCount >= saveThreshold) {
+            try {
+                node.getSession().save();
+            } catch (ConstraintViolationException cve) {
+                // a node which is not finished yet might still lack mandatory
+                // properties or child nodes, so try again with the next node
+                log.debug("Postponing save of imported content: {}", cve.getMessage());
+                return;
+            }
+            this.contentSaved();
+        }
     }
 
+    /**
+     * Notify the listener and log the statistics after the changes of the
+     * import have been saved.
+     */
+    public void contentSaved() {
+        this.unsavedNodeCount = 0;
+        final long elapsedTime = System.currentTimeMillis() - this.startTime;
+        if (log.isDebugEnabled()) {
+            log.debug("Saved {} imported nodes after {} ms ({} nodes/s)", new Object[] {this.nodeCount, elapsedTime,
+                    elapsedTime > 0 ? this.nodeCount * 1000 / elapsedTime : this.nodeCount});
+        }
+        if (this.importListener instanceof ContentImportProgressListener) {
+            ((ContentImportProgressListener) this.importListener).onSave(this.nodeCount, elapsedTime);
+        }
+    }
+
+    /**
+     * Count a new node and add it to the list of created nodes, if requested.
+     */
     private void addNodeToCreatedList(Node node) throws RepositoryException {
+        this.nodeCount++;
+        this.unsavedNodeCount++;
         if (this.createdNodes != null) {
             this.createdNodes.add(node.getSession().getWorkspace().getName() + ":" + node.getPath());
         }
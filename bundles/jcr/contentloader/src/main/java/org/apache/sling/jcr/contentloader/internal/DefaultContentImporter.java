@@ -95,6 +95,7 @@ public class DefaultContentImporter extends BaseImportLoader implements JcrConte
         // save changes
         Session session = parent.getSession();
         session.save();
+        contentCreator.contentSaved();
 
         // finally checkin versionable nodes
         for (final Node versionable : contentCreator.getVersionables()) {
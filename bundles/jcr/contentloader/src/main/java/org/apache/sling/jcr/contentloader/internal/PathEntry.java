@@ -81,6 +81,13 @@ public class PathEntry extends ImportOptions {
      */
     public static final String IGNORE_IMPORT_PROVIDERS_DIRECTIVE = "ignoreImportProviders";
 
+    /**
+     * The save threshold directive specifying the number of nodes after
+     * which the content is saved while it is still being loaded.
+     * @since 2.1.12
+     */
+    public static final String SAVE_THRESHOLD_DIRECTIVE = "saveThreshold";
+
     /** The path for the initial content. */
     private final String path;
 
@@ -102,6 +109,9 @@ public class PathEntry extends ImportOptions {
     /** Which import providers should be ignored? @since 2.0.4 */
     private final List<String> ignoreImportProviders;
 
+    /** After how many nodes should the content be saved? @since 2.1.12 */
+    private final int saveThreshold;
+
     /**
      * Target path where initial content will be loaded. If it´s null then
      * target node is the root node
@@ -199,6 +209,18 @@ public class PathEntry extends ImportOptions {
             }
         }
 
+        // saveThreshold directive
+        int saveThresholdValue = 0;
+        final String saveThresholdDirective = entry.getDirectiveValue(SAVE_THRESHOLD_DIRECTIVE);
+        if (saveThresholdDirective != null) {
+            try {
+                saveThresholdValue = Integer.parseInt(saveThresholdDirective.trim());
+            } catch (NumberFormatException nfe) {
+                // ignore invalid values and save at the end only
+            }
+        }
+        this.saveThreshold = saveThresholdValue;
+
         // workspace directive
         final String workspaceValue = entry.getDirectiveValue(WORKSPACE_DIRECTIVE);
         if (pathValue != null) {
@@ -250,6 +272,14 @@ public class PathEntry extends ImportOptions {
 		return this.autoCheckout;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.apache.sling.jcr.contentloader.ImportOptions#getSaveThreshold()
+	 */
+	@Override
+	public int getSaveThreshold() {
+		return this.saveThreshold;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.apache.sling.jcr.contentloader.internal.ImportOptions#isIgnoredImportProvider(java.lang.String)
 	 */
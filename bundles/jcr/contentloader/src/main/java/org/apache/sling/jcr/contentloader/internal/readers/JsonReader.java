@@ -19,9 +19,11 @@
 package org.apache.sling.jcr.contentloader.internal.readers;
 
 import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -34,6 +36,7 @@ import javax.jcr.RepositoryException;
 import org.apache.sling.commons.json.JSONArray;
 import org.apache.sling.commons.json.JSONException;
 import org.apache.sling.commons.json.JSONObject;
+import org.apache.sling.commons.json.JSONParser;
 import org.apache.sling.jcr.contentloader.internal.ContentCreator;
 import org.apache.sling.jcr.contentloader.internal.ContentReader;
 import org.apache.sling.jcr.contentloader.internal.ImportProvider;
@@ -86,6 +89,11 @@ import org.apache.sling.jcr.contentloader.internal.ImportProvider;
  *   }
  *
  * </pre>
+ *
+ * The document is parsed as a stream. The child nodes of a node are kept in
+ * memory until the end of the node, unless the content is imported as a
+ * stream. In that case the nodes are created while parsing, so the primary
+ * and mixin node types of a node must be specified before its child nodes.
  */
 public class JsonReader implements ContentReader {
 
@@ -150,57 +158,130 @@ public class JsonReader implements ContentReader {
 
     public void parse(InputStream ins, ContentCreator contentCreator) throws IOException, RepositoryException {
         try {
-            String jsonString = toString(ins).trim();
-            if (!jsonString.startsWith("{")) {
-                jsonString = "{" + jsonString + "}";
-            }
-
-            JSONObject json = new JSONObject(jsonString);
-            this.createNode(null, json, contentCreator);
+            final JSONParser parser = new JSONParser(createReader(ins));
+            parser.next();
+            this.createNode(null, parser, contentCreator.isStreaming(), contentCreator);
         } catch (JSONException je) {
             throw (IOException) new IOException(je.getMessage()).initCause(je);
         }
     }
 
+    /**
+     * Create the node for the object started by the current event of the
+     * parser. The properties and child nodes are collected until the end of
+     * the object, so the node can be created with its node types wherever
+     * they are specified. If the content is imported as a stream, the node is
+     * created when its first child node is read and the child nodes are not
+     * kept in memory.
+     */
+    protected void createNode(String name, JSONParser parser, boolean streaming, ContentCreator contentCreator)
+    throws JSONException, RepositoryException {
+        String primaryType = null;
+        String[] mixinTypes = null;
+        Map<String, Object> items = new LinkedHashMap<String, Object>();
+
+        while (parser.next() == JSONParser.Event.KEY) {
+            final String n = parser.getKey();
+            final JSONParser.Event event = parser.next();
+            if (event == JSONParser.Event.START_OBJECT && !ignoredNames.contains(n)
+                    && !SECURITY_PRINCIPLES.equals(n) && !SECURITY_ACL.equals(n)
+                    && (streaming || items == null)) {
+                if (items != null) {
+                    // the node is complete up to its first child node
+                    this.createNode(name, primaryType, mixinTypes, items, contentCreator);
+                    items = null;
+                }
+                this.createNode(n, parser, streaming, contentCreator);
+                continue;
+            }
+
+            final Object o;
+            if (event == JSONParser.Event.START_OBJECT) {
+                o = parser.readObject();
+            } else if (event == JSONParser.Event.START_ARRAY) {
+                o = parser.readArray();
+            } else {
+                o = parser.getValue();
+            }
+            if ("jcr:primaryType".equals(n) || "jcr:mixinTypes".equals(n)) {
+                if (items == null) {
+                    throw new JSONException(n + " must be specified before the child nodes of node " + name
+                        + " if the content is imported as a stream");
+                }
+                if ("jcr:primaryType".equals(n)) {
+                    primaryType = String.valueOf(o);
+                } else {
+                    mixinTypes = getMixinTypes(o);
+                }
+            } else if (!ignoredNames.contains(n)) {
+                if (items != null) {
+                    items.put(n, o);
+                } else {
+                    this.createItem(n, o, contentCreator);
+                }
+            }
+        }
+        if (items != null) {
+            this.createNode(name, primaryType, mixinTypes, items, contentCreator);
+        }
+        contentCreator.finishNode();
+    }
+
     protected void createNode(String name, JSONObject obj, ContentCreator contentCreator)
     throws JSONException, RepositoryException {
-        Object primaryTypeObj = obj.opt("jcr:primaryType");
         String primaryType = null;
+        Object primaryTypeObj = obj.opt("jcr:primaryType");
         if (primaryTypeObj != null) {
             primaryType = String.valueOf(primaryTypeObj);
         }
+        final String[] mixinTypes = getMixinTypes(obj.opt("jcr:mixinTypes"));
 
-        String[] mixinTypes = null;
-        Object mixinsObject = obj.opt("jcr:mixinTypes");
+        // add properties and nodes
+        final Map<String, Object> items = new LinkedHashMap<String, Object>();
+        JSONArray names = obj.names();
+        for (int i = 0; names != null && i < names.length(); i++) {
+            final String n = names.getString(i);
+            // skip well known objects
+            if (!ignoredNames.contains(n)) {
+                items.put(n, obj.get(n));
+            }
+        }
+        this.createNode(name, primaryType, mixinTypes, items, contentCreator);
+        contentCreator.finishNode();
+    }
+
+    private String[] getMixinTypes(Object mixinsObject) throws JSONException {
         if (mixinsObject instanceof JSONArray) {
             JSONArray mixins = (JSONArray) mixinsObject;
-            mixinTypes = new String[mixins.length()];
+            final String[] mixinTypes = new String[mixins.length()];
             for (int i = 0; i < mixins.length(); i++) {
                 mixinTypes[i] = mixins.getString(i);
             }
+            return mixinTypes;
         }
+        return null;
+    }
 
+    private void createNode(String name, String primaryType, String[] mixinTypes,
+            Map<String, Object> items, ContentCreator contentCreator)
+    throws JSONException, RepositoryException {
         contentCreator.createNode(name, primaryType, mixinTypes);
+        for (final Map.Entry<String, Object> entry : items.entrySet()) {
+            this.createItem(entry.getKey(), entry.getValue(), contentCreator);
+        }
+    }
 
-        // add properties and nodes
-        JSONArray names = obj.names();
-        for (int i = 0; names != null && i < names.length(); i++) {
-            final String n = names.getString(i);
-            // skip well known objects
-            if (!ignoredNames.contains(n)) {
-                Object o = obj.get(n);
-                if (SECURITY_PRINCIPLES.equals(n)) {
-                	this.createPrincipals(o, contentCreator);
-                } else if (SECURITY_ACL.equals(n)) {
-                	this.createAcl(o, contentCreator);
-                } else if (o instanceof JSONObject) {
-                    this.createNode(n, (JSONObject) o, contentCreator);
-                } else {
-                    this.createProperty(n, o, contentCreator);
-                }
-            }
+    private void createItem(String name, Object o, ContentCreator contentCreator)
+    throws JSONException, RepositoryException {
+        if (SECURITY_PRINCIPLES.equals(name)) {
+            this.createPrincipals(o, contentCreator);
+        } else if (SECURITY_ACL.equals(name)) {
+            this.createAcl(o, contentCreator);
+        } else if (o instanceof JSONObject) {
+            this.createNode(name, (JSONObject) o, contentCreator);
+        } else {
+            this.createProperty(name, o, contentCreator);
         }
-        contentCreator.finishNode();
     }
 
     protected void createProperty(String name, Object value, ContentCreator contentCreator)
@@ -254,7 +335,11 @@ public class JsonReader implements ContentReader {
         return name;
     }
 
-    private String toString(InputStream ins) throws IOException {
+    /**
+     * Create a reader for the JSON text, which is an object with or without
+     * the enclosing braces.
+     */
+    private Reader createReader(InputStream ins) throws IOException {
         if (!ins.markSupported()) {
             ins = new BufferedInputStream(ins);
         }
@@ -274,17 +359,63 @@ public class JsonReader implements ContentReader {
             encoding = "UTF-8";
         }
 
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        byte[] buf = new byte[1024];
-        int rd;
-        while ( (rd = ins.read(buf)) >= 0) {
-            bos.write(buf, 0, rd);
+        final Reader reader = new BufferedReader(new InputStreamReader(ins, encoding));
+        reader.mark(1);
+        for (c = reader.read(); c != -1 && Character.isWhitespace((char) c); c = reader.read()) {
+            reader.mark(1);
         }
-        bos.close(); // just to comply with the contract
-
-        return new String(bos.toByteArray(), encoding);
+        reader.reset();
+        if (c == '{') {
+            return reader;
+        }
+        return new EnclosingBracesReader(reader);
     }
 
+    /**
+     * Reader adding the enclosing braces to an object.
+     */
+    private static final class EnclosingBracesReader extends Reader {
+
+        private final Reader reader;
+
+        /** 0 before the opening brace, 1 while reading, 2 before the closing brace, 3 at the end. */
+        private int state;
+
+        EnclosingBracesReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            switch (this.state) {
+            case 0:
+                this.state = 1;
+                cbuf[off] = '{';
+                return 1;
+            case 1:
+                final int rd = this.reader.read(cbuf, off, len);
+                if (rd != -1) {
+                    return rd;
+                }
+                this.state = 2;
+                // fall through
+            case 2:
+                this.state = 3;
+                cbuf[off] = '}';
+                return 1;
+            default:
+                return -1;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.reader.close();
+        }
+    }
 
     /**
      * Create or update one or more user and/or groups
@@ -127,6 +127,13 @@ public class XmlReader implements ContentReader {
 
     private static final String HREF_ATTRIBUTE = "href";
 
+    /**
+     * The number of bytes which can be read before the stream can't be reset
+     * anymore for an XSL stylesheet reference. Content nodes are created while
+     * the document is parsed, so only the prolog needs to be kept in memory.
+     */
+    private static final int STYLESHEET_READ_LIMIT = 64 * 1024;
+
     private static final String ELEM_FILE_NAMESPACE = "http://www.jcp.org/jcr/nt/1.0";
     private static final String ELEM_FILE_NAME = "file";
 
@@ -201,8 +208,9 @@ public class XmlReader implements ContentReader {
         final StringBuilder contentBuffer = new StringBuilder();
         // Mark the beginning of the stream. We assume that if there's an XSL processing instruction,
         // it will occur in the first gulp - which makes sense, as processing instructions must be
-        // specified before the root element of an XML file.
-        bufferedInput.mark(bufferedInput.available());
+        // specified before the root element of an XML file. The limit does not depend on the size
+        // of the document, so large documents are not buffered completely.
+        bufferedInput.mark(STYLESHEET_READ_LIMIT);
         // set the parser input, use null encoding to force detection with
         // <?xml?>
         this.xmlParser.setInput(bufferedInput, null);
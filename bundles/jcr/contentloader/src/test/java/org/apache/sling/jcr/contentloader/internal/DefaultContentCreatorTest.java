@@ -6,7 +6,9 @@ import javax.jcr.Node;
 import javax.jcr.Property;
 import javax.jcr.PropertyType;
 import javax.jcr.RepositoryException;
+import javax.jcr.Session;
 
+import org.apache.sling.jcr.contentloader.ContentImportProgressListener;
 import org.apache.sling.jcr.contentloader.ImportOptions;
 import org.jmock.Expectations;
 import org.jmock.Mockery;
@@ -106,4 +108,61 @@ public class DefaultContentCreatorTest {
         contentCreator.createProperty("foo", PropertyType.UNDEFINED, "bar");
     }
 
+    @org.junit.Test public void willSaveAfterSaveThreshold() throws RepositoryException {
+        contentCreator = new DefaultContentCreator(null);
+        parentNode = mockery.mock(Node.class);
+        final Node nodeA = mockery.mock(Node.class, "nodeA");
+        final Node nodeB = mockery.mock(Node.class, "nodeB");
+        final Session session = mockery.mock(Session.class);
+        final ContentImportProgressListener listener = mockery.mock(ContentImportProgressListener.class);
+        contentCreator.init(new ImportOptions(){
+
+            @Override
+            public boolean isCheckin() {
+                return false;
+            }
+
+            @Override
+            public boolean isAutoCheckout() {
+                return false;
+            }
+
+            @Override
+            public boolean isIgnoredImportProvider(String extension) {
+                return false;
+            }
+
+            @Override
+            public boolean isOverwrite() {
+                return false;
+            }
+
+            @Override
+            public boolean isPropertyOverwrite() {
+                return false;
+            }
+
+            @Override
+            public int getSaveThreshold() {
+                return 2;
+            } }, new HashMap<String, ImportProvider>(), null, listener);
+
+        contentCreator.prepareParsing(parentNode, null);
+        this.mockery.checking(new Expectations() {{
+            allowing(parentNode).hasNode(with(any(String.class))); will(returnValue(Boolean.FALSE));
+            oneOf (parentNode).addNode("a"); will(returnValue(nodeA));
+            oneOf (parentNode).addNode("b"); will(returnValue(nodeB));
+            allowing(nodeA).getPath(); will(returnValue("/a"));
+            allowing(nodeB).getPath(); will(returnValue("/b"));
+            allowing(nodeB).getSession(); will(returnValue(session));
+            oneOf (listener).onCreate("/a");
+            oneOf (listener).onCreate("/b");
+            oneOf (session).save();
+            oneOf (listener).onSave(with(equal(2L)), with(any(Long.class)));
+        }});
+        contentCreator.createNode("a", null, null);
+        contentCreator.finishNode();
+        contentCreator.createNode("b", null, null);
+        contentCreator.finishNode();
+    }
 }
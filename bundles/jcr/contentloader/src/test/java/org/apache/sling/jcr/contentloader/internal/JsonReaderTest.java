@@ -261,6 +261,82 @@ public class JsonReaderTest {
     }
 
 
+    @org.junit.Test public void testChildAfterProperties() throws Exception {
+        String json = "{ " +
+        " p1 : \"v1\"," +
+        " \"jcr:primaryType\" : \"xyz:TestType\"," +
+        " c1 : {}," +
+        " p2 : \"v2\"" +
+        "}";
+        this.mockery.checking(new Expectations() {{
+            oneOf(creator).createNode(null, "xyz:TestType", null); inSequence(mySequence);
+            oneOf(creator).createProperty("p1", PropertyType.UNDEFINED, "v1"); inSequence(mySequence);
+            oneOf(creator).createNode("c1", null, null); inSequence(mySequence);
+            oneOf(creator).finishNode(); inSequence(mySequence);
+            oneOf(creator).createProperty("p2", PropertyType.UNDEFINED, "v2"); inSequence(mySequence);
+            oneOf(creator).finishNode(); inSequence(mySequence);
+        }});
+        this.parse(json);
+    }
+
+    @org.junit.Test public void testChildWithoutEnclosingBraces() throws Exception {
+        String json = " p1 : \"v1\", c1 : { c1p1 : \"v2\" } ";
+        this.mockery.checking(new Expectations() {{
+            oneOf(creator).createNode(null, null, null); inSequence(mySequence);
+            oneOf(creator).createProperty("p1", PropertyType.UNDEFINED, "v1"); inSequence(mySequence);
+            oneOf(creator).createNode("c1", null, null); inSequence(mySequence);
+            oneOf(creator).createProperty("c1p1", PropertyType.UNDEFINED, "v2"); inSequence(mySequence);
+            oneOf(creator).finishNode(); inSequence(mySequence);
+            oneOf(creator).finishNode(); inSequence(mySequence);
+        }});
+        this.parse(json);
+    }
+
+    @org.junit.Test public void testChildAfterPropertiesStreaming() throws Exception {
+        String json = "{ " +
+        " p1 : \"v1\"," +
+        " \"jcr:primaryType\" : \"xyz:TestType\"," +
+        " c1 : { c1p1 : \"v3\" }," +
+        " p2 : \"v2\"" +
+        "}";
+        this.mockery.checking(new Expectations() {{
+            oneOf(creator).createNode(null, "xyz:TestType", null); inSequence(mySequence);
+            oneOf(creator).createProperty("p1", PropertyType.UNDEFINED, "v1"); inSequence(mySequence);
+            oneOf(creator).createNode("c1", null, null); inSequence(mySequence);
+            oneOf(creator).createProperty("c1p1", PropertyType.UNDEFINED, "v3"); inSequence(mySequence);
+            oneOf(creator).finishNode(); inSequence(mySequence);
+            oneOf(creator).createProperty("p2", PropertyType.UNDEFINED, "v2"); inSequence(mySequence);
+            oneOf(creator).finishNode(); inSequence(mySequence);
+        }});
+        this.parse(json, true);
+    }
+
+    @org.junit.Test public void testNodeTypesAfterChild() throws Exception {
+        String json = "{ c1 : { c2 : {}, \"jcr:primaryType\" : \"xyz:ChildType\" }, p1 : \"v1\", " +
+        "\"jcr:mixinTypes\" : [\"xyz:mix1\"], \"jcr:primaryType\" : \"xyz:TestType\" }";
+        final String[] mixins = new String[] {"xyz:mix1"};
+        this.mockery.checking(new Expectations() {{
+            oneOf(creator).createNode(null, "xyz:TestType", mixins); inSequence(mySequence);
+            oneOf(creator).createNode("c1", "xyz:ChildType", null); inSequence(mySequence);
+            oneOf(creator).createNode("c2", null, null); inSequence(mySequence);
+            oneOf(creator).finishNode(); inSequence(mySequence);
+            oneOf(creator).finishNode(); inSequence(mySequence);
+            oneOf(creator).createProperty("p1", PropertyType.UNDEFINED, "v1"); inSequence(mySequence);
+            oneOf(creator).finishNode(); inSequence(mySequence);
+        }});
+        this.parse(json);
+    }
+
+    @org.junit.Test(expected = IOException.class) public void testPrimaryTypeAfterChildStreaming() throws Exception {
+        String json = "{ c1 : {}, \"jcr:primaryType\" : \"xyz:TestType\" }";
+        this.mockery.checking(new Expectations() {{
+            allowing(creator).createNode(null, null, null);
+            allowing(creator).createNode("c1", null, null);
+            allowing(creator).finishNode();
+        }});
+        this.parse(json, true);
+    }
+
     @org.junit.Test public void testCreateAcl() throws Exception {
     	String json = " { " +
     			"\"security:acl\" : [ " +
@@ -295,6 +371,13 @@ public class JsonReaderTest {
     //---------- internal helper ----------------------------------------------
 
     private void parse(String json) throws IOException, RepositoryException {
+        this.parse(json, false);
+    }
+
+    private void parse(String json, final boolean streaming) throws IOException, RepositoryException {
+        this.mockery.checking(new Expectations() {{
+            allowing(creator).isStreaming(); will(returnValue(streaming));
+        }});
         String charSet = "ISO-8859-1";
         json = "#" + charSet + "\r\n" + json;
         InputStream ins = new ByteArrayInputStream(json.getBytes(charSet));
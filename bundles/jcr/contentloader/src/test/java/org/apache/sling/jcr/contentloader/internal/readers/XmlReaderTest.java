@@ -129,6 +129,10 @@ public class XmlReaderTest extends TestCase {
             this.add(name);
         }
 
+        public boolean isStreaming() {
+            return false;
+        }
+
         public void finishNode() throws RepositoryException {
         }
 
@@ -25,7 +25,6 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.LinkedBlockingQueue;
 
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
@@ -49,8 +48,20 @@ import org.slf4j.LoggerFactory;
  * The <code>JcrResourceListener</code> listens for JCR observation
  * events and creates resource events which are sent through the
  * OSGi event admin.
+ * <p>
+ * The resource events are queued in a {@link ResourceEventDispatcher}
+ * and sent from its worker threads.
  */
-public class JcrResourceListener implements EventListener, Closeable {
+public class JcrResourceListener implements EventListener, Closeable, ResourceEventDispatcher.Processor {
+
+    /** The default number of threads sending the OSGi events. */
+    public static final int DEFAULT_WORKERS = 2;
+
+    /** The default maximum number of OSGi events waiting to be sent. */
+    public static final int DEFAULT_QUEUE_SIZE = 10000;
+
+    /** The default time in milliseconds events are held back to be merged. */
+    public static final long DEFAULT_COALESCE_WINDOW = 0;
 
     /** Logger */
     private final Logger logger = LoggerFactory.getLogger(JcrResourceListener.class);
@@ -62,28 +73,39 @@ public class JcrResourceListener implements EventListener, Closeable {
     private final boolean hasJackrabbitEventClass;
 
     /**
-     * A queue of OSGi Events created by
-     * {@link #sendOsgiEvent(String, Event, String, EventAdmin, ChangedAttributes)}
+     * The queue of OSGi Events created by
+     * {@link #sendOsgiEvent(String, Map, String, ChangedAttributes)}
      * waiting for actual dispatching to the OSGi Event Admin in
-     * {@link #processOsgiEventQueue()}
+     * {@link #process(Map)}
      */
-    private final LinkedBlockingQueue<Map<String, Object>> osgiEventQueue;
+    private final ResourceEventDispatcher dispatcher;
 
     /** Helper object. */
     final ObservationListenerSupport support;
 
     private final PathMapper pathMapper;
 
+    public JcrResourceListener(
+                    final String mountPrefix,
+                    final ObservationListenerSupport support,
+                    final PathMapper pathMapper)
+    throws RepositoryException {
+        this(mountPrefix, support, pathMapper, DEFAULT_WORKERS, DEFAULT_QUEUE_SIZE, DEFAULT_COALESCE_WINDOW);
+    }
+
     /**
-     * Marker event for {@link #processOsgiEventQueue()} to be signaled to
-     * terminate processing Events.
+     * @param workers The number of threads sending the OSGi events.
+     * @param queueSize The maximum number of OSGi events waiting to be sent.
+     * @param coalesceWindow The time in milliseconds events are held back to
+     *            be merged with later events for the same path.
      */
-    private final Map<String, Object> TERMINATE_PROCESSING = new HashMap<String, Object>(1);
-
     public JcrResourceListener(
                     final String mountPrefix,
                     final ObservationListenerSupport support,
-                    final PathMapper pathMapper)
+                    final PathMapper pathMapper,
+                    final int workers,
+                    final int queueSize,
+                    final long coalesceWindow)
     throws RepositoryException {
         this.pathMapper = pathMapper;
         boolean foundClass = false;
@@ -97,17 +119,11 @@ public class JcrResourceListener implements EventListener, Closeable {
         this.mountPrefix = (mountPrefix == null || mountPrefix.length() == 0 || mountPrefix.equals("/") ? null : mountPrefix);
 
         this.support = support;
+        this.dispatcher = new ResourceEventDispatcher("Apache Sling JCR Resource Event Queue Processor",
+                        workers, queueSize, coalesceWindow, this);
         this.support.getSession().getWorkspace().getObservationManager().addEventListener(this,
                         Event.NODE_ADDED|Event.NODE_REMOVED|Event.PROPERTY_ADDED|Event.PROPERTY_CHANGED|Event.PROPERTY_REMOVED,
                         "/", true, null, null, false);
-
-        this.osgiEventQueue = new LinkedBlockingQueue<Map<String,Object>>();
-        final Thread oeqt = new Thread(new Runnable() {
-            public void run() {
-                processOsgiEventQueue();
-            }
-        }, "Apache Sling JCR Resource Event Queue Processor");
-        oeqt.start();
     }
 
     /**
@@ -122,8 +138,7 @@ public class JcrResourceListener implements EventListener, Closeable {
         }
 
         // drop any remaining OSGi Events not processed yet
-        this.osgiEventQueue.clear();
-        this.osgiEventQueue.offer(TERMINATE_PROCESSING);
+        this.dispatcher.close();
 
         this.support.dispose();
     }
@@ -301,97 +316,91 @@ public class JcrResourceListener implements EventListener, Closeable {
                 changedAttributes.mergeAttributesInto(properties);
             }
 
-            // set the path (might have been changed for nt:file content)
-            properties.put(SlingConstants.PROPERTY_PATH, resourcePath);
-            properties.put(EventConstants.EVENT_TOPIC, topic);
-
-            // enqueue event for dispatching
-            this.osgiEventQueue.offer(properties);
+            // enqueue event for dispatching, this sets the path and topic
+            this.dispatcher.queue(resourcePath, topic, properties);
         } else {
             logger.error("Dropping observation event for {}", path);
         }
     }
 
     /**
-     * Called by the Runnable.run method of the JCR Event Queue processor to
-     * process the {@link #osgiEventQueue} until the
-     * {@link #TERMINATE_PROCESSING} event is received.
+     * Called by the worker threads of the {@link ResourceEventDispatcher} to
+     * send a queued event.
      */
-    void processOsgiEventQueue() {
-        while (true) {
-            final Map<String, Object> event;
-            try {
-                event = this.osgiEventQueue.take();
-            } catch (InterruptedException e) {
-                // interrupted waiting for the event; keep on waiting
-                continue;
+    public void process(final Map<String, Object> event) {
+        try {
+            final EventAdmin localEa = this.support.getEventAdmin();
+            if ( localEa != null ) {
+                final String topic = (String) event.remove(EventConstants.EVENT_TOPIC);
+                boolean sendEvent = false;
+                // the resolver is shared by all worker threads, the event is sent outside the lock
+                synchronized ( this.support ) {
+                    final ResourceResolver resolver = this.support.getResourceResolver();
+                    if ( resolver != null ) {
+                        sendEvent = this.addResourceProperties(resolver, topic, event);
+                    }
+                }
+                if ( sendEvent ) {
+                    localEa.sendEvent(new org.osgi.service.event.Event(topic, new EventProperties(event)));
+                }
             }
+        } catch (final Exception e) {
+            logger.warn("processOsgiEventQueue: Unexpected problem processing event " + event, e);
+        }
+    }
 
-            if (event == null || event == TERMINATE_PROCESSING) {
-                break;
-            }
+    /**
+     * Adds the resource type properties to the event.
+     * @return <code>false</code> if the event must not be sent.
+     */
+    private boolean addResourceProperties(final ResourceResolver resolver,
+            final String topic,
+            final Map<String, Object> event) {
+        if (SlingConstants.TOPIC_RESOURCE_REMOVED.equals(topic)) {
+            return true;
+        }
+        final String path = (String) event.get(SlingConstants.PROPERTY_PATH);
+        Resource resource = resolver.getResource(path);
+        if (resource == null) {
+            // take a quite silent note of not being able to
+            // resolve the resource
+            logger.debug(
+                "processOsgiEventQueue: Resource at {} not found, which is not expected for an added or modified node",
+                path);
+            return false;
+        }
 
-            try {
-                final EventAdmin localEa = this.support.getEventAdmin();
-                final ResourceResolver resolver = this.support.getResourceResolver();
-                if (localEa != null && resolver != null ) {
-                    final String topic = (String) event.remove(EventConstants.EVENT_TOPIC);
-                    final String path = (String) event.get(SlingConstants.PROPERTY_PATH);
-                    Resource resource = resolver.getResource(path);
-                    boolean sendEvent = true;
-                    if (!SlingConstants.TOPIC_RESOURCE_REMOVED.equals(topic)) {
-                        if (resource != null) {
-                            // check if this is a JCR backed resource, otherwise it is not visible!
-                            final Node node = resource.adaptTo(Node.class);
-                            if (node != null) {
-                                // check for nt:file nodes
-                                if (path.endsWith("/jcr:content")) {
-                                    try {
-                                        if (node.getParent().isNodeType("nt:file")) {
-                                            final Resource parentResource = resource.getParent();
-                                            if (parentResource != null) {
-                                                resource = parentResource;
-                                                event.put(SlingConstants.PROPERTY_PATH, resource.getPath());
-                                            }
-                                        }
-                                    } catch (final RepositoryException re) {
-                                        // ignore this
-                                    }
-                                }
-
-                                final String resourceType = resource.getResourceType();
-                                if (resourceType != null) {
-                                    event.put(SlingConstants.PROPERTY_RESOURCE_TYPE, resource.getResourceType());
-                                }
-                                final String resourceSuperType = resource.getResourceSuperType();
-                                if (resourceSuperType != null) {
-                                    event.put(SlingConstants.PROPERTY_RESOURCE_SUPER_TYPE, resource.getResourceSuperType());
-                                }
-                            } else {
-                                // this is not a jcr backed resource
-                                sendEvent = false;
-                            }
-
-                        } else {
-                            // take a quite silent note of not being able to
-                            // resolve the resource
-                            logger.debug(
-                                "processOsgiEventQueue: Resource at {} not found, which is not expected for an added or modified node",
-                                path);
-                            sendEvent = false;
-                        }
-                    }
+        // check if this is a JCR backed resource, otherwise it is not visible!
+        final Node node = resource.adaptTo(Node.class);
+        if (node == null) {
+            // this is not a jcr backed resource
+            return false;
+        }
 
-                    if ( sendEvent ) {
-                        localEa.sendEvent(new org.osgi.service.event.Event(topic, new EventProperties(event)));
+        // check for nt:file nodes
+        if (path.endsWith("/jcr:content")) {
+            try {
+                if (node.getParent().isNodeType("nt:file")) {
+                    final Resource parentResource = resource.getParent();
+                    if (parentResource != null) {
+                        resource = parentResource;
+                        event.put(SlingConstants.PROPERTY_PATH, resource.getPath());
                     }
                 }
-            } catch (final Exception e) {
-                logger.warn("processOsgiEventQueue: Unexpected problem processing event " + event, e);
+            } catch (final RepositoryException re) {
+                // ignore this
             }
         }
 
-        this.osgiEventQueue.clear();
+        final String resourceType = resource.getResourceType();
+        if (resourceType != null) {
+            event.put(SlingConstants.PROPERTY_RESOURCE_TYPE, resource.getResourceType());
+        }
+        final String resourceSuperType = resource.getResourceSuperType();
+        if (resourceSuperType != null) {
+            event.put(SlingConstants.PROPERTY_RESOURCE_SUPER_TYPE, resource.getResourceSuperType());
+        }
+        return true;
     }
 
     private boolean isExternal(final Event event) {
@@ -94,9 +94,10 @@ public class ObservationListenerSupport  {
 
     /**
      * Get a resource resolver.
-     * We don't need any syncing as this is called from the process OSGi thread.
+     * The resolver is shared, callers using it from several threads have to
+     * synchronize on this support object.
      */
-    public ResourceResolver getResourceResolver() {
+    public synchronized ResourceResolver getResourceResolver() {
         if ( this.resourceResolver == null ) {
             final ServiceReference ref = this.bundleContext.getServiceReference(ResourceResolverFactory.class.getName());
             if ( ref != null ) {
@@ -0,0 +1,437 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.resource.internal;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.sling.api.SlingConstants;
+import org.osgi.service.event.EventConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The <code>ResourceEventDispatcher</code> queues resource events and hands
+ * them to a {@link Processor} on a number of worker threads.
+ * <p>
+ * Events are partitioned by the first segment of their path. Each partition
+ * is processed by a single worker, so the events of a path and all its
+ * descendants are processed in the order they have been queued, while events
+ * of unrelated trees like <code>/apps</code> and <code>/content</code> are
+ * processed in parallel.
+ * <p>
+ * Each partition holds a bounded number of events. If a partition is full,
+ * queueing blocks until the worker has caught up.
+ * <p>
+ * An added or changed event for a path which is still queued is merged into
+ * the queued event if it has been caused by the same user. The attribute
+ * lists of both events are combined. Removal events are never merged and
+ * end merging for their path and its descendants, so events are not
+ * reordered around them. If a
+ * coalescing window is configured, events are held back for this time to be
+ * able to merge more events.
+ */
+class ResourceEventDispatcher {
+
+    /**
+     * The <code>Processor</code> finally handles the events, for example by
+     * sending them through the event admin.
+     */
+    interface Processor {
+
+        /**
+         * Processes the event. The properties contain the topic as
+         * {@link EventConstants#EVENT_TOPIC} and the path as
+         * {@link SlingConstants#PROPERTY_PATH}.
+         */
+        void process(Map<String, Object> event);
+    }
+
+    /** Property marking events caused by another cluster node */
+    static final String EVENT_APPLICATION = "event.application";
+
+    /** Minimum time in milliseconds between two warnings about full queues */
+    private static final long BLOCKED_WARN_INTERVAL = 60 * 1000L;
+
+    private final Logger logger = LoggerFactory.getLogger(ResourceEventDispatcher.class);
+
+    private final Processor processor;
+
+    private final Partition[] partitions;
+
+    private final int partitionCapacity;
+
+    private final long coalesceWindow;
+
+    private volatile boolean running = true;
+
+    private final AtomicLong queuedCount = new AtomicLong();
+
+    private final AtomicLong mergedCount = new AtomicLong();
+
+    private final AtomicLong processedCount = new AtomicLong();
+
+    private final AtomicLong blockedCount = new AtomicLong();
+
+    private final AtomicLong lastBlockedWarning = new AtomicLong();
+
+    /**
+     * @param name The base name of the worker threads.
+     * @param workers The number of worker threads, at least one.
+     * @param capacity The maximum number of queued events, spread evenly over
+     *            the workers.
+     * @param coalesceWindow The time in milliseconds events are held back to
+     *            be merged with later events for the same path, or zero to
+     *            only merge events while they are waiting in the queue.
+     * @param processor The processor handling the events.
+     */
+    ResourceEventDispatcher(final String name,
+            final int workers,
+            final int capacity,
+            final long coalesceWindow,
+            final Processor processor) {
+        this.processor = processor;
+        this.coalesceWindow = Math.max(0, coalesceWindow);
+        this.partitions = new Partition[Math.max(1, workers)];
+        this.partitionCapacity = Math.max(1, capacity / this.partitions.length);
+        for (int i = 0; i < this.partitions.length; i++) {
+            this.partitions[i] = new Partition();
+            final Partition partition = this.partitions[i];
+            final Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    process(partition);
+                }
+            }, this.partitions.length == 1 ? name : name + " #" + (i + 1));
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Queues an event for the path. The properties must not be changed by the
+     * caller afterwards. This method blocks while the queue of the partition
+     * of the path is full.
+     *
+     * @param path The resource path
+     * @param topic The event topic
+     * @param properties The event properties, including the attribute lists
+     */
+    void queue(final String path, final String topic, final Map<String, Object> properties) {
+        final Partition partition = this.partitions[getPartitionIndex(path)];
+        partition.lock.lock();
+        try {
+            if (!SlingConstants.TOPIC_RESOURCE_REMOVED.equals(topic)) {
+                final QueuedEvent queued = partition.mergeable.get(path);
+                if (queued != null && queued.merge(topic, properties)) {
+                    this.mergedCount.incrementAndGet();
+                    return;
+                }
+            }
+
+            while (this.running && partition.queue.size() >= this.partitionCapacity) {
+                this.blocked();
+                partition.notFull.await();
+            }
+            if (!this.running) {
+                return;
+            }
+
+            final QueuedEvent event = new QueuedEvent(path, topic, properties,
+                System.currentTimeMillis() + this.coalesceWindow);
+            partition.queue.add(event);
+            if (SlingConstants.TOPIC_RESOURCE_REMOVED.equals(topic)) {
+                // do not merge later events into events queued before the removal
+                // of the path or of one of its ancestors
+                partition.mergeable.remove(path);
+                // the descendants are sorted between "<path>/" and "<path>0" as '0' follows '/'
+                final String parent = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+                partition.mergeable.subMap(parent + '/', parent + '0').clear();
+            } else {
+                partition.mergeable.put(path, event);
+            }
+            this.queuedCount.incrementAndGet();
+            partition.notEmpty.signal();
+        } catch (final InterruptedException ie) {
+            logger.warn("Interrupted while waiting to queue event {} for {}, dropping it", topic, path);
+            Thread.currentThread().interrupt();
+        } finally {
+            partition.lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the workers and drops all queued events.
+     */
+    void close() {
+        this.running = false;
+        for (final Partition partition : this.partitions) {
+            partition.lock.lock();
+            try {
+                partition.queue.clear();
+                partition.mergeable.clear();
+                partition.notEmpty.signalAll();
+                partition.notFull.signalAll();
+            } finally {
+                partition.lock.unlock();
+            }
+        }
+        logger.debug("Closed event dispatcher: {} events queued, {} merged, {} processed, {} times blocked",
+            new Object[] { getQueuedCount(), getMergedCount(), getProcessedCount(), getBlockedCount() });
+    }
+
+    /**
+     * Returns the number of events queued and not merged.
+     */
+    long getQueuedCount() {
+        return this.queuedCount.get();
+    }
+
+    /**
+     * Returns the number of events merged into a queued event.
+     */
+    long getMergedCount() {
+        return this.mergedCount.get();
+    }
+
+    /**
+     * Returns the number of events handed to the processor.
+     */
+    long getProcessedCount() {
+        return this.processedCount.get();
+    }
+
+    /**
+     * Returns the number of times queueing an event had to wait for room in
+     * a full queue.
+     */
+    long getBlockedCount() {
+        return this.blockedCount.get();
+    }
+
+    /**
+     * Returns the number of events currently waiting to be processed.
+     */
+    int getQueueSize() {
+        int size = 0;
+        for (final Partition partition : this.partitions) {
+            partition.lock.lock();
+            try {
+                size += partition.queue.size();
+            } finally {
+                partition.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the partition of the path, which is determined by the first
+     * path segment.
+     */
+    int getPartitionIndex(final String path) {
+        if (this.partitions.length == 1) {
+            return 0;
+        }
+        final int end = path.indexOf('/', 1);
+        final String key = end < 0 ? path : path.substring(0, end);
+        return (key.hashCode() & Integer.MAX_VALUE) % this.partitions.length;
+    }
+
+    private void blocked() {
+        final long count = this.blockedCount.incrementAndGet();
+        final long now = System.currentTimeMillis();
+        final long last = this.lastBlockedWarning.get();
+        if (now - last >= BLOCKED_WARN_INTERVAL && this.lastBlockedWarning.compareAndSet(last, now)) {
+            logger.warn("Resource event queue is full, observation is waiting for event processing to catch up "
+                + "({} events queued, {} merged, {} processed, {} times blocked so far)",
+                new Object[] { getQueuedCount(), getMergedCount(), getProcessedCount(), count });
+        }
+    }
+
+    /**
+     * Processes the events of the partition until the dispatcher is closed.
+     */
+    private void process(final Partition partition) {
+        while (this.running) {
+            final QueuedEvent event;
+            partition.lock.lock();
+            try {
+                final QueuedEvent head = partition.queue.peek();
+                if (head == null) {
+                    partition.notEmpty.await();
+                    continue;
+                }
+                final long wait = head.due - System.currentTimeMillis();
+                if (wait > 0) {
+                    partition.notEmpty.await(wait, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+                event = partition.queue.poll();
+                if (partition.mergeable.get(event.path) == event) {
+                    partition.mergeable.remove(event.path);
+                }
+                partition.notFull.signal();
+            } catch (final InterruptedException ie) {
+                // interrupted waiting for the event; keep on waiting
+                continue;
+            } finally {
+                partition.lock.unlock();
+            }
+
+            this.processedCount.incrementAndGet();
+            try {
+                this.processor.process(event.toEventProperties());
+            } catch (final RuntimeException e) {
+                logger.warn("Unexpected problem processing event for " + event.path, e);
+            }
+        }
+    }
+
+    /**
+     * The queue of one worker, all fields are guarded by the lock.
+     */
+    private static final class Partition {
+
+        final ReentrantLock lock = new ReentrantLock();
+
+        final Condition notEmpty = lock.newCondition();
+
+        final Condition notFull = lock.newCondition();
+
+        final LinkedList<QueuedEvent> queue = new LinkedList<QueuedEvent>();
+
+        /**
+         * The queued added and changed events by path which may be merged with,
+         * sorted to find the events of a subtree
+         */
+        final SortedMap<String, QueuedEvent> mergeable = new TreeMap<String, QueuedEvent>();
+    }
+
+    private static final class QueuedEvent {
+
+        final String path;
+
+        final long due;
+
+        private final String topic;
+
+        private final Map<String, Object> properties;
+
+        private Set<String> addedAttributes;
+
+        private Set<String> changedAttributes;
+
+        private Set<String> removedAttributes;
+
+        QueuedEvent(final String path, final String topic, final Map<String, Object> properties, final long due) {
+            this.path = path;
+            this.topic = topic;
+            this.properties = properties;
+            this.due = due;
+        }
+
+        /**
+         * Merges a later event for the same path into this event.
+         *
+         * @return <code>true</code> if the event has been merged.
+         */
+        boolean merge(final String topic, final Map<String, Object> properties) {
+            if (!SlingConstants.TOPIC_RESOURCE_CHANGED.equals(topic)
+                && !(SlingConstants.TOPIC_RESOURCE_ADDED.equals(topic) && topic.equals(this.topic))) {
+                return false;
+            }
+            if (!isSameOrigin(properties)) {
+                return false;
+            }
+            this.initAttributes();
+            final String[] added = (String[]) properties.get(SlingConstants.PROPERTY_ADDED_ATTRIBUTES);
+            if (added != null) {
+                for (final String name : added) {
+                    this.removedAttributes.remove(name);
+                    this.addedAttributes.add(name);
+                }
+            }
+            final String[] removed = (String[]) properties.get(SlingConstants.PROPERTY_REMOVED_ATTRIBUTES);
+            if (removed != null) {
+                for (final String name : removed) {
+                    this.addedAttributes.remove(name);
+                    this.removedAttributes.add(name);
+                }
+            }
+            final String[] changed = (String[]) properties.get(SlingConstants.PROPERTY_CHANGED_ATTRIBUTES);
+            if (changed != null) {
+                Collections.addAll(this.changedAttributes, changed);
+            }
+            return true;
+        }
+
+        private boolean isSameOrigin(final Map<String, Object> properties) {
+            return equals(this.properties.get(SlingConstants.PROPERTY_USERID), properties.get(SlingConstants.PROPERTY_USERID))
+                && equals(this.properties.get(EVENT_APPLICATION), properties.get(EVENT_APPLICATION));
+        }
+
+        private static boolean equals(final Object a, final Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+
+        private void initAttributes() {
+            if (this.addedAttributes == null) {
+                this.addedAttributes = toSet(this.properties.get(SlingConstants.PROPERTY_ADDED_ATTRIBUTES));
+                this.changedAttributes = toSet(this.properties.get(SlingConstants.PROPERTY_CHANGED_ATTRIBUTES));
+                this.removedAttributes = toSet(this.properties.get(SlingConstants.PROPERTY_REMOVED_ATTRIBUTES));
+            }
+        }
+
+        private static Set<String> toSet(final Object value) {
+            final Set<String> set = new LinkedHashSet<String>();
+            if (value != null) {
+                Collections.addAll(set, (String[]) value);
+            }
+            return set;
+        }
+
+        Map<String, Object> toEventProperties() {
+            if (this.addedAttributes != null) {
+                putAttributes(SlingConstants.PROPERTY_ADDED_ATTRIBUTES, this.addedAttributes);
+                putAttributes(SlingConstants.PROPERTY_CHANGED_ATTRIBUTES, this.changedAttributes);
+                putAttributes(SlingConstants.PROPERTY_REMOVED_ATTRIBUTES, this.removedAttributes);
+            }
+            this.properties.put(SlingConstants.PROPERTY_PATH, this.path);
+            this.properties.put(EventConstants.EVENT_TOPIC, this.topic);
+            return this.properties;
+        }
+
+        private void putAttributes(final String key, final Set<String> attributes) {
+            if (attributes.isEmpty()) {
+                this.properties.remove(key);
+            } else {
+                this.properties.put(key, attributes.toArray(new String[attributes.size()]));
+            }
+        }
+    }
+}
@@ -93,6 +93,26 @@ public class JcrResourceProviderFactory implements ResourceProviderFactory {
               description="If this switch is enabled, and Oak is used as the repository implementation, some optimized components are used.")
     private static final String PROPERTY_OPTIMIZE_FOR_OAK = "optimize.oak";
 
+    @Property(intValue=JcrResourceListener.DEFAULT_WORKERS,
+              label="Observation Workers",
+              description="Number of threads sending the resource events for JCR observation events. Events are " +
+                          "distributed by the first segment of their path, the events of a subtree are sent in order. " +
+                          "This is not used for the improved Oak listener.")
+    private static final String PROPERTY_OBSERVATION_WORKERS = "observation.workers";
+
+    @Property(intValue=JcrResourceListener.DEFAULT_QUEUE_SIZE,
+              label="Observation Queue Size",
+              description="Maximum number of resource events waiting to be sent. If the queue is full, JCR observation " +
+                          "waits until events have been sent. This is not used for the improved Oak listener.")
+    private static final String PROPERTY_OBSERVATION_QUEUE_SIZE = "observation.queue.size";
+
+    @Property(longValue=JcrResourceListener.DEFAULT_COALESCE_WINDOW,
+              label="Observation Coalescing Window",
+              description="Time in milliseconds resource events are held back to merge them with later added or " +
+                          "changed events for the same path. With 0, events are only merged while they are waiting " +
+                          "in the queue. This is not used for the improved Oak listener.")
+    private static final String PROPERTY_OBSERVATION_COALESCE_WINDOW = "observation.coalesce.window";
+
     private static final String REPOSITORY_REFERNENCE_NAME = "repository";
 
     /** The dynamic class loader */
@@ -156,7 +176,13 @@ public class JcrResourceProviderFactory implements ResourceProviderFactory {
                 }
             }
             if ( this.listener == null ) {
-                this.listener = new JcrResourceListener(root, support, pathMapper);
+                final int workers = PropertiesUtil.toInteger(context.getProperties().get(PROPERTY_OBSERVATION_WORKERS),
+                        JcrResourceListener.DEFAULT_WORKERS);
+                final int queueSize = PropertiesUtil.toInteger(context.getProperties().get(PROPERTY_OBSERVATION_QUEUE_SIZE),
+                        JcrResourceListener.DEFAULT_QUEUE_SIZE);
+                final long coalesceWindow = PropertiesUtil.toLong(context.getProperties().get(PROPERTY_OBSERVATION_COALESCE_WINDOW),
+                        JcrResourceListener.DEFAULT_COALESCE_WINDOW);
+                this.listener = new JcrResourceListener(root, support, pathMapper, workers, queueSize, coalesceWindow);
             }
             closeSupport = false;
         } finally {
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.jcr.resource.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sling.api.SlingConstants;
+import org.junit.After;
+import org.junit.Test;
+import org.osgi.service.event.EventConstants;
+
+public class ResourceEventDispatcherTest {
+
+    private final List<Map<String, Object>> processed = new ArrayList<Map<String, Object>>();
+
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private ResourceEventDispatcher dispatcher;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+    }
+
+    /**
+     * Creates a dispatcher whose worker waits for {@link #release} after
+     * receiving the first event, so following events stay queued.
+     */
+    private ResourceEventDispatcher createDispatcher(final int workers, final int capacity) {
+        return new ResourceEventDispatcher("test", workers, capacity, 0, new ResourceEventDispatcher.Processor() {
+
+            public void process(final Map<String, Object> event) {
+                synchronized (processed) {
+                    processed.add(event);
+                    processed.notifyAll();
+                }
+                started.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    // ignore
+                }
+            }
+        });
+    }
+
+    private Map<String, Object> properties(final String key, final String... attributes) {
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(SlingConstants.PROPERTY_USERID, "admin");
+        if (key != null) {
+            properties.put(key, attributes);
+        }
+        return properties;
+    }
+
+    private void waitForProcessed(final int count) throws InterruptedException {
+        final long end = System.currentTimeMillis() + 5000;
+        synchronized (processed) {
+            while (processed.size() < count && System.currentTimeMillis() < end) {
+                processed.wait(100);
+            }
+            assertEquals(count, processed.size());
+        }
+    }
+
+    @Test
+    public void testMergeQueuedEvents() throws Exception {
+        dispatcher = createDispatcher(1, 100);
+        dispatcher.queue("/content/first", SlingConstants.TOPIC_RESOURCE_ADDED, properties(null));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        dispatcher.queue("/content/a", SlingConstants.TOPIC_RESOURCE_ADDED, properties(null));
+        dispatcher.queue("/content/a", SlingConstants.TOPIC_RESOURCE_CHANGED,
+            properties(SlingConstants.PROPERTY_ADDED_ATTRIBUTES, "title"));
+        dispatcher.queue("/content/b", SlingConstants.TOPIC_RESOURCE_CHANGED,
+            properties(SlingConstants.PROPERTY_CHANGED_ATTRIBUTES, "title"));
+        dispatcher.queue("/content/b", SlingConstants.TOPIC_RESOURCE_CHANGED,
+            properties(SlingConstants.PROPERTY_CHANGED_ATTRIBUTES, "title", "text"));
+        dispatcher.queue("/content/b", SlingConstants.TOPIC_RESOURCE_CHANGED,
+            properties(SlingConstants.PROPERTY_REMOVED_ATTRIBUTES, "image"));
+        assertEquals(3, dispatcher.getQueuedCount());
+        assertEquals(3, dispatcher.getMergedCount());
+        assertEquals(2, dispatcher.getQueueSize());
+
+        release.countDown();
+        waitForProcessed(3);
+
+        final Map<String, Object> added = processed.get(1);
+        assertEquals("/content/a", added.get(SlingConstants.PROPERTY_PATH));
+        assertEquals(SlingConstants.TOPIC_RESOURCE_ADDED, added.get(EventConstants.EVENT_TOPIC));
+        assertArrayEquals(new String[] {"title"}, (String[]) added.get(SlingConstants.PROPERTY_ADDED_ATTRIBUTES));
+
+        final Map<String, Object> changed = processed.get(2);
+        assertEquals("/content/b", changed.get(SlingConstants.PROPERTY_PATH));
+        assertEquals(SlingConstants.TOPIC_RESOURCE_CHANGED, changed.get(EventConstants.EVENT_TOPIC));
+        assertArrayEquals(new String[] {"title", "text"}, (String[]) changed.get(SlingConstants.PROPERTY_CHANGED_ATTRIBUTES));
+        assertArrayEquals(new String[] {"image"}, (String[]) changed.get(SlingConstants.PROPERTY_REMOVED_ATTRIBUTES));
+        assertNull(changed.get(SlingConstants.PROPERTY_ADDED_ATTRIBUTES));
+    }
+
+    @Test
+    public void testNoMergeAcrossRemoval() throws Exception {
+        dispatcher = createDispatcher(1, 100);
+        dispatcher.queue("/content/first", SlingConstants.TOPIC_RESOURCE_ADDED, properties(null));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        dispatcher.queue("/content/a", SlingConstants.TOPIC_RESOURCE_ADDED, properties(null));
+        dispatcher.queue("/content/a", SlingConstants.TOPIC_RESOURCE_REMOVED, properties(null));
+        dispatcher.queue("/content/a", SlingConstants.TOPIC_RESOURCE_ADDED, properties(null));
+        final Map<String, Object> otherUser = properties(null);
+        otherUser.put(SlingConstants.PROPERTY_USERID, "other");
+        dispatcher.queue("/content/a", SlingConstants.TOPIC_RESOURCE_CHANGED, otherUser);
+        assertEquals(0, dispatcher.getMergedCount());
+
+        release.countDown();
+        waitForProcessed(5);
+        assertEquals(SlingConstants.TOPIC_RESOURCE_ADDED, processed.get(1).get(EventConstants.EVENT_TOPIC));
+        assertEquals(SlingConstants.TOPIC_RESOURCE_REMOVED, processed.get(2).get(EventConstants.EVENT_TOPIC));
+        assertEquals(SlingConstants.TOPIC_RESOURCE_ADDED, processed.get(3).get(EventConstants.EVENT_TOPIC));
+        assertEquals(SlingConstants.TOPIC_RESOURCE_CHANGED, processed.get(4).get(EventConstants.EVENT_TOPIC));
+    }
+
+    @Test
+    public void testNoMergeAcrossRemovalOfAncestor() throws Exception {
+        dispatcher = createDispatcher(1, 100);
+        dispatcher.queue("/content/first", SlingConstants.TOPIC_RESOURCE_ADDED, properties(null));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        dispatcher.queue("/a/b", SlingConstants.TOPIC_RESOURCE_ADDED, properties(null));
+        dispatcher.queue("/a", SlingConstants.TOPIC_RESOURCE_REMOVED, properties(null));
+        dispatcher.queue("/a", SlingConstants.TOPIC_RESOURCE_ADDED, properties(null));
+        dispatcher.queue("/a/b", SlingConstants.TOPIC_RESOURCE_ADDED, properties(null));
+        // unrelated siblings are still merged
+        dispatcher.queue("/ab", SlingConstants.TOPIC_RESOURCE_ADDED, properties(null));
+        dispatcher.queue("/a", SlingConstants.TOPIC_RESOURCE_REMOVED, properties(null));
+        dispatcher.queue("/ab", SlingConstants.TOPIC_RESOURCE_CHANGED, properties(null));
+        assertEquals(1, dispatcher.getMergedCount());
+
+        release.countDown();
+        waitForProcessed(7);
+        final String[] expected = new String[] {
+            SlingConstants.TOPIC_RESOURCE_ADDED + " /a/b",
+            SlingConstants.TOPIC_RESOURCE_REMOVED + " /a",
+            SlingConstants.TOPIC_RESOURCE_ADDED + " /a",
+            SlingConstants.TOPIC_RESOURCE_ADDED + " /a/b",
+            SlingConstants.TOPIC_RESOURCE_ADDED + " /ab",
+            SlingConstants.TOPIC_RESOURCE_REMOVED + " /a"
+        };
+        for (int i = 0; i < expected.length; i++) {
+            final Map<String, Object> event = processed.get(i + 1);
+            assertEquals(expected[i], event.get(EventConstants.EVENT_TOPIC) + " " + event.get(SlingConstants.PROPERTY_PATH));
+        }
+    }
+
+    @Test
+    public void testPartitionBySubtree() {
+        dispatcher = createDispatcher(4, 100);
+        final int index = dispatcher.getPartitionIndex("/content");
+        assertEquals(index, dispatcher.getPartitionIndex("/content/a"));
+        assertEquals(index, dispatcher.getPartitionIndex("/content/a/b/c"));
+    }
+
+    @Test
+    public void testBlockWhenFull() throws Exception {
+        dispatcher = createDispatcher(1, 1);
+        dispatcher.queue("/content/first", SlingConstants.TOPIC_RESOURCE_ADDED, properties(null));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        dispatcher.queue("/content/a", SlingConstants.TOPIC_RESOURCE_ADDED, properties(null));
+
+        final Thread producer = new Thread() {
+            @Override
+            public void run() {
+                dispatcher.queue("/content/b", SlingConstants.TOPIC_RESOURCE_ADDED, properties(null));
+            }
+        };
+        producer.start();
+        final long end = System.currentTimeMillis() + 5000;
+        while (dispatcher.getBlockedCount() == 0 && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, dispatcher.getBlockedCount());
+        assertTrue(producer.isAlive());
+
+        release.countDown();
+        producer.join(5000);
+        waitForProcessed(3);
+        assertEquals("/content/b", processed.get(2).get(SlingConstants.PROPERTY_PATH));
+    }
+}
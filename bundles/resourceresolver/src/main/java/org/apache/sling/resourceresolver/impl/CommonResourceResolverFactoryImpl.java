@@ -37,6 +37,7 @@ import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ResourceResolverFactory;
 import org.apache.sling.resourceresolver.impl.console.ResourceResolverWebConsolePlugin;
 import org.apache.sling.resourceresolver.impl.helper.ResourceDecoratorTracker;
+import org.apache.sling.resourceresolver.impl.helper.ResourceLookupCache;
 import org.apache.sling.resourceresolver.impl.helper.ResourceResolverContext;
 import org.apache.sling.resourceresolver.impl.mapping.MapConfigurationProvider;
 import org.apache.sling.resourceresolver.impl.mapping.MapEntries;
@@ -79,6 +80,9 @@ public class CommonResourceResolverFactoryImpl implements ResourceResolverFactor
     /** Background thread handling disposing of resource resolver instances. */
     private final Thread refQueueThread;
 
+    /** Lookup cache counters of all resource resolvers. */
+    private final ResourceLookupCache.Statistics lookupCacheStatistics = new ResourceLookupCache.Statistics();
+
     /**
      * Create a new common resource resolver factory.
      */
@@ -356,6 +360,14 @@ public class CommonResourceResolverFactoryImpl implements ResourceResolverFactor
         return this.activator.hasVanityPathPrecedence();
     }
 
+    public int getLookupCacheSize() {
+        return this.activator.getLookupCacheSize();
+    }
+
+    public ResourceLookupCache.Statistics getLookupCacheStatistics() {
+        return this.lookupCacheStatistics;
+    }
+
     public List<VanityPathConfig> getVanityPathConfig() {
         final String[] includes = this.activator.getVanityPathWhiteList();
         final String[] excludes = this.activator.getVanityPathBlackList();
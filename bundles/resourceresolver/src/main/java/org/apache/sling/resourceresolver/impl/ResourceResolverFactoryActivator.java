@@ -236,6 +236,16 @@ public class ResourceResolverFactoryActivator implements Runnable {
                           + "for memory leaks caused by objects hold from that resource provider.")
     private static final String PROP_PARANOID_PROVIDER_HANDLING = "resource.resolver.providerhandling.paranoid";
 
+    private static final int DEFAULT_LOOKUP_CACHE_SIZE = 0;
+    @Property(intValue = DEFAULT_LOOKUP_CACHE_SIZE,
+              label = "Lookup Cache Size",
+              description = "The maximum number of resource lookups (found resources and misses) each resource "
+                          + "resolver remembers until it is committed, reverted, refreshed or modified through "
+                          + "its create and delete methods. Changes made through other APIs such as the JCR "
+                          + "Session are not noticed, so this should only be enabled if resolvers are not used "
+                          + "that way. A value of 0 disables the cache.")
+    private static final String PROP_LOOKUP_CACHE_SIZE = "resource.resolver.lookup.cache.size";
+
     /** Tracker for the resource decorators. */
     private final ResourceDecoratorTracker resourceDecoratorTracker = new ResourceDecoratorTracker();
 
@@ -291,6 +301,9 @@ public class ResourceResolverFactoryActivator implements Runnable {
     /** vanity paths will have precedence over existing /etc/map mapping? */
     private boolean vanityPathPrecedence = DEFAULT_VANITY_PATH_PRECEDENCE;
 
+    /** max number of lookups cached per resource resolver */
+    private int lookupCacheSize = DEFAULT_LOOKUP_CACHE_SIZE;
+
 
     /** Vanity path whitelist */
     private String[] vanityPathWhiteList;
@@ -399,6 +412,10 @@ public class ResourceResolverFactoryActivator implements Runnable {
         return this.vanityBloomFilterMaxBytes;
     }
 
+    public int getLookupCacheSize() {
+        return this.lookupCacheSize;
+    }
+
     // ---------- SCR Integration ---------------------------------------------
 
     /**
@@ -507,6 +524,8 @@ public class ResourceResolverFactoryActivator implements Runnable {
 
         this.vanityPathPrecedence = PropertiesUtil.toBoolean(properties.get(PROP_VANITY_PATH_PRECEDENCE), DEFAULT_VANITY_PATH_PRECEDENCE);
 
+        this.lookupCacheSize = PropertiesUtil.toInteger(properties.get(PROP_LOOKUP_CACHE_SIZE), DEFAULT_LOOKUP_CACHE_SIZE);
+
         final BundleContext bc = componentContext.getBundleContext();
 
         // check for required property
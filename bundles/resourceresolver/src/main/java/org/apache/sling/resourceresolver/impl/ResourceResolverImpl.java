@@ -51,6 +51,7 @@ import org.apache.sling.resourceresolver.impl.helper.RedirectResource;
 import org.apache.sling.resourceresolver.impl.helper.ResourceIterator;
 import org.apache.sling.resourceresolver.impl.helper.ResourceIteratorDecorator;
 import org.apache.sling.resourceresolver.impl.helper.ResourcePathIterator;
+import org.apache.sling.resourceresolver.impl.helper.ResourceLookupCache;
 import org.apache.sling.resourceresolver.impl.helper.ResourceResolverContext;
 import org.apache.sling.resourceresolver.impl.helper.StarResource;
 import org.apache.sling.resourceresolver.impl.helper.URI;
@@ -99,6 +100,9 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
     /** Resource resolver context. */
     private final ResourceResolverContext context;
 
+    /** Cache of the resource provider lookups done by this resolver. */
+    private final ResourceLookupCache lookupCache;
+
     /**
      * The resource resolver context.
      */
@@ -106,6 +110,7 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
             final ResourceResolverContext ctx) {
         this.factory = factory;
         this.context = ctx;
+        this.lookupCache = new ResourceLookupCache(factory.getLookupCacheSize(), factory.getLookupCacheStatistics());
         this.factory.register(this, ctx);
     }
 
@@ -147,6 +152,7 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
      */
     public void close() {
         if ( this.isClosed.compareAndSet(false, true)) {
+            this.lookupCache.clear();
             this.factory.unregister(this, this.context);
         }
     }
@@ -492,7 +498,9 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
         }
 
         boolean mappedPathIsUrl = false;
-        for (final MapEntry mapEntry : this.factory.getMapEntries().getMapMaps()) {
+        final Iterator<MapEntry> mapEntriesIterator = this.factory.getMapEntries().getMapMapsIterator(mappedPath);
+        while (mapEntriesIterator.hasNext()) {
+            final MapEntry mapEntry = mapEntriesIterator.next();
             final String[] mappedPaths = mapEntry.replace(mappedPath);
             if (mappedPaths != null) {
 
@@ -981,11 +989,21 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
     }
 
     /**
-     * Creates a resource with the given path if existing
+     * Creates a resource with the given path if existing. Lookups without
+     * parameters are served from and recorded in the lookup cache.
      */
     private Resource getAbsoluteResourceInternal(final String path, final Map<String, String> parameters, final boolean isResolve) {
 
-        final Resource resource = this.factory.getRootProviderEntry().getResource(this.context, this, path, parameters, isResolve);
+        final boolean cacheable = this.lookupCache.isEnabled() && (parameters == null || parameters.isEmpty());
+        final Resource resource;
+        if (cacheable && this.lookupCache.contains(path, isResolve)) {
+            resource = this.lookupCache.get(path, isResolve);
+        } else {
+            resource = this.factory.getRootProviderEntry().getResource(this.context, this, path, parameters, isResolve);
+            if (cacheable) {
+                this.lookupCache.put(path, isResolve, resource);
+            }
+        }
         if (resource != null) {
             resource.getResourceMetadata().setResolutionPath(path);
             resource.getResourceMetadata().setParameterMap(parameters);
@@ -1103,6 +1121,7 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
             return;
         }
         // if resource is null, we get an NPE as stated in the API
+        this.lookupCache.clear();
         this.factory.getRootProviderEntry().delete(this.context, this, resource);
     }
 
@@ -1129,6 +1148,7 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
         if ( ResourceUtil.isSyntheticResource(parent) ) {
             this.create(parent.getParent(), parent.getName(), null);
         }
+        this.lookupCache.clear();
         final Resource rsrc = this.factory.getRootProviderEntry().create(this.context, this, path, properties);
         return this.factory.getResourceDecoratorTracker().decorate(rsrc);
     }
@@ -1137,6 +1157,7 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
      * @see org.apache.sling.api.resource.ResourceResolver#revert()
      */
     public void revert() {
+        this.lookupCache.clear();
         this.context.revert(this);
     }
 
@@ -1144,6 +1165,7 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
      * @see org.apache.sling.api.resource.ResourceResolver#commit()
      */
     public void commit() throws PersistenceException {
+        this.lookupCache.clear();
         this.context.commit(this);
     }
 
@@ -1212,6 +1234,7 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
      * @see org.apache.sling.api.resource.ResourceResolver#refresh()
      */
     public void refresh() {
+        this.lookupCache.clear();
         this.context.refresh();
     }
 }
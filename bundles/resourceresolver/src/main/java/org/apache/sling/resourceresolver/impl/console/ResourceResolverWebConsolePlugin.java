@@ -40,6 +40,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.sling.api.request.ResponseUtil;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.resourceresolver.impl.CommonResourceResolverFactoryImpl;
+import org.apache.sling.resourceresolver.impl.helper.ResourceLookupCache;
 import org.apache.sling.resourceresolver.impl.helper.URI;
 import org.apache.sling.resourceresolver.impl.helper.URIException;
 import org.apache.sling.resourceresolver.impl.mapping.MapEntries;
@@ -130,6 +131,31 @@ public class ResourceResolverWebConsolePlugin extends HttpServlet {
 
         separatorHtml(pw);
 
+        titleHtml(pw, "Lookup Cache",
+                "Counters of the resource lookups cached per resource resolver, summed up over all resource resolvers");
+        final ResourceLookupCache.Statistics statistics = resolverFactory.getLookupCacheStatistics();
+        pw.println("<tr class='content'>");
+        pw.println("<td class='content'>Maximum Size</td>");
+        pw.print("<td class='content' colspan='2'>");
+        final int lookupCacheSize = resolverFactory.getLookupCacheSize();
+        pw.print(lookupCacheSize > 0 ? String.valueOf(lookupCacheSize) : "Disabled");
+        pw.print("</td>");
+        pw.println("</tr>");
+        pw.println("<tr class='content'>");
+        pw.println("<td class='content'>Hits / Misses</td>");
+        pw.print("<td class='content' colspan='2'>");
+        pw.print(statistics.getHits() + " / " + statistics.getMisses());
+        pw.print("</td>");
+        pw.println("</tr>");
+        pw.println("<tr class='content'>");
+        pw.println("<td class='content'>Evictions / Invalidations</td>");
+        pw.print("<td class='content' colspan='2'>");
+        pw.print(statistics.getEvictions() + " / " + statistics.getInvalidations());
+        pw.print("</td>");
+        pw.println("</tr>");
+
+        separatorHtml(pw);
+
         titleHtml(
                 pw,
                 "Configuration Test",
@@ -264,6 +290,14 @@ public class ResourceResolverWebConsolePlugin extends HttpServlet {
         separatorText(pw);
 
         dumpMapText(pw, "Mapping Map Entries", mapEntries.getMapMaps());
+
+        separatorText(pw);
+
+        final ResourceLookupCache.Statistics statistics = resolverFactory.getLookupCacheStatistics();
+        pw.println("Lookup Cache");
+        pw.printf("Maximum Size: %d%n", resolverFactory.getLookupCacheSize());
+        pw.printf("Hits: %d, Misses: %d, Evictions: %d, Invalidations: %d%n", statistics.getHits(),
+                statistics.getMisses(), statistics.getEvictions(), statistics.getInvalidations());
     }
 
     // ---------- internal
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourceresolver.impl.helper;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceMetadata;
+import org.apache.sling.api.resource.ResourceWrapper;
+
+/**
+ * The <code>ResourceLookupCache</code> remembers the outcome of looking up
+ * absolute paths in the resource providers for a single resource resolver.
+ * Both found resources and misses are kept, bounded by the configured size
+ * with the least recently used entry being evicted first.
+ * <p>
+ * As the resources provided by the cache are shared between callers, each hit
+ * is returned as a wrapper with its own copy of the resource metadata taken
+ * when the resource was first looked up.
+ * <p>
+ * Like a resource resolver itself, this class is not thread safe.
+ */
+public class ResourceLookupCache {
+
+    /** Marker for paths which could not be resolved. */
+    private static final Entry MISS = new Entry(null, null);
+
+    private final int maxSize;
+
+    private final Statistics statistics;
+
+    private final Map<String, Entry> entries;
+
+    /**
+     * Create a new cache holding at most <code>maxSize</code> lookups.
+     */
+    public ResourceLookupCache(final int maxSize, final Statistics statistics) {
+        this.maxSize = maxSize;
+        this.statistics = statistics;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                if (size() > ResourceLookupCache.this.maxSize) {
+                    ResourceLookupCache.this.statistics.evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Is this cache storing anything at all?
+     */
+    public boolean isEnabled() {
+        return this.maxSize > 0;
+    }
+
+    /**
+     * Returns <code>true</code> if there is a cached lookup for the path.
+     */
+    public boolean contains(final String path, final boolean isResolve) {
+        final boolean found = this.entries.containsKey(getKey(path, isResolve));
+        if (found) {
+            this.statistics.hits.incrementAndGet();
+        } else {
+            this.statistics.misses.incrementAndGet();
+        }
+        return found;
+    }
+
+    /**
+     * Returns the cached resource for the path or <code>null</code> if the
+     * lookup of the path has not found a resource. This method should only be
+     * called after {@link #contains(String, boolean)} returned
+     * <code>true</code>.
+     */
+    public Resource get(final String path, final boolean isResolve) {
+        final Entry entry = this.entries.get(getKey(path, isResolve));
+        if (entry == null || entry.resource == null) {
+            return null;
+        }
+        final ResourceMetadata metadata = new ResourceMetadata();
+        metadata.putAll(entry.metadata);
+        return new CachedResource(entry.resource, metadata);
+    }
+
+    /**
+     * Remember the outcome of looking up the path. <code>resource</code> is
+     * <code>null</code> if no resource exists at the path.
+     */
+    public void put(final String path, final boolean isResolve, final Resource resource) {
+        final Entry entry;
+        if (resource == null) {
+            entry = MISS;
+        } else {
+            final ResourceMetadata metadata = new ResourceMetadata();
+            metadata.putAll(resource.getResourceMetadata());
+            entry = new Entry(resource, metadata);
+        }
+        this.entries.put(getKey(path, isResolve), entry);
+    }
+
+    /**
+     * Drop all cached lookups.
+     */
+    public void clear() {
+        if (!this.entries.isEmpty()) {
+            this.entries.clear();
+            this.statistics.invalidations.incrementAndGet();
+        }
+    }
+
+    private static String getKey(final String path, final boolean isResolve) {
+        return isResolve ? path : "!".concat(path);
+    }
+
+    private static final class Entry {
+
+        final Resource resource;
+
+        final ResourceMetadata metadata;
+
+        Entry(final Resource resource, final ResourceMetadata metadata) {
+            this.resource = resource;
+            this.metadata = metadata;
+        }
+    }
+
+    /**
+     * Wrapper returned for cache hits, decoupling the metadata from the
+     * instance held by the cache.
+     */
+    private static final class CachedResource extends ResourceWrapper {
+
+        private final ResourceMetadata metadata;
+
+        CachedResource(final Resource resource, final ResourceMetadata metadata) {
+            super(resource);
+            this.metadata = metadata;
+        }
+
+        @Override
+        public ResourceMetadata getResourceMetadata() {
+            return this.metadata;
+        }
+    }
+
+    /**
+     * Counters shared by the lookup caches of all resource resolvers created
+     * by one factory.
+     */
+    public static final class Statistics {
+
+        private final AtomicLong hits = new AtomicLong();
+
+        private final AtomicLong misses = new AtomicLong();
+
+        private final AtomicLong evictions = new AtomicLong();
+
+        private final AtomicLong invalidations = new AtomicLong();
+
+        public long getHits() {
+            return this.hits.get();
+        }
+
+        public long getMisses() {
+            return this.misses.get();
+        }
+
+        public long getEvictions() {
+            return this.evictions.get();
+        }
+
+        public long getInvalidations() {
+            return this.invalidations.get();
+        }
+    }
+}
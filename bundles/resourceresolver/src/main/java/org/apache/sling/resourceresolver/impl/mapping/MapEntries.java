@@ -110,6 +110,12 @@ public class MapEntries implements EventHandler {
 
     private Collection<MapEntry> mapMaps;
 
+    /** Compiled index over the global resolve map entries */
+    private volatile MapEntryMatcher resolveMapsMatcher;
+
+    /** Compiled index over the map entries used for mapping */
+    private volatile MapEntryMatcher mapMapsMatcher;
+
     private Map <String,List <String>> vanityTargets;
 
     private Map<String, Map<String, String>> aliasMap;
@@ -150,6 +156,8 @@ public class MapEntries implements EventHandler {
 
         this.resolveMapsMap = Collections.singletonMap(GLOBAL_LIST_KEY, (List<MapEntry>)Collections.EMPTY_LIST);
         this.mapMaps = Collections.<MapEntry> emptyList();
+        this.resolveMapsMatcher = MapEntryMatcher.EMPTY;
+        this.mapMapsMatcher = MapEntryMatcher.EMPTY;
         this.vanityTargets = Collections.<String,List <String>>emptyMap();
         this.aliasMap = Collections.<String, Map<String, String>>emptyMap();
         this.registration = null;
@@ -180,6 +188,8 @@ public class MapEntries implements EventHandler {
 
         this.resolveMapsMap = Collections.singletonMap(GLOBAL_LIST_KEY, (List<MapEntry>)Collections.EMPTY_LIST);
         this.mapMaps = Collections.<MapEntry> emptyList();
+        this.resolveMapsMatcher = MapEntryMatcher.EMPTY;
+        this.mapMapsMatcher = MapEntryMatcher.EMPTY;
         this.vanityTargets = Collections.<String,List <String>>emptyMap();
         this.aliasMap = Collections.<String, Map<String, String>>emptyMap();
 
@@ -441,7 +451,9 @@ public class MapEntries implements EventHandler {
         // sort global list and add to map
         Collections.sort(globalResolveMap);
         resolveMapsMap.put(GLOBAL_LIST_KEY, globalResolveMap);
+        this.resolveMapsMatcher = MapEntryMatcher.compile(globalResolveMap);
         this.mapMaps = Collections.unmodifiableSet(new TreeSet<MapEntry>(newMapMaps.values()));
+        this.mapMapsMatcher = MapEntryMatcher.compile(this.mapMaps);
     }
 
     private void doAddVanity(String path) {
@@ -682,6 +694,8 @@ public class MapEntries implements EventHandler {
     /**
      * Calculate the resolve maps. As the entries have to be sorted by pattern
      * length, we have to create a new list containing all relevant entries.
+     * Global entries which cannot match the request path because their
+     * literal prefix differs are skipped.
      */
     public Iterator<MapEntry> getResolveMapsIterator(final String requestPath) {
         String key = null;
@@ -691,13 +705,23 @@ public class MapEntries implements EventHandler {
             key = requestPath.substring(secondIndex);
         }
 
-        return new MapEntryIterator(key, resolveMapsMap, vanityPathPrecedence);
+        return new MapEntryIterator(key, resolveMapsMap, resolveMapsMatcher.getCandidates(requestPath),
+                vanityPathPrecedence);
     }
 
     public Collection<MapEntry> getMapMaps() {
         return mapMaps;
     }
 
+    /**
+     * Returns the map entries which may match the given resource path in the
+     * same order as {@link #getMapMaps()}. Entries which cannot match the path
+     * because their literal prefix differs are skipped.
+     */
+    public Iterator<MapEntry> getMapMapsIterator(final String resourcePath) {
+        return mapMapsMatcher.getCandidates(resourcePath);
+    }
+
     public Map<String, String> getAliasMap(final String parentPath) {
         return aliasMap.get(parentPath);
     }
@@ -1399,10 +1423,11 @@ public class MapEntries implements EventHandler {
         
         private boolean vanityPathPrecedence;
 
-        public MapEntryIterator(final String startKey, final Map<String, List<MapEntry>> resolveMapsMap, final boolean vanityPathPrecedence) {
+        public MapEntryIterator(final String startKey, final Map<String, List<MapEntry>> resolveMapsMap,
+                final Iterator<MapEntry> globalListIterator, final boolean vanityPathPrecedence) {
             this.key = startKey;
             this.resolveMapsMap = resolveMapsMap;
-            this.globalListIterator = this.resolveMapsMap.get(GLOBAL_LIST_KEY).iterator();
+            this.globalListIterator = globalListIterator;
             this.vanityPathPrecedence = vanityPathPrecedence;
             this.seek();
         }
@@ -0,0 +1,336 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourceresolver.impl.mapping;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+/**
+ * The <code>MapEntryMatcher</code> is an immutable index over an ordered
+ * collection of {@link MapEntry} instances.
+ * <p>
+ * Each entry pattern is reduced to the literal prefix any matching value must
+ * start with. These prefixes are compiled into a character trie such that the
+ * candidate entries for a value are found by walking the value once instead of
+ * evaluating every regular expression. Patterns starting with
+ * {@link MapEntries#ANY_SCHEME_HOST} are indexed on the literal following the
+ * scheme and host part. Entries without a usable literal prefix are always
+ * returned as candidates.
+ * <p>
+ * Candidates are returned in the order of the collection the matcher has been
+ * compiled from, so the first candidate whose {@link MapEntry#replace(String)}
+ * succeeds is the same entry a linear scan of that collection would find.
+ */
+final class MapEntryMatcher {
+
+    static final MapEntryMatcher EMPTY = compile(Collections.<MapEntry> emptyList());
+
+    /** Pattern prefix shared by all entries ignoring scheme and host. */
+    private static final String ANY_SCHEME_HOST_PREFIX = "^" + MapEntries.ANY_SCHEME_HOST;
+
+    /** Characters with a special meaning in a regular expression */
+    private static final String META_CHARS = "\\^$.|?*+()[]{}";
+
+    private final MapEntry[] entries;
+
+    /** Entries with a literal prefix anchored at the start of the value */
+    private final Node root;
+
+    /** Entries with a literal prefix following the scheme and host */
+    private final Node anySchemeHostRoot;
+
+    /** Indexes of the entries which must always be evaluated */
+    private final int[] unindexed;
+
+    private MapEntryMatcher(final MapEntry[] entries, final Node root, final Node anySchemeHostRoot,
+            final int[] unindexed) {
+        this.entries = entries;
+        this.root = root;
+        this.anySchemeHostRoot = anySchemeHostRoot;
+        this.unindexed = unindexed;
+    }
+
+    /**
+     * Compiles the given entries into a new matcher. The iteration order of
+     * the collection defines the order in which candidates are returned.
+     */
+    static MapEntryMatcher compile(final Collection<MapEntry> entries) {
+        final MapEntry[] array = entries.toArray(new MapEntry[entries.size()]);
+        final Builder root = new Builder();
+        final Builder anySchemeHostRoot = new Builder();
+        final IntList unindexed = new IntList();
+
+        for (int i = 0; i < array.length; i++) {
+            final String pattern = array[i].getPattern();
+            if (pattern.startsWith(ANY_SCHEME_HOST_PREFIX)) {
+                final String prefix = getLiteralPrefix(pattern, ANY_SCHEME_HOST_PREFIX.length());
+                // only index if the host part is terminated by a slash,
+                // otherwise [^/]+ might also consume part of the literal
+                if (prefix != null && prefix.startsWith("/")) {
+                    anySchemeHostRoot.add(prefix, i);
+                } else {
+                    unindexed.add(i);
+                }
+            } else if (pattern.startsWith("^")) {
+                final String prefix = getLiteralPrefix(pattern, 1);
+                if (prefix != null && prefix.length() > 0) {
+                    root.add(prefix, i);
+                } else {
+                    unindexed.add(i);
+                }
+            } else {
+                unindexed.add(i);
+            }
+        }
+
+        return new MapEntryMatcher(array, root.build(), anySchemeHostRoot.build(), unindexed.toArray());
+    }
+
+    /**
+     * Returns the entries which may match the given value in the order of
+     * the collection this matcher has been compiled from.
+     */
+    Iterator<MapEntry> getCandidates(final String value) {
+        final IntList candidates = new IntList();
+        candidates.addAll(this.unindexed);
+
+        this.root.collect(value, 0, candidates);
+
+        // [^/]+/[^/]+ must end right before the second slash of the value
+        final int firstSlash = value.indexOf('/');
+        if (firstSlash > 0) {
+            final int secondSlash = value.indexOf('/', firstSlash + 1);
+            if (secondSlash > firstSlash + 1) {
+                this.anySchemeHostRoot.collect(value, secondSlash, candidates);
+            }
+        }
+
+        final int[] indexes = candidates.toArray();
+        Arrays.sort(indexes);
+        return new CandidateIterator(this.entries, indexes);
+    }
+
+    /**
+     * Returns the number of entries in this matcher.
+     */
+    int size() {
+        return this.entries.length;
+    }
+
+    /**
+     * Returns the literal text any string matched by the pattern must start
+     * with, beginning at the given offset of the pattern. An empty string is
+     * returned if the pattern starts with a regular expression construct and
+     * <code>null</code> if the pattern contains a top level alternation which
+     * makes any prefix meaningless.
+     */
+    static String getLiteralPrefix(final String pattern, final int offset) {
+        if (hasTopLevelAlternation(pattern)) {
+            return null;
+        }
+
+        final StringBuilder prefix = new StringBuilder();
+        int i = offset;
+        while (i < pattern.length()) {
+            final char c = pattern.charAt(i);
+            final char literal;
+            final int next;
+            if (c == '\\') {
+                if (i + 1 >= pattern.length()) {
+                    break;
+                }
+                final char escaped = pattern.charAt(i + 1);
+                // letters and digits denote classes, back references,
+                // quoting and the like
+                if (Character.isLetterOrDigit(escaped)) {
+                    break;
+                }
+                literal = escaped;
+                next = i + 2;
+            } else if (META_CHARS.indexOf(c) >= 0) {
+                break;
+            } else {
+                literal = c;
+                next = i + 1;
+            }
+
+            // a quantified character is not part of the literal prefix
+            if (next < pattern.length() && "?*+{".indexOf(pattern.charAt(next)) >= 0) {
+                break;
+            }
+
+            prefix.append(literal);
+            i = next;
+        }
+
+        return prefix.toString();
+    }
+
+    private static boolean hasTopLevelAlternation(final String pattern) {
+        int depth = 0;
+        boolean inClass = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            final char c = pattern.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (inClass) {
+                if (c == ']') {
+                    inClass = false;
+                }
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ---------- internal
+
+    /**
+     * Immutable trie node. Child nodes are kept in arrays sorted by their
+     * character to allow binary search without boxing.
+     */
+    private static final class Node {
+
+        private final char[] chars;
+
+        private final Node[] children;
+
+        private final int[] entries;
+
+        Node(final char[] chars, final Node[] children, final int[] entries) {
+            this.chars = chars;
+            this.children = children;
+            this.entries = entries;
+        }
+
+        void collect(final String value, final int start, final IntList candidates) {
+            Node node = this;
+            candidates.addAll(node.entries);
+            for (int i = start; i < value.length(); i++) {
+                final int idx = Arrays.binarySearch(node.chars, value.charAt(i));
+                if (idx < 0) {
+                    return;
+                }
+                node = node.children[idx];
+                candidates.addAll(node.entries);
+            }
+        }
+    }
+
+    /**
+     * Mutable trie node used while compiling the matcher.
+     */
+    private static final class Builder {
+
+        private final TreeMap<Character, Builder> children = new TreeMap<Character, Builder>();
+
+        private final IntList entries = new IntList();
+
+        void add(final String prefix, final int index) {
+            Builder node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                final Character c = prefix.charAt(i);
+                Builder child = node.children.get(c);
+                if (child == null) {
+                    child = new Builder();
+                    node.children.put(c, child);
+                }
+                node = child;
+            }
+            node.entries.add(index);
+        }
+
+        Node build() {
+            final char[] chars = new char[this.children.size()];
+            final Node[] nodes = new Node[this.children.size()];
+            int i = 0;
+            for (final Map.Entry<Character, Builder> child : this.children.entrySet()) {
+                chars[i] = child.getKey();
+                nodes[i] = child.getValue().build();
+                i++;
+            }
+            return new Node(chars, nodes, this.entries.toArray());
+        }
+    }
+
+    private static final class IntList {
+
+        private int[] values = new int[8];
+
+        private int size;
+
+        void add(final int value) {
+            if (this.size == this.values.length) {
+                this.values = Arrays.copyOf(this.values, this.size * 2);
+            }
+            this.values[this.size++] = value;
+        }
+
+        void addAll(final int[] values) {
+            for (final int value : values) {
+                add(value);
+            }
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(this.values, this.size);
+        }
+    }
+
+    private static final class CandidateIterator implements Iterator<MapEntry> {
+
+        private final MapEntry[] entries;
+
+        private final int[] indexes;
+
+        private int pos;
+
+        CandidateIterator(final MapEntry[] entries, final int[] indexes) {
+            this.entries = entries;
+            this.indexes = indexes;
+        }
+
+        public boolean hasNext() {
+            return this.pos < this.indexes.length;
+        }
+
+        public MapEntry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return this.entries[this.indexes[this.pos++]];
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
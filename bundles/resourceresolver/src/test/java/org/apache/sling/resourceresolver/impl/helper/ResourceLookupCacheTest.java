@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourceresolver.impl.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceMetadata;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class ResourceLookupCacheTest {
+
+    private final ResourceLookupCache.Statistics statistics = new ResourceLookupCache.Statistics();
+
+    @Test public void testDisabled() {
+        final ResourceLookupCache cache = new ResourceLookupCache(0, statistics);
+        assertFalse(cache.isEnabled());
+
+        cache.put("/content", true, null);
+        assertFalse(cache.contains("/content", true));
+        assertEquals(1, statistics.getMisses());
+    }
+
+    @Test public void testHitsAndMisses() {
+        final ResourceLookupCache cache = new ResourceLookupCache(10, statistics);
+        assertTrue(cache.isEnabled());
+
+        final Resource resource = createResource("/content/a");
+        assertFalse(cache.contains("/content/a", true));
+        cache.put("/content/a", true, resource);
+        cache.put("/content/a.html", true, null);
+
+        assertTrue(cache.contains("/content/a", true));
+        assertFalse(cache.contains("/content/a", false));
+        final Resource hit = cache.get("/content/a", true);
+        assertEquals(resource, ResourceUtil.unwrap(hit));
+
+        assertTrue(cache.contains("/content/a.html", true));
+        assertNull(cache.get("/content/a.html", true));
+
+        assertEquals(2, statistics.getHits());
+        assertEquals(2, statistics.getMisses());
+    }
+
+    @Test public void testMetadataIsCopied() {
+        final ResourceLookupCache cache = new ResourceLookupCache(10, statistics);
+        final Resource resource = createResource("/content/a");
+        cache.put("/content/a", true, resource);
+
+        // callers modifying the original must not affect hits
+        resource.getResourceMetadata().setResolutionPathInfo(".html");
+
+        final Resource first = cache.get("/content/a", true);
+        final Resource second = cache.get("/content/a", true);
+        assertNull(first.getResourceMetadata().getResolutionPathInfo());
+        assertNotSame(first.getResourceMetadata(), second.getResourceMetadata());
+    }
+
+    @Test public void testEvictionAndClear() {
+        final ResourceLookupCache cache = new ResourceLookupCache(2, statistics);
+        cache.put("/a", true, null);
+        cache.put("/b", true, null);
+        cache.put("/c", true, null);
+        assertEquals(1, statistics.getEvictions());
+        assertFalse(cache.contains("/a", true));
+        assertTrue(cache.contains("/c", true));
+
+        cache.clear();
+        assertEquals(1, statistics.getInvalidations());
+        assertFalse(cache.contains("/c", true));
+    }
+
+    private Resource createResource(final String path) {
+        final Resource resource = Mockito.mock(Resource.class);
+        Mockito.when(resource.getPath()).thenReturn(path);
+        Mockito.when(resource.getResourceMetadata()).thenReturn(new ResourceMetadata());
+        return resource;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourceresolver.impl.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MapEntryMatcherTest {
+
+    @Test public void test_literal_prefix() {
+        assertEquals("http/localhost", MapEntryMatcher.getLiteralPrefix("^http/localhost.80/", 1));
+        assertEquals("http/localhost.80/", MapEntryMatcher.getLiteralPrefix("^http/localhost\\.80/", 1));
+        assertEquals("/content/", MapEntryMatcher.getLiteralPrefix("^[^/]+/[^/]+/content/(.*)", 12));
+        assertEquals("/content", MapEntryMatcher.getLiteralPrefix("^/contents?", 1));
+        assertEquals("", MapEntryMatcher.getLiteralPrefix("^\\d+/", 1));
+        assertEquals("", MapEntryMatcher.getLiteralPrefix("^(?i)/content", 1));
+        assertNull(MapEntryMatcher.getLiteralPrefix("^/a|/b", 1));
+        assertEquals("/a", MapEntryMatcher.getLiteralPrefix("^/a(b|c)", 1));
+    }
+
+    @Test public void test_candidates_keep_order() {
+        final List<MapEntry> entries = new ArrayList<MapEntry>();
+        entries.add(new MapEntry("^http/localhost.80/content/site/", -1, false, 0, "/site/"));
+        entries.add(new MapEntry("^" + MapEntries.ANY_SCHEME_HOST + "/content/other$", -1, false, 0, "/other"));
+        entries.add(new MapEntry("^http/localhost.80/", -1, false, 0, "/"));
+        entries.add(new MapEntry("^[a-z]+/localhost.80/", -1, false, 0, "/any/"));
+        entries.add(new MapEntry("^https/", -1, false, 0, "/secure/"));
+        Collections.sort(entries);
+
+        final MapEntryMatcher matcher = MapEntryMatcher.compile(entries);
+        assertEquals(entries.size(), matcher.size());
+
+        assertCandidates(entries, matcher, "http/localhost.80/content/site/page.html");
+        assertCandidates(entries, matcher, "http/localhost.80/content/other");
+        assertCandidates(entries, matcher, "https/localhost.443/content/other");
+        assertCandidates(entries, matcher, "ftp/example.com.21/");
+        assertCandidates(entries, matcher, "/content");
+    }
+
+    @Test public void test_skips_non_matching() {
+        final List<MapEntry> entries = new ArrayList<MapEntry>();
+        entries.add(new MapEntry("^/content/a/", 302, false, 0, "http://a.example.com/"));
+        entries.add(new MapEntry("^/content/b/", 302, false, 0, "http://b.example.com/"));
+        entries.add(new MapEntry("^/content/", 302, false, 0, "http://example.com/"));
+        Collections.sort(entries);
+
+        final MapEntryMatcher matcher = MapEntryMatcher.compile(entries);
+        final Iterator<MapEntry> candidates = matcher.getCandidates("/content/b/page");
+        assertEquals("^/content/b/", candidates.next().getPattern());
+        assertEquals("^/content/", candidates.next().getPattern());
+        assertEquals(false, candidates.hasNext());
+
+        assertEquals(false, matcher.getCandidates("/libs/foo").hasNext());
+        assertEquals(false, MapEntryMatcher.EMPTY.getCandidates("/libs/foo").hasNext());
+    }
+
+    /**
+     * Asserts the first matching candidate is the one a linear scan finds.
+     */
+    private void assertCandidates(final List<MapEntry> entries, final MapEntryMatcher matcher, final String value) {
+        MapEntry expected = null;
+        for (final MapEntry entry : entries) {
+            if (entry.replace(value) != null) {
+                expected = entry;
+                break;
+            }
+        }
+
+        MapEntry actual = null;
+        final Iterator<MapEntry> candidates = matcher.getCandidates(value);
+        while (candidates.hasNext()) {
+            final MapEntry entry = candidates.next();
+            if (entry.replace(value) != null) {
+                actual = entry;
+                break;
+            }
+        }
+
+        assertEquals(value, expected, actual);
+    }
+}
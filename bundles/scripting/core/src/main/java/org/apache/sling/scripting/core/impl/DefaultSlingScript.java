@@ -46,6 +46,8 @@ import java.util.Map;
 import java.util.Set;
 
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.Invocable;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
@@ -116,6 +118,9 @@ class DefaultSlingScript implements SlingScript, Servlet, ServletConfig {
     /** The cache for services. */
     private final ServiceCache cache;
 
+    /** The cache for compiled scripts. */
+    private final ScriptCache scriptCache;
+
     /**
      * Constructor
      * @param bundleContext The bundle context
@@ -123,17 +128,20 @@ class DefaultSlingScript implements SlingScript, Servlet, ServletConfig {
      * @param scriptEngine The script engine
      * @param bindingsValuesProviders additional bindings values providers
      * @param cache serviceCache
+     * @param scriptCache The cache for compiled scripts
      */
     DefaultSlingScript(final BundleContext bundleContext,
             final Resource scriptResource,
             final ScriptEngine scriptEngine,
             final Collection<BindingsValuesProvider> bindingsValuesProviders,
-            final ServiceCache cache) {
+            final ServiceCache cache,
+            final ScriptCache scriptCache) {
         this.scriptResource = scriptResource;
         this.scriptEngine = scriptEngine;
         this.bundleContext = bundleContext;
         this.bindingsValuesProviders = bindingsValuesProviders;
         this.cache = cache;
+        this.scriptCache = scriptCache;
         this.scriptName = this.scriptResource.getPath();
         // Now know how to get the input stream, we still have to decide
         // on the encoding of the stream's data. Primarily we assume it is
@@ -352,13 +360,25 @@ class DefaultSlingScript implements SlingScript, Servlet, ServletConfig {
             ctx.setAttribute(SlingScriptConstants.ATTR_SCRIPT_RESOURCE_RESOLVER,
                     this.scriptResource.getResourceResolver(), SlingScriptConstants.SLING_SCOPE);
 
-            reader = getScriptReader();
-            if ( method != null && !(this.scriptEngine instanceof Invocable)) {
-                reader = getWrapperReader(reader, method, args);
-            }
-
             // evaluate the script
-            final Object result = scriptEngine.eval(reader, ctx);
+            final Object result;
+            if ( method == null && this.scriptCache != null && this.scriptCache.isCacheable(this.scriptEngine) ) {
+                final long lastModified = this.scriptResource.getResourceMetadata().getModificationTime();
+                CompiledScript compiledScript = this.scriptCache.get(this.scriptName, lastModified, this.scriptEngine.getFactory());
+                if ( compiledScript == null ) {
+                    reader = getScriptReader();
+                    compiledScript = ((Compilable)this.scriptEngine).compile(reader);
+                    this.scriptCache.put(this.scriptName, lastModified, this.scriptEngine.getFactory(), compiledScript);
+                }
+                result = compiledScript.eval(ctx);
+            } else {
+                reader = getScriptReader();
+                if ( method != null && !(this.scriptEngine instanceof Invocable)) {
+                    reader = getWrapperReader(reader, method, args);
+                }
+
+                result = scriptEngine.eval(reader, ctx);
+            }
 
             // call method - if supplied and script engine supports direct invocation
             if ( method != null && (this.scriptEngine instanceof Invocable)) {
@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.scripting.core.impl;
+
+import java.io.PrintWriter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Properties;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Service;
+import org.apache.sling.api.SlingConstants;
+import org.apache.sling.commons.osgi.PropertiesUtil;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+
+/**
+ * Cache for compiled scripts.
+ * Scripts executed by a script engine implementing {@link Compilable} are
+ * compiled once and the {@link CompiledScript} is reused as long as the
+ * script resource is not modified. Entries are invalidated by resource
+ * change events and the least recently used entries are evicted once the
+ * configured size is reached.
+ */
+@Component(metatype=true,
+        label="Apache Sling Script Cache",
+        description="Caches compiled scripts of script engines supporting compilation.")
+@Service(value={ScriptCache.class, EventHandler.class})
+@Properties({
+    @Property(name="service.vendor", value="The Apache Software Foundation"),
+    @Property(name="service.description", value="Apache Sling Script Cache"),
+    @Property(name=EventConstants.EVENT_TOPIC,
+              value={SlingConstants.TOPIC_RESOURCE_ADDED,
+                     SlingConstants.TOPIC_RESOURCE_CHANGED,
+                     SlingConstants.TOPIC_RESOURCE_REMOVED},
+              propertyPrivate=true)
+})
+public class ScriptCache implements EventHandler {
+
+    private static final int DEFAULT_CACHE_SIZE = 1024;
+
+    @Property(intValue=DEFAULT_CACHE_SIZE,
+            label="Cache Size",
+            description="The maximum number of compiled scripts held in the cache. " +
+                        "A value of 0 disables the cache.")
+    private static final String PROP_CACHE_SIZE = "scripting.cache.size";
+
+    /** Script engine parameter describing the thread safety of an engine. */
+    private static final String PARAM_THREADING = "THREADING";
+
+    /** The cached scripts in least recently used order. */
+    private Map<String, Entry> cache;
+
+    /** The maximum number of entries. */
+    private volatile int maxSize;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ScriptCache() {
+        this.configure(DEFAULT_CACHE_SIZE);
+    }
+
+    // ---------- SCR integration ----------------------------------------------
+
+    protected void activate(final ComponentContext context) {
+        this.configure(PropertiesUtil.toInteger(context.getProperties().get(PROP_CACHE_SIZE), DEFAULT_CACHE_SIZE));
+        ScriptEngineConsolePlugin.setScriptCache(this);
+    }
+
+    protected void deactivate(final ComponentContext context) {
+        ScriptEngineConsolePlugin.setScriptCache(null);
+        this.clear();
+    }
+
+    /**
+     * Set the maximum size of the cache and clear it.
+     */
+    void configure(final int size) {
+        this.maxSize = (size < 0 ? 0 : size);
+        synchronized ( this ) {
+            this.cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                    if ( size() > maxSize ) {
+                        evictions.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    // ---------- cache --------------------------------------------------------
+
+    /**
+     * Check whether the compiled scripts of the engine can be cached.
+     * A compiled script is evaluated concurrently, therefore the engine
+     * has to be {@link Compilable} and has to declare its thread safety
+     * by the <code>THREADING</code> parameter.
+     */
+    public boolean isCacheable(final ScriptEngine engine) {
+        return this.maxSize > 0
+            && engine instanceof Compilable
+            && engine.getFactory().getParameter(PARAM_THREADING) != null;
+    }
+
+    /**
+     * Get the compiled script.
+     * @param path The script path
+     * @param lastModified The modification time of the script resource
+     * @param factory The factory of the engine executing the script
+     * @return The compiled script or <code>null</code> if the script is not
+     *         cached or has been modified.
+     */
+    public CompiledScript get(final String path, final long lastModified, final ScriptEngineFactory factory) {
+        final Entry entry;
+        synchronized ( this ) {
+            entry = this.cache.get(path);
+        }
+        if ( entry != null && entry.lastModified == lastModified && entry.factory == factory ) {
+            this.hits.incrementAndGet();
+            return entry.script;
+        }
+        this.misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Add a compiled script to the cache.
+     * @param path The script path
+     * @param lastModified The modification time of the script resource
+     * @param factory The factory of the engine which compiled the script
+     * @param script The compiled script
+     */
+    public void put(final String path, final long lastModified, final ScriptEngineFactory factory, final CompiledScript script) {
+        if ( this.maxSize > 0 ) {
+            final Entry entry = new Entry(lastModified, factory, script);
+            synchronized ( this ) {
+                this.cache.put(path, entry);
+            }
+        }
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public synchronized void clear() {
+        this.cache.clear();
+    }
+
+    /**
+     * @see org.osgi.service.event.EventHandler#handleEvent(org.osgi.service.event.Event)
+     */
+    public void handleEvent(final Event event) {
+        final String path = (String) event.getProperty(SlingConstants.PROPERTY_PATH);
+        if ( path == null ) {
+            return;
+        }
+        synchronized ( this ) {
+            if ( this.cache.isEmpty() ) {
+                return;
+            }
+            // the event might be about a descendant of the script, e.g. the content node
+            String current = path;
+            while ( current.length() > 0 ) {
+                if ( this.cache.remove(current) != null ) {
+                    this.invalidations.incrementAndGet();
+                }
+                final int pos = current.lastIndexOf('/');
+                current = (pos == -1 ? "" : current.substring(0, pos));
+            }
+            // a removed resource removes all scripts below
+            if ( SlingConstants.TOPIC_RESOURCE_REMOVED.equals(event.getTopic()) ) {
+                final String prefix = (path.endsWith("/") ? path : path.concat("/"));
+                final Iterator<String> i = this.cache.keySet().iterator();
+                while ( i.hasNext() ) {
+                    if ( i.next().startsWith(prefix) ) {
+                        i.remove();
+                        this.invalidations.incrementAndGet();
+                    }
+                }
+            }
+        }
+    }
+
+    // ---------- statistics ---------------------------------------------------
+
+    public synchronized int getSize() {
+        return this.cache.size();
+    }
+
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    public long getEvictions() {
+        return this.evictions.get();
+    }
+
+    public long getInvalidations() {
+        return this.invalidations.get();
+    }
+
+    /**
+     * Print the cache statistics.
+     */
+    void printStatistics(final PrintWriter pw) {
+        final long hits = this.getHits();
+        final long misses = this.getMisses();
+        pw.print("- Cached Scripts : ");
+        pw.print(this.getSize());
+        pw.print(" (max ");
+        pw.print(this.getMaxSize());
+        pw.println(")");
+        pw.print("- Hits : ");
+        pw.println(hits);
+        pw.print("- Misses : ");
+        pw.println(misses);
+        pw.print("- Hit Ratio : ");
+        pw.print(hits + misses == 0 ? 0 : hits * 100 / (hits + misses));
+        pw.println("%");
+        pw.print("- Evictions : ");
+        pw.println(this.getEvictions());
+        pw.print("- Invalidations : ");
+        pw.println(this.getInvalidations());
+    }
+
+    private static final class Entry {
+
+        final long lastModified;
+
+        final ScriptEngineFactory factory;
+
+        final CompiledScript script;
+
+        Entry(final long lastModified, final ScriptEngineFactory factory, final CompiledScript script) {
+            this.lastModified = lastModified;
+            this.factory = factory;
+            this.script = script;
+        }
+    }
+}
@@ -47,6 +47,13 @@ public class ScriptEngineConsolePlugin {
         }
     }
 
+    /** The script cache, if available. */
+    private static volatile ScriptCache SCRIPT_CACHE;
+
+    static void setScriptCache(final ScriptCache cache) {
+        SCRIPT_CACHE = cache;
+    }
+
     static void destroyPlugin() {
         if (INSTANCE != null) {
             try {
@@ -100,6 +107,15 @@ public class ScriptEngineConsolePlugin {
             pw.print("- Names : ");
             printArray(pw, factory.getNames());
         }
+
+        final ScriptCache cache = SCRIPT_CACHE;
+        if (cache != null) {
+            pw.println();
+            pw.println("Compiled Script Cache");
+            pw.println("=====================");
+            pw.println();
+            cache.printStatistics(pw);
+        }
     }
 
     private void printArray(PrintWriter pw, List<?> values) {
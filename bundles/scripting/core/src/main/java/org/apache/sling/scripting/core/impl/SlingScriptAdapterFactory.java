@@ -73,6 +73,12 @@ public class SlingScriptAdapterFactory implements AdapterFactory, MimeTypeProvid
     @Reference
     private BindingsValuesProvidersByContext bindingsValuesProviderTracker;
 
+    /**
+     * The cache for compiled scripts.
+     */
+    @Reference
+    private ScriptCache scriptCache;
+
     // ---------- AdapterFactory -----------------------------------------------
 
     @SuppressWarnings("unchecked")
@@ -88,7 +94,7 @@ public class SlingScriptAdapterFactory implements AdapterFactory, MimeTypeProvid
                     bindingsValuesProviderTracker.getBindingsValuesProviders(engine.getFactory(), BINDINGS_CONTEXT);
             // unchecked cast
             return (AdapterType) new DefaultSlingScript(this.bundleContext,
-                    resource, engine, bindingsValuesProviders, this.serviceCache);
+                    resource, engine, bindingsValuesProviders, this.serviceCache, this.scriptCache);
         }
 
         return null;
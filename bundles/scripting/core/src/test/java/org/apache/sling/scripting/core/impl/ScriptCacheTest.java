@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.scripting.core.impl;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+
+import junit.framework.TestCase;
+
+import org.apache.sling.api.SlingConstants;
+import org.osgi.service.event.Event;
+
+public class ScriptCacheTest extends TestCase {
+
+    private final ScriptEngineFactory factory = new DummyScriptEngineFactory();
+
+    private static class TestCompiledScript extends CompiledScript {
+
+        @Override
+        public Object eval(ScriptContext context) {
+            return null;
+        }
+
+        @Override
+        public ScriptEngine getEngine() {
+            return null;
+        }
+    }
+
+    private Event createEvent(final String topic, final String path) {
+        final Dictionary<String, Object> props = new Hashtable<String, Object>();
+        props.put(SlingConstants.PROPERTY_PATH, path);
+        return new Event(topic, props);
+    }
+
+    public void testGetAndModification() {
+        final ScriptCache cache = new ScriptCache();
+        final CompiledScript script = new TestCompiledScript();
+
+        assertNull(cache.get("/apps/a/a.dum", 1, factory));
+        cache.put("/apps/a/a.dum", 1, factory, script);
+        assertSame(script, cache.get("/apps/a/a.dum", 1, factory));
+
+        // modified script or different engine
+        assertNull(cache.get("/apps/a/a.dum", 2, factory));
+        assertNull(cache.get("/apps/a/a.dum", 1, new DummyScriptEngineFactory()));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    public void testInvalidationByEvents() {
+        final ScriptCache cache = new ScriptCache();
+        cache.put("/apps/a/a.dum", 1, factory, new TestCompiledScript());
+        cache.put("/apps/a/b.dum", 1, factory, new TestCompiledScript());
+        cache.put("/apps/b/c.dum", 1, factory, new TestCompiledScript());
+
+        // change of the content node
+        cache.handleEvent(createEvent(SlingConstants.TOPIC_RESOURCE_CHANGED, "/apps/a/a.dum/jcr:content"));
+        assertNull(cache.get("/apps/a/a.dum", 1, factory));
+        assertNotNull(cache.get("/apps/a/b.dum", 1, factory));
+
+        // removal of a parent
+        cache.handleEvent(createEvent(SlingConstants.TOPIC_RESOURCE_REMOVED, "/apps/a"));
+        assertNull(cache.get("/apps/a/b.dum", 1, factory));
+        assertNotNull(cache.get("/apps/b/c.dum", 1, factory));
+        assertEquals(1, cache.getSize());
+        assertEquals(2, cache.getInvalidations());
+    }
+
+    public void testEviction() {
+        final ScriptCache cache = new ScriptCache();
+        cache.configure(2);
+        cache.put("/apps/a.dum", 1, factory, new TestCompiledScript());
+        cache.put("/apps/b.dum", 1, factory, new TestCompiledScript());
+        // access a, so b is the least recently used
+        assertNotNull(cache.get("/apps/a.dum", 1, factory));
+        cache.put("/apps/c.dum", 1, factory, new TestCompiledScript());
+
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.get("/apps/b.dum", 1, factory));
+        assertNotNull(cache.get("/apps/a.dum", 1, factory));
+
+        // disabled cache
+        cache.configure(0);
+        cache.put("/apps/a.dum", 1, factory, new TestCompiledScript());
+        assertEquals(0, cache.getSize());
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.get.impl.helpers;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.sling.api.resource.Resource;
+
+/**
+ * The <code>BinarySource</code> gives positioned access to the binary data of
+ * a resource to serve (ranges of) it.
+ * <p>
+ * File backed binaries are read with a <code>FileChannel</code> at the
+ * requested position and transferred directly to the response if the
+ * container's output stream is a <code>WritableByteChannel</code>. Other
+ * binaries are read from a single stream which is skipped forward to each
+ * range and only opened again if a range starts before the current position.
+ */
+abstract class BinarySource implements Closeable {
+
+    /**
+     * Returns the source for the binary of the resource. The
+     * <code>stream</code> is the stream adapted from the resource, which is
+     * either used or closed by this method.
+     */
+    static BinarySource create(final Resource resource, final InputStream stream) throws IOException {
+        if (stream instanceof FileInputStream) {
+            return new FileSource(((FileInputStream) stream).getChannel(), stream);
+        }
+
+        final File file = resource.adaptTo(File.class);
+        if (file != null && file.isFile() && file.canRead()) {
+            final FileInputStream fileStream;
+            try {
+                fileStream = new FileInputStream(file);
+            } catch (final IOException ioe) {
+                // fall back to the stream of the resource
+                return new StreamSource(resource, stream);
+            }
+            close(stream);
+            return new FileSource(fileStream.getChannel(), fileStream);
+        }
+
+        return new StreamSource(resource, stream);
+    }
+
+    /**
+     * Copies the bytes from <code>start</code> (inclusive) to <code>end</code>
+     * (exclusive) to the output stream. Copying stops early if the binary
+     * ends before <code>end</code>.
+     */
+    abstract void copy(OutputStream out, long start, long end) throws IOException;
+
+    /**
+     * Copies the complete binary to the output stream.
+     */
+    void copy(final OutputStream out) throws IOException {
+        copy(out, 0, Long.MAX_VALUE);
+    }
+
+    static void close(final Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    /**
+     * Source reading a file by position.
+     */
+    static final class FileSource extends BinarySource {
+
+        private final FileChannel channel;
+
+        private final Closeable owner;
+
+        FileSource(final FileChannel channel, final Closeable owner) {
+            this.channel = channel;
+            this.owner = owner;
+        }
+
+        @Override
+        void copy(final OutputStream out, final long start, long end) throws IOException {
+            end = Math.min(end, channel.size());
+            long position = start;
+
+            if (out instanceof WritableByteChannel) {
+                final WritableByteChannel target = (WritableByteChannel) out;
+                while (position < end) {
+                    final long transferred = channel.transferTo(position, end - position, target);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    position += transferred;
+                }
+            }
+
+            // not a channel or the transfer stopped, copy the rest
+            final byte[] buffer = new byte[StreamRendererServlet.IO_BUFFER_SIZE];
+            final ByteBuffer buf = ByteBuffer.wrap(buffer);
+            while (position < end) {
+                buf.clear();
+                buf.limit((int) Math.min(end - position, buffer.length));
+                final int read = channel.read(buf, position);
+                if (read == -1) {
+                    break;
+                }
+                out.write(buffer, 0, read);
+                position += read;
+            }
+        }
+
+        public void close() {
+            close(owner);
+        }
+    }
+
+    /**
+     * Source reading the stream of the resource, skipping forward between
+     * ranges.
+     */
+    static final class StreamSource extends BinarySource {
+
+        private final Resource resource;
+
+        private InputStream stream;
+
+        /** The position of the stream */
+        private long position;
+
+        StreamSource(final Resource resource, final InputStream stream) {
+            this.resource = resource;
+            this.stream = stream;
+        }
+
+        @Override
+        void copy(final OutputStream out, final long start, final long end) throws IOException {
+            if (start < position) {
+                // ranges are not required to be ordered, start over
+                close(stream);
+                stream = resource.adaptTo(InputStream.class);
+                position = 0;
+                if (stream == null) {
+                    throw new IOException("Cannot read " + resource.getPath() + " again");
+                }
+            }
+            position += StreamRendererServlet.staticCopyRange(stream, out, start - position, end - position);
+        }
+
+        public void close() {
+            close(stream);
+        }
+    }
+}
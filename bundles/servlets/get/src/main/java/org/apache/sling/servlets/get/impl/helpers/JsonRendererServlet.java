@@ -31,7 +31,6 @@ import org.apache.sling.api.servlets.SlingSafeMethodsServlet;
 import org.apache.sling.commons.json.JSONException;
 import org.apache.sling.commons.json.io.JSONRenderer;
 import org.apache.sling.commons.json.io.JSONWriter;
-import org.apache.sling.commons.json.sling.ResourceTraversor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -90,34 +89,19 @@ public class JsonRendererServlet extends SlingSafeMethodsServlet {
         resp.setCharacterEncoding("UTF-8");
 
         // We check the tree to see if the nr of nodes isn't bigger than the allowed nr.
-        boolean allowDump = true;
-        int allowedLevel = 0;
         final boolean tidy = isTidy(req);
         final boolean harray = hasSelector(req, HARRAY);
-        ResourceTraversor traversor = null;
-        try {
-            traversor = new ResourceTraversor(maxRecursionLevels, maximumResults, r, tidy);
-            allowedLevel = traversor.collectResources();
-            if ( allowedLevel != -1 ) {
-			    allowDump = false;
-            }
-        } catch (final JSONException e) {
-            reportException(e);
-        }
+        final JsonResourceWriter jsonWriter = new JsonResourceWriter(renderer,
+                maxRecursionLevels, tidy || harray, tidy ? INDENT_SPACES : 0, harray);
+        int allowedLevel = jsonWriter.getAllowedLevel(r, maximumResults);
         try {
             // Dump the resource if we can
-            if (allowDump) {
-                if (tidy || harray) {
-                    final JSONRenderer.Options opt = renderer.options()
-                            .withIndent(tidy ? INDENT_SPACES : 0)
-                            .withArraysForChildren(harray);
-                    resp.getWriter().write(renderer.prettyPrint(traversor.getJSONObject(), opt));
-                } else {
-                    // If no rendering options, use the plain toString() method, for
-                    // backwards compatibility. Output might be slightly different
-                    // with prettyPrint and no options
-                    resp.getWriter().write(traversor.getJSONObject().toString());
-                }
+            if (allowedLevel == -1) {
+                // The tree is written while it is traversed. If no rendering
+                // options are given, the output is the same as the plain
+                // toString() method, for backwards compatibility. Output might
+                // be slightly different with prettyPrint and no options
+                jsonWriter.write(resp.getWriter(), r);
 
             } else {
                 // We are not allowed to do the dump.
@@ -0,0 +1,362 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.get.impl.helpers;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.commons.json.JSONException;
+import org.apache.sling.commons.json.JSONObject;
+import org.apache.sling.commons.json.io.JSONRenderer;
+import org.apache.sling.commons.json.sling.JsonObjectCreator;
+
+/**
+ * The <code>JsonResourceWriter</code> writes a tree of resources as JSON
+ * directly to a writer while walking the tree.
+ * <p>
+ * Only the properties of the resources on the path from the root to the
+ * resource currently written are held in memory. The output is the same as
+ * collecting the tree into a <code>JSONObject</code> and rendering it with
+ * <code>toString()</code> or, if the output is pretty printed, with
+ * {@link JSONRenderer#prettyPrint(JSONObject, JSONRenderer.Options)}.
+ */
+class JsonResourceWriter {
+
+    /** Key of the child name if children are rendered as arrays. */
+    private static final String CHILD_NAME_KEY = "__name__";
+
+    /** Key of the children array if children are rendered as arrays. */
+    private static final String CHILDREN_KEY = "__children__";
+
+    private final JSONRenderer renderer;
+
+    private final int maxRecursionLevels;
+
+    private final boolean pretty;
+
+    private final int indent;
+
+    private final boolean arraysForChildren;
+
+    /**
+     * @param maxRecursionLevels The number of child levels to write,
+     *            <code>-1</code> for all levels.
+     * @param pretty Whether to pretty print the output.
+     * @param indent Indentation of pretty printed output.
+     * @param arraysForChildren Whether to pretty print children as arrays.
+     */
+    JsonResourceWriter(final JSONRenderer renderer,
+            final int maxRecursionLevels,
+            final boolean pretty,
+            final int indent,
+            final boolean arraysForChildren) {
+        this.renderer = renderer;
+        this.maxRecursionLevels = maxRecursionLevels;
+        this.pretty = pretty;
+        this.indent = indent;
+        this.arraysForChildren = arraysForChildren;
+    }
+
+    /**
+     * Checks whether the tree below the resource has no more than
+     * <code>maxResources</code> resources up to the recursion level. The tree
+     * is walked breadth first and at most <code>maxResources</code> resources
+     * are held while counting.
+     * <p>
+     * A single level of children is always allowed.
+     *
+     * @return <code>-1</code> if the tree may be written, otherwise the
+     *            deepest level which can be written completely.
+     */
+    int getAllowedLevel(final Resource resource, final long maxResources) {
+        long count = 0;
+        List<Resource> current = Collections.singletonList(resource);
+        int level = 0;
+        while (!current.isEmpty() && isRecursionLevelActive(level)) {
+            final boolean collectNext = isRecursionLevelActive(level + 1);
+            final List<Resource> next = new ArrayList<Resource>();
+            for (final Resource parent : current) {
+                final Iterator<Resource> children = ResourceUtil.listChildren(parent);
+                while (children.hasNext()) {
+                    count++;
+                    final Resource child = children.next();
+                    // SLING-2320: always allow enumeration of one's children;
+                    // DOS-limitation is for deeper traversals.
+                    if (count > maxResources && maxRecursionLevels != 1) {
+                        return level;
+                    }
+                    if (collectNext) {
+                        next.add(child);
+                    }
+                }
+            }
+            current = next;
+            level++;
+        }
+        return -1;
+    }
+
+    /**
+     * Writes the resource and its children up to the recursion level.
+     */
+    void write(final Writer writer, final Resource resource)
+    throws JSONException, IOException {
+        if (pretty) {
+            writePretty(writer, resource, null, 0, 0);
+        } else {
+            writePlain(writer, resource, 0);
+        }
+    }
+
+    /**
+     * Writes a resource like <code>JSONObject.toString()</code>.
+     */
+    private void writePlain(final Writer writer, final Resource resource, final int level)
+    throws JSONException, IOException {
+        final JSONObject properties = JsonObjectCreator.create(resource, 0);
+        boolean first = true;
+        writer.write('{');
+        final Iterator<String> keys = properties.keys();
+        while (keys.hasNext()) {
+            final String key = keys.next();
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+            renderer.quote(writer, key);
+            writer.write(':');
+            writer.write(renderer.valueToString(properties.get(key)));
+        }
+        if (isRecursionLevelActive(level)) {
+            final Iterator<Resource> children = ResourceUtil.listChildren(resource);
+            while (children.hasNext()) {
+                final Resource child = children.next();
+                if (!first) {
+                    writer.write(',');
+                }
+                first = false;
+                renderer.quote(writer, ResourceUtil.getName(child));
+                writer.write(':');
+                writePlain(writer, child, level + 1);
+            }
+        }
+        writer.write('}');
+    }
+
+    /**
+     * Writes a resource like <code>JSONRenderer.prettyPrint()</code>.
+     *
+     * @param name The name to add to the object if children are written as
+     *            arrays, <code>null</code> otherwise.
+     * @param initialIndent The indentation of the enclosing object.
+     */
+    private void writePretty(final Writer writer,
+            final Resource resource,
+            final String name,
+            final int level,
+            final int initialIndent)
+    throws JSONException, IOException {
+        final JSONObject properties = JsonObjectCreator.create(resource, 0);
+        final ChildIterator children = new ChildIterator(isRecursionLevelActive(level)
+                ? ResourceUtil.listChildren(resource)
+                : Collections.<Resource>emptyList().iterator());
+
+        final int propertyCount = properties.length() + (name != null ? 1 : 0);
+        final int childCount = children.getCount();
+        if (propertyCount + childCount == 0) {
+            writer.write("{}");
+            return;
+        }
+
+        final int newIndent = initialIndent + indent;
+        writer.write('{');
+        boolean empty = true;
+        if (propertyCount + childCount == 1) {
+            // a single entry is written on the same line and without
+            // increasing the indentation
+            if (name != null) {
+                writeEntry(writer, CHILD_NAME_KEY, name, initialIndent);
+                empty = false;
+            } else if (propertyCount == 1) {
+                final String key = properties.keys().next();
+                writeEntry(writer, key, properties.get(key), initialIndent);
+                empty = false;
+            } else if (!arraysForChildren) {
+                final Resource child = children.next();
+                renderer.quote(writer, ResourceUtil.getName(child));
+                writer.write(": ");
+                writePretty(writer, child, null, level + 1, initialIndent);
+                empty = false;
+            }
+        } else {
+            if (name != null) {
+                writeIndentedEntry(writer, CHILD_NAME_KEY, name, empty, newIndent);
+                empty = false;
+            }
+            final Iterator<String> keys = properties.keys();
+            while (keys.hasNext()) {
+                final String key = keys.next();
+                writeIndentedEntry(writer, key, properties.get(key), empty, newIndent);
+                empty = false;
+            }
+            if (!arraysForChildren) {
+                while (children.hasNext()) {
+                    final Resource child = children.next();
+                    writer.write(empty ? "\n" : ",\n");
+                    writeIndent(writer, newIndent);
+                    renderer.quote(writer, ResourceUtil.getName(child));
+                    writer.write(": ");
+                    writePretty(writer, child, null, level + 1, newIndent);
+                    empty = false;
+                }
+            }
+            if (!empty) {
+                writer.write('\n');
+                writeIndent(writer, newIndent);
+            }
+        }
+
+        if (arraysForChildren && childCount > 0) {
+            writer.write(empty ? "\n" : ",\n");
+            final int childIndent = initialIndent + newIndent;
+            writeIndent(writer, childIndent);
+            renderer.quote(writer, CHILDREN_KEY);
+            writer.write(':');
+            writeChildArray(writer, children, level + 1, childIndent);
+        }
+        writer.write('}');
+    }
+
+    /**
+     * Writes the children like <code>JSONRenderer.prettyPrint()</code>
+     * writes an array.
+     */
+    private void writeChildArray(final Writer writer,
+            final ChildIterator children,
+            final int level,
+            final int initialIndent)
+    throws JSONException, IOException {
+        writer.write('[');
+        if (children.getCount() == 1) {
+            final Resource child = children.next();
+            writePretty(writer, child, ResourceUtil.getName(child), level, initialIndent);
+        } else {
+            final int newIndent = initialIndent + indent;
+            if (indent > 0) {
+                writer.write('\n');
+            }
+            boolean first = true;
+            while (children.hasNext()) {
+                final Resource child = children.next();
+                if (!first) {
+                    writer.write(',');
+                    if (indent > 0) {
+                        writer.write('\n');
+                    }
+                }
+                first = false;
+                writeIndent(writer, newIndent);
+                writePretty(writer, child, ResourceUtil.getName(child), level, initialIndent);
+            }
+            if (indent > 0) {
+                writer.write('\n');
+            }
+            writeIndent(writer, initialIndent);
+        }
+        writer.write(']');
+    }
+
+    private void writeEntry(final Writer writer, final String key, final Object value, final int initialIndent)
+    throws JSONException, IOException {
+        renderer.quote(writer, key);
+        writer.write(": ");
+        writer.write(renderer.valueToString(value,
+                renderer.options().withIndent(indent).withInitialIndent(initialIndent)
+                    .withArraysForChildren(arraysForChildren)));
+    }
+
+    private void writeIndentedEntry(final Writer writer, final String key, final Object value,
+            final boolean first, final int newIndent)
+    throws JSONException, IOException {
+        writer.write(first ? "\n" : ",\n");
+        writeIndent(writer, newIndent);
+        renderer.quote(writer, key);
+        writer.write(": ");
+        writer.write(renderer.valueToString(value,
+                renderer.options().withIndent(indent).withInitialIndent(newIndent)));
+    }
+
+    private void writeIndent(final Writer writer, final int howMuch) throws IOException {
+        for (int i = 0; i < howMuch; i++) {
+            writer.write(' ');
+        }
+    }
+
+    private boolean isRecursionLevelActive(final int level) {
+        return maxRecursionLevels == -1 || level < maxRecursionLevels;
+    }
+
+    /**
+     * Iterator over the children of a resource which looks ahead to tell
+     * whether there are none, one or more children, as this changes how the
+     * pretty printed output is laid out.
+     */
+    private static final class ChildIterator implements Iterator<Resource> {
+
+        private final Iterator<Resource> children;
+
+        private final List<Resource> lookAhead = new ArrayList<Resource>(2);
+
+        private final int count;
+
+        ChildIterator(final Iterator<Resource> children) {
+            this.children = children;
+            while (lookAhead.size() < 2 && children.hasNext()) {
+                lookAhead.add(children.next());
+            }
+            this.count = lookAhead.size();
+        }
+
+        /**
+         * Returns the number of children, up to two.
+         */
+        int getCount() {
+            return count;
+        }
+
+        public boolean hasNext() {
+            return !lookAhead.isEmpty() || children.hasNext();
+        }
+
+        public Resource next() {
+            if (!lookAhead.isEmpty()) {
+                return lookAhead.remove(0);
+            }
+            return children.next();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("remove");
+        }
+    }
+}
@@ -20,7 +20,6 @@ import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
 import static org.apache.sling.api.servlets.HttpConstants.HEADER_IF_MODIFIED_SINCE;
 import static org.apache.sling.api.servlets.HttpConstants.HEADER_LAST_MODIFIED;
 
-import java.io.BufferedInputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
@@ -195,6 +194,7 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
             final SlingHttpServletRequest request,
             final SlingHttpServletResponse response) throws IOException {
         // finally stream the resource
+        final BinarySource source = BinarySource.create(resource, stream);
         try {
 
             final ArrayList<Range> ranges;
@@ -225,11 +225,7 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
                 // return full resource
                 setContentLength(response,
                     resource.getResourceMetadata().getContentLength());
-                byte[] buf = new byte[IO_BUFFER_SIZE];
-                int rd;
-                while ((rd = stream.read(buf)) >= 0) {
-                    out.write(buf, 0, rd);
-                }
+                source.copy(out);
 
             } else {
 
@@ -243,20 +239,20 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
                         + "-" + range.end + "/" + range.length);
                     setContentLength(response, range.end - range.start + 1);
 
-                    copy(stream, out, range);
+                    copy(source, out, range);
 
                 } else {
 
                     response.setContentType("multipart/byteranges; boundary="
                         + mimeSeparation);
 
-                    copy(resource, out, ranges.iterator());
+                    copy(resource, source, out, ranges.iterator());
                 }
 
             }
 
         } finally {
-            closeSilently(stream);
+            closeSilently(source);
         }
     }
 
@@ -446,51 +442,43 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
 
     /**
      * Copies a number of ranges from the given resource to the output stream.
-     * Copy the contents of the specified input stream to the specified output
-     * stream, and ensure that both streams are closed before returning (even in
-     * the face of an exception).
+     * The ranges are read from the same binary source, which positions itself
+     * at the start of each range instead of reading the binary from the start
+     * for each range.
      *
      * @param resource The resource from which to send ranges
+     * @param source The binary source of the resource
      * @param ostream The output stream to write to
      * @param ranges Iterator of the ranges the client wanted to retrieve
-     * @param contentType Content type of the resource
      * @exception IOException if an input/output error occurs
      */
-    private void copy(Resource resource, ServletOutputStream ostream,
-            Iterator<Range> ranges) throws IOException {
+    private void copy(Resource resource, BinarySource source,
+            ServletOutputStream ostream, Iterator<Range> ranges)
+            throws IOException {
 
         String contentType = resource.getResourceMetadata().getContentType();
         IOException exception = null;
 
         while ((exception == null) && (ranges.hasNext())) {
 
-            InputStream resourceInputStream = resource.adaptTo(InputStream.class);
-            InputStream istream = new BufferedInputStream(resourceInputStream,
-                IO_BUFFER_SIZE);
-
-            try {
-                Range currentRange = ranges.next();
-
-                // Writing MIME header.
-                ostream.println();
-                ostream.println("--" + mimeSeparation);
-                if (contentType != null) {
-                    ostream.println("Content-Type: " + contentType);
-                }
-                ostream.println("Content-Range: bytes " + currentRange.start + "-"
-                    + currentRange.end + "/" + currentRange.length);
-                ostream.println();
+            Range currentRange = ranges.next();
 
-                // Copy content
-                try {
-                    copy(istream, ostream, currentRange);
-                } catch(IOException e) {
-                    exception = e;
-                }
-            } finally {
-                closeSilently(istream);
+            // Writing MIME header.
+            ostream.println();
+            ostream.println("--" + mimeSeparation);
+            if (contentType != null) {
+                ostream.println("Content-Type: " + contentType);
             }
+            ostream.println("Content-Range: bytes " + currentRange.start + "-"
+                + currentRange.end + "/" + currentRange.length);
+            ostream.println();
 
+            // Copy content
+            try {
+                copy(source, ostream, currentRange);
+            } catch(IOException e) {
+                exception = e;
+            }
         }
 
         ostream.println();
@@ -502,24 +490,25 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
     }
 
     /**
-    * Copy the contents of the specified input stream to the specified
+    * Copy the range of the specified binary source to the specified
     * output stream.
     *
-    * @param istream The input stream to read from
+    * @param source The binary source to read from
     * @param ostream The output stream to write to
     * @param range Range the client wanted to retrieve
     * @exception IOException if an input/output error occurs
     */
-    private void copy(InputStream istream, OutputStream ostream,
+    private void copy(BinarySource source, OutputStream ostream,
             Range range) throws IOException {
         // HTTP Range 0-9 means "byte 9 included"
         final long endIndex = range.end + 1;
         log.debug("copy: Serving bytes: {}-{}", range.start, endIndex);
-        staticCopyRange(istream, ostream, range.start, endIndex);
+        source.copy(ostream, range.start, endIndex);
     }
 
-    // static, package-private method to make unit testing easier
-    static void staticCopyRange(InputStream istream,
+    // static, package-private method to make unit testing easier,
+    // returns the number of bytes read from the input stream
+    static long staticCopyRange(InputStream istream,
             OutputStream ostream, long start, long end) throws IOException {
         long position = 0;
         byte buffer[] = new byte[IO_BUFFER_SIZE];
@@ -550,6 +539,8 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
                 break;
             }
         }
+
+        return position;
     }
 
     /**
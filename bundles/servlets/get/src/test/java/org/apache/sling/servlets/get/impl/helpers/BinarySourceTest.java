@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlets.get.impl.helpers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.sling.api.resource.Resource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BinarySourceTest {
+
+    private byte[] data;
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        data = new byte[StreamRendererServlet.IO_BUFFER_SIZE * 5 + 17];
+        new Random(4711).nextBytes(data);
+
+        file = File.createTempFile("binarysource", ".bin");
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testStreamSourceSkipsForward() throws IOException {
+        final Resource resource = mock(Resource.class);
+        final BinarySource source = BinarySource.create(resource, new ByteArrayInputStream(data));
+        assertTrue(source instanceof BinarySource.StreamSource);
+
+        assertRange(source, 10, 20);
+        assertRange(source, 20, 20);
+        assertRange(source, 100, StreamRendererServlet.IO_BUFFER_SIZE * 3);
+        assertRange(source, data.length - 5, data.length + 10);
+        source.close();
+
+        // no need to read the binary again
+        verify(resource, times(0)).adaptTo(InputStream.class);
+    }
+
+    @Test
+    public void testStreamSourceReopensBackwards() throws IOException {
+        final Resource resource = mock(Resource.class);
+        when(resource.adaptTo(InputStream.class)).thenReturn(new ByteArrayInputStream(data));
+        final BinarySource source = BinarySource.create(resource, new ByteArrayInputStream(data));
+
+        assertRange(source, 1000, 2000);
+        assertRange(source, 0, 500);
+        source.close();
+
+        verify(resource, times(1)).adaptTo(InputStream.class);
+    }
+
+    @Test
+    public void testFileSource() throws IOException {
+        final Resource resource = mock(Resource.class);
+        when(resource.adaptTo(File.class)).thenReturn(file);
+        final BinarySource source = BinarySource.create(resource, new ByteArrayInputStream(data));
+        assertTrue(source instanceof BinarySource.FileSource);
+
+        assertRange(source, data.length - 100, data.length);
+        assertRange(source, 0, 1);
+        assertRange(source, 7, StreamRendererServlet.IO_BUFFER_SIZE * 2 + 3);
+        assertRange(source, data.length - 5, data.length + 10);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        source.copy(out);
+        assertArrayEquals(data, out.toByteArray());
+        source.close();
+    }
+
+    @Test
+    public void testFileSourceTransfersToChannel() throws IOException {
+        final Resource resource = mock(Resource.class);
+        when(resource.adaptTo(File.class)).thenReturn(file);
+        final BinarySource source = BinarySource.create(resource, new ByteArrayInputStream(data));
+
+        final ChannelOutputStream out = new ChannelOutputStream();
+        source.copy(out, 42, 4242);
+        source.close();
+
+        assertArrayEquals(Arrays.copyOfRange(data, 42, 4242), out.toByteArray());
+        assertTrue(out.channelWrites > 0);
+        assertTrue(out.streamWrites == 0);
+    }
+
+    private void assertRange(final BinarySource source, final int start, final int end) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        source.copy(out, start, end);
+        assertArrayEquals(Arrays.copyOfRange(data, start, Math.min(end, data.length)), out.toByteArray());
+    }
+
+    private static class ChannelOutputStream extends ByteArrayOutputStream implements WritableByteChannel {
+
+        int channelWrites;
+
+        int streamWrites;
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            streamWrites++;
+            super.write(b, off, len);
+        }
+
+        public int write(final ByteBuffer src) {
+            channelWrites++;
+            final int len = src.remaining();
+            final byte[] b = new byte[len];
+            src.get(b);
+            super.write(b, 0, len);
+            return len;
+        }
+
+        public boolean isOpen() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlets.get.impl.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.wrappers.ValueMapDecorator;
+import org.apache.sling.commons.json.io.JSONRenderer;
+import org.apache.sling.commons.json.sling.ResourceTraversor;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class JsonResourceWriterTest {
+
+    private final JSONRenderer renderer = new JSONRenderer();
+
+    private final Map<String, List<Resource>> children = new HashMap<String, List<Resource>>();
+
+    private ResourceResolver resolver;
+
+    private Resource root;
+
+    @Before
+    public void setup() {
+        resolver = Mockito.mock(ResourceResolver.class);
+
+        root = createResource("/root", "a", "x", "n", 1L, "multi", new String[] {"1", "2"});
+        createResource("/root/one", "p", "v");
+        createResource("/root/one/child");
+        createResource("/root/two");
+        createResource("/root/two/a", "flag", true);
+        createResource("/root/two/b", "y", "z", "w", new String[] {"q"});
+        createResource("/root/two/b/c", "d", 2.5d);
+        createResource("/root/three", "empty", new String[0]);
+        createResource("/root/three/only");
+    }
+
+    @Test
+    public void testPlainOutput() throws Exception {
+        for (final int level : new int[] {0, 1, 2, 3, -1}) {
+            final ResourceTraversor traversor = new ResourceTraversor(level, 1000, root, false);
+            traversor.collectResources();
+            assertEquals("level " + level, traversor.getJSONObject().toString(),
+                    write(level, false, 0, false));
+        }
+        assertTrue(write(-1, false, 0, false).contains("\"c\":{\"d\":2.5}"));
+    }
+
+    @Test
+    public void testPrettyOutput() throws Exception {
+        for (final int level : new int[] {0, 1, 2, 3, -1}) {
+            for (final int indent : new int[] {0, 2}) {
+                for (final boolean harray : new boolean[] {false, true}) {
+                    final ResourceTraversor traversor = new ResourceTraversor(level, 1000, root, true);
+                    traversor.collectResources();
+                    final String expected = renderer.prettyPrint(traversor.getJSONObject(),
+                            renderer.options().withIndent(indent).withArraysForChildren(harray));
+                    assertEquals("level " + level + ", indent " + indent + ", harray " + harray,
+                            expected, write(level, true, indent, harray));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAllowedLevel() throws Exception {
+        for (final int level : new int[] {0, 1, 2, 3, -1}) {
+            for (int max = 0; max < 10; max++) {
+                final ResourceTraversor traversor = new ResourceTraversor(level, max, root, false);
+                final JsonResourceWriter writer = new JsonResourceWriter(renderer, level, false, 0, false);
+                assertEquals("level " + level + ", max " + max,
+                        traversor.collectResources(), writer.getAllowedLevel(root, max));
+            }
+        }
+    }
+
+    private String write(final int level, final boolean pretty, final int indent, final boolean harray)
+    throws Exception {
+        final StringWriter out = new StringWriter();
+        new JsonResourceWriter(renderer, level, pretty, indent, harray).write(out, root);
+        return out.toString();
+    }
+
+    private Resource createResource(final String path, final Object... properties) {
+        final Map<String, Object> map = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < properties.length; i += 2) {
+            map.put((String) properties[i], properties[i + 1]);
+        }
+        final Resource resource = Mockito.mock(Resource.class);
+        Mockito.when(resource.getPath()).thenReturn(path);
+        Mockito.when(resource.getResourceResolver()).thenReturn(resolver);
+        Mockito.when(resource.adaptTo(ValueMap.class)).thenReturn(new ValueMapDecorator(map));
+        children.put(path, new ArrayList<Resource>());
+        final String parent = path.substring(0, path.lastIndexOf('/'));
+        if (children.containsKey(parent)) {
+            children.get(parent).add(resource);
+        }
+        Mockito.when(resolver.listChildren(resource)).thenAnswer(new ChildrenAnswer(path));
+        return resource;
+    }
+
+    private final class ChildrenAnswer implements Answer<Object> {
+
+        private final String path;
+
+        ChildrenAnswer(final String path) {
+            this.path = path;
+        }
+
+        public Object answer(final InvocationOnMock invocation) {
+            return children.get(path).iterator();
+        }
+    }
+}
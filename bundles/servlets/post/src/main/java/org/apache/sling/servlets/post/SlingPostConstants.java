@@ -513,6 +513,17 @@ public interface SlingPostConstants {
      */
     public static final String RP_AUTO_CHECKOUT = RP_PREFIX + "autoCheckout";
 
+    /**
+     * Name of the request parameter indicating the number of imported nodes
+     * after which the changes are saved during an
+     * {@link SlingPostConstants#OPERATION_IMPORT} operation. Large content
+     * imported with this parameter is created while it is parsed, so the node
+     * types of a node must be specified before its child nodes.
+     *
+     * @since 2.3.7
+     */
+    public static final String RP_SAVE_THRESHOLD = RP_PREFIX + "saveThreshold";
+
     /**
      * Name of the request attribute (not parameter) indicating that a post operation
      * should not invoke session.save() upon completion.
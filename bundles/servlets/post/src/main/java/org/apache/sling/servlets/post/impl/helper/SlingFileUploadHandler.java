@@ -518,8 +518,9 @@ public class SlingFileUploadHandler {
             throws RepositoryException, PersistenceException {
         for (final RequestParameter value : prop.getValues()) {
 
-            // ignore if a plain form field or empty
-            if (value.isFormField() || value.getSize() <= 0) {
+            // ignore if a plain form field or empty, the size of a
+            // streamed upload is -1 unless it is known to be empty
+            if (value.isFormField() || value.getSize() == 0) {
                 continue;
             }
 
@@ -429,7 +429,7 @@ abstract class AbstractCreateOperation extends AbstractPostOperation {
      * Returns <code>true</code> if the parameter of the given name should be
      * ignored.
      */
-    private boolean ignoreParameter(final String paramName) {
+    protected boolean ignoreParameter(final String paramName) {
         // do not store parameters with names starting with sling:post
         if (paramName.startsWith(SlingPostConstants.RP_PREFIX)) {
             return true;
@@ -454,7 +454,7 @@ abstract class AbstractCreateOperation extends AbstractPostOperation {
      * path by prepending the response path (<code>response.getPath</code>) to
      * the parameter name if not already absolute.
      */
-    private String toPropertyPath(String paramName, PostResponse response) {
+    protected String toPropertyPath(String paramName, PostResponse response) {
         if (!paramName.startsWith("/")) {
             paramName = ResourceUtil.normalize(response.getPath() + '/' + paramName);
         }
@@ -118,6 +118,21 @@ public class ImportOperation extends AbstractCreateOperation {
         final boolean replaceProperties = "true".equalsIgnoreCase(getRequestParamAsString(request, SlingPostConstants.RP_REPLACE_PROPERTIES));
         final boolean checkin = "true".equalsIgnoreCase(getRequestParamAsString(request, SlingPostConstants.RP_CHECKIN));
         final boolean autoCheckout = "true".equalsIgnoreCase(getRequestParamAsString(request, SlingPostConstants.RP_AUTO_CHECKOUT));
+        final String saveThresholdParam = getRequestParamAsString(request, SlingPostConstants.RP_SAVE_THRESHOLD);
+        int threshold = 0;
+        if (saveThresholdParam != null) {
+            try {
+                threshold = Integer.parseInt(saveThresholdParam);
+            } catch (NumberFormatException nfe) {
+                threshold = -1;
+            }
+            if (threshold < 0) {
+                response.setStatus(HttpServletResponse.SC_PRECONDITION_FAILED,
+                        "Invalid " + SlingPostConstants.RP_SAVE_THRESHOLD + " parameter: " + saveThresholdParam);
+                return;
+            }
+        }
+        final int saveThreshold = threshold;
 
         String basePath = getItemPath(request);
         basePath = removeAndValidateWorkspace(basePath, request.getResourceResolver().adaptTo(Session.class));
@@ -186,6 +201,11 @@ public class ImportOperation extends AbstractCreateOperation {
 								return autoCheckout;
 							}
 
+                            @Override
+                            public int getSaveThreshold() {
+                                return saveThreshold;
+                            }
+
 							@Override
                             public boolean isIgnoredImportProvider(
                                     String extension) {
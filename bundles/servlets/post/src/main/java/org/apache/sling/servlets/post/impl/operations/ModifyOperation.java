@@ -18,6 +18,10 @@
  */
 package org.apache.sling.servlets.post.impl.operations;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -28,9 +32,11 @@ import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.nodetype.NodeType;
 import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.sling.api.SlingException;
 import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.request.RequestParameter;
 import org.apache.sling.api.resource.ModifiableValueMap;
 import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.Resource;
@@ -54,6 +60,33 @@ import org.apache.sling.servlets.post.impl.helper.SlingPropertyValueHandler;
  */
 public class ModifyOperation extends AbstractCreateOperation {
 
+    /**
+     * The request attribute under which the Sling Engine (2.4.1 or newer)
+     * provides the parts of a streamed request. Copy of
+     * <code>org.apache.sling.engine.EngineConstants.REQUEST_PARTS_ITERATOR</code>
+     * to not require a newer engine for non streamed requests.
+     */
+    private static final String REQUEST_PARTS_ITERATOR = "request-parts-iterator";
+
+    /**
+     * The parameter suffixes which are not supported for the parts of a
+     * streamed request, as they refer to other parameters or have to be
+     * applied before the content is written.
+     */
+    private static final String[] UNSUPPORTED_STREAMED_SUFFIXES = {
+        SlingPostConstants.DEFAULT_VALUE_SUFFIX,
+        SlingPostConstants.VALUE_FROM_SUFFIX,
+        SlingPostConstants.SUFFIX_DELETE,
+        SlingPostConstants.SUFFIX_MOVE_FROM,
+        SlingPostConstants.SUFFIX_COPY_FROM,
+        SlingPostConstants.SUFFIX_IGNORE_BLANKS,
+        SlingPostConstants.SUFFIX_USE_DEFAULT_WHEN_MISSING,
+        SlingPostConstants.SUFFIX_PATCH,
+        SlingPostConstants.SUFFIX_OFFSET,
+        SlingPostConstants.SUFFIX_COMPLETED,
+        SlingPostConstants.SUFFIX_LENGTH
+    };
+
     private DateParser dateParser;
 
     /**
@@ -100,6 +133,13 @@ public class ModifyOperation extends AbstractCreateOperation {
             // write content from form
             writeContent(request.getResourceResolver(), reqProperties, changes, versioningConfiguration);
 
+            // write file uploads of a streamed request
+            final Iterator<RequestParameter> parts = getRequestParts(request);
+            if ( parts != null
+                 && !writeStreamedContent(request, parts, reqProperties, response, changes, versioningConfiguration) ) {
+                return;
+            }
+
             // order content
             final Resource newResource = request.getResourceResolver().getResource(response.getPath());
             final Node newNode = newResource.adaptTo(Node.class);
@@ -413,4 +453,97 @@ public class ModifyOperation extends AbstractCreateOperation {
             }
         }
     }
+
+    @SuppressWarnings("unchecked")
+    private Iterator<RequestParameter> getRequestParts(final SlingHttpServletRequest request) {
+        final Object parts = request.getAttribute(REQUEST_PARTS_ITERATOR);
+        if ( parts instanceof Iterator ) {
+            return (Iterator<RequestParameter>) parts;
+        }
+        return null;
+    }
+
+    /**
+     * Writes the content of a streamed request.
+     * As the parts have to be consumed in the order they are sent, file
+     * uploads are written directly from the request body into the repository
+     * while the form fields are collected and written as properties after
+     * the last part. The <code>@TypeHint</code> suffix is supported for
+     * both, parameters with any other suffix have to be provided by the
+     * query string. If the body contains such a parameter, the changes are
+     * reverted and the response status is set to 400.
+     *
+     * @return <code>false</code> if the request has been rejected
+     * @throws RepositoryException if a repository error occurs
+     * @throws PersistenceException if a persistence error occurs
+     */
+    private boolean writeStreamedContent(final SlingHttpServletRequest request,
+            final Iterator<RequestParameter> parts,
+            final Map<String, RequestProperty> reqProperties,
+            final PostResponse response,
+            final List<Modification> changes,
+            final VersioningConfiguration versioningConfiguration)
+    throws RepositoryException, PersistenceException {
+        final boolean requireItemPrefix = requireItemPathPrefix(request);
+        final Map<String, String> typeHints = new HashMap<String, String>();
+        final Map<String, List<RequestParameter>> fields = new LinkedHashMap<String, List<RequestParameter>>();
+
+        while (parts.hasNext()) {
+            final RequestParameter part = parts.next();
+            final String paramName = part.getName();
+            if (ignoreParameter(paramName)
+                || (requireItemPrefix && !hasItemPathPrefix(paramName))) {
+                continue;
+            }
+
+            final String propPath = toPropertyPath(paramName, response);
+            for (final String suffix : UNSUPPORTED_STREAMED_SUFFIXES) {
+                if (propPath.endsWith(suffix)) {
+                    changes.clear();
+                    request.getResourceResolver().revert();
+                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST,
+                        "Parameter " + paramName + " is not supported in the body of a streamed request");
+                    return false;
+                }
+            }
+            if (part.isFormField()) {
+                if (propPath.endsWith(SlingPostConstants.TYPE_HINT_SUFFIX)) {
+                    typeHints.put(propPath.substring(0,
+                        propPath.length() - SlingPostConstants.TYPE_HINT_SUFFIX.length()),
+                        part.getString());
+                } else {
+                    List<RequestParameter> values = fields.get(propPath);
+                    if (values == null) {
+                        values = new ArrayList<RequestParameter>();
+                        fields.put(propPath, values);
+                    }
+                    values.add(part);
+                }
+                continue;
+            }
+
+            final RequestProperty prop = new RequestProperty(propPath);
+            prop.setValues(new RequestParameter[] {part});
+            prop.setTypeHintValue(typeHints.get(prop.getPath()));
+
+            final Resource parent = deepGetOrCreateNode(request.getResourceResolver(),
+                prop.getParentPath(), reqProperties, changes, versioningConfiguration);
+            final Node parentNode = parent.adaptTo(Node.class);
+            if ( parentNode != null ) {
+                checkoutIfNecessary(parentNode, changes, versioningConfiguration);
+            }
+            uploadHandler.setFile(parent, prop, changes);
+        }
+
+        // write the form fields, a type hint may follow its field
+        final Map<String, RequestProperty> fieldProperties = new LinkedHashMap<String, RequestProperty>();
+        for (final Map.Entry<String, List<RequestParameter>> field : fields.entrySet()) {
+            final RequestProperty prop = new RequestProperty(field.getKey());
+            prop.setValues(field.getValue().toArray(new RequestParameter[field.getValue().size()]));
+            prop.setTypeHintValue(typeHints.get(prop.getPath()));
+            fieldProperties.put(field.getKey(), prop);
+        }
+        writeContent(request.getResourceResolver(), fieldProperties, changes, versioningConfiguration);
+        return true;
+    }
 }
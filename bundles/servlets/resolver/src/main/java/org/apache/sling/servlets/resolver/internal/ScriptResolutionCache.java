@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlets.resolver.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.Servlet;
+
+import org.apache.sling.servlets.resolver.internal.helper.AbstractResourceCollector;
+
+/**
+ * The <code>ScriptResolutionCache</code> caches the servlet resolved for an
+ * {@link AbstractResourceCollector}.
+ * <p>
+ * Together with the servlet, each entry keeps the locations which have been
+ * searched to resolve it. This allows to only drop the entries depending on a
+ * location when a resource is changed instead of flushing the whole cache.
+ * <p>
+ * Once the maximum size is reached, the least recently used entries are
+ * evicted. Reads do not lock; the access order is tracked by a logical clock
+ * and only consulted when entries have to be evicted.
+ */
+public class ScriptResolutionCache {
+
+    /** Fraction of the maximum size which is evicted at once. */
+    private static final int EVICTION_DIVISOR = 16;
+
+    private final int maxSize;
+
+    private final Map<AbstractResourceCollector, Entry> entries;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ScriptResolutionCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new ConcurrentHashMap<AbstractResourceCollector, Entry>(maxSize);
+    }
+
+    /**
+     * Returns the cached servlet for the collector or <code>null</code>.
+     */
+    public Servlet get(final AbstractResourceCollector collector) {
+        final Entry entry = this.entries.get(collector);
+        if (entry == null) {
+            this.misses.incrementAndGet();
+            return null;
+        }
+        entry.lastAccess = this.clock.incrementAndGet();
+        this.hits.incrementAndGet();
+        return entry.servlet;
+    }
+
+    /**
+     * Caches the servlet resolved for the collector.
+     *
+     * @param locations The locations searched to resolve the servlet.
+     */
+    public void put(final AbstractResourceCollector collector, final Servlet servlet,
+            final Collection<String> locations) {
+        if (this.entries.size() >= this.maxSize) {
+            evict();
+        }
+        final Entry entry = new Entry(servlet, locations.toArray(new String[locations.size()]));
+        entry.lastAccess = this.clock.incrementAndGet();
+        this.entries.put(collector, entry);
+    }
+
+    /**
+     * Removes all entries having searched a location at, above or below the
+     * given path.
+     *
+     * @return The number of removed entries.
+     */
+    public int invalidate(final String path) {
+        int count = 0;
+        final Iterator<Entry> i = this.entries.values().iterator();
+        while (i.hasNext()) {
+            if (i.next().dependsOn(path)) {
+                i.remove();
+                count++;
+            }
+        }
+        this.invalidations.addAndGet(count);
+        return count;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void flush() {
+        this.entries.clear();
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public int getMaximumSize() {
+        return this.maxSize;
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    public long getEvictions() {
+        return this.evictions.get();
+    }
+
+    public long getInvalidations() {
+        return this.invalidations.get();
+    }
+
+    /**
+     * Removes the least recently used entries to make room for new ones.
+     * Several entries are evicted at once to amortize sorting the entries.
+     */
+    private synchronized void evict() {
+        final int size = this.entries.size();
+        if (size < this.maxSize) {
+            // concurrently evicted
+            return;
+        }
+        final List<Map.Entry<AbstractResourceCollector, Entry>> candidates =
+                new ArrayList<Map.Entry<AbstractResourceCollector, Entry>>(this.entries.entrySet());
+        Collections.sort(candidates, LEAST_RECENTLY_USED);
+
+        final int count = Math.min(candidates.size(), Math.max(1, this.maxSize / EVICTION_DIVISOR) + size - this.maxSize);
+        for (int i = 0; i < count; i++) {
+            if (this.entries.remove(candidates.get(i).getKey()) != null) {
+                this.evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static final Comparator<Map.Entry<AbstractResourceCollector, Entry>> LEAST_RECENTLY_USED =
+            new Comparator<Map.Entry<AbstractResourceCollector, Entry>>() {
+
+        public int compare(final Map.Entry<AbstractResourceCollector, Entry> o1,
+                final Map.Entry<AbstractResourceCollector, Entry> o2) {
+            final long a1 = o1.getValue().lastAccess;
+            final long a2 = o2.getValue().lastAccess;
+            return a1 < a2 ? -1 : (a1 == a2 ? 0 : 1);
+        }
+    };
+
+    private static final class Entry {
+
+        final Servlet servlet;
+
+        final String[] locations;
+
+        volatile long lastAccess;
+
+        Entry(final Servlet servlet, final String[] locations) {
+            this.servlet = servlet;
+            this.locations = locations;
+        }
+
+        boolean dependsOn(final String path) {
+            for (final String location : this.locations) {
+                if (isSameOrDescendant(path, location) || isSameOrDescendant(location, path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean isSameOrDescendant(final String path, final String ancestor) {
+            if (!path.startsWith(ancestor)) {
+                return false;
+            }
+            return path.length() == ancestor.length()
+                    || ancestor.endsWith("/")
+                    || path.charAt(ancestor.length()) == '/';
+        }
+    }
+}
@@ -40,7 +40,6 @@ import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import javax.management.NotCompliantMBeanException;
 import javax.management.StandardMBean;
@@ -189,13 +188,7 @@ public class SlingServletResolver
     private Servlet fallbackErrorServlet;
 
     /** The script resolution cache. */
-    private Map<AbstractResourceCollector, Servlet> cache;
-
-    /** The cache size. */
-    private int cacheSize;
-
-    /** Flag to log warning if cache size exceed only once. */
-    private volatile boolean logCacheSizeWarning;
+    private ScriptResolutionCache cache;
 
     /** Registration as event handler. */
     private ServiceRegistration eventHandlerReg;
@@ -632,7 +625,8 @@ public class SlingServletResolver
             return scriptServlet;
         }
 
-        final Collection<Resource> candidates = locationUtil.getServlets(resolver);
+        final List<String> locations = new ArrayList<String>();
+        final Collection<Resource> candidates = locationUtil.getServlets(resolver, locations);
 
         if (LOGGER.isDebugEnabled()) {
             if (candidates.isEmpty()) {
@@ -655,13 +649,7 @@ public class SlingServletResolver
                 boolean servletAcceptsRequest = !isOptingServlet || (request != null && ((OptingServlet) candidate).accepts(request));
                 if (servletAcceptsRequest) {
                     if (!hasOptingServlet && !isOptingServlet && this.cache != null) {
-                        if ( this.cache.size() < this.cacheSize ) {
-                            this.cache.put(locationUtil, candidate);
-                        } else if ( this.logCacheSizeWarning ) {
-                            this.logCacheSizeWarning = false;
-                            LOGGER.warn("Script cache has reached its limit of {}. You might want to increase the cache size for the servlet resolver.",
-                                    this.cacheSize);
-                        }
+                        this.cache.put(locationUtil, candidate, locations);
                     }
                     LOGGER.debug("Using servlet provided by candidate resource {}", candidateResource.getPath());
                     return candidate;
@@ -838,12 +826,9 @@ public class SlingServletResolver
         this.defaultExtensions = OsgiUtil.toStringArray(properties.get(PROP_DEFAULT_EXTENSIONS), DEFAULT_DEFAULT_EXTENSIONS);
 
         // create cache - if a cache size is configured
-        this.cacheSize = OsgiUtil.toInteger(properties.get(PROP_CACHE_SIZE), DEFAULT_CACHE_SIZE);
-        if (this.cacheSize > 5) {
-            this.cache = new ConcurrentHashMap<AbstractResourceCollector, Servlet>(cacheSize);
-            this.logCacheSizeWarning = true;
-        } else {
-            this.cacheSize = 0;
+        final int cacheSize = OsgiUtil.toInteger(properties.get(PROP_CACHE_SIZE), DEFAULT_CACHE_SIZE);
+        if (cacheSize > 5) {
+            this.cache = new ScriptResolutionCache(cacheSize);
         }
 
         // setup default servlet
@@ -1040,8 +1025,10 @@ public class SlingServletResolver
      * @see org.osgi.service.event.EventHandler#handleEvent(org.osgi.service.event.Event)
      */
     public void handleEvent(final Event event) {
-        if (this.cache != null) {
+        final ScriptResolutionCache cache = this.cache;
+        if (cache != null) {
             boolean flushCache = false;
+            String invalidatePath = null;
 
             // we may receive different events
             final String topic = event.getTopic();
@@ -1059,27 +1046,30 @@ public class SlingServletResolver
                 // this is a resource or resource provider event
 
                 // if the path of the event is a sub path of a search path
-                // we flush the whole cache
+                // we drop the entries which have searched a location
+                // related to the path
                 final String path = (String) event.getProperty(SlingConstants.PROPERTY_PATH);
                 if ( path != null ) {
                     int index = 0;
-                    while (!flushCache && index < searchPaths.length) {
+                    while (invalidatePath == null && index < searchPaths.length) {
                         if (path.startsWith(this.searchPaths[index])) {
-                            flushCache = true;
+                            invalidatePath = path;
                         }
                         index++;
                     }
                 }
             }
             if (flushCache) {
-                flushCache();
+                cache.flush();
+            } else if (invalidatePath != null) {
+                final int count = cache.invalidate(invalidatePath);
+                LOGGER.debug("Removed {} cached scripts depending on {}", count, invalidatePath);
             }
         }
     }
 
     private void flushCache() {
-        this.cache.clear();
-        this.logCacheSizeWarning = true;
+        this.cache.flush();
     }
 
     /** The list of property names checked by {@link #getName(ServiceReference)} */
@@ -1373,15 +1363,39 @@ public class SlingServletResolver
         }
 
         public int getCacheSize() {
-            return cache.size();
+            final ScriptResolutionCache cache = SlingServletResolver.this.cache;
+            return cache != null ? cache.size() : 0;
         }
 
         public void flushCache() {
-            SlingServletResolver.this.flushCache();
+            if (SlingServletResolver.this.cache != null) {
+                SlingServletResolver.this.flushCache();
+            }
         }
 
         public int getMaximumCacheSize() {
-            return cacheSize;
+            final ScriptResolutionCache cache = SlingServletResolver.this.cache;
+            return cache != null ? cache.getMaximumSize() : 0;
+        }
+
+        public long getHitCount() {
+            final ScriptResolutionCache cache = SlingServletResolver.this.cache;
+            return cache != null ? cache.getHits() : 0;
+        }
+
+        public long getMissCount() {
+            final ScriptResolutionCache cache = SlingServletResolver.this.cache;
+            return cache != null ? cache.getMisses() : 0;
+        }
+
+        public long getEvictionCount() {
+            final ScriptResolutionCache cache = SlingServletResolver.this.cache;
+            return cache != null ? cache.getEvictions() : 0;
+        }
+
+        public long getInvalidationCount() {
+            final ScriptResolutionCache cache = SlingServletResolver.this.cache;
+            return cache != null ? cache.getInvalidations() : 0;
         }
 
     }
@@ -42,4 +42,33 @@ public interface SlingServletResolverCacheMBean {
      */
     void flushCache();
 
+    /**
+     * Get the number of script resolutions served from the cache
+     *
+     * @return the number of cache hits
+     */
+    long getHitCount();
+
+    /**
+     * Get the number of script resolutions not found in the cache
+     *
+     * @return the number of cache misses
+     */
+    long getMissCount();
+
+    /**
+     * Get the number of entries removed to make room for new entries
+     *
+     * @return the number of evicted entries
+     */
+    long getEvictionCount();
+
+    /**
+     * Get the number of entries removed because a script they depend on
+     * has changed
+     *
+     * @return the number of invalidated entries
+     */
+    long getInvalidationCount();
+
 }
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlets.resolver.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServlet;
+
+import org.apache.sling.commons.testing.sling.MockResource;
+import org.apache.sling.commons.testing.sling.MockResourceResolver;
+import org.apache.sling.servlets.resolver.internal.helper.AbstractResourceCollector;
+import org.apache.sling.servlets.resolver.internal.helper.ResourceCollector;
+import org.junit.Test;
+
+public class ScriptResolutionCacheTest {
+
+    private final MockResourceResolver resolver = new MockResourceResolver();
+
+    private final Servlet servlet = new HttpServlet() {
+        private static final long serialVersionUID = 1L;
+    };
+
+    @Test public void testHitAndMiss() {
+        final ScriptResolutionCache cache = new ScriptResolutionCache(10);
+        final AbstractResourceCollector collector = createCollector("a/b");
+
+        assertNull(cache.get(collector));
+        cache.put(collector, servlet, Arrays.asList("/apps/a/b", "/libs/a/b"));
+        assertSame(servlet, cache.get(createCollector("a/b")));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.size());
+    }
+
+    @Test public void testEvictsLeastRecentlyUsed() {
+        final ScriptResolutionCache cache = new ScriptResolutionCache(3);
+        cache.put(createCollector("t/1"), servlet, Arrays.asList("/apps/t/1"));
+        cache.put(createCollector("t/2"), servlet, Arrays.asList("/apps/t/2"));
+        cache.put(createCollector("t/3"), servlet, Arrays.asList("/apps/t/3"));
+
+        // touch the first entry, the second is now the oldest
+        assertNotNull(cache.get(createCollector("t/1")));
+
+        cache.put(createCollector("t/4"), servlet, Arrays.asList("/apps/t/4"));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(3, cache.size());
+        assertNull(cache.get(createCollector("t/2")));
+        assertNotNull(cache.get(createCollector("t/1")));
+        assertNotNull(cache.get(createCollector("t/4")));
+    }
+
+    @Test public void testSelectiveInvalidation() {
+        final ScriptResolutionCache cache = new ScriptResolutionCache(10);
+        cache.put(createCollector("a/b"), servlet, Arrays.asList("/apps/a/b", "/apps/sling/servlet/default"));
+        cache.put(createCollector("a/c"), servlet, Arrays.asList("/apps/a/c", "/apps/sling/servlet/default"));
+        cache.put(createCollector("a/bc"), servlet, Arrays.asList("/apps/a/bc"));
+
+        // a script below one location
+        assertEquals(1, cache.invalidate("/apps/a/b/b.jsp"));
+        assertNull(cache.get(createCollector("a/b")));
+        assertNotNull(cache.get(createCollector("a/bc")));
+
+        // a parent of a location
+        assertEquals(1, cache.invalidate("/apps/a/c"));
+        assertEquals(1, cache.invalidate("/apps/a"));
+        assertEquals(0, cache.size());
+        assertEquals(3, cache.getInvalidations());
+    }
+
+    @Test public void testSharedLocation() {
+        final ScriptResolutionCache cache = new ScriptResolutionCache(10);
+        cache.put(createCollector("a/b"), servlet, Arrays.asList("/apps/a/b", "/apps/sling/servlet/default"));
+        cache.put(createCollector("a/c"), servlet, Arrays.asList("/apps/a/c", "/apps/sling/servlet/default"));
+
+        assertEquals(2, cache.invalidate("/apps/sling/servlet/default/GET.jsp"));
+        assertEquals(0, cache.size());
+    }
+
+    private AbstractResourceCollector createCollector(final String resourceType) {
+        final MockResource resource = new MockResource(resolver, "/content/" + resourceType, resourceType);
+        return new ResourceCollector("GET", null, resource, null);
+    }
+}
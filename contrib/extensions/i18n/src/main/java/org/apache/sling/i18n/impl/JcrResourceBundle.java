@@ -19,11 +19,13 @@
 package org.apache.sling.i18n.impl;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -58,26 +60,44 @@ public class JcrResourceBundle extends ResourceBundle {
      * java.util.Formatter pattern to build the XPath query to search for
      * messages in a given root path (%s argument).
      *
-     * @see #loadFully(ResourceResolver, Set, Set)
+     * @see #loadMessages(ResourceResolver, String, Map)
      */
     private static final String QUERY_MESSAGES_FORMAT = "/jcr:root%s//element(*,sling:Message)";
 
     static final String QUERY_LANGUAGE_ROOTS = "//element(*,mix:language)[@jcr:language]";
 
-    private final Map<String, Object> resources;
+    /**
+     * The merged messages of all language roots. This map is never modified
+     * but replaced as a whole by {@link #applyChanges(ResourceResolver, Collection)},
+     * so readers always see a consistent snapshot.
+     */
+    private volatile Map<String, Object> resources;
 
     private final Locale locale;
 
     private final Set<String> languageRoots = new HashSet<String>();
 
+    /** The (potential) language roots of this bundle. */
+    private final Set<String> roots;
+
+    /** The search path used to resolve messages defined in multiple roots. */
+    private final String[] searchPath;
+
+    /**
+     * The messages of each language root indexed by the path of the
+     * message resource. Guarded by this bundle.
+     */
+    private final Map<String, Map<String, MessageEntry>> messagesByRoot = new LinkedHashMap<String, Map<String, MessageEntry>>();
+
     JcrResourceBundle(Locale locale, String baseName,
             ResourceResolver resourceResolver) {
         this.locale = locale;
 
         long start = System.currentTimeMillis();
         refreshSession(resourceResolver);
-        Set<String> roots = loadPotentialLanguageRoots(resourceResolver, locale, baseName);
-        this.resources = loadFully(resourceResolver, roots, this.languageRoots);
+        this.searchPath = resourceResolver.getSearchPath();
+        this.roots = loadPotentialLanguageRoots(resourceResolver, locale, baseName);
+        this.resources = loadFully(resourceResolver, this.roots, this.languageRoots);
         long end = System.currentTimeMillis();
         if (log.isDebugEnabled()) {
             log.debug(
@@ -132,6 +152,79 @@ public class JcrResourceBundle extends ResourceBundle {
         return resources.get(key);
     }
 
+    /**
+     * Applies changes of the message resources to this resource bundle.
+     * <p>
+     * For each changed path inside one of the language roots of this bundle,
+     * the messages at and below the path are dropped and the current state
+     * of the resource is read again: a message resource is added directly,
+     * for any other resource the messages in its subtree are queried. The
+     * merged messages are then replaced at once, so readers keep using the
+     * previous messages until the update is complete.
+     *
+     * @param resourceResolver The storage access, which must already be refreshed
+     * @param paths The paths of the changed resources
+     * @return {@code false} if the changes can not be applied incrementally
+     *      because a language root itself has been changed. In this case
+     *      the bundle must be loaded again.
+     */
+    synchronized boolean applyChanges(final ResourceResolver resourceResolver, final Collection<String> paths) {
+        boolean changed = false;
+        for (final String path : paths) {
+            String root = null;
+            for (final String current : roots) {
+                if (current.equals(path) || current.startsWith(path + "/")) {
+                    log.debug("applyChanges: Language root {} changed", current);
+                    return false;
+                }
+                if (path.startsWith(current + "/")) {
+                    root = current;
+                    break;
+                }
+            }
+            if (root == null) {
+                continue;
+            }
+
+            Map<String, MessageEntry> messages = messagesByRoot.get(root);
+            if (messages == null) {
+                messages = new LinkedHashMap<String, MessageEntry>();
+                messagesByRoot.put(root, messages);
+            }
+
+            final String prefix = path + "/";
+            final Iterator<String> i = messages.keySet().iterator();
+            while (i.hasNext()) {
+                final String messagePath = i.next();
+                if (messagePath.equals(path) || messagePath.startsWith(prefix)) {
+                    i.remove();
+                    changed = true;
+                }
+            }
+
+            final Resource resource = resourceResolver.getResource(path);
+            if (resource != null) {
+                final ValueMap properties = resource.adaptTo(ValueMap.class);
+                if (properties != null && properties.containsKey(PROP_VALUE)) {
+                    messages.put(path, new MessageEntry(properties.get(PROP_KEY, String.class), path, properties.get(PROP_VALUE)));
+                } else {
+                    loadMessages(resourceResolver, path, messages);
+                }
+                changed = true;
+            }
+
+            if (!messages.isEmpty()) {
+                languageRoots.add(root);
+            }
+        }
+
+        if (changed) {
+            this.resources = mergeMessages();
+            log.debug("applyChanges: Updated {} with {} entries", locale, resources.size());
+        }
+        return true;
+    }
+
     /**
      * Fully loads the resource bundle from the storage.
      * <p>
@@ -151,84 +244,84 @@ public class JcrResourceBundle extends ResourceBundle {
      *
      * @throws NullPointerException if either of the parameters is {@code null}.
      */
-    @SuppressWarnings("deprecation")
     private Map<String, Object> loadFully(final ResourceResolver resourceResolver, Set<String> roots, Set<String> languageRoots) {
-        final List<List<Map<String, Object>>> allResources = new ArrayList<List<Map<String,Object>>>();
-
-        final String[] path = resourceResolver.getSearchPath();
-
         for (final String root: roots) {
-            String fullLoadQuery = String.format(QUERY_MESSAGES_FORMAT, ISO9075.encodePath(root));
-
-            log.debug("Executing full load query {}", fullLoadQuery);
-
-            // do an XPath query because this won't go away soon and still
-            // (2011/04/04) is the fastest query language ...
-            Iterator<Map<String, Object>> bundles = null;
-            try {
-                bundles = resourceResolver.queryResources(fullLoadQuery, "xpath");
-            } catch (final SlingException se) {
-                log.error("Exception during resource query " + fullLoadQuery, se);
-            }
-
-            if ( bundles != null ) {
-
-                final Map<String, Object> rest = new HashMap<String, Object>();
-                final List<Map<String, Object>> res0 = new ArrayList<Map<String, Object>>();
-                for (int i = 0; i < path.length; i++) {
-                    res0.add(new HashMap<String, Object>());
+            final Map<String, MessageEntry> messages = new LinkedHashMap<String, MessageEntry>();
+            if (loadMessages(resourceResolver, root, messages)) {
+                messagesByRoot.put(root, messages);
+                if (!messages.isEmpty()) {
+                    // also remember root (in case we face a non-empty map)
+                    languageRoots.add(root);
                 }
-                res0.add(rest); // add global list at the end
-
-                allResources.add(res0);
-
-                while (bundles.hasNext()) {
-                    final Map<String, Object> row = bundles.next();
-                    if (row.containsKey(PROP_VALUE)) {
-                        final String jcrPath = (String) row.get(JCR_PATH);
-                        String key = (String) row.get(PROP_KEY);
-
-                        if (key == null) {
-                            key = ResourceUtil.getName(jcrPath);
-                        }
+            }
+        }
+        return mergeMessages();
+    }
 
-                        Map<String, Object> dst = rest;
-                        for (int i = 0; i < path.length; i++) {
-                            if (jcrPath.startsWith(path[i])) {
-                                dst = res0.get(i);
-                                break;
-                            }
-                        }
+    /**
+     * Queries the messages in the subtree of the given path.
+     *
+     * @return {@code false} if the query failed
+     */
+    @SuppressWarnings("deprecation")
+    private boolean loadMessages(final ResourceResolver resourceResolver, final String path, final Map<String, MessageEntry> messages) {
+        String fullLoadQuery = String.format(QUERY_MESSAGES_FORMAT, ISO9075.encodePath(path));
+
+        log.debug("Executing full load query {}", fullLoadQuery);
+
+        // do an XPath query because this won't go away soon and still
+        // (2011/04/04) is the fastest query language ...
+        Iterator<Map<String, Object>> bundles = null;
+        try {
+            bundles = resourceResolver.queryResources(fullLoadQuery, "xpath");
+        } catch (final SlingException se) {
+            log.error("Exception during resource query " + fullLoadQuery, se);
+        }
 
-                        dst.put(key, row.get(PROP_VALUE));
-                    }
-                }
+        if ( bundles == null ) {
+            return false;
+        }
+        while (bundles.hasNext()) {
+            final Map<String, Object> row = bundles.next();
+            if (row.containsKey(PROP_VALUE)) {
+                final String jcrPath = (String) row.get(JCR_PATH);
+                messages.put(jcrPath, new MessageEntry((String) row.get(PROP_KEY), jcrPath, row.get(PROP_VALUE)));
+            }
+        }
+        return true;
+    }
 
-                for (int i = res0.size() - 1; i >= 0; i--) {
-                    final Map<String, Object> resources = res0.get(i);
-                    if (!resources.isEmpty()) {
-                        // also remember root (in case we face a non-empty map)
-                        languageRoots.add(root);
+    /**
+     * Merges the messages of all language roots: messages in roots of
+     * earlier search path entries overwrite those of later entries and of
+     * roots outside of the search path.
+     *
+     * @return The unmodifiable merged messages
+     */
+    private Map<String, Object> mergeMessages() {
+        // one map per search path entry and the global list at the end
+        final List<Map<String, Object>> res0 = new ArrayList<Map<String, Object>>();
+        for (int i = 0; i <= searchPath.length; i++) {
+            res0.add(new HashMap<String, Object>());
+        }
+        for (final Map<String, MessageEntry> messages : messagesByRoot.values()) {
+            for (final MessageEntry entry : messages.values()) {
+                int index = searchPath.length;
+                for (int i = 0; i < searchPath.length; i++) {
+                    if (entry.path.startsWith(searchPath[i])) {
+                        index = i;
                         break;
                     }
                 }
+                res0.get(index).put(entry.key, entry.value);
             }
         }
-        final Map<String, Object> result = new HashMap<String, Object>();
-        for(final List<Map<String, Object>> current : allResources) {
-            final Map<String, Object> rest = current.get(current.size() - 1);
-            result.putAll(rest);
-        }
 
-        for (int i = path.length - 1; i >= 0; i--) {
-
-            for(final List<Map<String, Object>> current : allResources) {
-                final Map<String, Object> resources = current.get(i);
-                result.putAll(resources);
-            }
+        final Map<String, Object> result = new HashMap<String, Object>();
+        for (int i = searchPath.length; i >= 0; i--) {
+            result.putAll(res0.get(i));
         }
-
-        return result;
+        return Collections.unmodifiableMap(result);
     }
 
     private Set<String> loadPotentialLanguageRoots(ResourceResolver resourceResolver, Locale locale, String baseName) {
@@ -263,4 +356,22 @@ public class JcrResourceBundle extends ResourceBundle {
     private static String toRFC4646String(Locale locale) {
         return locale.toString().replace('_', '-');
     }
+
+    /**
+     * A single message of a language root.
+     */
+    private static final class MessageEntry {
+
+        final String key;
+
+        final String path;
+
+        final Object value;
+
+        MessageEntry(final String key, final String path, final Object value) {
+            this.key = (key == null ? ResourceUtil.getName(path) : key);
+            this.path = path;
+            this.value = value;
+        }
+    }
 }
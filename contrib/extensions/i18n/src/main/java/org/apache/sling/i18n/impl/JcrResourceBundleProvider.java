@@ -28,12 +28,15 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
 
@@ -82,6 +85,11 @@ public class JcrResourceBundleProvider implements ResourceBundleProvider, EventH
     @Property(boolValue = DEFAULT_PRELOAD_BUNDLES)
     private static final String PROP_PRELOAD_BUNDLES = "preload.bundles";
 
+    private static final long DEFAULT_INVALIDATION_DELAY = 1000;
+
+    @Property(longValue = DEFAULT_INVALIDATION_DELAY)
+    private static final String PROP_INVALIDATION_DELAY = "invalidation.delay";
+
 
     /** default log */
     private final Logger log = LoggerFactory.getLogger(getClass());
@@ -133,6 +141,20 @@ public class JcrResourceBundleProvider implements ResourceBundleProvider, EventH
 
     private boolean preloadBundles;
 
+    private long invalidationDelay;
+
+    /**
+     * The paths of the changed resources which have not been applied to the
+     * cached resource bundles yet. Guarded by itself.
+     */
+    private final Set<String> changedPaths = new LinkedHashSet<String>();
+
+    /**
+     * The timer applying the changed paths after the invalidation delay or
+     * <code>null</code> if not active. Guarded by {@link #changedPaths}.
+     */
+    private Timer changeTimer;
+
     // ---------- ResourceBundleProvider ---------------------------------------
 
     /**
@@ -176,24 +198,13 @@ public class JcrResourceBundleProvider implements ResourceBundleProvider, EventH
     public void handleEvent(final org.osgi.service.event.Event event) {
         final String path = (String)event.getProperty(SlingConstants.PROPERTY_PATH);
         if ( path != null ) {
-            boolean invalidate = false;
-            if ( languageRootPaths.contains(path) ) {
-                log.debug("handleEvent: Detected change of cached language root {}, removing cached ResourceBundles", path);
-                invalidate = true;
-            } else {
-                for(final String root : languageRootPaths) {
-                    if ( path.startsWith(root) ) {
-                        log.debug("handleEvent: Resource changes, removing cached ResourceBundles");
-                        invalidate = true;
-                        break;
-                    }
+            for(final String root : languageRootPaths) {
+                if ( path.equals(root) || path.startsWith(root + "/") ) {
+                    log.debug("handleEvent: Detected change of {}, scheduling update of cached ResourceBundles", path);
+                    scheduleChange(path);
+                    break;
                 }
             }
-
-            if ( invalidate ) {
-                clearCache();
-                preloadBundles();
-            }
         }
     }
 
@@ -221,6 +232,10 @@ public class JcrResourceBundleProvider implements ResourceBundleProvider, EventH
             null);
         this.defaultLocale = toLocale(localeString);
         this.preloadBundles = PropertiesUtil.toBoolean(props.get(PROP_PRELOAD_BUNDLES), DEFAULT_PRELOAD_BUNDLES);
+        this.invalidationDelay = PropertiesUtil.toLong(props.get(PROP_INVALIDATION_DELAY), DEFAULT_INVALIDATION_DELAY);
+        synchronized (changedPaths) {
+            this.changeTimer = new Timer("JcrResourceBundleProvider change timer", true);
+        }
 
         this.bundleContext = context.getBundleContext();
         this.bundleServiceRegistrations = new ArrayList<ServiceRegistration>();
@@ -236,6 +251,13 @@ public class JcrResourceBundleProvider implements ResourceBundleProvider, EventH
     }
 
     protected void deactivate() {
+        synchronized (changedPaths) {
+            if (changeTimer != null) {
+                changeTimer.cancel();
+                changeTimer = null;
+            }
+            changedPaths.clear();
+        }
         clearCache();
     }
 
@@ -459,6 +481,73 @@ public class JcrResourceBundleProvider implements ResourceBundleProvider, EventH
         }
     }
 
+    /**
+     * Remembers the path of a changed resource. Changes are collected for the
+     * configured invalidation delay and applied together, so a batch of
+     * changes only updates each cached resource bundle once.
+     */
+    private void scheduleChange(final String path) {
+        synchronized (changedPaths) {
+            final boolean scheduled = !changedPaths.isEmpty();
+            changedPaths.add(path);
+            if (scheduled) {
+                return;
+            }
+            if (changeTimer != null && invalidationDelay > 0) {
+                changeTimer.schedule(new TimerTask() {
+                    @Override
+                    public void run() {
+                        applyChanges();
+                    }
+                }, invalidationDelay);
+                return;
+            }
+        }
+        applyChanges();
+    }
+
+    /**
+     * Applies the collected changes to the cached resource bundles. Only
+     * if a language root itself changed, the cache is cleared and the
+     * bundles are loaded again.
+     */
+    private void applyChanges() {
+        final List<String> paths;
+        synchronized (changedPaths) {
+            paths = new ArrayList<String>(changedPaths);
+            changedPaths.clear();
+        }
+        if (paths.isEmpty()) {
+            return;
+        }
+
+        try {
+            boolean reload = true;
+            final ResourceResolver resolver = getResourceResolver();
+            if (resolver != null) {
+                JcrResourceBundle.refreshSession(resolver);
+                reload = false;
+                for (final JcrResourceBundle bundle : resourceBundleCache.values()) {
+                    if (!bundle.applyChanges(resolver, paths)) {
+                        reload = true;
+                        break;
+                    }
+                    languageRootPaths.addAll(bundle.getLanguageRootPaths());
+                }
+            }
+            if (reload) {
+                log.debug("applyChanges: Language roots changed, removing cached ResourceBundles");
+                clearCache();
+                preloadBundles();
+            } else {
+                log.debug("applyChanges: Applied {} changes to cached ResourceBundles", paths.size());
+            }
+        } catch (final RuntimeException re) {
+            log.error("applyChanges: Unable to apply changes, removing cached ResourceBundles", re);
+            clearCache();
+        }
+    }
+
     private void preloadBundles() {
         if (preloadBundles) {
             Iterator<Map<String, Object>> bundles = getResourceResolver().queryResources(
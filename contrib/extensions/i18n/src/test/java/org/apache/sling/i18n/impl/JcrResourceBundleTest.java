@@ -18,6 +18,7 @@
  */
 package org.apache.sling.i18n.impl;
 
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -85,62 +86,7 @@ public class JcrResourceBundleTest extends RepositoryTestBase {
                         @Override
                         public Resource next() {
                             final Node node = nodes.nextNode();
-                            final Resource rsrc = new AbstractResource() {
-
-                                @Override
-                                public String getResourceType() {
-                                    // TODO Auto-generated method stub
-                                    return null;
-                                }
-
-                                @Override
-                                public String getResourceSuperType() {
-                                    // TODO Auto-generated method stub
-                                    return null;
-                                }
-
-                                @Override
-                                public ResourceResolver getResourceResolver() {
-                                    // TODO Auto-generated method stub
-                                    return null;
-                                }
-
-                                @Override
-                                public ResourceMetadata getResourceMetadata() {
-                                    // TODO Auto-generated method stub
-                                    return null;
-                                }
-
-                                @Override
-                                public String getPath() {
-                                    try {
-                                        return node.getPath();
-                                    } catch ( final RepositoryException re ) {
-                                        throw new RuntimeException(re);
-                                    }
-                                }
-
-                                @Override
-                                public <AdapterType> AdapterType adaptTo(
-                                        Class<AdapterType> type) {
-                                    if ( type == ValueMap.class) {
-                                        try {
-                                            final Map<String, Object> props = new HashMap<String, Object>();
-                                            if ( node.hasProperty(JcrResourceBundle.PROP_LANGUAGE) ) {
-                                                props.put(JcrResourceBundle.PROP_LANGUAGE, node.getProperty(JcrResourceBundle.PROP_LANGUAGE).getString());
-                                            }
-                                            if ( node.hasProperty(JcrResourceBundle.PROP_BASENAME) ) {
-                                                props.put(JcrResourceBundle.PROP_BASENAME, node.getProperty(JcrResourceBundle.PROP_BASENAME).getString());
-                                            }
-                                            return (AdapterType)new ValueMapDecorator(props);
-                                        } catch ( final RepositoryException re ) {
-                                            throw new RuntimeException(re);
-                                        }
-                                    }
-                                    return super.adaptTo(type);
-                                }
-                            };
-                            return rsrc;
+                            return createResource(node);
                         }
 
                         @Override
@@ -163,8 +109,16 @@ public class JcrResourceBundleTest extends RepositoryTestBase {
 
             @Override
             public Resource getResource(String path) {
-                // TODO Auto-generated method stub
-                return null;
+                try {
+                    if ( getSession().nodeExists(path) ) {
+                        return createResource(getSession().getNode(path));
+                    }
+                    return null;
+                } catch ( final NamingException ne ) {
+                    throw new RuntimeException(ne);
+                } catch ( final RepositoryException re ) {
+                    throw new RuntimeException(re);
+                }
             }
 
             @Override
@@ -352,6 +306,70 @@ public class JcrResourceBundleTest extends RepositoryTestBase {
         createTestContent();
     }
 
+    private Resource createResource(final Node node) {
+        return new AbstractResource() {
+
+            @Override
+            public String getResourceType() {
+                // TODO Auto-generated method stub
+                return null;
+            }
+
+            @Override
+            public String getResourceSuperType() {
+                // TODO Auto-generated method stub
+                return null;
+            }
+
+            @Override
+            public ResourceResolver getResourceResolver() {
+                // TODO Auto-generated method stub
+                return null;
+            }
+
+            @Override
+            public ResourceMetadata getResourceMetadata() {
+                // TODO Auto-generated method stub
+                return null;
+            }
+
+            @Override
+            public String getPath() {
+                try {
+                    return node.getPath();
+                } catch ( final RepositoryException re ) {
+                    throw new RuntimeException(re);
+                }
+            }
+
+            @Override
+            public <AdapterType> AdapterType adaptTo(
+                    Class<AdapterType> type) {
+                if ( type == ValueMap.class) {
+                    try {
+                        final Map<String, Object> props = new HashMap<String, Object>();
+                        if ( node.hasProperty(JcrResourceBundle.PROP_LANGUAGE) ) {
+                            props.put(JcrResourceBundle.PROP_LANGUAGE, node.getProperty(JcrResourceBundle.PROP_LANGUAGE).getString());
+                        }
+                        if ( node.hasProperty(JcrResourceBundle.PROP_BASENAME) ) {
+                            props.put(JcrResourceBundle.PROP_BASENAME, node.getProperty(JcrResourceBundle.PROP_BASENAME).getString());
+                        }
+                        if ( node.hasProperty(JcrResourceBundle.PROP_KEY) ) {
+                            props.put(JcrResourceBundle.PROP_KEY, node.getProperty(JcrResourceBundle.PROP_KEY).getString());
+                        }
+                        if ( node.hasProperty(JcrResourceBundle.PROP_VALUE) ) {
+                            props.put(JcrResourceBundle.PROP_VALUE, node.getProperty(JcrResourceBundle.PROP_VALUE).getString());
+                        }
+                        return (AdapterType)new ValueMapDecorator(props);
+                    } catch ( final RepositoryException re ) {
+                        throw new RuntimeException(re);
+                    }
+                }
+                return super.adaptTo(type);
+            }
+        };
+    }
+
     public void cleanRepository() throws Exception {
         NodeIterator nodes = getSession().getRootNode().getNodes();
         while (nodes.hasNext()) {
@@ -579,4 +597,32 @@ public class JcrResourceBundleTest extends RepositoryTestBase {
         }
         assertEquals(MESSAGES_DE.size(), counter);
     }
+
+    public void test_applyChanges() throws Exception {
+        JcrResourceBundle bundle = new JcrResourceBundle(new Locale("de"), null, resolver);
+        Node de = getSession().getNode("/libs/i18n/de");
+
+        // change a message, add a new one and remove a subtree
+        de.getNode("plate").setProperty("sling:message", "Untertasse");
+        Node glass = de.getNode("f").addNode("glass", "sling:MessageEntry");
+        glass.setProperty("sling:message", "Glas");
+        de.getNode("s").remove();
+        getSession().save();
+
+        // the bundle is unchanged until the changes are applied
+        assertEquals("Teller", bundle.getString("plate"));
+        assertTrue(bundle.applyChanges(resolver, Arrays.asList("/libs/i18n/de/plate", "/libs/i18n/de/f/glass", "/libs/i18n/de/s")));
+        assertEquals("Untertasse", bundle.getString("plate"));
+        assertEquals("Glas", bundle.getString("glass"));
+        assertEquals("Gabel", bundle.getString("fork"));
+        assertFalse(bundle.handleKeySet().contains("spoon"));
+
+        // changes of other language roots are ignored
+        assertTrue(bundle.applyChanges(resolver, Arrays.asList("/libs/i18n/en/" + PARENT_MSG.key)));
+        assertFalse(bundle.handleKeySet().contains(PARENT_MSG.key));
+
+        // a changed language root can't be applied incrementally
+        assertFalse(bundle.applyChanges(resolver, Arrays.asList("/libs/i18n/de")));
+        assertFalse(bundle.applyChanges(resolver, Arrays.asList("/libs/i18n")));
+    }
 }
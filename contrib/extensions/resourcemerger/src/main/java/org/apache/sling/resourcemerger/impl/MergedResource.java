@@ -18,6 +18,7 @@
  */
 package org.apache.sling.resourcemerger.impl;
 
+import java.util.HashMap;
 import java.util.List;
 
 import org.apache.sling.api.resource.AbstractResource;
@@ -26,6 +27,7 @@ import org.apache.sling.api.resource.ResourceMetadata;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.api.wrappers.DeepReadValueMapDecorator;
+import org.apache.sling.api.wrappers.ValueMapDecorator;
 
 /**
  * {@inheritDoc}
@@ -95,6 +97,25 @@ public class MergedResource extends AbstractResource {
         metadata.put(MergedResourceConstants.METADATA_RESOURCES, resourcePaths);
     }
 
+    /**
+     * Constructor for a cached merge result
+     *
+     * @param resolver      Resource resolver
+     * @param mergeRootPath Merge root path
+     * @param cached        The cached merge result
+     */
+    MergedResource(final ResourceResolver resolver,
+                   final String mergeRootPath,
+                   final MergedResourceCache.CachedResource cached) {
+        this.resolver = resolver;
+        this.path = (cached.relativePath.length() == 0 ? mergeRootPath : mergeRootPath + "/" + cached.relativePath);
+        this.properties = new DeepReadValueMapDecorator(this, new ValueMapDecorator(new HashMap<String, Object>(cached.properties)));
+        this.resourceType = cached.resourceType;
+        this.resourceSuperType = cached.resourceSuperType;
+        metadata.put(MergedResourceConstants.METADATA_FLAG, true);
+        metadata.put(MergedResourceConstants.METADATA_RESOURCES, cached.resourcePaths.clone());
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourcemerger.impl;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.sling.api.SlingConstants;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventHandler;
+
+/**
+ * Cache for the results of merging resources, shared by all providers
+ * of a picker.
+ * <p>
+ * The cache holds the mapped resource paths, the resource type and the
+ * merged properties of a merged resource or of the children of a merged
+ * resource, so neither the picked resources nor the hiding rules have to
+ * be evaluated again. Entries are keyed by the relative path, the search
+ * path and the user id of the resource resolver, as the picked resources
+ * depend on the search path and on the access rights of the user.
+ * <p>
+ * Resource resolvers with unsaved changes neither use nor fill the cache,
+ * as their results may depend on transient changes which are not visible
+ * to other resource resolvers and for which no event is sent if they are
+ * reverted.
+ * <p>
+ * The whole cache is flushed if a resource below the root of any picked
+ * resource, e.g. <code>/apps</code> or <code>/libs</code>, changes.
+ */
+public class MergedResourceCache implements EventHandler {
+
+    /** Merged resource data which is independent of the resource resolver. */
+    static final class CachedResource {
+
+        final String relativePath;
+
+        final String resourceType;
+
+        final String resourceSuperType;
+
+        final String[] resourcePaths;
+
+        final Map<String, Object> properties;
+
+        CachedResource(final String relativePath, final MergedResource resource) {
+            this.relativePath = relativePath;
+            this.resourceType = resource.getResourceType();
+            this.resourceSuperType = resource.getResourceSuperType();
+            this.resourcePaths = (String[]) resource.getResourceMetadata().get(MergedResourceConstants.METADATA_RESOURCES);
+            this.properties = Collections.unmodifiableMap(new HashMap<String, Object>(resource.getValueMap()));
+        }
+    }
+
+    /** The cached results. Guarded by itself. */
+    private final Map<String, List<CachedResource>> entries;
+
+    /**
+     * Incremented on each flush and each event, so results computed while
+     * a resource changed are not cached. Guarded by {@link #entries}.
+     */
+    private long generation;
+
+    /** The roots of the picked resources, like <code>/apps</code>. */
+    private final Map<String, Boolean> roots = new ConcurrentHashMap<String, Boolean>();
+
+    /**
+     * Create a new cache
+     * @param maxEntries The maximum number of cached results, the least
+     *      recently used results are removed first.
+     */
+    public MergedResourceCache(final int maxEntries) {
+        this.entries = new LinkedHashMap<String, List<CachedResource>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, List<CachedResource>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    private String getKey(final ResourceResolver resolver, final String relativePath, final boolean children) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(children ? 'c' : 'r');
+        sb.append(resolver.getUserID());
+        for (final String path : resolver.getSearchPath()) {
+            sb.append(':').append(path);
+        }
+        sb.append(':').append(relativePath);
+        return sb.toString();
+    }
+
+    /**
+     * Get the current generation of the cache, which has to be passed to
+     * {@link #put(ResourceResolver, String, boolean, Collection, Collection, long)}.
+     * It must be retrieved before the resources are picked.
+     */
+    long getGeneration() {
+        synchronized (this.entries) {
+            return this.generation;
+        }
+    }
+
+    /**
+     * Get the cached result for a relative path.
+     * @param resolver The resource resolver
+     * @param relativePath The relative path
+     * @param children Whether the children of the merged resource or the
+     *      merged resource itself are requested
+     * @return The cached resources, which is an empty list if the merged
+     *      resource does not exist, or <code>null</code> if not cached.
+     */
+    List<CachedResource> get(final ResourceResolver resolver, final String relativePath, final boolean children) {
+        if (resolver.hasChanges()) {
+            return null;
+        }
+        final String key = getKey(resolver, relativePath, children);
+        synchronized (this.entries) {
+            return this.entries.get(key);
+        }
+    }
+
+    /**
+     * Cache the result for a relative path.
+     * @param resolver The resource resolver
+     * @param relativePath The relative path
+     * @param children Whether the result are the children of the merged
+     *      resource or the merged resource itself
+     * @param resources The merged resources
+     * @param pickedPaths The paths of all picked resources the result depends on
+     * @param generation The generation of the cache before the resources were picked
+     */
+    void put(final ResourceResolver resolver, final String relativePath, final boolean children,
+            final Collection<Resource> resources, final Collection<String> pickedPaths,
+            final long generation) {
+        if (resolver.hasChanges()) {
+            return;
+        }
+        final List<CachedResource> result = new ArrayList<CachedResource>(resources.size());
+        for (final Resource rsrc : resources) {
+            final MergedResource resource = (MergedResource) rsrc;
+            final String path = (children ? (relativePath.length() == 0 ? resource.getName() : relativePath + '/' + resource.getName()) : relativePath);
+            final CachedResource cached = new CachedResource(path, resource);
+            for (final Object value : cached.properties.values()) {
+                // streams can only be read once
+                if (value instanceof InputStream) {
+                    return;
+                }
+            }
+            result.add(cached);
+        }
+        for (final String path : pickedPaths) {
+            final int pos = path.indexOf('/', 1);
+            this.roots.put(pos == -1 ? path : path.substring(0, pos), Boolean.TRUE);
+        }
+        final String key = getKey(resolver, relativePath, children);
+        synchronized (this.entries) {
+            if (this.generation == generation) {
+                this.entries.put(key, Collections.unmodifiableList(result));
+            }
+        }
+    }
+
+    /**
+     * Remove all cached results.
+     */
+    public void flush() {
+        synchronized (this.entries) {
+            this.generation++;
+            this.entries.clear();
+        }
+    }
+
+    /**
+     * @return the number of cached results
+     */
+    public int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    /**
+     * Flush the cache if a resource below the root of a picked resource changed.
+     * @see org.osgi.service.event.EventHandler#handleEvent(org.osgi.service.event.Event)
+     */
+    public void handleEvent(final Event event) {
+        final String path = (String) event.getProperty(SlingConstants.PROPERTY_PATH);
+        boolean flush = false;
+        if (path != null) {
+            for (final String root : this.roots.keySet()) {
+                if (path.equals(root) || path.startsWith(root + '/') || root.startsWith(path.endsWith("/") ? path : path + '/')) {
+                    flush = true;
+                    break;
+                }
+            }
+        }
+        synchronized (this.entries) {
+            // the roots of results which are currently computed are not known yet
+            this.generation++;
+            if (flush) {
+                this.entries.clear();
+            }
+        }
+    }
+}
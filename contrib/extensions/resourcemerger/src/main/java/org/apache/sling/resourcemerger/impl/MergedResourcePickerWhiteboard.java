@@ -26,6 +26,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Property;
 import org.apache.sling.api.resource.ResourceProvider;
 import org.apache.sling.api.resource.ResourceProviderFactory;
 import org.apache.sling.commons.osgi.PropertiesUtil;
@@ -34,21 +35,37 @@ import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
 import org.osgi.framework.ServiceReference;
 import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
 import org.osgi.util.tracker.ServiceTracker;
 import org.osgi.util.tracker.ServiceTrackerCustomizer;
 
-@Component
+@Component(label = "Apache Sling Merged Resource Picker Whiteboard",
+           description = "Registers the merged resource providers of the merged resource pickers.",
+           metatype = true)
 public class MergedResourcePickerWhiteboard implements ServiceTrackerCustomizer {
 
+    private static final int DEFAULT_CACHE_MAX_ENTRIES = 5000;
+
+    @Property(intValue = DEFAULT_CACHE_MAX_ENTRIES,
+            label = "Cache Size",
+            description = "The maximum number of cached merge results per picker. Set to 0 to disable the cache.")
+    private static final String PROP_CACHE_MAX_ENTRIES = "cache.max.entries";
+
+    private int cacheMaxEntries;
+
     private ServiceTracker tracker;
 
     private BundleContext bundleContext;
 
     private final Map<Long, ServiceRegistration> serviceRegistrations = new ConcurrentHashMap<Long, ServiceRegistration>();
 
+    private final Map<Long, ServiceRegistration> cacheRegistrations = new ConcurrentHashMap<Long, ServiceRegistration>();
+
     @Activate
-    protected void activate(final BundleContext bundleContext) {
+    protected void activate(final BundleContext bundleContext, final Map<String, Object> props) {
         this.bundleContext = bundleContext;
+        this.cacheMaxEntries = PropertiesUtil.toInteger(props.get(PROP_CACHE_MAX_ENTRIES), DEFAULT_CACHE_MAX_ENTRIES);
         tracker = new ServiceTracker(bundleContext, MergedResourcePicker.class.getName(), this);
         tracker.open();
     }
@@ -63,13 +80,25 @@ public class MergedResourcePickerWhiteboard implements ServiceTrackerCustomizer
         if ( picker != null ) {
             final String mergeRoot = PropertiesUtil.toString(reference.getProperty(MergedResourcePicker.MERGE_ROOT), null);
             if (mergeRoot != null) {
+                final boolean readOnly = PropertiesUtil.toBoolean(reference.getProperty(MergedResourcePicker.READ_ONLY), true);
+                final Long key = (Long) reference.getProperty(Constants.SERVICE_ID);
+
+                // merge results are only cached for read-only resources, modifications
+                // would only be visible after the change events have been processed
+                MergedResourceCache cache = null;
+                if (readOnly && cacheMaxEntries > 0) {
+                    cache = new MergedResourceCache(cacheMaxEntries);
+                    final Dictionary<Object, Object> cacheProps = new Hashtable<Object, Object>();
+                    cacheProps.put(EventConstants.EVENT_TOPIC, "org/apache/sling/api/resource/Resource/*");
+                    cacheRegistrations.put(key, bundleContext.registerService(EventHandler.class.getName(), cache, cacheProps));
+                }
+
                 final ResourceProviderFactory providerFactory = new MergingResourceProviderFactory(mergeRoot, picker,
-                        PropertiesUtil.toBoolean(reference.getProperty(MergedResourcePicker.READ_ONLY), true));
+                        readOnly, cache);
                 final Dictionary<Object, Object> props = new Hashtable<Object, Object>();
                 props.put(ResourceProvider.ROOTS, mergeRoot);
                 props.put(ResourceProvider.OWNS_ROOTS, true);
 
-                final Long key = (Long) reference.getProperty(Constants.SERVICE_ID);
                 final ServiceRegistration reg = bundleContext.registerService(ResourceProviderFactory.class.getName(), providerFactory, props);
 
                 serviceRegistrations.put(key, reg);
@@ -92,6 +121,10 @@ public class MergedResourcePickerWhiteboard implements ServiceTrackerCustomizer
             reg.unregister();
             this.bundleContext.ungetService(reference);
         }
+        final ServiceRegistration cacheReg = cacheRegistrations.remove(key);
+        if ( cacheReg != null ) {
+            cacheReg.unregister();
+        }
     }
 
 }
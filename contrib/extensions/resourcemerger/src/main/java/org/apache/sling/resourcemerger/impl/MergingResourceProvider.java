@@ -19,6 +19,7 @@
 package org.apache.sling.resourcemerger.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -39,12 +40,23 @@ class MergingResourceProvider implements ResourceProvider {
 
     private final boolean readOnly;
 
+    /** The cache for merge results or <code>null</code>. */
+    private final MergedResourceCache cache;
+
     MergingResourceProvider(final String mergeRootPath,
             final MergedResourcePicker picker,
             final boolean readOnly) {
+        this(mergeRootPath, picker, readOnly, null);
+    }
+
+    MergingResourceProvider(final String mergeRootPath,
+            final MergedResourcePicker picker,
+            final boolean readOnly,
+            final MergedResourceCache cache) {
         this.mergeRootPath = mergeRootPath;
         this.picker = picker;
         this.readOnly = readOnly;
+        this.cache = cache;
     }
 
     protected static final class ExcludeEntry {
@@ -198,6 +210,15 @@ class MergingResourceProvider implements ResourceProvider {
         final String relativePath = getRelativePath(path);
 
         if (relativePath != null) {
+            if (this.cache != null) {
+                final List<MergedResourceCache.CachedResource> cached = this.cache.get(resolver, relativePath, false);
+                if (cached != null) {
+                    return cached.isEmpty() ? null : new MergedResource(resolver, mergeRootPath, cached.get(0));
+                }
+            }
+            final long generation = (this.cache == null ? 0 : this.cache.getGeneration());
+            final List<String> pickedPaths = new ArrayList<String>();
+
             final ResourceHolder holder = new ResourceHolder(ResourceUtil.getName(path));
 
             final Iterator<Resource> resources = picker.pickResources(resolver, relativePath).iterator();
@@ -208,6 +229,7 @@ class MergingResourceProvider implements ResourceProvider {
 
             while (resources.hasNext()) {
                 final Resource resource = resources.next();
+                pickedPaths.add(resource.getPath());
                 // check parent for hiding
                 // SLING 3521 : if parent is not readable, nothing is hidden
                 final Resource parent = resource.getParent();
@@ -218,7 +240,12 @@ class MergingResourceProvider implements ResourceProvider {
                     holder.resources.add(resource);
                 }
             }
-            return createMergedResource(resolver, relativePath, holder);
+            final Resource mergedResource = createMergedResource(resolver, relativePath, holder);
+            if (this.cache != null) {
+                final List<Resource> result = (mergedResource == null ? Collections.<Resource>emptyList() : Collections.singletonList(mergedResource));
+                this.cache.put(resolver, relativePath, false, result, pickedPaths, generation);
+            }
+            return mergedResource;
         }
 
         return null;
@@ -233,12 +260,26 @@ class MergingResourceProvider implements ResourceProvider {
         final String relativePath = getRelativePath(resource.getPath());
 
         if (relativePath != null) {
+            if (this.cache != null) {
+                final List<MergedResourceCache.CachedResource> cached = this.cache.get(resolver, relativePath, true);
+                if (cached != null) {
+                    final List<Resource> children = new ArrayList<Resource>(cached.size());
+                    for (final MergedResourceCache.CachedResource child : cached) {
+                        children.add(new MergedResource(resolver, mergeRootPath, child));
+                    }
+                    return children.iterator();
+                }
+            }
+            final long generation = (this.cache == null ? 0 : this.cache.getGeneration());
+            final List<String> pickedPaths = new ArrayList<String>();
+
             final List<ResourceHolder> candidates = new ArrayList<ResourceHolder>();
 
             final Iterator<Resource> resources = picker.pickResources(resolver, relativePath).iterator();
 
             while (resources.hasNext()) {
                 Resource parentResource = resources.next();
+                pickedPaths.add(parentResource.getPath());
                 final ParentHidingHandler handler = new ParentHidingHandler(parentResource);
                 for (final Resource child : parentResource.getChildren()) {
                     final String rsrcName = child.getName();
@@ -293,6 +334,9 @@ class MergingResourceProvider implements ResourceProvider {
                     children.add(mergedResource);
                 }
             }
+            if (this.cache != null) {
+                this.cache.put(resolver, relativePath, true, children, pickedPaths, generation);
+            }
             return children.iterator();
         }
 
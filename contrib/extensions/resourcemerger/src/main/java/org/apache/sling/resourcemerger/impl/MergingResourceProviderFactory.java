@@ -33,18 +33,22 @@ class MergingResourceProviderFactory implements ResourceProviderFactory {
 
     private final boolean readOnly;
 
+    private final MergedResourceCache cache;
+
     MergingResourceProviderFactory(final String mergeRootPath,
             final MergedResourcePicker picker,
-            final boolean readOnly) {
+            final boolean readOnly,
+            final MergedResourceCache cache) {
         this.mergeRootPath = mergeRootPath;
         this.picker = picker;
         this.readOnly = readOnly;
+        this.cache = cache;
     }
 
     public ResourceProvider getResourceProvider(final Map<String, Object> authenticationInfo)
     throws LoginException {
         if ( this.readOnly ) {
-            return new MergingResourceProvider(mergeRootPath, picker, this.readOnly);
+            return new MergingResourceProvider(mergeRootPath, picker, this.readOnly, this.cache);
         }
         return new CRUDMergingResourceProvider(mergeRootPath, picker);
     }
@@ -52,7 +56,7 @@ class MergingResourceProviderFactory implements ResourceProviderFactory {
     public ResourceProvider getAdministrativeResourceProvider(final Map<String, Object> authenticationInfo)
     throws LoginException {
         if ( this.readOnly ) {
-            return new MergingResourceProvider(mergeRootPath, picker, this.readOnly);
+            return new MergingResourceProvider(mergeRootPath, picker, this.readOnly, this.cache);
         }
         return new CRUDMergingResourceProvider(mergeRootPath, picker);
     }
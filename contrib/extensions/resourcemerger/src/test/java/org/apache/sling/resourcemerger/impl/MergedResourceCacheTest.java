@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourcemerger.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.sling.api.SlingConstants;
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.resourcemerger.impl.picker.MergingResourcePicker;
+import org.apache.sling.testing.resourceresolver.MockHelper;
+import org.apache.sling.testing.resourceresolver.MockResourceResolverFactory;
+import org.apache.sling.testing.resourceresolver.MockResourceResolverFactoryOptions;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+
+public class MergedResourceCacheTest {
+
+    private ResourceResolver resolver;
+
+    private MergedResourceCache cache;
+
+    private MergingResourceProvider provider;
+
+    @Before public void setup() throws Exception {
+        final MockResourceResolverFactoryOptions options = new MockResourceResolverFactoryOptions();
+        options.setSearchPaths(new String[] {"/apps/", "/libs/"});
+        final ResourceResolverFactory factory = new MockResourceResolverFactory(options);
+        this.resolver = factory.getResourceResolver(null);
+        MockHelper.create(this.resolver).resource("/apps")
+                                          .resource("a").p(MergedResourceConstants.PN_HIDE_CHILDREN, "2")
+                                            .resource("1").p("a", "apps")
+                                        .resource("/libs")
+                                          .resource("a")
+                                            .resource("1").p("a", "libs").p("b", "libs")
+                                            .resource(".2")
+                                        .resource("/content")
+                                          .resource("x")
+                                        .commit();
+
+        this.cache = new MergedResourceCache(100);
+        this.provider = new MergingResourceProvider("/merged", new MergingResourcePicker(), true, this.cache);
+    }
+
+    private Event createEvent(final String path) {
+        final Dictionary<String, Object> props = new Hashtable<String, Object>();
+        props.put(SlingConstants.PROPERTY_PATH, path);
+        return new Event(SlingConstants.TOPIC_RESOURCE_CHANGED, props);
+    }
+
+    private List<String> getChildNames(final Resource parent) {
+        final List<String> names = new ArrayList<String>();
+        final Iterator<Resource> i = this.provider.listChildren(parent);
+        while ( i.hasNext() ) {
+            names.add(i.next().getName());
+        }
+        return names;
+    }
+
+    private void setLibsProperty(final String value) throws Exception {
+        this.resolver.getResource("/libs/a/1").adaptTo(ModifiableValueMap.class).put("b", value);
+        this.resolver.commit();
+    }
+
+    @Test public void testCachedResource() throws Exception {
+        final Resource rsrc = this.provider.getResource(this.resolver, "/merged/a/1");
+        assertNotNull(rsrc);
+        assertEquals("apps", rsrc.getValueMap().get("a"));
+        assertEquals(1, this.cache.size());
+
+        // the cached result is used until a change event arrives
+        this.setLibsProperty("changed");
+        final Resource cached = this.provider.getResource(this.resolver, "/merged/a/1");
+        assertEquals("/merged/a/1", cached.getPath());
+        assertEquals(rsrc.getResourceType(), cached.getResourceType());
+        assertEquals("libs", cached.getValueMap().get("b"));
+        assertArrayEquals(new String[] {"/libs/a/1", "/apps/a/1"},
+                (String[]) cached.getResourceMetadata().get(MergedResourceConstants.METADATA_RESOURCES));
+
+        // properties of a merged resource are not shared
+        cached.getValueMap().put("b", "modified");
+        assertEquals("libs", this.provider.getResource(this.resolver, "/merged/a/1").getValueMap().get("b"));
+
+        // changes outside of the picked resources are ignored
+        this.cache.handleEvent(createEvent("/content/x"));
+        assertEquals(1, this.cache.size());
+
+        this.cache.handleEvent(createEvent("/libs/a/1"));
+        assertEquals(0, this.cache.size());
+        final ValueMap props = this.provider.getResource(this.resolver, "/merged/a/1").getValueMap();
+        assertEquals("changed", props.get("b"));
+    }
+
+    @Test public void testNotCachedWithUnsavedChanges() throws Exception {
+        final Resource rsrcA = this.provider.getResource(this.resolver, "/merged/a");
+        this.cache.flush();
+        this.resolver.create(this.resolver.getResource("/apps/a"), "3", null);
+        assertEquals("[1, 3]", getChildNames(rsrcA).toString());
+        assertEquals(0, this.cache.size());
+
+        // a cached result is not used for a resolver with unsaved changes
+        this.resolver.revert();
+        assertEquals("[1]", getChildNames(rsrcA).toString());
+        assertEquals(1, this.cache.size());
+        this.resolver.create(this.resolver.getResource("/apps/a"), "3", null);
+        assertEquals("[1, 3]", getChildNames(rsrcA).toString());
+    }
+
+    @Test public void testCachedMissingResource() {
+        assertNull(this.provider.getResource(this.resolver, "/merged/a/2"));
+        assertNull(this.provider.getResource(this.resolver, "/merged/a/2"));
+        assertEquals(1, this.cache.size());
+    }
+
+    @Test public void testCachedChildren() throws Exception {
+        final Resource rsrcA = this.provider.getResource(this.resolver, "/merged/a");
+        assertEquals("[1]", getChildNames(rsrcA).toString());
+        assertEquals("[1]", getChildNames(rsrcA).toString());
+
+        this.resolver.create(this.resolver.getResource("/apps/a"), "3", null);
+        this.resolver.commit();
+        assertEquals("[1]", getChildNames(rsrcA).toString());
+
+        // a change of the root flushes as well
+        this.cache.handleEvent(createEvent("/apps"));
+        assertEquals("[1, 3]", getChildNames(rsrcA).toString());
+        final Resource child = this.provider.listChildren(rsrcA).next();
+        assertEquals("/merged/a/1", child.getPath());
+        assertEquals("apps", child.getValueMap().get("a"));
+    }
+}
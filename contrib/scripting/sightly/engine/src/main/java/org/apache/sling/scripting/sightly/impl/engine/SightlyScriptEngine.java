@@ -35,6 +35,7 @@ import org.apache.sling.api.scripting.SlingBindings;
 import org.apache.sling.api.scripting.SlingScriptConstants;
 import org.apache.sling.api.scripting.SlingScriptHelper;
 import org.apache.sling.scripting.api.AbstractSlingScriptEngine;
+import org.apache.sling.scripting.sightly.impl.engine.runtime.PropertyAccessorCache;
 import org.apache.sling.scripting.sightly.impl.engine.runtime.RenderContextImpl;
 import org.apache.sling.scripting.sightly.impl.engine.runtime.RenderUnit;
 import org.slf4j.Logger;
@@ -51,13 +52,16 @@ public class SightlyScriptEngine extends AbstractSlingScriptEngine {
 
     private final UnitLoader unitLoader;
     private final ExtensionRegistryService extensionRegistryService;
+    private final PropertyAccessorCache accessorCache;
 
     public SightlyScriptEngine(ScriptEngineFactory scriptEngineFactory,
                                UnitLoader unitLoader,
-                               ExtensionRegistryService extensionRegistryService) {
+                               ExtensionRegistryService extensionRegistryService,
+                               PropertyAccessorCache accessorCache) {
         super(scriptEngineFactory);
         this.unitLoader = unitLoader;
         this.extensionRegistryService = extensionRegistryService;
+        this.accessorCache = accessorCache;
     }
 
     @Override
@@ -90,7 +94,8 @@ public class SightlyScriptEngine extends AbstractSlingScriptEngine {
     }
 
     private void evaluateScript(Resource scriptResource, Bindings bindings, ResourceResolver scriptResourceResolver) {
-        RenderContextImpl renderContext = new RenderContextImpl(bindings, extensionRegistryService.extensions(), scriptResourceResolver);
+        RenderContextImpl renderContext = new RenderContextImpl(bindings, extensionRegistryService.extensions(), scriptResourceResolver,
+                accessorCache);
         RenderUnit renderUnit = unitLoader.createUnit(scriptResource, bindings, renderContext);
         renderUnit.render(renderContext, EMPTY_BINDINGS);
     }
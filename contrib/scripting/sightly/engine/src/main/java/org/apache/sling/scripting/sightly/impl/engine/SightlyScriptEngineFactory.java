@@ -29,6 +29,7 @@ import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.Service;
 import org.apache.sling.commons.classloader.DynamicClassLoaderManager;
 import org.apache.sling.scripting.api.AbstractScriptEngineFactory;
+import org.apache.sling.scripting.sightly.impl.engine.runtime.PropertyAccessorCache;
 
 /**
  * Sightly template engine factory
@@ -47,6 +48,9 @@ public class SightlyScriptEngineFactory extends AbstractScriptEngineFactory {
     @Reference
     private ExtensionRegistryService extensionRegistryService = null;
 
+    @Reference
+    private PropertyAccessorCache accessorCache = null;
+
     @Reference()
     private DynamicClassLoaderManager dynamicClassLoaderManager;
 
@@ -77,7 +81,7 @@ public class SightlyScriptEngineFactory extends AbstractScriptEngineFactory {
 
     @Override
     public ScriptEngine getScriptEngine() {
-        return new SightlyScriptEngine(this, unitLoader, extensionRegistryService);
+        return new SightlyScriptEngine(this, unitLoader, extensionRegistryService, accessorCache);
     }
 
     protected void bindDynamicClassLoaderManager(final DynamicClassLoaderManager dclm) {
@@ -32,6 +32,7 @@ import org.apache.sling.api.SlingConstants;
 import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.scripting.sightly.impl.engine.runtime.PropertyAccessorCache;
 import org.apache.sling.settings.SlingSettingsService;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.component.ComponentContext;
@@ -59,6 +60,9 @@ public class UnitChangeMonitor {
     @Reference
     private SlingSettingsService slingSettings = null;
 
+    @Reference
+    private PropertyAccessorCache accessorCache = null;
+
     /**
      * Returns the last modified date for a Sightly script.
      *
@@ -162,6 +166,10 @@ public class UnitChangeMonitor {
     private void processEvent(Event event) {
         String path = (String) event.getProperty(SlingConstants.PROPERTY_PATH);
         String topic = event.getTopic();
+        if (path.endsWith(".java")) {
+            // classes of changed Java sources are reloaded, drop the accessors of the old classes
+            accessorCache.flush();
+        }
         if (SlingConstants.TOPIC_RESOURCE_ADDED.equals(topic) || SlingConstants.TOPIC_RESOURCE_CHANGED.equals(topic)) {
             if (path.startsWith(UnitLoader.DEFAULT_REPO_BASE_PATH)) {
                 slySourcesMap.put(path, System.currentTimeMillis());
@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ******************************************************************************/
+package org.apache.sling.scripting.sightly.impl.engine.runtime;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.Service;
+import org.apache.sling.commons.classloader.DynamicClassLoaderManager;
+import org.apache.sling.scripting.sightly.SightlyException;
+
+/**
+ * Caches the accessors used for resolving the properties of objects in Sightly expressions.
+ * <p>
+ * The accessors are resolved once per (class, property name) and the result, including the
+ * information that a class has no such property, is kept until the cache is flushed. As the
+ * cache holds references to classes, it is flushed whenever classes might be reloaded: the
+ * component is bound to the {@link DynamicClassLoaderManager}, which is replaced on bundle
+ * changes, and the {@code UnitChangeMonitor} flushes it when Java sources are changed.
+ */
+@Component
+@Service(PropertyAccessorCache.class)
+public class PropertyAccessorCache {
+
+    /**
+     * Accessor for a property of a class.
+     */
+    public static abstract class Accessor {
+
+        /**
+         * Get the property value of the given object.
+         *
+         * @param target the target object, an instance of the class of the accessor
+         * @return the property value or {@code null}
+         */
+        public abstract Object get(Object target);
+    }
+
+    /** Accessor for classes without the property. */
+    private static final Accessor NO_ACCESSOR = new Accessor() {
+        @Override
+        public Object get(Object target) {
+            return null;
+        }
+    };
+
+    private final ConcurrentMap<Class<?>, ConcurrentMap<String, Accessor>> accessors =
+            new ConcurrentHashMap<Class<?>, ConcurrentMap<String, Accessor>>();
+
+    @Reference
+    private DynamicClassLoaderManager dynamicClassLoaderManager = null;
+
+    @Deactivate
+    protected void deactivate() {
+        flush();
+    }
+
+    /**
+     * Get the accessor for a property of a class.
+     *
+     * @param cls      the class
+     * @param property the property name
+     * @return the accessor, never {@code null}
+     */
+    public Accessor getAccessor(Class<?> cls, String property) {
+        ConcurrentMap<String, Accessor> classAccessors = accessors.get(cls);
+        if (classAccessors == null) {
+            classAccessors = new ConcurrentHashMap<String, Accessor>();
+            ConcurrentMap<String, Accessor> existing = accessors.putIfAbsent(cls, classAccessors);
+            if (existing != null) {
+                classAccessors = existing;
+            }
+        }
+        Accessor accessor = classAccessors.get(property);
+        if (accessor == null) {
+            accessor = resolveAccessor(cls, property);
+            classAccessors.put(property, accessor);
+        }
+        return accessor;
+    }
+
+    /**
+     * Remove all cached accessors.
+     */
+    public void flush() {
+        accessors.clear();
+    }
+
+    /**
+     * @return the number of classes with cached accessors
+     */
+    public int size() {
+        return accessors.size();
+    }
+
+    private static Accessor resolveAccessor(Class<?> cls, String property) {
+        Method method = findMethod(cls, property);
+        if (method != null) {
+            return new MethodAccessor(extractMethodInheritanceChain(cls, method));
+        }
+        try {
+            return new FieldAccessor(cls.getDeclaredField(property));
+        } catch (NoSuchFieldException e) {
+            return NO_ACCESSOR;
+        }
+    }
+
+    private static Method findMethod(Class<?> cls, String baseName) {
+        Method[] publicMethods = cls.getMethods();
+        String capitalized = StringUtils.capitalize(baseName);
+        for (Method m : publicMethods) {
+            if (m.getParameterTypes().length == 0) {
+                String methodName = m.getName();
+                if (baseName.equals(methodName)
+                    || ("get" + capitalized).equals(methodName)
+                    || ("is" + capitalized).equals(methodName)) {
+
+                    // this method is good, check whether allowed
+                    if (isMethodAllowed(m)) {
+                        return m;
+                    }
+
+                    // method would match but is not allwed, abort
+                    break;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isMethodAllowed(Method method) {
+        Class<?> declaringClass = method.getDeclaringClass();
+        //methods of the Object.class are forbidden (except toString, which is allowed)
+        return declaringClass != Object.class || RenderContextImpl.TO_STRING_METHOD.equals(method.getName());
+    }
+
+    private static Method extractMethodInheritanceChain(Class type, Method m) {
+        if (m == null || Modifier.isPublic(type.getModifiers())) {
+            return m;
+        }
+        Class[] inf = type.getInterfaces();
+        Method mp;
+        for (Class<?> iface : inf) {
+            try {
+                mp = iface.getMethod(m.getName(), m.getParameterTypes());
+                mp = extractMethodInheritanceChain(mp.getDeclaringClass(), mp);
+                if (mp != null) {
+                    return mp;
+                }
+            } catch (NoSuchMethodException e) {
+                // do nothing
+            }
+        }
+        Class<?> sup = type.getSuperclass();
+        if (sup != null) {
+            try {
+                mp = sup.getMethod(m.getName(), m.getParameterTypes());
+                mp = extractMethodInheritanceChain(mp.getDeclaringClass(), mp);
+                if (mp != null) {
+                    return mp;
+                }
+            } catch (NoSuchMethodException e) {
+                // do nothing
+            }
+        }
+        return null;
+    }
+
+    private static final class MethodAccessor extends Accessor {
+
+        /** The accessible method, {@code null} if the method is not accessible. */
+        private final Method method;
+
+        MethodAccessor(Method method) {
+            this.method = method;
+        }
+
+        @Override
+        public Object get(Object target) {
+            if (method == null) {
+                throw new SightlyException("No accessible method found for class " + target.getClass().getName());
+            }
+            try {
+                return method.invoke(target);
+            } catch (Exception e) {
+                throw new SightlyException(e);
+            }
+        }
+    }
+
+    private static final class FieldAccessor extends Accessor {
+
+        private final Field field;
+
+        FieldAccessor(Field field) {
+            this.field = field;
+        }
+
+        @Override
+        public Object get(Object target) {
+            try {
+                return field.get(target);
+            } catch (Exception e) {
+                return null;
+            }
+        }
+    }
+}
@@ -18,9 +18,6 @@
  ******************************************************************************/
 package org.apache.sling.scripting.sightly.impl.engine.runtime;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -59,11 +56,18 @@ public class RenderContextImpl implements RenderContext {
     private final Bindings bindings;
     private final Map<String, RuntimeExtension> mapping;
     private final ResourceResolver scriptResourceResolver;
+    private final PropertyAccessorCache accessorCache;
 
     public RenderContextImpl(Bindings bindings, Map<String, RuntimeExtension> mapping, ResourceResolver scriptResourceResolver) {
+        this(bindings, mapping, scriptResourceResolver, new PropertyAccessorCache());
+    }
+
+    public RenderContextImpl(Bindings bindings, Map<String, RuntimeExtension> mapping, ResourceResolver scriptResourceResolver,
+                             PropertyAccessorCache accessorCache) {
         this.bindings = bindings;
         this.mapping = mapping;
         this.scriptResourceResolver = scriptResourceResolver;
+        this.accessorCache = accessorCache;
     }
 
     @Override
@@ -319,69 +323,13 @@ public class RenderContextImpl implements RenderContext {
     }
 
     private Object getObjectProperty(Object obj, String property) {
-        try {
-            return getObjectNoArgMethod(obj, property);
-        } catch (NoSuchMethodException nsmex) {
-            return getField(obj, property);
-        }
-    }
-
-    private Object getField(Object obj, String property) {
         if (obj instanceof Object[] && "length".equals(property)) {
             // Working around this limitation: http://docs.oracle.com/javase/7/docs/api/java/lang/Class.html#getFields%28%29
             return ((Object[]) obj).length;
         }
-        Class<?> cls = obj.getClass();
-        try {
-            Field field = cls.getDeclaredField(property);
-            return field.get(obj);
-        } catch (Exception e) {
-            return null;
-        }
-    }
-
-    private Object getObjectNoArgMethod(Object obj, String property) throws NoSuchMethodException {
-        Class<?> cls = obj.getClass();
-        Method method = findMethod(cls, property);
-        try {
-            method = extractMethodInheritanceChain(cls, method);
-            return method.invoke(obj);
-        } catch (Exception e) {
-            throw new SightlyException(e);
-        }
-    }
-
-    private Method findMethod(Class<?> cls, String baseName) throws NoSuchMethodException {
-        Method[] publicMethods = cls.getMethods();
-        String capitalized = StringUtils.capitalize(baseName);
-        for (Method m : publicMethods) {
-            if (m.getParameterTypes().length == 0) {
-                String methodName = m.getName();
-                if (baseName.equals(methodName)
-                    || ("get" + capitalized).equals(methodName)
-                    || ("is" + capitalized).equals(methodName)) {
-
-                    // this method is good, check whether allowed
-                    if (isMethodAllowed(m)) {
-                        return m;
-                    }
-
-                    // method would match but is not allwed, abort
-                    break;
-                }
-            }
-        }
-
-        throw new NoSuchMethodException(baseName);
-    }
-
-    private boolean isMethodAllowed(Method method) {
-        Class<?> declaringClass = method.getDeclaringClass();
-        //methods of the Object.class are forbidden (except toString, which is allowed)
-        return declaringClass != Object.class || TO_STRING_METHOD.equals(method.getName());
+        return accessorCache.getAccessor(obj.getClass(), property).get(obj);
     }
 
-
     private String objectToString(Object obj) {
         String output = "";
         if (obj != null) {
@@ -428,36 +376,4 @@ public class RenderContextImpl implements RenderContext {
         set.add(Void.class);
         return set;
     }
-
-    private static Method extractMethodInheritanceChain(Class type, Method m) {
-        if (m == null || Modifier.isPublic(type.getModifiers())) {
-            return m;
-        }
-        Class[] inf = type.getInterfaces();
-        Method mp;
-        for (Class<?> iface : inf) {
-            try {
-                mp = iface.getMethod(m.getName(), m.getParameterTypes());
-                mp = extractMethodInheritanceChain(mp.getDeclaringClass(), mp);
-                if (mp != null) {
-                    return mp;
-                }
-            } catch (NoSuchMethodException e) {
-                // do nothing
-            }
-        }
-        Class<?> sup = type.getSuperclass();
-        if (sup != null) {
-            try {
-                mp = sup.getMethod(m.getName(), m.getParameterTypes());
-                mp = extractMethodInheritanceChain(mp.getDeclaringClass(), mp);
-                if (mp != null) {
-                    return mp;
-                }
-            } catch (NoSuchMethodException e) {
-                // do nothing
-            }
-        }
-        return null;
-    }
 }
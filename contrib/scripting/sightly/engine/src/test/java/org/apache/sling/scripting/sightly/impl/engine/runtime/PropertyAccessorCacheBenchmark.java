@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ******************************************************************************/
+package org.apache.sling.scripting.sightly.impl.engine.runtime;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.script.SimpleBindings;
+
+import org.apache.sling.scripting.sightly.extension.RuntimeExtension;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares resolving bean properties through {@link RenderContextImpl#resolveProperty(Object, Object)}
+ * with a shared {@link PropertyAccessorCache} against resolving them with an empty cache, which
+ * scans the methods of the class for every evaluation like the previous implementation.
+ * <p>
+ * The benchmark instance and its property index are kept per thread, only the {@link SharedContext} is
+ * shared by the threads.
+ * <p>
+ * This is not run as part of the build, run the <code>main</code> method from the test class path instead.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class PropertyAccessorCacheBenchmark {
+
+    public static class Page {
+
+        public String getTitle() {
+            return "title";
+        }
+
+        public String getPath() {
+            return "/content/page";
+        }
+
+        public boolean isHidden() {
+            return false;
+        }
+
+        public String getDescription() {
+            return "description";
+        }
+
+        public long getLastModified() {
+            return 0L;
+        }
+    }
+
+    private static final String[] PROPERTIES = {"title", "path", "hidden", "description", "lastModified"};
+
+    @State(Scope.Benchmark)
+    public static class SharedContext {
+
+        private RenderContextImpl cachedContext;
+
+        @Setup
+        public void setup() {
+            cachedContext = createContext(new PropertyAccessorCache());
+        }
+    }
+
+    private Page page;
+
+    private int counter;
+
+    @Setup
+    public void setup() {
+        page = new Page();
+    }
+
+    @Benchmark
+    public Object cachedAccessor(SharedContext shared) {
+        return shared.cachedContext.resolveProperty(page, PROPERTIES[(counter++ & Integer.MAX_VALUE) % PROPERTIES.length]);
+    }
+
+    @Benchmark
+    public Object reflectiveScan() {
+        return createContext(new PropertyAccessorCache())
+                .resolveProperty(page, PROPERTIES[(counter++ & Integer.MAX_VALUE) % PROPERTIES.length]);
+    }
+
+    private static RenderContextImpl createContext(PropertyAccessorCache cache) {
+        return new RenderContextImpl(new SimpleBindings(), new HashMap<String, RuntimeExtension>(), null, cache);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PropertyAccessorCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+}
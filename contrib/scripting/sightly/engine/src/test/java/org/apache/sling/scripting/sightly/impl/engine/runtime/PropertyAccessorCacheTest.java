@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ******************************************************************************/
+package org.apache.sling.scripting.sightly.impl.engine.runtime;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PropertyAccessorCacheTest {
+
+    private PropertyAccessorCache cache;
+
+    public interface Named {
+        String getName();
+    }
+
+    public static class Bean implements Named {
+
+        public String field = "field";
+
+        public String getName() {
+            return "name";
+        }
+
+        public boolean isActive() {
+            return true;
+        }
+
+        public String title() {
+            return "title";
+        }
+    }
+
+    private static class HiddenBean implements Named {
+
+        public String getName() {
+            return "hidden";
+        }
+    }
+
+    @Before
+    public void setUp() {
+        cache = new PropertyAccessorCache();
+    }
+
+    @Test
+    public void testAccessors() {
+        Bean bean = new Bean();
+        assertEquals("name", cache.getAccessor(Bean.class, "name").get(bean));
+        assertEquals(Boolean.TRUE, cache.getAccessor(Bean.class, "active").get(bean));
+        assertEquals("title", cache.getAccessor(Bean.class, "title").get(bean));
+        assertEquals("field", cache.getAccessor(Bean.class, "field").get(bean));
+        assertNull(cache.getAccessor(Bean.class, "unknown").get(bean));
+        // methods of Object are not accessible
+        assertNull(cache.getAccessor(Bean.class, "class").get(bean));
+    }
+
+    @Test
+    public void testAccessorsAreCached() {
+        PropertyAccessorCache.Accessor accessor = cache.getAccessor(Bean.class, "name");
+        assertSame(accessor, cache.getAccessor(Bean.class, "name"));
+        PropertyAccessorCache.Accessor missing = cache.getAccessor(Bean.class, "unknown");
+        assertSame(missing, cache.getAccessor(Bean.class, "unknown"));
+        assertEquals(1, cache.size());
+
+        cache.flush();
+        assertEquals(0, cache.size());
+        assertNotSame(accessor, cache.getAccessor(Bean.class, "name"));
+    }
+
+    @Test
+    public void testMethodOfNonPublicClass() {
+        // the method is invoked through the public interface
+        assertEquals("hidden", cache.getAccessor(HiddenBean.class, "name").get(new HiddenBean()));
+    }
+}
@@ -150,4 +150,22 @@ public abstract class InstallTask implements Comparable<InstallTask> {
     public boolean isAsynchronousTask() {
         return false;
     }
-}
\ No newline at end of file
+
+    /**
+     * Tasks can opt in to be executed in parallel with other tasks
+     * by returning a parallel group.
+     * The OSGi installer might execute tasks following each other in
+     * the order of their sort keys in parallel, if all of them return
+     * the same group. Therefore a task should only return a group if
+     * it does not depend on the other tasks of this group and is
+     * thread safe with respect to them.
+     * Asynchronous tasks are always executed on their own.
+     *
+     * @return The parallel group or <code>null</code> if the task must
+     *         be executed on its own, which is the default.
+     * @since 1.4
+     */
+    public String getParallelGroup() {
+        return null;
+    }
+}
@@ -65,6 +65,9 @@ public class EntityResourceList implements Serializable, TaskResourceGroup {
     /** The listener. */
     private transient InstallationListener listener;
 
+    /** Stamp of the last modification of the list itself, 0 if unchanged since it has been restored. */
+    private transient long modificationStamp = RegisteredResourceImpl.nextModificationStamp();
+
     public EntityResourceList(final String resourceId, final InstallationListener listener) {
         this.resourceId = resourceId;
         this.listener = listener;
@@ -110,6 +113,22 @@ public class EntityResourceList implements Serializable, TaskResourceGroup {
         }
     }
 
+    /**
+     * Get the stamp of the last modification of the list or one of its resources.
+     * @see RegisteredResourceImpl#nextModificationStamp()
+     */
+    long getModificationStamp() {
+        long stamp = this.modificationStamp;
+        for(final RegisteredResourceImpl rr : this.resources) {
+            stamp = Math.max(stamp, rr.getModificationStamp());
+        }
+        return stamp;
+    }
+
+    private void modified() {
+        this.modificationStamp = RegisteredResourceImpl.nextModificationStamp();
+    }
+
     /**
      * The resource list is empty if it contains no resources.
      */
@@ -287,6 +306,7 @@ public class EntityResourceList implements Serializable, TaskResourceGroup {
      * @see org.apache.sling.installer.api.tasks.TaskResourceGroup#setFinishState(org.apache.sling.installer.api.tasks.ResourceState, java.lang.String)
      */
     public void setFinishState(final ResourceState state, final String alias) {
+        this.modified();
         this.alias = alias;
         this.setFinishState(state);
     }
@@ -327,6 +347,7 @@ public class EntityResourceList implements Serializable, TaskResourceGroup {
                         ((RegisteredResourceImpl)rr).setState(ResourceState.UNINSTALL);
                     } else {
                         LOGGER.debug("Cleanup obsolete resource: {}", rr);
+                        this.modified();
                         taskIter.remove();
                         this.cleanup(rr);
                     }
@@ -336,6 +357,7 @@ public class EntityResourceList implements Serializable, TaskResourceGroup {
             first = false;
         }
         if ( add ) {
+            this.modified();
             resources.add(r);
         }
     }
@@ -353,6 +375,7 @@ public class EntityResourceList implements Serializable, TaskResourceGroup {
                     ((RegisteredResourceImpl)r).setState(ResourceState.UNINSTALL);
                 } else {
                     LOGGER.debug("Removing unused: {}", r);
+                    this.modified();
                     i.remove();
                     this.cleanup(r);
                 }
@@ -378,6 +401,7 @@ public class EntityResourceList implements Serializable, TaskResourceGroup {
         }
 
         if (!toDelete.isEmpty()) {
+            this.modified();
             // Avoid resources.remove(r) as the resource might have
             // changed since it was added, which causes it to compare()
             // differently and trip the TreeSet.remove() search.
@@ -84,6 +84,15 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
      */
     private static final String START_LEVEL_HANDLING = "sling.installer.switchstartlevel";
 
+    /**
+     * The name of the bundle context property defining the number of threads
+     * executing independent tasks in parallel. A value of 1 disables it.
+     */
+    private static final String TASK_THREADS = "sling.installer.taskthreads";
+
+    /** Default number of threads executing independent tasks. */
+    private static final int DEFAULT_TASK_THREADS = 4;
+
     /** The logger */
     private final Logger logger =  LoggerFactory.getLogger(this.getClass());
 
@@ -132,6 +141,9 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
     private final InstallListener listener;
     private final AtomicLong backgroundTaskCounter = new AtomicLong();
 
+    /** Executor for the install tasks. */
+    private final ParallelTaskExecutor taskExecutor;
+
     /** Switch start level on bundle update? */
     private final boolean switchStartLevel;
 
@@ -148,6 +160,7 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
         this.listener = new InstallListener(ctx, logger);
         this.persistentList = new PersistentResourceList(f, listener);
         this.switchStartLevel = PropertiesUtil.toBoolean(ctx.getProperty(START_LEVEL_HANDLING), false);
+        this.taskExecutor = new ParallelTaskExecutor(PropertiesUtil.toInteger(ctx.getProperty(TASK_THREADS), DEFAULT_TASK_THREADS));
     }
 
     /**
@@ -195,6 +208,7 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
             }
             logger.debug("Done waiting for background thread");
         }
+        this.taskExecutor.shutdown();
 
         // remove file util
         FileDataStore.SHARED = null;
@@ -793,11 +807,12 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
                 }
             };
             while (this.active && !tasks.isEmpty()) {
-                InstallTask task = null;
+                // either a single task or independent tasks which can be executed in parallel
+                final List<InstallTask> batch;
                 synchronized (tasks) {
-                    task = tasks.first();
-                    tasks.remove(task);
+                    batch = this.taskExecutor.nextBatch(tasks);
                 }
+                final InstallTask task = batch.get(0);
                 // async tasks are executed "immediately"
                 if ( task.isAsynchronousTask() ) {
                     logger.debug("Executing async task: {}", task);
@@ -842,12 +857,7 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
                     t.start();
                     return ACTION.SHUTDOWN;
                 }
-                try {
-                    logger.debug("Executing task: {}", task);
-                    task.execute(ctx);
-                } catch (final Throwable t) {
-                    logger.error("Uncaught exception during task execution!", t);
-                }
+                this.taskExecutor.execute(batch, ctx);
             }
             // save new state
             final boolean newCycle = this.cleanupInstallableResources();
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.installer.core.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sling.installer.api.tasks.InstallTask;
+import org.apache.sling.installer.api.tasks.InstallationContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes independent install tasks in parallel.
+ *
+ * Tasks are executed in the order of their sort key. Tasks following each
+ * other which return the same {@link InstallTask#getParallelGroup()} are
+ * executed in parallel, all other tasks are executed one at a time.
+ * Bundle tasks don't opt in: installing bundles one after the other keeps
+ * the bundle ids and therefore the order of the start tasks deterministic.
+ */
+public class ParallelTaskExecutor {
+
+    /** The logger */
+    private final Logger logger =  LoggerFactory.getLogger(this.getClass());
+
+    /** The thread pool or <code>null</code> if tasks are executed sequentially. */
+    private final ExecutorService executor;
+
+    /**
+     * Create a new executor
+     * @param threads The number of threads, a value lower than 2 disables
+     *                the parallel execution.
+     */
+    public ParallelTaskExecutor(final int threads) {
+        if ( threads > 1 ) {
+            final AtomicInteger counter = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+                public Thread newThread(final Runnable r) {
+                    final Thread t = new Thread(r, "OsgiInstallerTaskThread" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * Stop the thread pool once the running tasks are finished.
+     */
+    public void shutdown() {
+        if ( this.executor != null ) {
+            this.executor.shutdown();
+        }
+    }
+
+    /**
+     * Get the phase of a task.
+     * @return The phase or <code>null</code> if the task must be executed on its own.
+     */
+    static String getPhase(final InstallTask task) {
+        if ( task.isAsynchronousTask() ) {
+            return null;
+        }
+        return task.getParallelGroup();
+    }
+
+    /**
+     * Remove the next tasks to execute from the set of tasks. This is either
+     * the first task or all tasks at the beginning of the set which are in the
+     * same phase as the first one.
+     * @param tasks The sorted set of tasks, the caller must synchronize on it.
+     * @return The list of tasks, which is empty if the set is empty.
+     */
+    public List<InstallTask> nextBatch(final SortedSet<InstallTask> tasks) {
+        if ( tasks.isEmpty() ) {
+            return Collections.emptyList();
+        }
+        final InstallTask first = tasks.first();
+        final String phase = (this.executor == null ? null : getPhase(first));
+        if ( phase == null ) {
+            tasks.remove(first);
+            return Collections.singletonList(first);
+        }
+        final List<InstallTask> batch = new ArrayList<InstallTask>();
+        for(final InstallTask task : tasks) {
+            if ( !phase.equals(getPhase(task)) ) {
+                break;
+            }
+            batch.add(task);
+        }
+        tasks.removeAll(batch);
+        return batch;
+    }
+
+    /**
+     * Execute the tasks and wait until all of them are finished.
+     * @param batch The tasks
+     * @param ctx The installation context
+     */
+    public void execute(final List<InstallTask> batch, final InstallationContext ctx) {
+        if ( batch.size() == 1 ) {
+            execute(batch.get(0), ctx);
+            return;
+        }
+        logger.debug("Executing {} tasks in parallel", batch.size());
+        final List<Future<?>> futures = new ArrayList<Future<?>>();
+        for(final InstallTask task : batch) {
+            futures.add(this.executor.submit(new Runnable() {
+
+                public void run() {
+                    ParallelTaskExecutor.this.execute(task, ctx);
+                }
+            }));
+        }
+        boolean interrupted = false;
+        for(final Future<?> f : futures) {
+            while ( true ) {
+                try {
+                    f.get();
+                    break;
+                } catch (final InterruptedException ie) {
+                    // the installer can't continue before the tasks are finished
+                    interrupted = true;
+                } catch (final ExecutionException ee) {
+                    logger.error("Uncaught exception during task execution!", ee.getCause());
+                    break;
+                }
+            }
+        }
+        if ( interrupted ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void execute(final InstallTask task, final InstallationContext ctx) {
+        try {
+            logger.debug("Executing task: {}", task);
+            task.execute(ctx);
+        } catch (final Throwable t) {
+            logger.error("Uncaught exception during task execution!", t);
+        }
+    }
+}
@@ -20,19 +20,27 @@ package org.apache.sling.installer.core.impl;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.sling.installer.api.InstallableResource;
 import org.apache.sling.installer.api.event.InstallationListener;
@@ -44,12 +52,41 @@ import org.slf4j.LoggerFactory;
 /**
  * Persistent list of RegisteredResource, used by installer to
  * keep track of all registered resources
+ *
+ * The state is stored as a snapshot file and a journal file next to it.
+ * The snapshot contains one record per entity and one record for the
+ * untransformed resources. Resources and entities carry a modification
+ * stamp, on {@link #save()} only the records modified since the last save
+ * are appended to the journal. Once the journal contains more records than the snapshot,
+ * both are compacted into a new snapshot. Snapshot and journal carry a
+ * generation, a journal of another generation than the snapshot is ignored.
  */
 public class PersistentResourceList {
 
-    /** Serialization version. */
+    /** Serialization version of the old, object stream based format. */
     private static final int VERSION = 2;
 
+    /** Magic number and version of the snapshot and the journal. */
+    private static final int JOURNAL_VERSION = 0x534c4903;
+
+    /** Suffix of the journal file. */
+    private static final String JOURNAL_SUFFIX = ".journal";
+
+    /** Minimum number of journal records before the journal is compacted. */
+    private static final int MIN_COMPACTION_RECORDS = 100;
+
+    /** Record: an entity resource list has been added or changed. */
+    private static final byte RECORD_ENTITY = 1;
+
+    /** Record: an entity resource list has been removed. */
+    private static final byte RECORD_ENTITY_REMOVED = 2;
+
+    /** Record: the list of untransformed resources has changed. */
+    private static final byte RECORD_UNTRANSFORMED = 3;
+
+    /** Key used for the record of the untransformed resources. */
+    private static final String UNTRANSFORMED_KEY = "";
+
     /** Entity id for restart active bundles. */
     public static final String RESTART_ACTIVE_BUNDLES_TYPE = "org.apache.sling.installer.core.restart.bundles";
     public static final String RESTART_ACTIVE_BUNDLES_ID = "org.apache.sling.installer.core.restart.bundles";
@@ -69,30 +106,57 @@ public class PersistentResourceList {
     /** The persistence file. */
     private final File dataFile;
 
+    /** The journal file. */
+    private final File journalFile;
+
+    /** The ids of the entities contained in the snapshot and journal. */
+    private final Set<String> persistedIds = new HashSet<String>();
+
+    /** The modification stamp taken by the last save. */
+    private long savedStamp;
+
+    /** Stamp of the last modification of the list of untransformed resources. */
+    private long untransformedStamp;
+
+    /** The generation of the snapshot, the journal belongs to. */
+    private long generation;
+
+    /** The number of records in the journal. */
+    private int journalRecords;
+
+    /** Whether the next save has to write a new snapshot. */
+    private boolean compactOnSave;
+
     /** All untransformed resources. */
     private final List<RegisteredResource> untransformedResources;
 
     private final InstallationListener listener;
 
-    @SuppressWarnings("unchecked")
     public PersistentResourceList(final File dataFile, final InstallationListener listener) {
         this.dataFile = dataFile;
+        this.journalFile = new File(dataFile.getPath() + JOURNAL_SUFFIX);
         this.listener = listener;
 
         Map<String, EntityResourceList> restoredData = null;
         List<RegisteredResource> unknownList = null;
-        if ( dataFile.exists() ) {
-            ObjectInputStream ois = null;
+        if ( dataFile.exists() || journalFile.exists() ) {
+            restoredData = new HashMap<String, EntityResourceList>();
+            unknownList = new ArrayList<RegisteredResource>();
             try {
-                ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(dataFile)));
-                final int version = ois.readInt();
-                if ( version > 0 && version <= VERSION ) {
-                    restoredData = (Map<String, EntityResourceList>)ois.readObject();
-                    if ( version == VERSION ) {
-                        unknownList = (List<RegisteredResource>)ois.readObject();
-                    }
+                if ( this.isObjectStream(dataFile) ) {
+                    this.restoreObjectStream(restoredData, unknownList);
+                    // convert to the new format with the next save
+                    this.compactOnSave = true;
                 } else {
-                    logger.warn("Unknown version for persistent resource list: {}", version);
+                    if ( dataFile.exists() ) {
+                        this.generation = this.replay(dataFile, -1, restoredData, unknownList);
+                    }
+                    if ( journalFile.exists() ) {
+                        if ( this.replay(journalFile, this.generation, restoredData, unknownList) != this.generation ) {
+                            logger.warn("Ignoring outdated journal {}", journalFile);
+                            this.compactOnSave = true;
+                        }
+                    }
                 }
                 logger.debug("Restored resource list: {}", restoredData);
                 logger.debug("Restored unknown resource list: {}", unknownList);
@@ -100,20 +164,18 @@ public class PersistentResourceList {
                 logger.warn("Unable to restore data, starting with empty list (" + e.getMessage() + ")", e);
                 restoredData = null;
                 unknownList = null;
-            } finally {
-                if (ois != null) {
-                    try {
-                        ois.close();
-                    } catch (final IOException ignore) {
-                        // ignore
-                    }
-                }
+                this.persistedIds.clear();
+                this.compactOnSave = true;
             }
         }
+        if ( !dataFile.exists() ) {
+            this.compactOnSave = true;
+        }
         data = restoredData != null ? restoredData : new HashMap<String, EntityResourceList>();
         this.untransformedResources = unknownList != null ? unknownList : new ArrayList<RegisteredResource>();
 
         this.updateCache();
+        this.savedStamp = RegisteredResourceImpl.nextModificationStamp();
 
         // update resource ids
         for(final Map.Entry<String, EntityResourceList> entry : this.data.entrySet()) {
@@ -156,21 +218,260 @@ public class PersistentResourceList {
     }
 
     /**
-     * Persist the current state
+     * Check whether the file has been written with the old object stream format.
+     */
+    private boolean isObjectStream(final File file) throws IOException {
+        if ( !file.exists() ) {
+            return false;
+        }
+        final DataInputStream dis = new DataInputStream(new FileInputStream(file));
+        try {
+            return dis.readShort() == (short)0xACED;
+        } catch (final EOFException eof) {
+            return false;
+        } finally {
+            dis.close();
+        }
+    }
+
+    /**
+     * Restore the state from the old object stream format
+     */
+    @SuppressWarnings("unchecked")
+    private void restoreObjectStream(final Map<String, EntityResourceList> restoredData,
+            final List<RegisteredResource> unknownList)
+    throws IOException, ClassNotFoundException {
+        final ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(dataFile)));
+        try {
+            final int version = ois.readInt();
+            if ( version > 0 && version <= VERSION ) {
+                restoredData.putAll((Map<String, EntityResourceList>)ois.readObject());
+                if ( version == VERSION ) {
+                    unknownList.addAll((List<RegisteredResource>)ois.readObject());
+                }
+            } else {
+                logger.warn("Unknown version for persistent resource list: {}", version);
+            }
+        } finally {
+            ois.close();
+        }
+    }
+
+    /**
+     * Apply all records of the snapshot or journal file to the state.
+     * A journal might end with an incomplete record if the last append
+     * did not finish, this and any following data is ignored.
+     * @param file The snapshot or journal file
+     * @param expectedGeneration The generation of the journal or -1 for the snapshot
+     * @return The generation of the file, if it does not match the expected
+     *         generation no records are applied.
+     */
+    @SuppressWarnings("unchecked")
+    private long replay(final File file,
+            final long expectedGeneration,
+            final Map<String, EntityResourceList> restoredData,
+            final List<RegisteredResource> unknownList)
+    throws IOException, ClassNotFoundException {
+        final DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            final int version = dis.readInt();
+            if ( version != JOURNAL_VERSION ) {
+                throw new IOException("Unknown version for persistent resource list " + file + " : " + version);
+            }
+            final long fileGeneration = dis.readLong();
+            if ( expectedGeneration != -1 && fileGeneration != expectedGeneration ) {
+                return fileGeneration;
+            }
+            while ( true ) {
+                final int type = dis.read();
+                if ( type == -1 ) {
+                    break;
+                }
+                final String key;
+                byte[] record = null;
+                try {
+                    key = dis.readUTF();
+                    if ( type != RECORD_ENTITY_REMOVED ) {
+                        record = new byte[dis.readInt()];
+                        dis.readFully(record);
+                    }
+                } catch (final EOFException eof) {
+                    logger.warn("Ignoring incomplete record at the end of {}", file);
+                    // don't append to the incomplete record
+                    this.compactOnSave = true;
+                    break;
+                }
+                if ( type == RECORD_ENTITY ) {
+                    restoredData.put(key, (EntityResourceList)this.deserialize(record));
+                } else if ( type == RECORD_ENTITY_REMOVED ) {
+                    restoredData.remove(key);
+                } else if ( type == RECORD_UNTRANSFORMED ) {
+                    unknownList.clear();
+                    unknownList.addAll((List<RegisteredResource>)this.deserialize(record));
+                } else {
+                    throw new IOException("Unknown record type in " + file + " : " + type);
+                }
+                if ( type == RECORD_ENTITY ) {
+                    this.persistedIds.add(key);
+                } else if ( type == RECORD_ENTITY_REMOVED ) {
+                    this.persistedIds.remove(key);
+                }
+                if ( expectedGeneration != -1 ) {
+                    this.journalRecords++;
+                }
+            }
+            return fileGeneration;
+        } finally {
+            dis.close();
+        }
+    }
+
+    /**
+     * Persist the current state.
+     * Only the records modified since the last save are appended to the
+     * journal. If the journal is getting too big, a new snapshot is written
+     * instead.
      */
     public void save() {
         try {
-            final ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(dataFile)));
-            try {
-                oos.writeInt(VERSION);
-                oos.writeObject(data);
-                oos.writeObject(untransformedResources);
-                logger.debug("Persisted resource list.");
-            } finally {
-                oos.close();
+            // anything modified from now on is persisted by the next save
+            final long stamp = RegisteredResourceImpl.nextModificationStamp();
+
+            // find changed and removed records
+            final List<String> changedIds = new ArrayList<String>();
+            for(final Map.Entry<String, EntityResourceList> entry : this.data.entrySet()) {
+                if ( entry.getValue().getModificationStamp() > this.savedStamp ) {
+                    changedIds.add(entry.getKey());
+                }
+            }
+            final List<String> removedIds = new ArrayList<String>();
+            for(final String id : this.persistedIds) {
+                if ( !this.data.containsKey(id) ) {
+                    removedIds.add(id);
+                }
+            }
+            final boolean untransformedChanged = this.getUntransformedModificationStamp() > this.savedStamp;
+
+            final int changes = changedIds.size() + removedIds.size() + (untransformedChanged ? 1 : 0);
+            if ( this.compactOnSave
+                 || this.journalRecords + changes > Math.max(MIN_COMPACTION_RECORDS, this.data.size() + 1) ) {
+                this.writeSnapshot();
+            } else if ( changes > 0 ) {
+                this.appendToJournal(changedIds, removedIds, untransformedChanged);
             }
+            this.savedStamp = stamp;
         } catch (final Exception e) {
             logger.warn("Unable to save persistent list: " + e.getMessage(), e);
+            // start from a clean state with the next save
+            this.compactOnSave = true;
+        }
+    }
+
+    /**
+     * Get the stamp of the last modification of the untransformed resources.
+     */
+    private long getUntransformedModificationStamp() {
+        long stamp = this.untransformedStamp;
+        for(final RegisteredResource rr : this.untransformedResources) {
+            stamp = Math.max(stamp, ((RegisteredResourceImpl)rr).getModificationStamp());
+        }
+        return stamp;
+    }
+
+    /**
+     * Append the changed records and removals to the journal.
+     */
+    private void appendToJournal(final List<String> changedIds,
+            final List<String> removedIds,
+            final boolean untransformedChanged)
+    throws IOException {
+        // a journal without records might be left over from a previous generation
+        final boolean append = this.journalRecords > 0 && this.journalFile.exists();
+        final DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.journalFile, append)));
+        try {
+            if ( !append ) {
+                dos.writeInt(JOURNAL_VERSION);
+                dos.writeLong(this.generation);
+            }
+            for(final String id : changedIds) {
+                writeRecord(dos, id, serialize(this.data.get(id)));
+            }
+            if ( untransformedChanged ) {
+                writeRecord(dos, UNTRANSFORMED_KEY, serialize(this.untransformedResources));
+            }
+            for(final String id : removedIds) {
+                dos.writeByte(RECORD_ENTITY_REMOVED);
+                dos.writeUTF(id);
+            }
+        } finally {
+            dos.close();
+        }
+        this.persistedIds.addAll(changedIds);
+        this.persistedIds.removeAll(removedIds);
+        this.journalRecords += changedIds.size() + removedIds.size() + (untransformedChanged ? 1 : 0);
+        logger.debug("Appended changes to persisted resource list, journal contains {} records.", this.journalRecords);
+    }
+
+    /**
+     * Write a new snapshot and remove the journal.
+     * The snapshot is written to a temporary file first, so an
+     * interrupted write does not destroy the previous state.
+     */
+    private void writeSnapshot() throws IOException {
+        final long newGeneration = Math.max(this.generation + 1, System.currentTimeMillis());
+        final File tmpFile = new File(this.dataFile.getPath() + ".tmp");
+        final DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+        try {
+            dos.writeInt(JOURNAL_VERSION);
+            dos.writeLong(newGeneration);
+            for(final Map.Entry<String, EntityResourceList> entry : this.data.entrySet()) {
+                writeRecord(dos, entry.getKey(), serialize(entry.getValue()));
+            }
+            writeRecord(dos, UNTRANSFORMED_KEY, serialize(this.untransformedResources));
+        } finally {
+            dos.close();
+        }
+        if ( !tmpFile.renameTo(this.dataFile) ) {
+            // some platforms can't rename to an existing file
+            this.dataFile.delete();
+            if ( !tmpFile.renameTo(this.dataFile) ) {
+                throw new IOException("Unable to rename " + tmpFile + " to " + this.dataFile);
+            }
+        }
+        this.generation = newGeneration;
+        this.persistedIds.clear();
+        this.persistedIds.addAll(this.data.keySet());
+        // the journal belongs to the previous generation and is ignored
+        // by the next restore, even if it can't be deleted
+        this.journalFile.delete();
+        this.journalRecords = 0;
+        this.compactOnSave = false;
+        logger.debug("Persisted resource list.");
+    }
+
+    private static void writeRecord(final DataOutputStream dos, final String key, final byte[] record)
+    throws IOException {
+        dos.writeByte(UNTRANSFORMED_KEY.equals(key) ? RECORD_UNTRANSFORMED : RECORD_ENTITY);
+        dos.writeUTF(key);
+        dos.writeInt(record.length);
+        dos.write(record);
+    }
+
+    private static byte[] serialize(final Object obj) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final ObjectOutputStream oos = new ObjectOutputStream(bos);
+        oos.writeObject(obj);
+        oos.close();
+        return bos.toByteArray();
+    }
+
+    private Object deserialize(final byte[] record) throws IOException, ClassNotFoundException {
+        final InputStream is = new ByteArrayInputStream(record);
+        final ObjectInputStream ois = new ObjectInputStream(is);
+        try {
+            return ois.readObject();
+        } finally {
+            ois.close();
         }
     }
 
@@ -232,6 +533,7 @@ public class PersistentResourceList {
                 this.untransformedResources.remove(input);
             }
             this.untransformedResources.add(input);
+            this.untransformedStamp = RegisteredResourceImpl.nextModificationStamp();
         }
     }
 
@@ -261,6 +563,7 @@ public class PersistentResourceList {
             if ( rr.getURL().equals(url) ) {
                 ((RegisteredResourceImpl)rr).cleanup();
                 i.remove();
+                this.untransformedStamp = RegisteredResourceImpl.nextModificationStamp();
                 break;
             }
         }
@@ -306,7 +609,9 @@ public class PersistentResourceList {
     public void transform(final RegisteredResource resource,
                           final TransformationResult[] result) {
         // remove resource from unknown list
-        this.untransformedResources.remove(resource);
+        if ( this.untransformedResources.remove(resource) ) {
+            this.untransformedStamp = RegisteredResourceImpl.nextModificationStamp();
+        }
         try {
             for(int i=0; i<result.length; i++) {
                 // check the result
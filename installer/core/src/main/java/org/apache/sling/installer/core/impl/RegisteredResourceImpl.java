@@ -30,6 +30,7 @@ import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.sling.installer.api.InstallableResource;
 import org.apache.sling.installer.api.tasks.ResourceState;
@@ -51,6 +52,9 @@ public class RegisteredResourceImpl
     /** Serialization version. */
     private static final int VERSION = 3;
 
+    /** Counter for the modification stamps of resources and resource lists. */
+    private static final AtomicLong MODIFICATION_COUNTER = new AtomicLong();
+
     /** The resource url. */
     private String url;
 
@@ -88,6 +92,9 @@ public class RegisteredResourceImpl
     /** When was the last status change? */
     private long lastChange = -1;
 
+    /** Stamp of the last modification, 0 if unchanged since it has been restored. */
+    private transient long modificationStamp = nextModificationStamp();
+
     /**
      * Serialize the object
      * - write version id
@@ -239,6 +246,7 @@ public class RegisteredResourceImpl
 	 * Remove the data file
 	 */
 	private void removeDataFile() {
+	    this.modified();
         if ( this.dataFile != null && this.dataFile.exists() ) {
             dataFile.delete();
         }
@@ -320,6 +328,7 @@ public class RegisteredResourceImpl
      * @see org.apache.sling.installer.api.tasks.TaskResource#setAttribute(java.lang.String, java.lang.Object)
      */
     public void setAttribute(final String key, final Object value) {
+        this.modified();
         if ( value == null ) {
             this.attributes.remove(key);
         } else {
@@ -352,10 +361,30 @@ public class RegisteredResourceImpl
      * Set the state for the resource.
      */
     public void setState(final ResourceState s) {
+        this.modified();
         this.lastChange = System.currentTimeMillis();
         this.state = s;
     }
 
+    /**
+     * Get a new modification stamp. Anything modified after the stamp has
+     * been taken gets a higher stamp.
+     */
+    static long nextModificationStamp() {
+        return MODIFICATION_COUNTER.incrementAndGet();
+    }
+
+    /**
+     * Get the stamp of the last modification of the persisted state.
+     */
+    long getModificationStamp() {
+        return this.modificationStamp;
+    }
+
+    private void modified() {
+        this.modificationStamp = nextModificationStamp();
+    }
+
     /**
      * When did the last change happen?
      * @return -1 if no change , 0 if unknown, > 0 otherwise
@@ -548,6 +577,7 @@ public class RegisteredResourceImpl
      * Update the resource uri - if provided.
      */
     public void update(final InternalResource rsrc) {
+        this.modified();
         if ( rsrc.getResourceUri() != null ) {
             FileDataStore.SHARED.removeFromDigestCache(this.url, this.digest);
             this.removeDataFile();
@@ -596,6 +626,7 @@ public class RegisteredResourceImpl
             final String digest,
             final int priority,
             final String url) {
+        this.modified();
         this.removeDataFile();
         if ( file != null ) {
             this.dataFile = file;
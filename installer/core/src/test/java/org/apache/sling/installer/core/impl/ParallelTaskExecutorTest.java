@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.installer.core.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.sling.installer.api.tasks.InstallTask;
+import org.apache.sling.installer.api.tasks.InstallationContext;
+import org.junit.After;
+import org.junit.Test;
+
+public class ParallelTaskExecutorTest {
+
+    private final ParallelTaskExecutor executor = new ParallelTaskExecutor(4);
+
+    private static class TestTask extends InstallTask {
+
+        private final String sortKey;
+
+        private final CountDownLatch latch;
+
+        private final String group;
+
+        private final AtomicBoolean concurrent = new AtomicBoolean();
+
+        TestTask(final String sortKey, final CountDownLatch latch) {
+            this(sortKey, null, latch);
+        }
+
+        TestTask(final String sortKey, final String group, final CountDownLatch latch) {
+            super(null);
+            this.sortKey = sortKey;
+            this.group = group;
+            this.latch = latch;
+        }
+
+        @Override
+        public void execute(final InstallationContext ctx) {
+            if ( latch != null ) {
+                latch.countDown();
+                try {
+                    // only succeeds if the other tasks run at the same time
+                    concurrent.set(latch.await(5, TimeUnit.SECONDS));
+                } catch (final InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public String getSortKey() {
+            return sortKey;
+        }
+
+        @Override
+        public String getParallelGroup() {
+            return group;
+        }
+    }
+
+    @After
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+
+    private List<String> keys(final List<InstallTask> tasks) {
+        final List<String> result = new ArrayList<String>();
+        for(final InstallTask t : tasks) {
+            result.add(t.getSortKey());
+        }
+        return result;
+    }
+
+    @Test
+    public void testBatches() {
+        final SortedSet<InstallTask> tasks = new TreeSet<InstallTask>();
+        tasks.add(new TestTask("10-a", "10-", null));
+        tasks.add(new TestTask("20-a", "20-", null));
+        tasks.add(new TestTask("20-b", "20-", null));
+        tasks.add(new TestTask("30-a", null));
+        tasks.add(new TestTask("30-b", null));
+        tasks.add(new TestTask("40-010-file:a.jar", null));
+        tasks.add(new TestTask("40-010-file:b.jar", null));
+        tasks.add(new TestTask("40-020-file:c.jar", null));
+        tasks.add(new TestTask("50-020-bundle:d", null));
+        tasks.add(new TestTask("60-", null));
+        tasks.add(new TestTask("70-00010", null));
+        tasks.add(new TestTask("70-00011", null));
+
+        assertEquals("[10-a]", keys(executor.nextBatch(tasks)).toString());
+        assertEquals("[20-a, 20-b]", keys(executor.nextBatch(tasks)).toString());
+        // tasks without a parallel group are executed one at a time
+        assertEquals("[30-a]", keys(executor.nextBatch(tasks)).toString());
+        assertEquals("[30-b]", keys(executor.nextBatch(tasks)).toString());
+        assertEquals("[40-010-file:a.jar]", keys(executor.nextBatch(tasks)).toString());
+        assertEquals("[40-010-file:b.jar]", keys(executor.nextBatch(tasks)).toString());
+        assertEquals("[40-020-file:c.jar]", keys(executor.nextBatch(tasks)).toString());
+        assertEquals("[50-020-bundle:d]", keys(executor.nextBatch(tasks)).toString());
+        assertEquals("[60-]", keys(executor.nextBatch(tasks)).toString());
+        assertEquals("[70-00010]", keys(executor.nextBatch(tasks)).toString());
+        assertEquals("[70-00011]", keys(executor.nextBatch(tasks)).toString());
+        assertTrue(tasks.isEmpty());
+        assertTrue(executor.nextBatch(tasks).isEmpty());
+    }
+
+    @Test
+    public void testSequentialExecutor() {
+        final ParallelTaskExecutor sequential = new ParallelTaskExecutor(1);
+        final SortedSet<InstallTask> tasks = new TreeSet<InstallTask>();
+        tasks.add(new TestTask("20-a", "20-", null));
+        tasks.add(new TestTask("20-b", "20-", null));
+        assertEquals("[20-a]", keys(sequential.nextBatch(tasks)).toString());
+        sequential.shutdown();
+    }
+
+    @Test
+    public void testParallelExecution() {
+        final CountDownLatch latch = new CountDownLatch(3);
+        final List<InstallTask> batch = new ArrayList<InstallTask>();
+        for(int i=0; i<3; i++) {
+            batch.add(new TestTask("20-" + i, latch));
+        }
+        executor.execute(batch, null);
+        for(final InstallTask t : batch) {
+            assertTrue(t.toString(), ((TestTask)t).concurrent.get());
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.installer.core.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+
+import org.apache.sling.installer.api.InstallableResource;
+import org.apache.sling.installer.api.event.InstallationEvent;
+import org.apache.sling.installer.api.event.InstallationListener;
+import org.apache.sling.installer.api.tasks.RegisteredResource;
+import org.apache.sling.installer.api.tasks.ResourceState;
+import org.apache.sling.installer.api.tasks.TransformationResult;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PersistentResourceListTest {
+
+    private static final String ENTITY_ID = InstallableResource.TYPE_CONFIG + ":a.pid";
+
+    private final InstallationListener listener = new InstallationListener() {
+
+        public void onEvent(final InstallationEvent event) {
+            // nothing to do
+        }
+    };
+
+    private File dataFile;
+
+    private File journalFile;
+
+    @Before
+    public void setup() throws Exception {
+        new FileDataStore(new MockBundleContext());
+        this.dataFile = Utilities.getTestFile();
+        this.dataFile.delete();
+        this.journalFile = new File(this.dataFile.getPath() + ".journal");
+        this.journalFile.deleteOnExit();
+    }
+
+    private void addConfig(final PersistentResourceList list) throws Exception {
+        final Hashtable<String, Object> props = new Hashtable<String, Object>();
+        props.put("foo", "bar");
+        final InternalResource internal = InternalResource.create("test",
+                new InstallableResource("configuration:a.pid", null, props, null, null, null));
+        final RegisteredResource rr = list.addOrUpdate(internal);
+        final TransformationResult result = new TransformationResult();
+        result.setId("a.pid");
+        result.setResourceType(InstallableResource.TYPE_CONFIG);
+        list.transform(rr, new TransformationResult[] {result});
+    }
+
+    @Test
+    public void testChangesAreJournaled() throws Exception {
+        final PersistentResourceList list = new PersistentResourceList(this.dataFile, this.listener);
+        this.addConfig(list);
+        list.save();
+        assertTrue(this.dataFile.exists());
+        assertFalse(this.journalFile.exists());
+        final long snapshotLength = this.dataFile.length();
+
+        // an unchanged state is not written again
+        list.save();
+        assertFalse(this.journalFile.exists());
+
+        // a state change is appended to the journal
+        list.getEntityResourceList(ENTITY_ID).setFinishState(ResourceState.INSTALLED);
+        list.save();
+        assertTrue(this.journalFile.exists());
+        assertEquals(snapshotLength, this.dataFile.length());
+        final long journalLength = this.journalFile.length();
+        list.save();
+        assertEquals(journalLength, this.journalFile.length());
+
+        // restore snapshot and journal
+        final PersistentResourceList restored = new PersistentResourceList(this.dataFile, this.listener);
+        final EntityResourceList erl = restored.getEntityResourceList(ENTITY_ID);
+        assertNotNull(erl);
+        assertEquals(ResourceState.INSTALLED, erl.getFirstResource().getState());
+        assertNotNull(restored.getEntityResourceList(PersistentResourceList.RESTART_ACTIVE_BUNDLES_ENTITY_ID));
+
+        // removal is journaled as well
+        restored.remove(erl.getFirstResource().getURL());
+        erl.setFinishState(ResourceState.UNINSTALLED);
+        restored.compact();
+        restored.save();
+        assertEquals(null, new PersistentResourceList(this.dataFile, this.listener).getEntityResourceList(ENTITY_ID));
+    }
+
+    @Test
+    public void testUntransformedChangesAreJournaled() throws Exception {
+        final PersistentResourceList list = new PersistentResourceList(this.dataFile, this.listener);
+        final Hashtable<String, Object> props = new Hashtable<String, Object>();
+        props.put("foo", "bar");
+        final RegisteredResource rr = list.addOrUpdate(InternalResource.create("test",
+                new InstallableResource("configuration:b.pid", null, props, null, null, null)));
+        list.save();
+        assertFalse(this.journalFile.exists());
+
+        ((RegisteredResourceImpl)rr).setAttribute("transformed", "yes");
+        list.save();
+        assertTrue(this.journalFile.exists());
+
+        final PersistentResourceList restored = new PersistentResourceList(this.dataFile, this.listener);
+        assertEquals(1, restored.getUntransformedResources().size());
+        assertEquals("yes", ((RegisteredResourceImpl)restored.getUntransformedResources().get(0)).getAttribute("transformed"));
+
+        // a restored state is not written again
+        final long journalLength = this.journalFile.length();
+        restored.save();
+        assertEquals(journalLength, this.journalFile.length());
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        final PersistentResourceList list = new PersistentResourceList(this.dataFile, this.listener);
+        this.addConfig(list);
+        list.save();
+        final EntityResourceList erl = list.getEntityResourceList(ENTITY_ID);
+        for(int i=0; i<150; i++) {
+            erl.getFirstResource().setAttribute("counter", i);
+            list.save();
+        }
+        // the journal has been compacted into the snapshot in between
+        final PersistentResourceList restored = new PersistentResourceList(this.dataFile, this.listener);
+        assertEquals(149, restored.getEntityResourceList(ENTITY_ID).getFirstResource().getAttribute("counter"));
+    }
+
+    @Test
+    public void testRestoreObjectStreamFormat() throws Exception {
+        final PersistentResourceList list = new PersistentResourceList(this.dataFile, this.listener);
+        this.addConfig(list);
+        final Map<String, EntityResourceList> data = new HashMap<String, EntityResourceList>();
+        for(final String id : list.getEntityIds()) {
+            data.put(id, list.getEntityResourceList(id));
+        }
+        final ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(this.dataFile));
+        oos.writeInt(2);
+        oos.writeObject(data);
+        oos.writeObject(new ArrayList<RegisteredResource>());
+        oos.close();
+
+        final PersistentResourceList restored = new PersistentResourceList(this.dataFile, this.listener);
+        assertNotNull(restored.getEntityResourceList(ENTITY_ID));
+        restored.save();
+
+        // the old format is replaced by a snapshot
+        final DataInputStream dis = new DataInputStream(new FileInputStream(this.dataFile));
+        try {
+            assertFalse(dis.readShort() == (short)0xACED);
+        } finally {
+            dis.close();
+        }
+        assertNotNull(new PersistentResourceList(this.dataFile, this.listener).getEntityResourceList(ENTITY_ID));
+    }
+}
@@ -42,6 +42,14 @@ public class ConfigInstallTask extends AbstractConfigTask {
         return CONFIG_INSTALL_ORDER + getCompositePid();
     }
 
+    /**
+     * Configurations are independent of each other.
+     */
+    @Override
+    public String getParallelGroup() {
+        return CONFIG_INSTALL_ORDER;
+    }
+
     @SuppressWarnings("unchecked")
 	@Override
     public void execute(final InstallationContext ctx) {
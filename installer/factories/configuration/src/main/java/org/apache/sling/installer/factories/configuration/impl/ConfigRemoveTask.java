@@ -39,6 +39,14 @@ public class ConfigRemoveTask extends AbstractConfigTask {
         return CONFIG_REMOVE_ORDER + getCompositePid();
     }
 
+    /**
+     * Configurations are independent of each other.
+     */
+    @Override
+    public String getParallelGroup() {
+        return CONFIG_REMOVE_ORDER;
+    }
+
     /**
      * @see org.apache.sling.installer.api.tasks.InstallTask#execute(org.apache.sling.installer.api.tasks.InstallationContext)
      */
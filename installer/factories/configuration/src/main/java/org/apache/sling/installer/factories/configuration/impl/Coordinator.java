@@ -83,13 +83,13 @@ public class Coordinator {
         // private constructor
     }
 
-    public void add(final Operation op) {
+    public synchronized void add(final Operation op) {
         this.cleanup();
         this.operations.add(op);
         logger.debug("Adding {}", op);
     }
 
-    public Operation get(final String pid, final String factoryPid, final boolean isDelete) {
+    public synchronized Operation get(final String pid, final String factoryPid, final boolean isDelete) {
         this.cleanup();
         logger.debug("Searching {} : {} - {}", new Object[] {pid, factoryPid, isDelete});
         Operation result = null;